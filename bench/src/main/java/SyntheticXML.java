@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Synthetic XML Structure / Source generator for benchmarks (parameterized by depth, width and repetitions)
+ *
+ * License: MIT License
+ */
+
+/**
+ * SyntheticXML
+ *
+ * สร้างเอกสารที่มีรูปแบบเดียวกับ XML Structure ที่ได้จาก SoapUI:
+ * - depth       : จำนวนชั้นของ Element ซ้อนกัน (Level1 > Level2 > ...)
+ * - width       : จำนวน Field (Leaf) ในแต่ละชั้นและในแต่ละ CollateralDetail
+ * - repetitions : จำนวน CollateralDetail ในแต่ละชั้นของ Source (Structure มีเพียง 1 ตัว)
+ *
+ * ตัวอย่าง structure(depth = 1, width = 2):
+ * <Root>
+ *     <!--Optional:-->
+ *     <Field1_0></Field1_0>
+ *     <!--Optional:-->
+ *     <Field1_1></Field1_1>
+ *     <CollateralDetails>
+ *         <!--Zero or more repetitions:-->
+ *         <CollateralDetail>
+ *             <CollField0></CollField0>
+ *             <CollField1></CollField1>
+ *             <SecurityDetail><MortgageRank></MortgageRank></SecurityDetail>
+ *         </CollateralDetail>
+ *     </CollateralDetails>
+ * </Root>
+ *
+ * collateralStructure() / collateralSource(width) ใช้กับ scaling.mergeNodes: มีเพียง CollateralDetails ชั้นเดียว
+ */
+
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+final class SyntheticXML {
+
+    private SyntheticXML() {
+    }
+
+    /**
+     * @return XML Structure (Field ว่าง, CollateralDetail 1 ตัวต่อชั้น, มีคอมเมนต์แบบ SoapUI)
+     */
+    static String structure(int depth, int width) {
+        StringBuilder xml = new StringBuilder("<Root>");
+        appendLevel(xml, 1, depth, width, 1, false);
+        return xml.append("</Root>").toString();
+    }
+
+    /**
+     * @return XML Source (ทุก Field มีข้อมูล, CollateralDetail ตามจำนวน repetitions ต่อชั้น)
+     */
+    static String source(int depth, int width, int repetitions) {
+        StringBuilder xml = new StringBuilder("<Root>");
+        appendLevel(xml, 1, depth, width, repetitions, true);
+        return xml.append("</Root>").toString();
+    }
+
+    /**
+     * @return XML Structure ที่มี CollateralDetail 1 ตัว
+     */
+    static String collateralStructure() {
+        return "<Root>\n"
+                + "  <CollateralDetails>\n"
+                + "    <CollateralDetail>\n"
+                + "      <CollId></CollId>\n"
+                + "      <Amount></Amount>\n"
+                + "      <SecurityDetail>\n"
+                + "        <MortgageRank></MortgageRank>\n"
+                + "      </SecurityDetail>\n"
+                + "    </CollateralDetail>\n"
+                + "  </CollateralDetails>\n"
+                + "</Root>";
+    }
+
+    /**
+     * @return XML Source ที่มี CollateralDetail width ตัว
+     */
+    static String collateralSource(int width) {
+        StringBuilder xml = new StringBuilder("<Root><CollateralDetails>");
+        for (int i = 0; i < width; i++) {
+            xml.append("<CollateralDetail>")
+                    .append("<CollId>C").append(i).append("</CollId>")
+                    .append("<Amount>").append(i * 10).append("</Amount>")
+                    .append("<SecurityDetail><MortgageRank>").append(i % 3).append("</MortgageRank></SecurityDetail>")
+                    .append("</CollateralDetail>");
+        }
+        return xml.append("</CollateralDetails></Root>").toString();
+    }
+
+    static Document parse(DocumentBuilder builder, String xml) throws Exception {
+        return builder.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void appendLevel(StringBuilder xml, int level, int depth, int width, int repetitions, boolean withData) {
+        for (int i = 0; i < width; i++) {
+            if (!withData) {
+                xml.append("<!--Optional:-->");
+            }
+            String tagName = "Field" + level + "_" + i;
+            xml.append('<').append(tagName).append('>');
+            if (withData) {
+                xml.append("V").append(level).append('_').append(i);
+            }
+            xml.append("</").append(tagName).append('>');
+        }
+
+        xml.append("<CollateralDetails>");
+        for (int r = 0; r < repetitions; r++) {
+            if (!withData) {
+                xml.append("<!--Zero or more repetitions:-->");
+            }
+            xml.append("<CollateralDetail>");
+            for (int i = 0; i < width; i++) {
+                xml.append("<CollField").append(i).append('>');
+                if (withData) {
+                    xml.append("C").append(r).append('_').append(i);
+                }
+                xml.append("</CollField").append(i).append('>');
+            }
+            xml.append("<SecurityDetail><MortgageRank>").append(withData ? String.valueOf(r % 3) : "").append("</MortgageRank></SecurityDetail>");
+            xml.append("</CollateralDetail>");
+        }
+        xml.append("</CollateralDetails>");
+
+        if (level < depth) {
+            xml.append("<Level").append(level + 1).append('>');
+            appendLevel(xml, level + 1, depth, width, repetitions, withData);
+            xml.append("</Level").append(level + 1).append('>');
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Benchmark cases for the XMLMerger and DynamicXMLTreeEditor hot paths (run by the JMH classes in package bench)
+ *
+ * License: MIT License
+ */
+
+/**
+ * XMLBenchmarkCases
+ *
+ * - สร้าง BenchCase ตามชื่อและพารามิเตอร์ (depth, width, repetitions หรือ width ของ scaling.mergeNodes)
+ * - เรียกจาก Class ที่มี @Benchmark ใน Package bench ผ่าน Cases (JMH ไม่รับ @Benchmark ใน Default package)
+ * - ส่วนที่สร้างก่อน return คือ @Setup(Level.Trial) ส่วนใน run() คือส่วนที่จับเวลา
+ *
+ * Benchmark ที่มี:
+ * - merge.mergeNodes             : mergeNodes แบบที่ 2 (HashMap) บน Document ใหม่จาก MergeTemplate ทุกครั้ง
+ * - merge.mergeNodesDirect       : mergeNodes แบบที่ 1 (ไม่ใช้ HashMap) เพื่อเทียบกับ "เร็วขึ้นสูงสุด 2.67 เท่า"
+ * - merge.buildNodeMap           : สร้าง Map ของลูกสำหรับทุก Element ใน Source
+ * - merge.hasNonEmptyChild       : ตรวจ XML Structure ที่ว่างทั้งหมด (กรณีแย่สุด ต้องเดินทั้ง Tree)
+ * - merge.removeDuplicateNodes   : ลบ CollateralDetail ว่างครึ่งหนึ่งจาก CollateralDetails
+ * - editor.snapshotUndoRoundTrip : Serialize ทั้งเอกสารเป็น String -> Parse กลับ (Undo/Redo แบบเดิมก่อนใช้ EditHistory)
+ * - editor.deltaUndoRedo         : ลบ CollateralDetails ทั้งกิ่ง -> Undo -> Redo -> Undo ผ่าน EditHistory
+ * - registry.fromComments        : สร้าง RepeatableFieldRegistry จากคอมเมนต์ "Zero or more repetitions:" ของ Structure (DOM)
+ * - registry.scanComments        : อ่านคอมเมนต์เดียวกันจาก bytes ด้วย RepetitionCommentScanner (StAX, ไม่สร้าง DOM)
+ * - registry.isRepeatable        : ตรวจทุก Element ของ Source ด้วย Registry (Path) เทียบกับ
+ * - registry.tagNameLookup       : ตรวจทุก Element ด้วย HashSet ของชื่อ Tag (Whitelist แบบเดิม)
+ * - xml.newFactoriesPerFile      : Parse + Serialize หนึ่งไฟล์ โดยสร้าง Factory / Builder / Transformer ใหม่ (แบบเดิมก่อนใช้ XMLSupport)
+ * - xml.pooledPerFile            : Parse + Serialize หนึ่งไฟล์ ด้วย DocumentBuilder / Transformer จาก XMLSupport
+ * - xml.transformerSerialize     : Serialize DOM ผลลัพธ์ของการ Merge ด้วย Identity Transformer (แบบเดิม)
+ * - xml.documentWriterSerialize  : Serialize DOM เดียวกันด้วย DocumentWriter (ได้ Byte เหมือนกัน)
+ * - xml.parseFile                : Parse ไฟล์ Source ด้วย DocumentBuilder.parse(File) (แบบเดิม)
+ * - xml.parseMapped              : Parse ไฟล์เดียวกันผ่าน MappedXMLInput (อ่าน/map ครั้งเดียว + Prescan)
+ * - template.cloneNode           : คัดลอก XML Structure ทั้งเอกสารด้วย cloneNode(true) (แบบเดิมก่อนใช้ MergeTemplate)
+ * - template.newDocument         : สร้าง Document เดียวกันจาก MergeTemplate (Array-backed)
+ * - template.findChild           : หาลูกทุกตัวของทุก Element ของ Template ด้วย Index (parent, Tag ID) ของ MergeTemplate
+ * - scaling.mergeNodes           : mergeNodes ของ CollateralDetail width ตัว (ถ้าเป็นเชิงเส้น เวลา / width จะคงที่)
+ */
+
+import bench.BenchCase;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+public class XMLBenchmarkCases {
+
+    public static BenchCase create(String name, Map<String, Integer> params) throws Exception {
+        switch (name) {
+            case "merge.mergeNodes":
+                return mergeCase(params, false);
+            case "merge.mergeNodesDirect":
+                return mergeCase(params, true);
+            case "merge.buildNodeMap":
+                return buildNodeMapCase(params);
+            case "merge.hasNonEmptyChild":
+                return hasNonEmptyChildCase(params);
+            case "merge.removeDuplicateNodes":
+                return removeDuplicateNodesCase(params);
+            case "editor.snapshotUndoRoundTrip":
+                return snapshotUndoRoundTripCase(params);
+            case "editor.deltaUndoRedo":
+                return deltaUndoRedoCase(params);
+            case "registry.fromComments":
+                return fromCommentsCase(params);
+            case "registry.scanComments":
+                return scanCommentsCase(params);
+            case "registry.isRepeatable":
+                return repeatableLookupCase(params, true);
+            case "registry.tagNameLookup":
+                return repeatableLookupCase(params, false);
+            case "xml.newFactoriesPerFile":
+                return perFileCase(params, false);
+            case "xml.pooledPerFile":
+                return perFileCase(params, true);
+            case "xml.transformerSerialize":
+                return serializeCase(params, false);
+            case "xml.documentWriterSerialize":
+                return serializeCase(params, true);
+            case "xml.parseFile":
+                return parseFileCase(params, false);
+            case "xml.parseMapped":
+                return parseFileCase(params, true);
+            case "template.cloneNode":
+                return templateCopyCase(params, false);
+            case "template.newDocument":
+                return templateCopyCase(params, true);
+            case "template.findChild":
+                return templateFindChildCase(params);
+            case "scaling.mergeNodes":
+                return scalingCase(params);
+            default:
+                throw new IllegalArgumentException("Unknown benchmark case: " + name);
+        }
+    }
+
+    private static DocumentBuilder newBuilder() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder();
+    }
+
+    private static Document structureDoc(DocumentBuilder builder, Map<String, Integer> params) throws Exception {
+        return SyntheticXML.parse(builder, SyntheticXML.structure(params.get("depth"), params.get("width")));
+    }
+
+    private static Document sourceDoc(DocumentBuilder builder, Map<String, Integer> params) throws Exception {
+        return SyntheticXML.parse(builder, SyntheticXML.source(params.get("depth"), params.get("width"), params.get("repetitions")));
+    }
+
+    /**
+     * mergeNodes (direct = แบบที่ 1, ไม่งั้นแบบที่ 2) บน Document ใหม่ทุกครั้ง (การสร้าง Document ไม่นับเวลา)
+     */
+    private static BenchCase mergeCase(Map<String, Integer> params, boolean direct) throws Exception {
+        DocumentBuilder builder = newBuilder();
+        MergeTemplate template = MergeTemplate.compile(structureDoc(builder, params), RepeatableFieldRegistry.getDefault());
+        Element sourceRoot = sourceDoc(builder, params).getDocumentElement();
+
+        return new BenchCase() {
+            private Document resultDoc;
+
+            @Override
+            public void setupInvocation() {
+                resultDoc = template.newDocument(builder);
+            }
+
+            @Override
+            public Object run() {
+                if (direct) {
+                    XMLMerger.mergeNodesDirect(resultDoc, resultDoc.getDocumentElement(), sourceRoot);
+                } else {
+                    XMLMerger.mergeNodes(resultDoc, resultDoc.getDocumentElement(), sourceRoot);
+                }
+                return resultDoc;
+            }
+        };
+    }
+
+    private static BenchCase buildNodeMapCase(Map<String, Integer> params) throws Exception {
+        List<Node> elements = new ArrayList<>();
+        collectElements(sourceDoc(newBuilder(), params).getDocumentElement(), elements);
+
+        return () -> {
+            int size = 0;
+            for (Node element : elements) {
+                size += XMLMerger.buildNodeMap(element).size();
+            }
+            return size;
+        };
+    }
+
+    private static BenchCase hasNonEmptyChildCase(Map<String, Integer> params) throws Exception {
+        Element structureRoot = structureDoc(newBuilder(), params).getDocumentElement();
+        return () -> XMLMerger.hasNonEmptyChild(structureRoot);
+    }
+
+    /**
+     * CollateralDetails ที่มี CollateralDetail ว่าง (จาก Structure) สลับกับตัวที่มีข้อมูล อย่างละ repetitions ตัว
+     */
+    private static BenchCase removeDuplicateNodesCase(Map<String, Integer> params) throws Exception {
+        DocumentBuilder builder = newBuilder();
+        Document structure = structureDoc(builder, params);
+        Document source = sourceDoc(builder, params);
+        Node emptyDetail = structure.getElementsByTagName("CollateralDetail").item(0);
+        NodeList filledDetails = source.getElementsByTagName("CollateralDetail");
+
+        Document containerDoc = builder.newDocument();
+        Element container = containerDoc.createElement("CollateralDetails");
+        containerDoc.appendChild(container);
+        for (int i = 0; i < params.get("repetitions"); i++) {
+            container.appendChild(containerDoc.importNode(emptyDetail, true));
+            container.appendChild(containerDoc.importNode(filledDetails.item(i), true));
+        }
+
+        return new BenchCase() {
+            private Node parent;
+            private List<Node> tagNodes;
+
+            @Override
+            public void setupInvocation() {
+                parent = container.cloneNode(true);
+                tagNodes = XMLMerger.buildNodeMap(parent).get("CollateralDetail");
+            }
+
+            @Override
+            public Object run() {
+                return XMLMerger.removeDuplicateNodes(parent, tagNodes);
+            }
+        };
+    }
+
+    /**
+     * Undo/Redo แบบเดิมของ DynamicXMLTreeEditor: Serialize ทั้งเอกสารเป็น String แล้ว Parse กลับ
+     */
+    private static BenchCase snapshotUndoRoundTripCase(Map<String, Integer> params) throws Exception {
+        Document document = sourceDoc(newBuilder(), params);
+        return () -> {
+            StreamResult result = new StreamResult(new StringWriter());
+            TransformerFactory.newInstance().newTransformer().transform(new DOMSource(document), result);
+            String snapshot = result.getWriter().toString();
+            return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(snapshot)));
+        };
+    }
+
+    /**
+     * Undo/Redo แบบ EditHistory: เวลาขึ้นกับขนาดของการแก้ไข (ลบกิ่ง CollateralDetails) ไม่ใช่ขนาดเอกสาร
+     */
+    private static BenchCase deltaUndoRedoCase(Map<String, Integer> params) throws Exception {
+        Document document = sourceDoc(newBuilder(), params);
+        Element root = document.getDocumentElement();
+        Node collateralDetails = root.getElementsByTagName("CollateralDetails").item(0);
+
+        DOMTreeModel model = new DOMTreeModel(root);
+        EditHistory history = new EditHistory(EditHistory.DEFAULT_MAX_BYTES);
+
+        return () -> {
+            history.perform(new EditHistory.DeleteNodeEdit(model, collateralDetails));
+            history.undo();
+            history.redo();
+            return history.undo();
+        };
+    }
+
+    private static BenchCase fromCommentsCase(Map<String, Integer> params) throws Exception {
+        Document structure = structureDoc(newBuilder(), params);
+        return () -> RepeatableFieldRegistry.fromComments(structure);
+    }
+
+    private static BenchCase scanCommentsCase(Map<String, Integer> params) throws Exception {
+        byte[] structure = SyntheticXML.structure(params.get("depth"), params.get("width")).getBytes(StandardCharsets.UTF_8);
+        return () -> {
+            Map<String, Integer> counts = new HashMap<>();
+            RepetitionCommentScanner.scan(new ByteArrayInputStream(structure), null, counts);
+            return counts;
+        };
+    }
+
+    /**
+     * ค่าใช้จ่ายของการตรวจ Field ที่ Duplicate ได้ (byPath = Registry ที่ได้จากคอมเมนต์ของ Structure)
+     */
+    private static BenchCase repeatableLookupCase(Map<String, Integer> params, boolean byPath) throws Exception {
+        DocumentBuilder builder = newBuilder();
+        RepeatableFieldRegistry registry = RepeatableFieldRegistry.fromComments(structureDoc(builder, params));
+        Set<String> tagNames = new HashSet<>();
+        for (String rule : registry.getRules()) {
+            tagNames.add(rule.substring(rule.lastIndexOf('/') + 1));
+        }
+        List<Node> elements = new ArrayList<>();
+        collectElements(sourceDoc(builder, params).getDocumentElement(), elements);
+
+        return () -> {
+            int count = 0;
+            for (Node element : elements) {
+                boolean repeatable = byPath
+                        ? registry.isRepeatable(element.getParentNode(), element.getNodeName())
+                        : tagNames.contains(element.getNodeName());
+                if (repeatable) {
+                    count++;
+                }
+            }
+            return count;
+        };
+    }
+
+    /**
+     * ค่าใช้จ่ายต่อไฟล์ของ JAXP: Parse Source จาก bytes แล้ว Serialize กลับ (ไม่เขียนไฟล์)
+     */
+    private static BenchCase perFileCase(Map<String, Integer> params, boolean pooled) throws Exception {
+        byte[] source = SyntheticXML.source(params.get("depth"), params.get("width"), params.get("repetitions"))
+                .getBytes(StandardCharsets.UTF_8);
+
+        return () -> {
+            DocumentBuilder builder;
+            Transformer transformer;
+            if (pooled) {
+                builder = XMLSupport.documentBuilder(true);
+                transformer = XMLSupport.transformer();
+            } else {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                builder = factory.newDocumentBuilder();
+                transformer = TransformerFactory.newInstance().newTransformer();
+                transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+            }
+            Document document = builder.parse(new ByteArrayInputStream(source));
+            ByteArrayOutputStream output = new ByteArrayOutputStream(source.length);
+            transformer.transform(new DOMSource(document), new StreamResult(output));
+            return output.size();
+        };
+    }
+
+    /**
+     * Serialize Document ที่ Merge แล้วเป็น bytes (ไม่เขียนไฟล์)
+     */
+    private static BenchCase serializeCase(Map<String, Integer> params, boolean documentWriter) throws Exception {
+        DocumentBuilder builder = newBuilder();
+        Document resultDoc = MergeTemplate.compile(structureDoc(builder, params), RepeatableFieldRegistry.getDefault()).newDocument(builder);
+        XMLMerger.mergeNodes(resultDoc, resultDoc.getDocumentElement(), sourceDoc(builder, params).getDocumentElement());
+        Transformer transformer = XMLSupport.transformer();
+
+        return () -> {
+            if (documentWriter) {
+                return DocumentWriter.toByteArray(resultDoc, false).length;
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            transformer.transform(new DOMSource(resultDoc), new StreamResult(output));
+            return output.size();
+        };
+    }
+
+    /**
+     * Parse Source จากไฟล์ชั่วคราว (ลบเมื่อ JVM จบ)
+     */
+    private static BenchCase parseFileCase(Map<String, Integer> params, boolean mapped) throws Exception {
+        File sourceFile = File.createTempFile("xml2gui-bench", ".xml");
+        sourceFile.deleteOnExit();
+        Files.write(sourceFile.toPath(), SyntheticXML.source(params.get("depth"), params.get("width"), params.get("repetitions"))
+                .getBytes(StandardCharsets.UTF_8));
+        DocumentBuilder builder = newBuilder();
+
+        return () -> {
+            Document document = mapped
+                    ? builder.parse(MappedXMLInput.openMapped(sourceFile).newInputSource())
+                    : builder.parse(sourceFile);
+            return document.getDocumentElement();
+        };
+    }
+
+    /**
+     * สร้างสำเนาของ XML Structure สำหรับ Merge หนึ่งไฟล์
+     */
+    private static BenchCase templateCopyCase(Map<String, Integer> params, boolean template) throws Exception {
+        DocumentBuilder builder = newBuilder();
+        Document structureDoc = structureDoc(builder, params);
+        MergeTemplate mergeTemplate = MergeTemplate.compile(structureDoc, RepeatableFieldRegistry.getDefault());
+
+        return () -> template ? mergeTemplate.newDocument(builder) : structureDoc.cloneNode(true);
+    }
+
+    /**
+     * หาลูกแต่ละตัวจาก Parent ด้วยชื่อ Tag (เทียบได้กับ merge.buildNodeMap + get แต่ไม่ต้องสร้าง Map)
+     */
+    private static BenchCase templateFindChildCase(Map<String, Integer> params) throws Exception {
+        MergeTemplate template = MergeTemplate.compile(structureDoc(newBuilder(), params), RepeatableFieldRegistry.getDefault());
+        List<String> tagNames = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        for (int node = 1; node < template.getNodeCount(); node++) {
+            if (template.getType(node) == Node.ELEMENT_NODE && template.getParent(node) != MergeTemplate.DOCUMENT) {
+                tagNames.add(template.getName(node));
+                parents.add(template.getParent(node));
+            }
+        }
+
+        return () -> {
+            int found = 0;
+            for (int i = 0; i < tagNames.size(); i++) {
+                if (template.findChild(parents.get(i), tagNames.get(i)) != MergeTemplate.NONE) {
+                    found++;
+                }
+            }
+            return found;
+        };
+    }
+
+    /**
+     * mergeNodes ของ Structure ที่มี CollateralDetail 1 ตัว กับ Source ที่มี width ตัว บนสำเนาใหม่ของ Structure ทุกครั้ง
+     */
+    private static BenchCase scalingCase(Map<String, Integer> params) throws Exception {
+        DocumentBuilder builder = newBuilder();
+        Document cleanDoc = SyntheticXML.parse(builder, SyntheticXML.collateralStructure());
+        Element sourceRoot = SyntheticXML.parse(builder, SyntheticXML.collateralSource(params.get("width"))).getDocumentElement();
+
+        return new BenchCase() {
+            private Document resultDoc;
+
+            @Override
+            public void setupInvocation() {
+                resultDoc = (Document) cleanDoc.cloneNode(true);
+            }
+
+            @Override
+            public Object run() {
+                XMLMerger.mergeNodes(resultDoc, resultDoc.getDocumentElement(), sourceRoot);
+                return resultDoc;
+            }
+        };
+    }
+
+    private static void collectElements(Node node, List<Node> elements) {
+        elements.add(node);
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                collectElements(children.item(i), elements);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * One benchmark case created for one set of parameters
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * BenchCase
+ *
+ * - JMH ไม่ยอมให้ Class ที่มี @Benchmark อยู่ใน Default package แต่ Class ของโปรแกรม (src) อยู่ใน Default package
+ *   และ Class ใน Package อื่นเรียก Default package ตรงๆ ไม่ได้
+ * - จึงแยกเป็น 2 ส่วน: XMLBenchmarkCases (Default package) สร้าง BenchCase ที่เรียกโค้ดของโปรแกรมได้ตรงๆ
+ *   ส่วน Class ที่มี @Benchmark ใน Package นี้เรียกผ่าน Interface นี้เท่านั้น (โหลดครั้งเดียวตอน @Setup ผ่าน Cases)
+ */
+public interface BenchCase {
+
+    /**
+     * เตรียมข้อมูลก่อนการเรียก run() แต่ละครั้ง (เรียกจาก @Setup(Level.Invocation) จึงไม่นับเวลา)
+     */
+    default void setupInvocation() throws Exception {
+    }
+
+    /**
+     * @return ผลลัพธ์ (JMH ส่งเข้า Blackhole เพื่อไม่ให้ JIT ตัดโค้ดทิ้ง)
+     */
+    Object run() throws Exception;
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Loads benchmark cases from the default package
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * Cases
+ *
+ * - เรียก XMLBenchmarkCases.create(name, params) ใน Default package ผ่าน Reflection (ครั้งเดียวต่อ Trial)
+ * - params เป็นคู่ ชื่อ, ค่า เช่น "depth", 2, "width", 4
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class Cases {
+
+    private Cases() {
+    }
+
+    static BenchCase create(String name, Object... params) throws Exception {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        for (int i = 0; i < params.length; i += 2) {
+            values.put((String) params[i], (Integer) params[i + 1]);
+        }
+
+        try {
+            return (BenchCase) Class.forName("XMLBenchmarkCases")
+                    .getMethod("create", String.class, Map.class)
+                    .invoke(null, name, values);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+}
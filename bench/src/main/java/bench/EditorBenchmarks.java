@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * JMH benchmarks for the DynamicXMLTreeEditor undo/redo
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * EditorBenchmarks
+ *
+ * - snapshotUndoRoundTrip : Undo/Redo แบบเดิม (Serialize ทั้งเอกสารแล้ว Parse กลับ)
+ * - deltaUndoRedo         : Undo/Redo ผ่าน EditHistory (เวลาขึ้นกับขนาดของการแก้ไข ไม่ใช่ขนาดเอกสาร)
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditorBenchmarks {
+
+    @Param({"2", "4"})
+    int depth;
+
+    @Param({"4", "16"})
+    int width;
+
+    @Param({"1", "10", "100"})
+    int repetitions;
+
+    private BenchCase snapshotUndoRoundTrip;
+    private BenchCase deltaUndoRedo;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        snapshotUndoRoundTrip = create("editor.snapshotUndoRoundTrip");
+        deltaUndoRedo = create("editor.deltaUndoRedo");
+    }
+
+    private BenchCase create(String name) throws Exception {
+        return Cases.create(name, "depth", depth, "width", width, "repetitions", repetitions);
+    }
+
+    @Benchmark
+    public Object snapshotUndoRoundTrip() throws Exception {
+        return snapshotUndoRoundTrip.run();
+    }
+
+    @Benchmark
+    public Object deltaUndoRedo() throws Exception {
+        return deltaUndoRedo.run();
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * JMH benchmarks for the XMLMerger merge helpers
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * MergeBenchmarks
+ *
+ * - mergeNodes / mergeNodesDirect / removeDuplicateNodes แก้ไข Document จึงต้องเตรียมข้อมูลใหม่ทุกครั้ง
+ *   (@Setup(Level.Invocation) ใน State ของแต่ละตัว ไม่นับเวลา แต่มี Overhead ของ JMH ต่อการเรียก
+ *   ควรดูผลที่ repetitions สูงซึ่งแต่ละครั้งใช้เวลานานกว่า Overhead มาก)
+ * - buildNodeMap / hasNonEmptyChild ไม่แก้ไขข้อมูล ใช้ข้อมูลเดียวกันตลอด Trial
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeBenchmarks {
+
+    @Param({"2", "4"})
+    int depth;
+
+    @Param({"4", "16"})
+    int width;
+
+    @Param({"1", "10", "100"})
+    int repetitions;
+
+    private BenchCase buildNodeMap;
+    private BenchCase hasNonEmptyChild;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        buildNodeMap = create("merge.buildNodeMap");
+        hasNonEmptyChild = create("merge.hasNonEmptyChild");
+    }
+
+    BenchCase create(String name) throws Exception {
+        return Cases.create(name, "depth", depth, "width", width, "repetitions", repetitions);
+    }
+
+    @Benchmark
+    public Object mergeNodes(MergeNodes state) throws Exception {
+        return state.benchCase.run();
+    }
+
+    @Benchmark
+    public Object mergeNodesDirect(MergeNodesDirect state) throws Exception {
+        return state.benchCase.run();
+    }
+
+    @Benchmark
+    public Object buildNodeMap() throws Exception {
+        return buildNodeMap.run();
+    }
+
+    @Benchmark
+    public Object hasNonEmptyChild() throws Exception {
+        return hasNonEmptyChild.run();
+    }
+
+    @Benchmark
+    public Object removeDuplicateNodes(RemoveDuplicateNodes state) throws Exception {
+        return state.benchCase.run();
+    }
+
+    /**
+     * Case ที่ต้องเรียก setupInvocation() ก่อนทุกครั้ง (พารามิเตอร์มาจาก MergeBenchmarks)
+     */
+    @State(Scope.Thread)
+    public abstract static class PerInvocation {
+        BenchCase benchCase;
+
+        abstract String name();
+
+        @Setup(Level.Trial)
+        public void setup(MergeBenchmarks params) throws Exception {
+            benchCase = params.create(name());
+        }
+
+        @Setup(Level.Invocation)
+        public void setupInvocation() throws Exception {
+            benchCase.setupInvocation();
+        }
+    }
+
+    public static class MergeNodes extends PerInvocation {
+        @Override
+        String name() {
+            return "merge.mergeNodes";
+        }
+    }
+
+    public static class MergeNodesDirect extends PerInvocation {
+        @Override
+        String name() {
+            return "merge.mergeNodesDirect";
+        }
+    }
+
+    public static class RemoveDuplicateNodes extends PerInvocation {
+        @Override
+        String name() {
+            return "merge.removeDuplicateNodes";
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * JMH benchmark for mergeNodes time vs. the number of repeated elements
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * MergeScalingBenchmark
+ *
+ * - XML Structure มี CollateralDetail 1 ตัว และ Source มี CollateralDetail width ตัว (250 ... 8000)
+ * - ถ้า mergeNodes เป็นเชิงเส้น เวลา / width (us / element) จะคงที่เมื่อ width เพิ่มขึ้น
+ * - สำเนาของ Structure สร้างใหม่ทุกครั้งใน @Setup(Level.Invocation) (ไม่นับเวลา)
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergeScalingBenchmark {
+
+    @Param({"250", "500", "1000", "2000", "4000", "8000"})
+    int width;
+
+    private BenchCase mergeNodes;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        mergeNodes = Cases.create("scaling.mergeNodes", "width", width);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws Exception {
+        mergeNodes.setupInvocation();
+    }
+
+    @Benchmark
+    public Object mergeNodes() throws Exception {
+        return mergeNodes.run();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * JMH benchmarks for the repeatable field registry
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * RegistryBenchmarks
+ *
+ * - fromComments / scanComments  : อ่านคอมเมนต์ "Zero or more repetitions:" จาก DOM เทียบกับ StAX
+ * - isRepeatable / tagNameLookup : ตรวจทุก Element ด้วย Registry (Path) เทียบกับ HashSet ของชื่อ Tag
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmarks {
+
+    @Param({"2", "4"})
+    int depth;
+
+    @Param({"4", "16"})
+    int width;
+
+    @Param({"1", "10", "100"})
+    int repetitions;
+
+    private BenchCase fromComments;
+    private BenchCase scanComments;
+    private BenchCase isRepeatable;
+    private BenchCase tagNameLookup;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fromComments = create("registry.fromComments");
+        scanComments = create("registry.scanComments");
+        isRepeatable = create("registry.isRepeatable");
+        tagNameLookup = create("registry.tagNameLookup");
+    }
+
+    private BenchCase create(String name) throws Exception {
+        return Cases.create(name, "depth", depth, "width", width, "repetitions", repetitions);
+    }
+
+    @Benchmark
+    public Object fromComments() throws Exception {
+        return fromComments.run();
+    }
+
+    @Benchmark
+    public Object scanComments() throws Exception {
+        return scanComments.run();
+    }
+
+    @Benchmark
+    public Object isRepeatable() throws Exception {
+        return isRepeatable.run();
+    }
+
+    @Benchmark
+    public Object tagNameLookup() throws Exception {
+        return tagNameLookup.run();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * JMH benchmarks for MergeTemplate
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * TemplateBenchmarks
+ *
+ * - cloneNode / newDocument : คัดลอก XML Structure ด้วย cloneNode(true) เทียบกับ MergeTemplate
+ * - findChild               : หาลูกด้วย Index (parent, Tag ID) ของ MergeTemplate
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmarks {
+
+    @Param({"2", "4"})
+    int depth;
+
+    @Param({"4", "16"})
+    int width;
+
+    @Param({"1", "10", "100"})
+    int repetitions;
+
+    private BenchCase cloneNode;
+    private BenchCase newDocument;
+    private BenchCase findChild;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        cloneNode = create("template.cloneNode");
+        newDocument = create("template.newDocument");
+        findChild = create("template.findChild");
+    }
+
+    private BenchCase create(String name) throws Exception {
+        return Cases.create(name, "depth", depth, "width", width, "repetitions", repetitions);
+    }
+
+    @Benchmark
+    public Object cloneNode() throws Exception {
+        return cloneNode.run();
+    }
+
+    @Benchmark
+    public Object newDocument() throws Exception {
+        return newDocument.run();
+    }
+
+    @Benchmark
+    public Object findChild() throws Exception {
+        return findChild.run();
+    }
+}
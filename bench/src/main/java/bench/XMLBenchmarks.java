@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * JMH benchmarks for JAXP parsing and serialization
+ *
+ * License: MIT License
+ */
+
+package bench;
+
+/**
+ * XMLBenchmarks
+ *
+ * - newFactoriesPerFile / pooledPerFile          : Parse + Serialize หนึ่งไฟล์ สร้าง Factory ใหม่เทียบกับ XMLSupport
+ * - transformerSerialize / documentWriterSerialize : Serialize ผลการ Merge ด้วย Transformer เทียบกับ DocumentWriter
+ * - parseFile / parseMapped                       : Parse จากไฟล์ด้วย DocumentBuilder.parse(File) เทียบกับ MappedXMLInput
+ */
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XMLBenchmarks {
+
+    @Param({"2", "4"})
+    int depth;
+
+    @Param({"4", "16"})
+    int width;
+
+    @Param({"1", "10", "100"})
+    int repetitions;
+
+    private BenchCase newFactoriesPerFile;
+    private BenchCase pooledPerFile;
+    private BenchCase transformerSerialize;
+    private BenchCase documentWriterSerialize;
+    private BenchCase parseFile;
+    private BenchCase parseMapped;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        newFactoriesPerFile = create("xml.newFactoriesPerFile");
+        pooledPerFile = create("xml.pooledPerFile");
+        transformerSerialize = create("xml.transformerSerialize");
+        documentWriterSerialize = create("xml.documentWriterSerialize");
+        parseFile = create("xml.parseFile");
+        parseMapped = create("xml.parseMapped");
+    }
+
+    private BenchCase create(String name) throws Exception {
+        return Cases.create(name, "depth", depth, "width", width, "repetitions", repetitions);
+    }
+
+    @Benchmark
+    public Object newFactoriesPerFile() throws Exception {
+        return newFactoriesPerFile.run();
+    }
+
+    @Benchmark
+    public Object pooledPerFile() throws Exception {
+        return pooledPerFile.run();
+    }
+
+    @Benchmark
+    public Object transformerSerialize() throws Exception {
+        return transformerSerialize.run();
+    }
+
+    @Benchmark
+    public Object documentWriterSerialize() throws Exception {
+        return documentWriterSerialize.run();
+    }
+
+    @Benchmark
+    public Object parseFile() throws Exception {
+        return parseFile.run();
+    }
+
+    @Benchmark
+    public Object parseMapped() throws Exception {
+        return parseMapped.run();
+    }
+}
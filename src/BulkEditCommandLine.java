@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Command-line front end of BulkEditor (java XMLMerger edit ...)
+ *
+ * License: MIT License
+ */
+
+/**
+ * วิธีการใช้งาน:
+ * java XMLMerger edit --input SourceFiles (--output Edited | --in-place) --set "CollateralDetail/CollId=C001" [options]
+ *
+ * - --set ใส่ได้หลายครั้ง และ/หรือ --rules <file> (บรรทัดละ "path = value")
+ * - --csv <file> ค่าเฉพาะไฟล์: Header = file,<path>,<path>... แถวละไฟล์ (ช่องว่าง = ไม่เปลี่ยน)
+ * - --input รับได้ทั้งไฟล์, โฟลเดอร์ และ Glob แบบเดียวกับ Merge (MergeCommandLine.expandInputs)
+ * - ผลลัพธ์ของแต่ละไฟล์เขียนเป็น JSON Lines ด้วย --results <file> หรือ --results - (stdout)
+ *   {"file":"...","output":"...","status":"ok|unchanged|failed|skipped","changed":3,"unmatched":["..."],"millis":1.234,"error":null}
+ * - สรุปท้าย: จำนวนไฟล์ / Field ที่เปลี่ยน, Throughput (ไฟล์/วินาที และ MB/วินาที ของไฟล์ที่อ่าน),
+ *   Path ที่ไม่ตรงกับ Element ใดเลย (พร้อมจำนวนไฟล์) และแถวของ CSV ที่ไม่มีไฟล์ตรงกัน
+ *
+ * Exit code: เหมือน MergeCommandLine (0 = สำเร็จทุกไฟล์, 1 = บางไฟล์ไม่สำเร็จ, 2 = Argument ไม่ถูกต้อง, 3 = Error อื่น)
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+final class BulkEditCommandLine {
+
+    /** Argument แรกของ XMLMerger ที่เลือกโหมดนี้ */
+    static final String COMMAND = "edit";
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java XMLMerger edit --input <dir|file|glob> [--input ...] (--output <dir> | --in-place)",
+            "                           (--set <path=value> | --rules <file> | --csv <file>)... [options]",
+            "",
+            "Options:",
+            "  -i, --input <path>        XML files to edit: file, directory (*.xml) or glob such as \"data/**/*.xml\"",
+            "  -o, --output <dir>        Write edited files here (unchanged files are copied as they are)",
+            "      --in-place            Replace the input files (only files with a changed value are rewritten)",
+            "      --set <path=value>    Set every field matching the path, e.g. \"CollateralDetail[2]/CollId=C001\"",
+            "      --rules <file>        One \"path = value\" rule per line (# starts a comment)",
+            "      --csv <file>          Per-file values: header file,<path>,<path>...; one row per file name,",
+            "                            empty cells leave the field unchanged; applied after --set / --rules",
+            "  -r, --recursive           Include sub-directories of directory inputs (keeps the folder structure)",
+            "  -t, --threads <n>         Worker threads (default: number of CPU cores)",
+            "      --pretty              Indent the edited output (2 spaces per level)",
+            "      --fail-fast           Skip the remaining files after the first failure",
+            "      --results <file|->    Write per-file results as JSON Lines (- = stdout)",
+            "  -q, --quiet               Do not print the per-file log",
+            "  -h, --help                Show this help",
+            "",
+            "Paths use the editor's search syntax: a/b (ends with), /root/a (absolute), a//b (any depth), * and [n].",
+            "When several rules match the same field the last one wins.",
+            "",
+            "Exit codes: 0 = all edited, 1 = some files failed, 2 = usage error / no input, 3 = fatal error");
+
+    private BulkEditCommandLine() {
+    }
+
+    /**
+     * @param args Argument หลัง "edit"
+     * @return exit code
+     */
+    static int run(String[] args) {
+        String output = null;
+        String results = null;
+        List<String> inputs = new ArrayList<>();
+        boolean inPlace = false;
+        boolean recursive = false;
+        boolean quiet = false;
+        BulkEditor editor = new BulkEditor();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-i":
+                    case "--input":
+                        inputs.add(value(args, ++i, arg));
+                        break;
+                    case "-o":
+                    case "--output":
+                        output = value(args, ++i, arg);
+                        break;
+                    case "--in-place":
+                        inPlace = true;
+                        break;
+                    case "--set":
+                        editor.rules.add(BulkEditor.Rule.parse(value(args, ++i, arg)));
+                        break;
+                    case "--rules":
+                        editor.rules.addAll(BulkEditor.readRules(Paths.get(value(args, ++i, arg))));
+                        break;
+                    case "--csv":
+                        editor.readFileRules(Paths.get(value(args, ++i, arg)));
+                        break;
+                    case "-r":
+                    case "--recursive":
+                        recursive = true;
+                        break;
+                    case "-t":
+                    case "--threads":
+                        editor.threads = Integer.parseInt(value(args, ++i, arg));
+                        if (editor.threads < 1) {
+                            throw new IllegalArgumentException("--threads must be at least 1");
+                        }
+                        break;
+                    case "--pretty":
+                        editor.prettyPrint = true;
+                        break;
+                    case "--fail-fast":
+                        editor.continueOnError = false;
+                        break;
+                    case "--results":
+                        results = value(args, ++i, arg);
+                        break;
+                    case "-q":
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return MergeCommandLine.EXIT_SUCCESS;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (inputs.isEmpty() || (output == null) == !inPlace) {
+                throw new IllegalArgumentException("--input and exactly one of --output or --in-place are required");
+            }
+            if (editor.rules.isEmpty() && editor.fileRules.isEmpty()) {
+                throw new IllegalArgumentException("at least one --set, --rules or --csv is required");
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException และ Rule / Header ที่ไม่ถูกต้องเป็น IllegalArgumentException ด้วย
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            return MergeCommandLine.EXIT_USAGE;
+        } catch (IOException e) {
+            System.err.println("Error: cannot read rules: " + e.getMessage());
+            return MergeCommandLine.EXIT_USAGE;
+        }
+
+        boolean resultsToStdout = "-".equals(results);
+        editor.log = quiet ? new PrintStream(OutputStream.nullOutputStream()) : resultsToStdout ? System.err : System.out;
+        editor.outputDirectory = output == null ? null : new File(output);
+
+        List<File> sourceFiles;
+        try {
+            sourceFiles = MergeCommandLine.expandInputs(inputs, recursive, editor.relativeDirectories);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: input not found or unreadable: " + e.getMessage());
+            return MergeCommandLine.EXIT_USAGE;
+        }
+        if (sourceFiles.isEmpty()) {
+            System.err.println("Error: no XML files matched " + inputs);
+            return MergeCommandLine.EXIT_USAGE;
+        }
+        if (editor.outputDirectory != null && !editor.outputDirectory.isDirectory() && !editor.outputDirectory.mkdirs()) {
+            System.err.println("Error: cannot create output directory: " + editor.outputDirectory);
+            return MergeCommandLine.EXIT_FATAL;
+        }
+
+        long bytesRead = 0;
+        for (File sourceFile : sourceFiles) {
+            bytesRead += sourceFile.length();
+        }
+
+        long startTime = System.nanoTime();
+        editor.log.printf("%-30s | %-15s | %s\n", "File Name", "Time (seconds)", "Changed");
+        editor.log.println("--------------------------------------------------");
+        List<BulkEditor.EditResult> editResults = editor.editFiles(sourceFiles);
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+        long failedCount = editResults.stream().filter(result -> !result.isSuccess()).count();
+        long changedFiles = editResults.stream().filter(result -> result.fieldsChanged > 0).count();
+        long changedFields = editResults.stream().mapToLong(result -> result.fieldsChanged).sum();
+        editor.log.println("--------------------------------------------------");
+        editor.log.printf("%-30s | %-15.7f\n", "Total Execution Time", seconds);
+        editor.log.printf("Edited %d of %d file(s) (%d field(s) changed), %d unchanged, %d failed or skipped.\n",
+                changedFiles, editResults.size(), changedFields, editResults.size() - changedFiles - failedCount, failedCount);
+        editor.log.printf(Locale.ROOT, "Throughput: %.1f files/s, %.2f MB/s\n",
+                editResults.size() / Math.max(seconds, 1e-9), bytesRead / 1_048_576.0 / Math.max(seconds, 1e-9));
+
+        // Path ที่ไม่ตรงกับ Element ใดเลย (ไฟล์ละครั้ง) เรียงตามจำนวนไฟล์มากไปน้อย
+        Map<String, Integer> unmatched = new LinkedHashMap<>();
+        for (BulkEditor.EditResult result : editResults) {
+            result.unmatchedPaths.forEach(path -> unmatched.merge(path, 1, Integer::sum));
+        }
+        unmatched.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> editor.log.printf("Unmatched path: %s (%d file(s))\n", entry.getKey(), entry.getValue()));
+        for (String fileKey : editor.unusedFileRules(sourceFiles)) {
+            editor.log.printf("CSV row without a matching file: %s\n", fileKey);
+        }
+
+        if (results != null) {
+            try {
+                writeResults(editResults, results);
+            } catch (IOException e) {
+                System.err.println("Error: cannot write results: " + e.getMessage());
+                return MergeCommandLine.EXIT_FATAL;
+            }
+        }
+        return failedCount == 0 ? MergeCommandLine.EXIT_SUCCESS : MergeCommandLine.EXIT_FILES_FAILED;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    /**
+     * เขียนผลลัพธ์ของแต่ละไฟล์เป็น JSON Lines
+     *
+     * @param editResults
+     * @param target ชื่อไฟล์ หรือ "-" สำหรับ stdout
+     * @throws IOException
+     */
+    private static void writeResults(List<BulkEditor.EditResult> editResults, String target) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (BulkEditor.EditResult result : editResults) {
+            String status = result.skipped ? "skipped" : result.error != null ? "failed" : result.fieldsChanged > 0 ? "ok" : "unchanged";
+            lines.append("{\"file\":").append(MergeCommandLine.jsonString(result.sourceFile.getPath()))
+                    .append(",\"output\":").append(MergeCommandLine.jsonString(result.outputFile.getPath()))
+                    .append(",\"status\":\"").append(status).append('"')
+                    .append(",\"changed\":").append(result.fieldsChanged)
+                    .append(",\"unmatched\":[");
+            for (int i = 0; i < result.unmatchedPaths.size(); i++) {
+                lines.append(i == 0 ? "" : ",").append(MergeCommandLine.jsonString(result.unmatchedPaths.get(i)));
+            }
+            lines.append("],\"millis\":").append(String.format(Locale.ROOT, "%.3f", result.elapsedNanos / 1_000_000.0))
+                    .append(",\"error\":").append(result.error == null ? "null" : MergeCommandLine.jsonString(String.valueOf(result.error.getMessage())))
+                    .append("}\n");
+        }
+
+        if ("-".equals(target)) {
+            System.out.print(lines);
+            System.out.flush();
+        } else {
+            Files.write(Paths.get(target), lines.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Applies path -> value rules to a batch of XML files in parallel and writes each result atomically
+ *
+ * License: MIT License
+ */
+
+/**
+ * BulkEditor (แก้ค่า Field หลายไฟล์พร้อมกัน)
+ *
+ * - เดิมแก้ค่าได้ทีละ Field ทีละไฟล์ผ่าน Editor (saveFieldValue) แล้วต้อง Merge ใหม่เพื่อกระจายค่า
+ * - Rule หนึ่งข้อ = FieldPath -> ค่าใหม่ (Path แบบเดียวกับการค้นหาใน Editor เช่น "CollateralDetail[2]/CollId")
+ *   Element ทุกตัวที่ตรงกับ Path ถูกแทนค่าด้วย setTextContent (แบบเดียวกับปุ่ม Save ของ Editor)
+ *   ถ้าหลาย Rule ตรงกับ Element เดียวกัน Rule ที่อยู่หลังสุดชนะ
+ * - Rule มาจากสองแหล่ง:
+ *   1. rules: ใช้กับทุกไฟล์ (--set path=value หรือไฟล์ Rule บรรทัดละ "path = value")
+ *   2. fileRules: ค่าเฉพาะไฟล์จาก CSV (Column แรก = ชื่อไฟล์ Column อื่น = Path) ใช้ต่อจาก rules จึงทับค่าของ rules ได้
+ * - ใช้โครงสร้างเดียวกับ XMLMerger.mergeFiles: Worker Pool ขนาดคงที่, DocumentBuilder ของแต่ละ Thread จาก XMLSupport,
+ *   อ่านไฟล์ผ่าน MappedXMLInput และเขียนด้วย DocumentWriter (เอกสารที่ไม่รองรับใช้ Transformer)
+ * - เขียนผลลัพธ์แบบ Atomic: เขียนลง <ไฟล์>.part แล้ว move ทับไฟล์เดิม (ไฟล์ที่ Error ไม่ถูกเขียนครึ่งไฟล์)
+ *   outputDirectory = null คือแก้ไฟล์เดิม (ไฟล์ที่ไม่มีค่าเปลี่ยนจะไม่ถูกเขียนใหม่)
+ *   ถ้ามี outputDirectory ไฟล์ที่ไม่มีค่าเปลี่ยนจะถูก Copy ไปด้วย Byte เดิม (โฟลเดอร์ Output ครบทุกไฟล์)
+ * - Rule ที่ไม่ตรงกับ Element ใดเลยในไฟล์ถูกรายงานใน EditResult.unmatchedPaths
+ */
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class BulkEditor {
+
+    /**
+     * Path -> ค่าใหม่
+     */
+    static final class Rule {
+        final FieldPath path;
+        final String value;
+
+        Rule(FieldPath path, String value) {
+            this.path = path;
+            this.value = value;
+        }
+
+        /**
+         * @param text "path=value" (ตัดช่องว่างรอบ Path และค่า)
+         * @return
+         * @throws IllegalArgumentException เมื่อไม่มี "=" หรือ Path ไม่ถูกต้อง
+         */
+        static Rule parse(String text) {
+            int separator = text.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Rule must be path=value: " + text);
+            }
+            return new Rule(FieldPath.parse(text.substring(0, separator)), text.substring(separator + 1).trim());
+        }
+
+        @Override
+        public String toString() {
+            return path + "=" + value;
+        }
+    }
+
+    /**
+     * ผลลัพธ์ของแต่ละไฟล์
+     */
+    static final class EditResult {
+        final File sourceFile;
+        final File outputFile;
+        final long elapsedNanos;
+        /** จำนวน Element ที่ค่าเปลี่ยน (0 = ไม่ได้เขียนไฟล์ใหม่ หรือ Copy ไฟล์เดิม) */
+        final int fieldsChanged;
+        /** Path ของ Rule ที่ไม่ตรงกับ Element ใดเลยในไฟล์นี้ */
+        final List<String> unmatchedPaths;
+        final Exception error;
+        final boolean skipped;
+
+        EditResult(File sourceFile, File outputFile, long elapsedNanos, int fieldsChanged, List<String> unmatchedPaths,
+                   Exception error, boolean skipped) {
+            this.sourceFile = sourceFile;
+            this.outputFile = outputFile;
+            this.elapsedNanos = elapsedNanos;
+            this.fieldsChanged = fieldsChanged;
+            this.unmatchedPaths = unmatchedPaths;
+            this.error = error;
+            this.skipped = skipped;
+        }
+
+        boolean isSuccess() {
+            return error == null && !skipped;
+        }
+    }
+
+    /** Rule ที่ใช้กับทุกไฟล์ */
+    final List<Rule> rules = new ArrayList<>();
+    /** Rule เฉพาะไฟล์ Key = Path ของไฟล์เทียบกับโฟลเดอร์ Input (คั่นด้วย "/") หรือชื่อไฟล์ */
+    final Map<String, List<Rule>> fileRules = new LinkedHashMap<>();
+    /** null = แก้ไฟล์เดิม */
+    File outputDirectory;
+    int threads = XMLMerger.DEFAULT_THREAD_COUNT;
+    boolean continueOnError = true;
+    boolean prettyPrint;
+    PrintStream log = System.out;
+    /** โฟลเดอร์ย่อยของแต่ละไฟล์เทียบกับโฟลเดอร์ Input (จาก MergeCommandLine.expandInputs) */
+    final Map<File, String> relativeDirectories = new HashMap<>();
+
+    /**
+     * อ่านไฟล์ Rule: บรรทัดละ "path = value" ข้ามบรรทัดว่างและบรรทัดที่ขึ้นต้นด้วย #
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     * @throws IllegalArgumentException เมื่อมีบรรทัดที่ไม่ถูกต้อง (ระบุเลขบรรทัด)
+     */
+    static List<Rule> readRules(Path file) throws IOException {
+        List<Rule> rules = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(Rule.parse(line));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(file.getFileName() + " line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * อ่านค่าเฉพาะไฟล์จาก CSV เข้า fileRules
+     *
+     * - แถวแรก = Header: Column แรกคือชื่อไฟล์ (ชื่อ Header ใดก็ได้ เช่น "file") Column อื่นคือ Path
+     * - แถวอื่น = ไฟล์หนึ่งไฟล์ ช่องว่างคือไม่เปลี่ยนค่าของ Path นั้น
+     *
+     * @param file
+     * @throws IOException
+     * @throws IllegalArgumentException เมื่อ Header ไม่ถูกต้อง
+     */
+    void readFileRules(Path file) throws IOException {
+        try (CsvReader csv = CsvReader.open(file)) {
+            String[] header = csv.readRow();
+            if (header == null || header.length < 2) {
+                throw new IllegalArgumentException(file.getFileName() + ": header must be file,<path>,<path>...");
+            }
+            FieldPath[] paths = new FieldPath[header.length];
+            for (int column = 1; column < header.length; column++) {
+                try {
+                    paths[column] = FieldPath.parse(header[column]);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(file.getFileName() + " column " + (column + 1) + ": " + e.getMessage());
+                }
+            }
+
+            String[] row;
+            while ((row = csv.readRow()) != null) {
+                String key = fileKey(row[0].trim());
+                if (key.isEmpty()) {
+                    continue;
+                }
+                List<Rule> overrides = fileRules.computeIfAbsent(key, k -> new ArrayList<>());
+                for (int column = 1; column < Math.min(row.length, paths.length); column++) {
+                    if (!row[column].isEmpty()) {
+                        overrides.add(new Rule(paths[column], row[column]));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param sourceFiles
+     * @return Key ของ fileRules ที่ไม่ตรงกับไฟล์ใดใน sourceFiles
+     */
+    List<String> unusedFileRules(List<File> sourceFiles) {
+        Set<String> unused = new LinkedHashSet<>(fileRules.keySet());
+        for (File sourceFile : sourceFiles) {
+            unused.remove(relativePath(sourceFile));
+            unused.remove(sourceFile.getName());
+        }
+        return new ArrayList<>(unused);
+    }
+
+    /**
+     * แก้ไขไฟล์ทั้งหมดแบบขนาน
+     *
+     * - continueOnError = false: เมื่อเจอ Error ไฟล์แรก ไฟล์ที่ยังไม่เริ่มจะถูกข้าม (skipped)
+     *
+     * @param sourceFiles
+     * @return ผลลัพธ์ของแต่ละไฟล์ เรียงตามลำดับของ sourceFiles
+     */
+    List<EditResult> editFiles(List<File> sourceFiles) {
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<EditResult>> futures = new ArrayList<>();
+
+        try {
+            for (File sourceFile : sourceFiles) {
+                File outputFile = outputDirectory == null ? sourceFile : new File(outputDirectory, relativePath(sourceFile));
+                futures.add(executor.submit(() -> {
+                    if (aborted.get()) {
+                        return new EditResult(sourceFile, outputFile, 0, 0, Collections.emptyList(), null, true);
+                    }
+
+                    long startTime = System.nanoTime();
+                    try {
+                        List<Rule> rulesOfFile = rulesOf(sourceFile);
+                        BitSet matched = new BitSet(rulesOfFile.size());
+                        int changed = editFile(sourceFile, outputFile, rulesOfFile, matched);
+
+                        List<String> unmatched = new ArrayList<>();
+                        for (int i = matched.nextClearBit(0); i < rulesOfFile.size(); i = matched.nextClearBit(i + 1)) {
+                            String path = rulesOfFile.get(i).path.toString();
+                            if (!unmatched.contains(path)) {
+                                unmatched.add(path);
+                            }
+                        }
+
+                        long elapsed = System.nanoTime() - startTime;
+                        log.printf("%-30s | %-15.7f | %d field(s)\n", sourceFile.getName(), elapsed / 1_000_000_000.0, changed);
+                        return new EditResult(sourceFile, outputFile, elapsed, changed, unmatched, null, false);
+                    } catch (Exception ex) {
+                        long elapsed = System.nanoTime() - startTime;
+                        if (!continueOnError) {
+                            aborted.set(true);
+                        }
+                        log.printf("%-30s | %-15.7f | FAILED: %s\n", sourceFile.getName(), elapsed / 1_000_000_000.0, ex.getMessage());
+                        return new EditResult(sourceFile, outputFile, elapsed, 0, Collections.emptyList(), ex, false);
+                    }
+                }));
+            }
+
+            List<EditResult> results = new ArrayList<>(futures.size());
+            for (Future<EditResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException | InterruptedException e) {
+                    // ไม่ควรเกิดขึ้น เพราะ Task จับ Exception เองแล้ว
+                    throw new IllegalStateException(e);
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param sourceFile
+     * @return rules ตามด้วยค่าเฉพาะไฟล์ของ sourceFile (ถ้ามี)
+     */
+    private List<Rule> rulesOf(File sourceFile) {
+        List<Rule> overrides = fileRules.get(relativePath(sourceFile));
+        if (overrides == null) {
+            overrides = fileRules.get(sourceFile.getName());
+        }
+        if (overrides == null || overrides.isEmpty()) {
+            return rules;
+        }
+        List<Rule> combined = new ArrayList<>(rules.size() + overrides.size());
+        combined.addAll(rules);
+        combined.addAll(overrides);
+        return combined;
+    }
+
+    /**
+     * แก้ไขไฟล์เดียว
+     *
+     * @param sourceFile
+     * @param outputFile
+     * @param rulesOfFile
+     * @param matched รับ index ของ Rule ที่ตรงกับ Element อย่างน้อยหนึ่งตัว
+     * @return จำนวน Element ที่ค่าเปลี่ยน
+     * @throws Exception
+     */
+    private int editFile(File sourceFile, File outputFile, List<Rule> rulesOfFile, BitSet matched) throws Exception {
+        int changed = 0;
+        Document document = null;
+        if (!rulesOfFile.isEmpty()) {
+            // Prescan ปฏิเสธไฟล์ที่ไม่ใช่ XML ก่อน Parse (ไม่ map เพราะ --in-place ย้ายไฟล์ .part มาแทนที่ไฟล์นี้)
+            document = XMLSupport.documentBuilder(true).parse(MappedXMLInput.open(sourceFile).newInputSource());
+            changed = applyRules(document, rulesOfFile, matched);
+        }
+
+        if (changed > 0) {
+            writeAtomically(outputFile, XMLMerger.serialize(XMLSupport.transformer(), document, prettyPrint));
+        } else if (!outputFile.equals(sourceFile)) {
+            copyAtomically(sourceFile, outputFile);
+        }
+        return changed;
+    }
+
+    /**
+     * ใช้ Rule กับทุก Element ของเอกสาร
+     *
+     * @param document
+     * @param rulesOfFile
+     * @param matched รับ index ของ Rule ที่ตรงกับ Element อย่างน้อยหนึ่งตัว
+     * @return จำนวน Element ที่ค่าเปลี่ยน
+     */
+    static int applyRules(Document document, List<Rule> rulesOfFile, BitSet matched) {
+        // จัดกลุ่ม Rule ตาม local name ของ Segment สุดท้าย (Element ส่วนใหญ่ไม่ต้องเทียบ Path เลย)
+        Map<String, List<Integer>> rulesByName = new HashMap<>();
+        List<Integer> wildcardRules = new ArrayList<>();
+        for (int i = 0; i < rulesOfFile.size(); i++) {
+            FieldPath path = rulesOfFile.get(i).path;
+            if (path.isWildcardLast()) {
+                wildcardRules.add(i);
+            } else {
+                rulesByName.computeIfAbsent(path.lastName(), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        int changed = 0;
+        Node node = document.getDocumentElement();
+        while (node != null) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                Element element = (Element) node;
+                int rule = lastMatch(element, rulesOfFile, rulesByName.get(RepeatableFieldRegistry.localName(element)), -1, matched);
+                rule = lastMatch(element, rulesOfFile, wildcardRules, rule, matched);
+                if (rule >= 0 && !rulesOfFile.get(rule).value.equals(element.getTextContent())) {
+                    element.setTextContent(rulesOfFile.get(rule).value);
+                    changed++;
+                }
+            }
+
+            // Pre-order (ลูกของ Element ที่เพิ่งถูกแทนค่าคือ Text ใหม่ ไม่มี Element ให้เทียบต่อ)
+            Node next = node.getFirstChild();
+            while (next == null && node != null) {
+                next = node.getNextSibling();
+                node = node.getParentNode();
+                if (node != null && node.getNodeType() == Node.DOCUMENT_NODE) {
+                    node = null;
+                }
+            }
+            node = next;
+        }
+        return changed;
+    }
+
+    /**
+     * @return index ของ Rule หลังสุดใน candidates ที่ตรงกับ element (เทียบกับ previous) และบันทึกลง matched
+     */
+    private static int lastMatch(Element element, List<Rule> rulesOfFile, List<Integer> candidates, int previous, BitSet matched) {
+        int last = previous;
+        if (candidates != null) {
+            for (int i : candidates) {
+                if (rulesOfFile.get(i).path.matches(element)) {
+                    matched.set(i);
+                    last = Math.max(last, i);
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * เขียน data ลง <target>.part แล้ว move ทับ target (ใช้ ATOMIC_MOVE ถ้า File System รองรับ)
+     *
+     * @param target
+     * @param data
+     * @throws IOException
+     */
+    static void writeAtomically(File target, byte[] data) throws IOException {
+        Path partFile = partFileOf(target);
+        try {
+            Files.write(partFile, data);
+            moveReplacing(partFile, target.toPath());
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    private static void copyAtomically(File source, File target) throws IOException {
+        Path partFile = partFileOf(target);
+        try {
+            Files.copy(source.toPath(), partFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            moveReplacing(partFile, target.toPath());
+        } finally {
+            Files.deleteIfExists(partFile);
+        }
+    }
+
+    private static Path partFileOf(File target) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create folder " + directory);
+        }
+        return new File(directory, target.getName() + ".part").toPath();
+    }
+
+    private static void moveReplacing(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @param sourceFile
+     * @return Path ของไฟล์เทียบกับโฟลเดอร์ Input คั่นด้วย "/" (เช่น "sub/Case01.xml")
+     */
+    private String relativePath(File sourceFile) {
+        String relativeDirectory = relativeDirectories.getOrDefault(sourceFile, "");
+        return relativeDirectory.isEmpty() ? sourceFile.getName() : fileKey(relativeDirectory) + "/" + sourceFile.getName();
+    }
+
+    private static String fileKey(String path) {
+        return path.replace('\\', '/');
+    }
+}
@@ -0,0 +1,301 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Command-line front end of CsvMerger (java XMLMerger csv ...)
+ *
+ * License: MIT License
+ */
+
+/**
+ * วิธีการใช้งาน:
+ * java XMLMerger csv --structure clean-xml.xml --csv TestData.csv (--output Result | --archive Result.zip) [options]
+ *
+ * - Excel: Save As "CSV UTF-8 (Comma delimited)" (หรือใส่ --delimiter ";" เมื่อ Excel ใช้ ; เป็นตัวคั่น)
+ * - Header = Path ของ Field ใน XML Structure (ดู CsvMerger) แถวละหนึ่งไฟล์ผลลัพธ์
+ * - ชื่อไฟล์: --name-pattern "{TestCase}.xml" ({row} = ลำดับแถว, {<Header>} = ค่าใน Column นั้น)
+ *   ค่าเริ่มต้น "{file}" ถ้ามี Column ชื่อ file ไม่เช่นนั้น "record_{row}.xml"
+ * - ผลลัพธ์ของแต่ละแถวเขียนเป็น JSON Lines ด้วย --results <file> หรือ --results - (stdout)
+ *   {"row":1,"line":2,"output":"...","status":"ok|failed|skipped","millis":1.234,"error":null}
+ *
+ * Exit code: เหมือน MergeCommandLine (0 = สำเร็จทุกแถว, 1 = บางแถวไม่สำเร็จ, 2 = Argument / Header ไม่ถูกต้อง, 3 = Error อื่น)
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+final class CsvMergeCommandLine {
+
+    /** Argument แรกของ XMLMerger ที่เลือกโหมดนี้ */
+    static final String COMMAND = "csv";
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java XMLMerger csv --structure <file> --csv <file> (--output <dir> | --archive <zip>) [options]",
+            "",
+            "Options:",
+            "  -s, --structure <file>    XML Structure File (clean-xml.xml)",
+            "  -c, --csv <file>          UTF-8 CSV: header row of field paths, one output file per row",
+            "  -o, --output <dir>        Output directory (created if missing)",
+            "  -a, --archive <file.zip>  Write every merged row into one ZIP instead of an output directory",
+            "  -n, --name-pattern <p>    Output file name, tokens {row} and {<column header>}",
+            "                            (default: {file} when there is a \"file\" column, otherwise record_{row}.xml)",
+            "  -d, --delimiter <c>       Field delimiter (default: ,; use \"\\t\" for tab)",
+            "  -t, --threads <n>         Worker threads (default: number of CPU cores)",
+            "      --repeatable <file>   Repeatable fields: compiled cache, XSD/WSDL, or XML with SoapUI comments",
+            "      --pretty              Indent the merged output (2 spaces per level)",
+            "      --fail-fast           Skip the remaining rows after the first failure",
+            "      --results <file|->    Write per-row results as JSON Lines (- = stdout)",
+            "  -q, --quiet               Do not print the per-row log",
+            "  -h, --help                Show this help",
+            "",
+            "Column headers use the editor's path search syntax and must match exactly one field of the structure,",
+            "e.g. AppId, ApplicationDetail/AppId or CollateralDetail[2]/CollId. Other columns are ignored but can",
+            "be used in the name pattern. Empty cells keep the structure's value.",
+            "",
+            "Exit codes: 0 = all merged, 1 = some rows failed, 2 = usage error / bad header, 3 = fatal error");
+
+    private CsvMergeCommandLine() {
+    }
+
+    /**
+     * @param args Argument หลัง "csv"
+     * @return exit code
+     */
+    static int run(String[] args) {
+        String structure = null;
+        String csv = null;
+        String output = null;
+        String archive = null;
+        String results = null;
+        String repeatable = null;
+        String namePattern = null;
+        char delimiter = ',';
+        int threads = XMLMerger.DEFAULT_THREAD_COUNT;
+        boolean prettyPrint = false;
+        boolean failFast = false;
+        boolean quiet = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-s":
+                    case "--structure":
+                        structure = value(args, ++i, arg);
+                        break;
+                    case "-c":
+                    case "--csv":
+                        csv = value(args, ++i, arg);
+                        break;
+                    case "-o":
+                    case "--output":
+                        output = value(args, ++i, arg);
+                        break;
+                    case "-a":
+                    case "--archive":
+                        archive = value(args, ++i, arg);
+                        break;
+                    case "-n":
+                    case "--name-pattern":
+                        namePattern = value(args, ++i, arg);
+                        if (namePattern.isEmpty() || namePattern.contains("/") || namePattern.contains("\\")) {
+                            throw new IllegalArgumentException("--name-pattern must be a file name");
+                        }
+                        break;
+                    case "-d":
+                    case "--delimiter":
+                        String text = value(args, ++i, arg);
+                        if ("\\t".equals(text)) {
+                            text = "\t";
+                        }
+                        if (text.length() != 1 || text.charAt(0) == '"') {
+                            throw new IllegalArgumentException("--delimiter must be one character");
+                        }
+                        delimiter = text.charAt(0);
+                        break;
+                    case "-t":
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i, arg));
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("--threads must be at least 1");
+                        }
+                        break;
+                    case "--repeatable":
+                        repeatable = value(args, ++i, arg);
+                        break;
+                    case "--pretty":
+                        prettyPrint = true;
+                        break;
+                    case "--fail-fast":
+                        failFast = true;
+                        break;
+                    case "--results":
+                        results = value(args, ++i, arg);
+                        break;
+                    case "-q":
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return MergeCommandLine.EXIT_SUCCESS;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (structure == null || csv == null || (output == null) == (archive == null)) {
+                throw new IllegalArgumentException("--structure, --csv and exactly one of --output or --archive are required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            return MergeCommandLine.EXIT_USAGE;
+        }
+
+        File structureFile = new File(structure);
+        if (!structureFile.isFile()) {
+            System.err.println("Error: XML Structure File not found: " + structureFile);
+            return MergeCommandLine.EXIT_USAGE;
+        }
+        if (!new File(csv).isFile()) {
+            System.err.println("Error: CSV file not found: " + csv);
+            return MergeCommandLine.EXIT_USAGE;
+        }
+        if (repeatable != null) {
+            try {
+                RepeatableFieldRegistry.setDefault(RepeatableFieldRegistry.load(new File(repeatable)));
+            } catch (Exception e) {
+                System.err.println("Error: cannot load repeatable fields from " + repeatable + ": " + e.getMessage());
+                return MergeCommandLine.EXIT_FATAL;
+            }
+        }
+
+        File archiveFile = archive == null ? null : new File(archive);
+        File outputDirectory = archiveFile == null ? new File(output) : archiveFile.getAbsoluteFile().getParentFile();
+        MergeOptions options = new MergeOptions(structureFile, outputDirectory);
+        options.archiveFile = archiveFile;
+        options.threads = threads;
+        options.prettyPrint = prettyPrint;
+        options.continueOnError = !failFast;
+        boolean resultsToStdout = "-".equals(results);
+        options.log = quiet ? new PrintStream(OutputStream.nullOutputStream()) : resultsToStdout ? System.err : System.out;
+
+        if (archiveFile == null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            System.err.println("Error: cannot create output directory: " + outputDirectory);
+            return MergeCommandLine.EXIT_FATAL;
+        }
+
+        long startTime = System.nanoTime();
+        List<CsvMerger.RecordResult> recordResults;
+        try (CsvReader reader = CsvReader.open(Paths.get(csv), delimiter)) {
+            String[] header = reader.readRow();
+            if (header == null) {
+                System.err.println("Error: CSV file is empty: " + csv);
+                return MergeCommandLine.EXIT_USAGE;
+            }
+            options.namePattern = namePattern != null ? namePattern : defaultNamePattern(header);
+
+            // Compile XML Structure ครั้งเดียว แล้วแชร์ Template (Immutable) ให้ทุก Thread
+            MergeTemplate template = MergeTemplate.load(structureFile, XMLSupport.documentBuilder(true), RepeatableFieldRegistry.getDefault());
+            CsvMerger merger;
+            try {
+                merger = new CsvMerger(options, template, header);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return MergeCommandLine.EXIT_USAGE;
+            }
+            if (merger.getColumnCount() == 0) {
+                System.err.println("Error: no column header matches a field of " + structureFile.getName());
+                return MergeCommandLine.EXIT_USAGE;
+            }
+            for (String column : merger.ignoredColumns) {
+                options.log.printf("Column not in the structure (ignored): %s\n", column);
+            }
+
+            options.log.printf("%-30s | %-15s\n", "File Name", "Time (seconds)");
+            options.log.println("--------------------------------------------------");
+            recordResults = merger.mergeRows(reader);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return MergeCommandLine.EXIT_FATAL;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return MergeCommandLine.EXIT_FATAL;
+        }
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+        long failedCount = recordResults.stream().filter(result -> !result.isSuccess()).count();
+        options.log.println("--------------------------------------------------");
+        options.log.printf("%-30s | %-15.7f\n", "Total Execution Time", seconds);
+        options.log.printf("Merged %d of %d row(s), %d failed or skipped.\n",
+                recordResults.size() - failedCount, recordResults.size(), failedCount);
+        options.log.printf(Locale.ROOT, "Throughput: %.1f rows/s\n", recordResults.size() / Math.max(seconds, 1e-9));
+
+        if (results != null) {
+            try {
+                writeResults(recordResults, results);
+            } catch (IOException e) {
+                System.err.println("Error: cannot write results: " + e.getMessage());
+                return MergeCommandLine.EXIT_FATAL;
+            }
+        }
+        return failedCount == 0 ? MergeCommandLine.EXIT_SUCCESS : MergeCommandLine.EXIT_FILES_FAILED;
+    }
+
+    private static String defaultNamePattern(String[] header) {
+        for (String column : header) {
+            if ("file".equals(column.trim())) {
+                return "{file}";
+            }
+        }
+        return "record_{row}.xml";
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    /**
+     * เขียนผลลัพธ์ของแต่ละแถวเป็น JSON Lines
+     *
+     * @param recordResults
+     * @param target ชื่อไฟล์ หรือ "-" สำหรับ stdout
+     * @throws IOException
+     */
+    private static void writeResults(List<CsvMerger.RecordResult> recordResults, String target) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (CsvMerger.RecordResult result : recordResults) {
+            String status = result.skipped ? "skipped" : result.error == null ? "ok" : "failed";
+            lines.append("{\"row\":").append(result.row)
+                    .append(",\"line\":").append(result.line)
+                    .append(",\"output\":").append(MergeCommandLine.jsonString(result.outputFile.getPath()))
+                    .append(",\"status\":\"").append(status).append('"')
+                    .append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", result.elapsedNanos / 1_000_000.0))
+                    .append(",\"error\":").append(result.error == null ? "null" : MergeCommandLine.jsonString(String.valueOf(result.error.getMessage())))
+                    .append("}\n");
+        }
+
+        if ("-".equals(target)) {
+            System.out.print(lines);
+            System.out.flush();
+        } else {
+            Files.write(Paths.get(target), lines.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
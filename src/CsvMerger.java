@@ -0,0 +1,410 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Merges CSV rows (one test case per row, one field per column) straight into the XML Structure template
+ *
+ * License: MIT License
+ */
+
+/**
+ * CsvMerger (Merge ข้อมูลจาก CSV โดยไม่ต้องสร้างไฟล์ XML กลาง)
+ *
+ * - เดิมข้อมูลทดสอบที่มาจาก Excel ต้องแปลงเป็นไฟล์ XML ทีละแถวก่อน (หลายพันไฟล์) แล้วจึง Merge
+ *   ซึ่งเขียนไฟล์และ Parse กลับหนึ่งรอบต่อหนึ่ง Record
+ * - CsvMerger อ่าน CSV ทีละแถว (CsvReader) แต่ละแถวถูกสร้างเป็น Source Document ขนาดเล็กในหน่วยความจำ
+ *   แล้วส่งเข้า XMLMerger.mergeDocument กับ MergeTemplate เดียวกับการ Merge ไฟล์ (Duplicate / Special Field เหมือนเดิม)
+ * - Header ของแต่ละ Column คือ Path ของ Field ใน XML Structure (FieldPath แบบเดียวกับการค้นหาใน Editor):
+ *     "AppId", "ApplicationDetail/AppId"        = Field เดียวใน Template ที่ Path ลงท้ายแบบนี้
+ *     "CollateralDetail[2]/CollId"              = CollId ของ CollateralDetail ตัวที่ 2 (Duplicate ให้ตามจำนวนใน Source)
+ *   Path ที่ตรงกับหลาย Field ใน Template ถือว่าผิด (ต้องเขียน Path ให้ยาวขึ้น)
+ *   Column ที่ไม่ตรงกับ Field ใดเลย (เช่น ชื่อ Test Case) ถูกข้าม (ignoredColumns) แต่ใช้ตั้งชื่อไฟล์ได้
+ * - ช่องว่าง = ไม่มีค่าใน Source (Field ใน Template คงเดิม)
+ * - ชื่อไฟล์ผลลัพธ์จาก MergeOptions.namePattern: {row} = ลำดับแถวข้อมูล (นับจาก 1), {<Header>} = ค่าใน Column นั้น
+ * - แถวถูก Merge แบบขนาน (Worker Pool ขนาดคงที่) แต่ถือแถวที่ยังไม่เสร็จไว้ไม่เกิน threads * 4 แถว
+ *   หน่วยความจำจึงไม่ขึ้นกับขนาดของ CSV ผลลัพธ์ถูกเขียนแบบ Atomic (.part แล้ว move) หรือลง MergeArchive ตามลำดับแถว
+ */
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipException;
+
+final class CsvMerger {
+
+    /**
+     * ผลลัพธ์ของแต่ละแถว
+     */
+    static final class RecordResult {
+        /** ลำดับแถวข้อมูล (นับจาก 1 ไม่รวม Header) */
+        final int row;
+        /** บรรทัดใน CSV ที่แถวนี้เริ่มต้น */
+        final int line;
+        final File outputFile;
+        final long elapsedNanos;
+        final Exception error;
+        final boolean skipped;
+
+        RecordResult(int row, int line, File outputFile, long elapsedNanos, Exception error, boolean skipped) {
+            this.row = row;
+            this.line = line;
+            this.outputFile = outputFile;
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+            this.skipped = skipped;
+        }
+
+        boolean isSuccess() {
+            return error == null && !skipped;
+        }
+    }
+
+    /**
+     * Column ที่ Map กับ Field ของ Template: ชื่อ / Namespace ของ Element ตั้งแต่ Root ถึง Field และ [n] ของแต่ละชั้น
+     */
+    private static final class Column {
+        final int index;
+        final String[] qualifiedNames;
+        final String[] namespaceURIs;
+        /** [n] ของแต่ละชั้น (1 = ตัวแรก) */
+        final int[] positions;
+        /** ลำดับของ Field ใน Template (Pre-order) ใช้สร้าง Source ตามลำดับของ Template */
+        final int order;
+
+        Column(int index, String[] qualifiedNames, String[] namespaceURIs, int[] positions, int order) {
+            this.index = index;
+            this.qualifiedNames = qualifiedNames;
+            this.namespaceURIs = namespaceURIs;
+            this.positions = positions;
+            this.order = order;
+        }
+    }
+
+    private final MergeOptions options;
+    private final MergeTemplate template;
+    private final String[] header;
+    private final List<Column> columns = new ArrayList<>();
+    /** Header ของ Column ที่ไม่ตรงกับ Field ใดใน Template */
+    final List<String> ignoredColumns = new ArrayList<>();
+
+    /**
+     * @param options  xmlStructureFile, outputDirectory / archiveFile, threads, namePattern ฯลฯ
+     * @param template
+     * @param header   แถวแรกของ CSV
+     * @throws IllegalArgumentException เมื่อ Column ตรงกับหลาย Field, ตรงกับ Element ที่มี Subfield
+     *                                  หรือ namePattern อ้างถึง Column ที่ไม่มี
+     */
+    CsvMerger(MergeOptions options, MergeTemplate template, String[] header) {
+        this.options = options;
+        this.template = template;
+        this.header = header;
+
+        // Template เป็น DOM เพื่อเทียบกับ FieldPath (ใช้ตอนเริ่มครั้งเดียว)
+        Document templateDocument = template.newDocument(XMLSupport.documentBuilder(true));
+        List<Element> elements = new ArrayList<>();
+        collectElements(templateDocument.getDocumentElement(), elements);
+
+        for (int index = 0; index < header.length; index++) {
+            String text = header[index].trim();
+            FieldPath path;
+            try {
+                path = FieldPath.parse(text);
+            } catch (IllegalArgumentException e) {
+                ignoredColumns.add(text);
+                continue;
+            }
+
+            Element field = null;
+            Element group = null;
+            Map<Node, Integer> positions = null;
+            int order = -1;
+            for (int i = 0; i < elements.size(); i++) {
+                Element element = elements.get(i);
+                Map<Node, Integer> bound = path.bindPositions(element);
+                if (bound == null) {
+                    continue;
+                }
+                if (hasElementChild(element)) {
+                    group = element;
+                    continue;
+                }
+                if (field != null) {
+                    throw new IllegalArgumentException("Column \"" + text + "\" matches more than one field ("
+                            + XMLSearchIndex.pathOf(field) + ", " + XMLSearchIndex.pathOf(element) + "); use a longer path");
+                }
+                field = element;
+                positions = bound;
+                order = i;
+            }
+
+            if (field == null) {
+                if (group != null) {
+                    throw new IllegalArgumentException("Column \"" + text + "\" is not a field value: "
+                            + XMLSearchIndex.pathOf(group) + " has subfields");
+                }
+                ignoredColumns.add(text);
+                continue;
+            }
+
+            LinkedList<Element> chain = new LinkedList<>();
+            for (Node node = field; node != null && node.getNodeType() == Node.ELEMENT_NODE; node = node.getParentNode()) {
+                chain.addFirst((Element) node);
+            }
+            String[] qualifiedNames = new String[chain.size()];
+            String[] namespaceURIs = new String[chain.size()];
+            int[] levelPositions = new int[chain.size()];
+            for (int level = 0; level < chain.size(); level++) {
+                Element element = chain.get(level);
+                qualifiedNames[level] = element.getNodeName();
+                namespaceURIs[level] = element.getNamespaceURI();
+                levelPositions[level] = positions.getOrDefault(element, 1);
+            }
+            columns.add(new Column(index, qualifiedNames, namespaceURIs, levelPositions, order));
+        }
+        columns.sort(Comparator.comparingInt((Column column) -> column.order).thenComparingInt(column -> column.index));
+
+        // ตรวจ Token ของ namePattern ตั้งแต่ต้น (ไม่ใช่ Error ซ้ำทุกแถว)
+        outputName(1, new String[0]);
+    }
+
+    /**
+     * @return จำนวน Column ที่ Map กับ Field ได้
+     */
+    int getColumnCount() {
+        return columns.size();
+    }
+
+    /**
+     * Merge ทุกแถวที่เหลือใน csv (หลัง Header)
+     *
+     * - continueOnError = false: เมื่อเจอ Error แถวแรก แถวที่ยังไม่เริ่มจะถูกข้าม (skipped)
+     *
+     * @param csv
+     * @return ผลลัพธ์ของแต่ละแถว ตามลำดับใน CSV
+     * @throws IOException เมื่ออ่าน CSV หรือเขียน ZIP ไม่ได้
+     */
+    List<RecordResult> mergeRows(CsvReader csv) throws IOException {
+        MergeArchive.Writer archive = options.archiveFile != null ? new MergeArchive.Writer(options.archiveFile) : null;
+        // ผลลัพธ์ที่ Merge แล้วแต่ยังไม่ถูกเขียนลง ZIP (Thread หลักเขียนตามลำดับแถว)
+        Map<Integer, byte[]> archiveData = new ConcurrentHashMap<>();
+        Set<String> outputNames = new HashSet<>();
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, options.threads));
+        Deque<Future<RecordResult>> pending = new ArrayDeque<>();
+        int window = Math.max(1, options.threads) * 4;
+        List<RecordResult> results = new ArrayList<>();
+
+        try {
+            String[] cells;
+            int row = 0;
+            while ((cells = csv.readRow()) != null) {
+                int recordRow = ++row;
+                int line = csv.getRowLineNumber();
+                String[] values = cells;
+                String name = outputName(recordRow, values);
+                File outputFile = new File(archive != null ? options.archiveFile : options.outputDirectory, name);
+
+                if (!outputNames.add(name)) {
+                    // ชื่อซ้ำกับแถวก่อนหน้า: ไม่เขียนทับผลลัพธ์ของแถวนั้น
+                    IOException error = new IOException("Duplicate output name " + name);
+                    options.log.printf("%-30s | FAILED: row %d: %s\n", name, recordRow, error.getMessage());
+                    pending.add(CompletableFuture.completedFuture(new RecordResult(recordRow, line, outputFile, 0, error, false)));
+                } else {
+                    pending.add(executor.submit(() -> {
+                        if (aborted.get()) {
+                            return new RecordResult(recordRow, line, outputFile, 0, null, true);
+                        }
+
+                        long startTime = System.nanoTime();
+                        try {
+                            DocumentBuilder builder = XMLSupport.documentBuilder(true);
+                            Document resultDoc = XMLMerger.mergeDocument(builder, template, toSourceDocument(builder, values), null);
+                            byte[] data = XMLMerger.serialize(XMLSupport.transformer(), resultDoc, options.prettyPrint);
+                            if (archive != null) {
+                                archiveData.put(recordRow, data);
+                            } else {
+                                BulkEditor.writeAtomically(outputFile, data);
+                            }
+
+                            long elapsed = System.nanoTime() - startTime;
+                            options.log.printf("%-30s | %-15.7f\n", name, elapsed / 1_000_000_000.0);
+                            return new RecordResult(recordRow, line, outputFile, elapsed, null, false);
+                        } catch (Exception ex) {
+                            long elapsed = System.nanoTime() - startTime;
+                            if (!options.continueOnError) {
+                                aborted.set(true);
+                            }
+                            options.log.printf("%-30s | %-15.7f | FAILED: row %d: %s\n", name, elapsed / 1_000_000_000.0,
+                                    recordRow, ex.getMessage());
+                            return new RecordResult(recordRow, line, outputFile, elapsed, ex, false);
+                        }
+                    }));
+                }
+
+                while (pending.size() >= window) {
+                    results.add(finish(pending.poll(), archive, archiveData));
+                }
+            }
+            while (!pending.isEmpty()) {
+                results.add(finish(pending.poll(), archive, archiveData));
+            }
+            if (archive != null) {
+                archive.close();
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            if (archive != null) {
+                // Error ก่อน close(): ไม่ทิ้ง ZIP ที่ไม่สมบูรณ์ไว้
+                archive.discard();
+            }
+        }
+    }
+
+    /**
+     * รอผลของแถวที่เก่าที่สุด แล้วเขียนลง ZIP (ถ้ามี)
+     */
+    private RecordResult finish(Future<RecordResult> future, MergeArchive.Writer archive, Map<Integer, byte[]> archiveData)
+            throws IOException {
+        RecordResult result;
+        try {
+            result = future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            // ไม่ควรเกิดขึ้น เพราะ Task จับ Exception เองแล้ว
+            throw new IllegalStateException(e);
+        }
+        byte[] data = archive != null ? archiveData.remove(result.row) : null;
+        if (data != null) {
+            try {
+                archive.add(result.outputFile.getName(), data, System.currentTimeMillis());
+            } catch (ZipException e) {
+                options.log.printf("%-30s | FAILED: %s\n", result.outputFile.getName(), e.getMessage());
+                result = new RecordResult(result.row, result.line, result.outputFile, result.elapsedNanos, e, false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * สร้าง Source Document ของหนึ่งแถว: Element ตาม Path ของแต่ละ Column ที่มีค่า (ชื่อและ Namespace เดียวกับ Template)
+     *
+     * @param builder
+     * @param cells
+     * @return
+     */
+    Document toSourceDocument(DocumentBuilder builder, String[] cells) {
+        Document document = builder.newDocument();
+        Element root = null;
+        for (Column column : columns) {
+            String value = column.index < cells.length ? cells[column.index] : "";
+            if (value.isEmpty()) {
+                continue;
+            }
+            if (root == null) {
+                root = document.createElementNS(column.namespaceURIs[0], column.qualifiedNames[0]);
+                document.appendChild(root);
+            }
+            Element element = root;
+            for (int level = 1; level < column.qualifiedNames.length; level++) {
+                element = child(document, element, column.namespaceURIs[level], column.qualifiedNames[level], column.positions[level]);
+            }
+            element.setTextContent(value);
+        }
+        if (root == null) {
+            // แถวที่ไม่มีค่าเลย: ได้ผลเป็น Template เดิม
+            Element templateRoot = template.newDocument(builder).getDocumentElement();
+            document.appendChild(document.createElementNS(templateRoot.getNamespaceURI(), templateRoot.getNodeName()));
+        }
+        return document;
+    }
+
+    /**
+     * @return ลูกลำดับที่ position (นับจาก 1) ที่ชื่อ qualifiedName ของ parent สร้างตัวที่ขาดต่อท้าย
+     */
+    private static Element child(Document document, Element parent, String namespaceURI, String qualifiedName, int position) {
+        int count = 0;
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE && node.getNodeName().equals(qualifiedName) && ++count == position) {
+                return (Element) node;
+            }
+        }
+        Element element = null;
+        for (; count < position; count++) {
+            element = document.createElementNS(namespaceURI, qualifiedName);
+            parent.appendChild(element);
+        }
+        return element;
+    }
+
+    /**
+     * @param row
+     * @param cells
+     * @return ชื่อไฟล์ผลลัพธ์ตาม namePattern (ค่าจาก Column ถูกแทนตัวอักษรที่ใช้ในชื่อไฟล์ไม่ได้ด้วย _)
+     * @throws IllegalArgumentException เมื่อ Token ไม่ใช่ {row} หรือชื่อ Column
+     */
+    String outputName(int row, String[] cells) {
+        String pattern = options.namePattern;
+        StringBuilder name = new StringBuilder();
+        int start = 0;
+        int open;
+        while ((open = pattern.indexOf('{', start)) >= 0) {
+            int close = pattern.indexOf('}', open);
+            if (close < 0) {
+                break;
+            }
+            name.append(pattern, start, open);
+            String token = pattern.substring(open + 1, close);
+            if ("row".equals(token)) {
+                name.append(row);
+            } else {
+                int index = columnIndex(token);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Name pattern token {" + token + "} is not {row} or a column header");
+                }
+                String value = index < cells.length ? cells[index].trim() : "";
+                name.append(value.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_"));
+            }
+            start = close + 1;
+        }
+        return name.append(pattern.substring(start)).toString();
+    }
+
+    private int columnIndex(String headerText) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].trim().equals(headerText)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void collectElements(Element element, List<Element> elements) {
+        elements.add(element);
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                collectElements((Element) child, elements);
+            }
+        }
+    }
+
+    private static boolean hasElementChild(Element element) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
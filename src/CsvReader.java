@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Minimal RFC 4180 CSV reader (quoted fields, embedded commas/newlines, UTF-8 BOM)
+ *
+ * License: MIT License
+ */
+
+/**
+ * CsvReader
+ *
+ * - อ่านไฟล์ CSV ทีละแถว (ไม่โหลดทั้งไฟล์) ตาม RFC 4180:
+ *   Field ที่อยู่ใน "..." มี , / ขึ้นบรรทัดใหม่ / "" (= ") อยู่ข้างในได้ บรรทัดจบด้วย \n หรือ \r\n
+ * - ไฟล์ที่ Save จาก Excel เป็น "CSV UTF-8" ขึ้นต้นด้วย BOM ซึ่งถูกตัดออก (ชื่อ Column แรกจึงไม่มีตัวอักษรแปลกปน)
+ * - บรรทัดว่างถูกข้าม
+ * - ไม่ Thread-safe (หนึ่ง Reader ต่อหนึ่งไฟล์)
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+final class CsvReader implements Closeable {
+
+    private final Reader reader;
+    private final char delimiter;
+    private int lineNumber = 1;
+    private int rowLineNumber;
+
+    CsvReader(Reader reader, char delimiter) {
+        this.reader = reader.markSupported() ? reader : new BufferedReader(reader);
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * เปิดไฟล์ CSV (UTF-8, คั่นด้วย ",")
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    static CsvReader open(Path file) throws IOException {
+        return open(file, ',');
+    }
+
+    /**
+     * @param file
+     * @param delimiter เช่น ';' สำหรับ Excel ที่ตั้ง List Separator เป็น ; หรือ '\t'
+     * @return
+     * @throws IOException
+     */
+    static CsvReader open(Path file, char delimiter) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        return new CsvReader(reader, delimiter);
+    }
+
+    /**
+     * @return Field ของแถวถัดไป หรือ null เมื่อจบไฟล์
+     * @throws IOException เมื่ออ่านไม่ได้ หรือ "..." ไม่ถูกปิดก่อนจบไฟล์
+     */
+    String[] readRow() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        rowLineNumber = lineNumber;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (inQuotes) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        inQuotes = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0 && !quoted) {
+                quoted = true;
+                inQuotes = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                lineNumber++;
+                if (fields.isEmpty() && field.length() == 0 && !quoted) {
+                    // บรรทัดว่าง
+                    rowLineNumber = lineNumber;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields.toArray(new String[0]);
+            } else {
+                field.append((char) c);
+            }
+        }
+
+        if (inQuotes) {
+            throw new IOException("Unterminated quoted field starting on line " + rowLineNumber);
+        }
+        if (fields.isEmpty() && field.length() == 0 && !quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * @return บรรทัดที่แถวล่าสุดเริ่มต้น (นับจาก 1 ใช้ในข้อความ Error)
+     */
+    int getRowLineNumber() {
+        return rowLineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
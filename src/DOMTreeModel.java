@@ -0,0 +1,423 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the Dynamic XML Tree Editor application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Lazy TreeModel that reads Element children straight from the DOM
+ *
+ * License: MIT License
+ */
+
+/**
+ * DOMTreeModel
+ *
+ * - เดิม Editor สร้าง DefaultMutableTreeNode ครอบ Element ทุกตัว (buildTreeFromXML + Placeholder "Loading...")
+ *   และสร้าง Tree ใหม่ทั้งหมดหลัง Undo/Redo
+ * - DOMTreeModel ใช้ Element ของ DOM เป็นโหนดของ JTree โดยตรง:
+ *   1. อ่านลูกจาก DOM เมื่อ JTree ขอเท่านั้น (Lazy) และ Cache รายการ Element ลูกของโหนดที่ถูกเปิดแล้ว
+ *   2. การแก้ไขทุกอย่างผ่าน insertChild / removeChild / setTextContent / replaceChildren
+ *      ซึ่งอัปเดต Cache และส่ง TreeModelEvent เฉพาะจุด (สถานะการเปิด/ปิดโหนดจึงไม่หายหลัง Undo)
+ * - ห้ามแก้ไข DOM โดยตรงโดยไม่ผ่าน Model (Cache จะไม่ตรงกับ DOM)
+ */
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.swing.*;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+final class DOMTreeModel implements TreeModel {
+
+    private final Element root;
+    private final EventListenerList listeners = new EventListenerList();
+    /** Cache รายการ Element ลูก (เฉพาะโหนดที่ JTree เคยขอ) */
+    private final Map<Node, List<Element>> childIndex = new IdentityHashMap<>();
+
+    DOMTreeModel(Element root) {
+        this.root = root;
+    }
+
+    @Override
+    public Element getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        return elementChildren((Node) parent).get(index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return elementChildren((Node) parent).size();
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        // ไม่สร้าง Cache สำหรับ Leaf (โหนดส่วนใหญ่ในเอกสาร)
+        List<Element> cached = childIndex.get(node);
+        if (cached != null) {
+            return cached.isEmpty();
+        }
+        for (Node child = ((Node) node).getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) {
+            return -1;
+        }
+        return elementChildren((Node) parent).indexOf(child);
+    }
+
+    /**
+     * JTree เรียกเมื่อแก้ไขค่าในตัว Tree (Editor นี้แก้ผ่าน valueField แทน)
+     */
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        setTextContent((Element) path.getLastPathComponent(), String.valueOf(newValue));
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener listener) {
+        listeners.add(TreeModelListener.class, listener);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener listener) {
+        listeners.remove(TreeModelListener.class, listener);
+    }
+
+    /**
+     * รายการ Element ลูกของโหนด (สร้างครั้งแรกจาก DOM แล้ว Cache ไว้)
+     *
+     * @param parent
+     * @return
+     */
+    private List<Element> elementChildren(Node parent) {
+        List<Element> children = childIndex.get(parent);
+        if (children == null) {
+            children = new ArrayList<>();
+            NodeList childNodes = parent.getChildNodes();
+            for (int i = 0; i < childNodes.getLength(); i++) {
+                if (childNodes.item(i).getNodeType() == Node.ELEMENT_NODE) {
+                    children.add((Element) childNodes.item(i));
+                }
+            }
+            childIndex.put(parent, children);
+        }
+        return children;
+    }
+
+    /**
+     * ลำดับของ Element ในบรรดา Element ลูกของโหนดแม่ (นับจาก Sibling ก่อนหน้า)
+     *
+     * @param element
+     * @return
+     */
+    private static int elementIndex(Node element) {
+        int index = 0;
+        for (Node sibling = element.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+            if (sibling.getNodeType() == Node.ELEMENT_NODE) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * ลบ Cache ของโหนดและโหนดลูกที่เคย Cache ไว้
+     *
+     * @param node
+     */
+    private void invalidate(Node node) {
+        List<Element> children = childIndex.remove(node);
+        if (children != null) {
+            for (Element child : children) {
+                invalidate(child);
+            }
+        }
+    }
+
+    /**
+     * @param node
+     * @return TreePath จาก Root ถึงโหนด หรือ null ถ้าโหนดไม่อยู่ใน Tree
+     */
+    TreePath getPathTo(Node node) {
+        LinkedList<Object> path = new LinkedList<>();
+        for (Node current = node; current != null; current = current.getParentNode()) {
+            path.addFirst(current);
+            if (current == root) {
+                return new TreePath(path.toArray());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * เพิ่มโหนดลูก (before = null คือต่อท้าย) และแจ้ง JTree เฉพาะโหนดที่เพิ่ม
+     *
+     * @param parent
+     * @param child
+     * @param before
+     */
+    void insertChild(Node parent, Node child, Node before) {
+        parent.insertBefore(child, before);
+        if (child.getNodeType() != Node.ELEMENT_NODE) {
+            return;
+        }
+
+        int index = elementIndex(child);
+        List<Element> cached = childIndex.get(parent);
+        if (cached != null) {
+            cached.add(index, (Element) child);
+        }
+
+        TreePath parentPath = getPathTo(parent);
+        if (parentPath != null) {
+            fireTreeNodesInserted(new TreeModelEvent(this, parentPath, new int[]{index}, new Object[]{child}));
+        }
+    }
+
+    /**
+     * ลบโหนด (พร้อมโหนดลูก) ออกจากโหนดแม่ และแจ้ง JTree เฉพาะโหนดที่ลบ
+     *
+     * @param child
+     */
+    void removeChild(Node child) {
+        Node parent = child.getParentNode();
+        if (parent == null) {
+            return;
+        }
+
+        boolean isElement = child.getNodeType() == Node.ELEMENT_NODE;
+        int index = isElement ? elementIndex(child) : -1;
+        TreePath parentPath = isElement ? getPathTo(parent) : null;
+
+        parent.removeChild(child);
+        if (!isElement) {
+            return;
+        }
+
+        List<Element> cached = childIndex.get(parent);
+        if (cached != null) {
+            cached.remove(index);
+        }
+        invalidate(child);
+
+        if (parentPath != null) {
+            fireTreeNodesRemoved(new TreeModelEvent(this, parentPath, new int[]{index}, new Object[]{child}));
+        }
+    }
+
+    /**
+     * setTextContent ของ Element (ลบลูกทั้งหมดตามพฤติกรรมของ DOM)
+     *
+     * @param element
+     * @param text
+     */
+    void setTextContent(Element element, String text) {
+        boolean hadElementChildren = !isLeaf(element);
+        element.setTextContent(text);
+        invalidate(element);
+        fireContentChanged(element, hadElementChildren);
+    }
+
+    /**
+     * แทนที่ลูกทั้งหมดของ Element ด้วยรายการโหนด (ใช้ย้อน setTextContent)
+     *
+     * @param element
+     * @param children
+     */
+    void replaceChildren(Element element, List<Node> children) {
+        boolean hadElementChildren = !isLeaf(element);
+        while (element.getFirstChild() != null) {
+            element.removeChild(element.getFirstChild());
+        }
+        for (Node child : children) {
+            element.appendChild(child);
+        }
+        invalidate(element);
+        fireContentChanged(element, hadElementChildren || !isLeaf(element));
+    }
+
+    /**
+     * แจ้ง JTree ว่าเนื้อหาของ Element เปลี่ยน (ถ้าโครงสร้างลูกเปลี่ยนใช้ treeStructureChanged เฉพาะกิ่งนี้)
+     */
+    private void fireContentChanged(Element element, boolean structureChanged) {
+        TreePath path = getPathTo(element);
+        if (path == null) {
+            return;
+        }
+        if (structureChanged) {
+            fireTreeStructureChanged(new TreeModelEvent(this, path));
+        } else if (element == root) {
+            fireTreeNodesChanged(new TreeModelEvent(this, path, null, null));
+        } else {
+            fireTreeNodesChanged(new TreeModelEvent(this, path.getParentPath(), new int[]{elementIndex(element)}, new Object[]{element}));
+        }
+    }
+
+    private void fireTreeNodesInserted(TreeModelEvent event) {
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeNodesInserted(event);
+        }
+    }
+
+    private void fireTreeNodesRemoved(TreeModelEvent event) {
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeNodesRemoved(event);
+        }
+    }
+
+    private void fireTreeNodesChanged(TreeModelEvent event) {
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeNodesChanged(event);
+        }
+    }
+
+    private void fireTreeStructureChanged(TreeModelEvent event) {
+        for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+            listener.treeStructureChanged(event);
+        }
+    }
+
+    /**
+     * @param element
+     * @return Text ที่เป็นลูกโดยตรงของ Element (ไม่รวม Text ของกิ่งย่อย ไม่ตัดช่องว่าง)
+     *         ถ้ามี Text Node เดียว (ปกติหลัง normalize) คืน String ของโหนดนั้นโดยไม่ Copy
+     */
+    static String directText(Element element) {
+        String single = null;
+        StringBuilder text = null;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isText(child)) {
+                if (single == null) {
+                    single = child.getNodeValue();
+                } else {
+                    if (text == null) {
+                        text = new StringBuilder(single);
+                    }
+                    text.append(child.getNodeValue());
+                }
+            }
+        }
+        return text != null ? text.toString() : single == null ? "" : single;
+    }
+
+    /**
+     * @param element
+     * @return ความยาวของ directText (ไม่สร้าง String)
+     */
+    static long directTextLength(Element element) {
+        long length = 0;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isText(child)) {
+                length += child.getNodeValue().length();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * ส่วนต้นของ directText สำหรับแสดงใน Label / Cell (อ่านไม่เกิน maxChars ตัวอักษร ไม่ Copy ค่าทั้งก้อน)
+     *
+     * @param element
+     * @param maxChars
+     * @param ellipsis true = ต่อท้ายด้วย "…" เมื่อค่ายาวกว่า maxChars
+     * @return ค่าที่ตัดช่องว่างหัวท้ายแล้ว
+     */
+    static String directTextPreview(Element element, int maxChars, boolean ellipsis) {
+        StringBuilder preview = new StringBuilder();
+        boolean truncated = false;
+        for (Node child = element.getFirstChild(); child != null && !truncated; child = child.getNextSibling()) {
+            if (!isText(child)) {
+                continue;
+            }
+            String value = child.getNodeValue();
+            int start = 0;
+            if (preview.length() == 0) {
+                // ข้ามช่องว่างด้านหน้า
+                while (start < value.length() && value.charAt(start) <= ' ') {
+                    start++;
+                }
+            }
+            int end = Math.min(value.length(), start + maxChars - preview.length());
+            preview.append(value, start, end);
+            truncated = end < value.length();
+        }
+
+        int length = preview.length();
+        while (length > 0 && preview.charAt(length - 1) <= ' ') {
+            length--;
+        }
+        preview.setLength(length);
+        if (truncated && ellipsis) {
+            preview.append('\u2026');
+        }
+        return preview.toString();
+    }
+
+    private static boolean isText(Node node) {
+        return node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE;
+    }
+
+    /**
+     * แสดง Element เป็น "tagName" หรือ "tagName : value" สำหรับ Field ที่ไม่มี Subfield และมีค่า
+     * (แสดงเฉพาะส่วนต้นของค่า Field ที่มีค่าขนาดใหญ่เช่น Base64 จึงไม่ทำให้การวาด Tree ช้า)
+     * Element ที่อยู่ใน highlights ถูกแสดงด้วยสีที่กำหนด (เช่น ผลการเปรียบเทียบจาก DiffViewer)
+     */
+    static final class CellRenderer extends DefaultTreeCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        /** จำนวนตัวอักษรของค่าที่แสดงใน Tree */
+        static final int PREVIEW_CHARS = 80;
+
+        private Map<Element, Color> highlights = new IdentityHashMap<>();
+
+        /**
+         * @param highlights Element -> สีตัวอักษร (Map ว่าง = ไม่มีการไฮไลต์) ต้อง repaint Tree เองหลังเรียก
+         */
+        void setHighlights(Map<Element, Color> highlights) {
+            this.highlights = highlights;
+        }
+
+        @Override
+        public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
+                                                      boolean leaf, int row, boolean hasFocus) {
+            Object label = value;
+            if (value instanceof Element) {
+                Element element = (Element) value;
+                String text = leaf ? directTextPreview(element, PREVIEW_CHARS, true) : "";
+                label = text.isEmpty() ? element.getTagName() : element.getTagName() + " : " + text;
+            }
+            Component component = super.getTreeCellRendererComponent(tree, label, selected, expanded, leaf, row, hasFocus);
+            Color color = highlights.get(value);
+            if (color != null && !selected) {
+                setForeground(color);
+            }
+            return component;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Command-line structural diff of two XML files, folders or merge archives (java XMLMerger diff ...)
+ *
+ * License: MIT License
+ */
+
+/**
+ * วิธีการใช้งาน:
+ * java XMLMerger diff --old Result-v1 --new Result-v2 [--recursive] [--threads 8] [--results diff.jsonl]
+ *
+ * - --old / --new รับได้ทั้งไฟล์ XML, โฟลเดอร์ (*.xml) และ ZIP จาก XMLMerger --archive
+ *   ไฟล์ถูกจับคู่ตาม Path เทียบกับโฟลเดอร์ (หรือชื่อ Entry ใน ZIP) ถ้าทั้งสองฝั่งเป็นไฟล์เดียวจะจับคู่กันเลย
+ * - เปรียบเทียบแต่ละคู่แบบขนานด้วย XMLDiff แล้วพิมพ์ผลตามลำดับ Path:
+ *   + Path = มีเฉพาะฝั่งใหม่, - Path = มีเฉพาะฝั่งเก่า, ~ Path : "เก่า" -> "ใหม่", @ Path/@attr : Attribute
+ * - ผลลัพธ์ของแต่ละคู่เขียนเป็น JSON Lines ด้วย --results <file> หรือ --results - (stdout)
+ *   {"file":"...","status":"same|different|added|removed|failed","changes":3,"truncated":false,"millis":1.234,"error":null,
+ *    "diff":[{"kind":"value","path":"...","old":"...","new":"..."}]}  (ค่ายาวถูกตัดเหลือ JSON_VALUE_CHARS ตัวอักษร)
+ *
+ * Exit code: แบบเดียวกับ diff (0 = เหมือนกันทุกไฟล์, 1 = มีความต่าง, 2 = Argument ไม่ถูกต้อง, 3 = เปรียบเทียบบางไฟล์ไม่ได้)
+ */
+
+import org.w3c.dom.Document;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+final class DiffCommandLine {
+
+    /** Argument แรกของ XMLMerger ที่เลือกโหมดนี้ */
+    static final String COMMAND = "diff";
+
+    static final int EXIT_SAME = 0;
+    static final int EXIT_DIFFERENT = 1;
+
+    /** ความยาวสูงสุดของค่าใน --results */
+    private static final int JSON_VALUE_CHARS = 1024;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java XMLMerger diff --old <file|dir|zip> --new <file|dir|zip> [options]",
+            "",
+            "Options:",
+            "      --old <path>          Baseline: XML file, directory (*.xml) or archive from --archive",
+            "      --new <path>          Files to compare with the baseline (paired by relative path / entry name)",
+            "  -r, --recursive           Include sub-directories of directory inputs",
+            "  -t, --threads <n>         Worker threads (default: number of CPU cores)",
+            "      --max-changes <n>     Changes listed per file (default: 1000; all changes are still counted)",
+            "      --summary             Print one line per file without the list of changes",
+            "      --results <file|->    Write per-file results as JSON Lines (- = stdout)",
+            "  -q, --quiet               Print only the summary",
+            "  -h, --help                Show this help",
+            "",
+            "Elements are paired by tag name and repetition index (the n-th CollateralDetail with the n-th),",
+            "values are compared trimmed, and indentation, comments and xmlns declarations are ignored.",
+            "",
+            "Exit codes: 0 = no differences, 1 = differences found, 2 = usage error, 3 = some files could not be compared");
+
+    private DiffCommandLine() {
+    }
+
+    /**
+     * ผลการเปรียบเทียบไฟล์หนึ่งคู่
+     */
+    private static final class FileDiff {
+        final String name;
+        final String status;
+        final XMLDiff diff;
+        final Exception error;
+        final long elapsedNanos;
+
+        FileDiff(String name, String status, XMLDiff diff, Exception error, long elapsedNanos) {
+            this.name = name;
+            this.status = status;
+            this.diff = diff;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    /**
+     * ไฟล์ XML ของฝั่งหนึ่ง: ชื่อสำหรับจับคู่ -> เปิดอ่าน
+     */
+    private static final class Side implements Closeable {
+        final Map<String, Callable<InputStream>> files = new TreeMap<>();
+        long totalBytes;
+        private MergeArchive.Reader archive;
+
+        static Side open(String input, boolean recursive) throws IOException {
+            Side side = new Side();
+            File file = new File(input);
+            if (file.isFile() && MergeArchive.isArchive(file)) {
+                MergeArchive.Reader reader = new MergeArchive.Reader(file);
+                side.archive = reader;
+                for (String entryName : reader.getEntryNames()) {
+                    side.totalBytes += reader.getSize(entryName);
+                    side.files.put(entryName, () -> new BufferedInputStream(reader.open(entryName)));
+                }
+                return side;
+            }
+
+            Map<File, String> relativeDirectories = new HashMap<>();
+            for (File xmlFile : MergeCommandLine.expandInputs(Collections.singletonList(input), recursive, relativeDirectories)) {
+                String relativeDirectory = relativeDirectories.getOrDefault(xmlFile, "").replace('\\', '/');
+                side.totalBytes += xmlFile.length();
+                side.files.put(relativeDirectory.isEmpty() ? xmlFile.getName() : relativeDirectory + "/" + xmlFile.getName(),
+                        () -> MappedXMLInput.openMapped(xmlFile).newInputStream());
+            }
+            return side;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (archive != null) {
+                archive.close();
+            }
+        }
+    }
+
+    /**
+     * @param args Argument หลัง "diff"
+     * @return exit code
+     */
+    static int run(String[] args) {
+        String oldInput = null;
+        String newInput = null;
+        String results = null;
+        boolean recursive = false;
+        boolean summary = false;
+        boolean quiet = false;
+        int threads = XMLMerger.DEFAULT_THREAD_COUNT;
+        int maxChanges = 1000;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--old":
+                        oldInput = value(args, ++i, arg);
+                        break;
+                    case "--new":
+                        newInput = value(args, ++i, arg);
+                        break;
+                    case "-r":
+                    case "--recursive":
+                        recursive = true;
+                        break;
+                    case "-t":
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i, arg));
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("--threads must be at least 1");
+                        }
+                        break;
+                    case "--max-changes":
+                        maxChanges = Integer.parseInt(value(args, ++i, arg));
+                        if (maxChanges < 0) {
+                            throw new IllegalArgumentException("--max-changes must not be negative");
+                        }
+                        break;
+                    case "--summary":
+                        summary = true;
+                        break;
+                    case "--results":
+                        results = value(args, ++i, arg);
+                        break;
+                    case "-q":
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return MergeCommandLine.EXIT_SUCCESS;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (oldInput == null || newInput == null) {
+                throw new IllegalArgumentException("--old and --new are required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            return MergeCommandLine.EXIT_USAGE;
+        }
+
+        boolean resultsToStdout = "-".equals(results);
+        PrintStream log = resultsToStdout ? System.err : System.out;
+
+        long startTime = System.nanoTime();
+        List<FileDiff> fileDiffs;
+        long totalBytes;
+        try (Side oldSide = Side.open(oldInput, recursive); Side newSide = Side.open(newInput, recursive)) {
+            if (oldSide.files.isEmpty() && newSide.files.isEmpty()) {
+                System.err.println("Error: no XML files found in " + oldInput + " or " + newInput);
+                return MergeCommandLine.EXIT_USAGE;
+            }
+            // ไฟล์เดียวทั้งสองฝั่ง: จับคู่กันโดยไม่สนใจชื่อไฟล์
+            if (oldSide.archive == null && newSide.archive == null && new File(oldInput).isFile() && new File(newInput).isFile()) {
+                String name = newSide.files.keySet().iterator().next();
+                Callable<InputStream> oldFile = oldSide.files.values().iterator().next();
+                oldSide.files.clear();
+                oldSide.files.put(name, oldFile);
+            }
+            totalBytes = oldSide.totalBytes + newSide.totalBytes;
+            fileDiffs = compareAll(oldSide, newSide, threads, maxChanges);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: input not found or unreadable: " + e.getMessage());
+            return MergeCommandLine.EXIT_USAGE;
+        }
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+
+        int[] counts = new int[5];
+        for (FileDiff fileDiff : fileDiffs) {
+            counts[statusIndex(fileDiff.status)]++;
+            if (quiet || (summary && "same".equals(fileDiff.status))) {
+                continue;
+            }
+            if (fileDiff.error != null) {
+                log.printf("%s | failed: %s\n", fileDiff.name, fileDiff.error.getMessage());
+            } else if (fileDiff.diff == null) {
+                log.printf("%s | only in %s\n", fileDiff.name, "added".equals(fileDiff.status) ? "new" : "old");
+            } else if (fileDiff.diff.changeCount > 0) {
+                log.printf("%s | %d change(s)\n", fileDiff.name, fileDiff.diff.changeCount);
+                if (!summary) {
+                    fileDiff.diff.changes.forEach(change -> log.println("    " + change));
+                    if (fileDiff.diff.isTruncated()) {
+                        log.printf("    ... %d more\n", fileDiff.diff.changeCount - fileDiff.diff.changes.size());
+                    }
+                }
+            }
+        }
+        log.println("--------------------------------------------------");
+        log.printf("Compared %d file(s): %d identical, %d different, %d only in new, %d only in old, %d failed.\n",
+                fileDiffs.size(), counts[0], counts[1], counts[2], counts[3], counts[4]);
+        log.printf(Locale.ROOT, "Total time: %.3f s, %.2f MB/s\n", seconds, totalBytes / 1_048_576.0 / Math.max(seconds, 1e-9));
+
+        if (results != null) {
+            try {
+                writeResults(fileDiffs, results);
+            } catch (IOException e) {
+                System.err.println("Error: cannot write results: " + e.getMessage());
+                return MergeCommandLine.EXIT_FATAL;
+            }
+        }
+        if (counts[4] > 0) {
+            return MergeCommandLine.EXIT_FATAL;
+        }
+        return counts[1] + counts[2] + counts[3] == 0 ? EXIT_SAME : EXIT_DIFFERENT;
+    }
+
+    /**
+     * เปรียบเทียบทุกคู่แบบขนาน (ไฟล์ที่มีฝั่งเดียวไม่ถูก Parse)
+     *
+     * @return ผลลัพธ์เรียงตามชื่อไฟล์
+     */
+    private static List<FileDiff> compareAll(Side oldSide, Side newSide, int threads, int maxChanges) {
+        SortedSet<String> names = new TreeSet<>(oldSide.files.keySet());
+        names.addAll(newSide.files.keySet());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<FileDiff>> futures = new ArrayList<>();
+        try {
+            for (String name : names) {
+                Callable<InputStream> oldFile = oldSide.files.get(name);
+                Callable<InputStream> newFile = newSide.files.get(name);
+                if (oldFile == null || newFile == null) {
+                    futures.add(executor.submit(() -> new FileDiff(name, oldFile == null ? "added" : "removed", null, null, 0)));
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    long startTime = System.nanoTime();
+                    try {
+                        XMLDiff diff = XMLDiff.compare(parse(oldFile).getDocumentElement(), parse(newFile).getDocumentElement(), maxChanges);
+                        return new FileDiff(name, diff.changeCount == 0 ? "same" : "different", diff, null, System.nanoTime() - startTime);
+                    } catch (Exception ex) {
+                        return new FileDiff(name, "failed", null, ex, System.nanoTime() - startTime);
+                    }
+                }));
+            }
+
+            List<FileDiff> fileDiffs = new ArrayList<>(futures.size());
+            for (Future<FileDiff> future : futures) {
+                try {
+                    fileDiffs.add(future.get());
+                } catch (ExecutionException | InterruptedException e) {
+                    // ไม่ควรเกิดขึ้น เพราะ Task จับ Exception เองแล้ว
+                    throw new IllegalStateException(e);
+                }
+            }
+            return fileDiffs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Document parse(Callable<InputStream> file) throws Exception {
+        try (InputStream in = file.call()) {
+            return XMLSupport.documentBuilder(true).parse(in);
+        }
+    }
+
+    private static int statusIndex(String status) {
+        switch (status) {
+            case "same":
+                return 0;
+            case "different":
+                return 1;
+            case "added":
+                return 2;
+            case "removed":
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    /**
+     * เขียนผลลัพธ์ของแต่ละคู่เป็น JSON Lines
+     *
+     * @param fileDiffs
+     * @param target ชื่อไฟล์ หรือ "-" สำหรับ stdout
+     * @throws IOException
+     */
+    private static void writeResults(List<FileDiff> fileDiffs, String target) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (FileDiff fileDiff : fileDiffs) {
+            lines.append("{\"file\":").append(MergeCommandLine.jsonString(fileDiff.name))
+                    .append(",\"status\":\"").append(fileDiff.status).append('"')
+                    .append(",\"changes\":").append(fileDiff.diff == null ? 0 : fileDiff.diff.changeCount)
+                    .append(",\"truncated\":").append(fileDiff.diff != null && fileDiff.diff.isTruncated())
+                    .append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", fileDiff.elapsedNanos / 1_000_000.0))
+                    .append(",\"error\":").append(fileDiff.error == null ? "null" : MergeCommandLine.jsonString(String.valueOf(fileDiff.error.getMessage())))
+                    .append(",\"diff\":[");
+            List<XMLDiff.Change> changes = fileDiff.diff == null ? Collections.emptyList() : fileDiff.diff.changes;
+            for (int i = 0; i < changes.size(); i++) {
+                XMLDiff.Change change = changes.get(i);
+                lines.append(i == 0 ? "" : ",")
+                        .append("{\"kind\":\"").append(change.kind.name().toLowerCase(Locale.ROOT)).append('"')
+                        .append(",\"path\":").append(MergeCommandLine.jsonString(change.path))
+                        .append(",\"old\":").append(jsonValue(change.oldValue))
+                        .append(",\"new\":").append(jsonValue(change.newValue))
+                        .append('}');
+            }
+            lines.append("]}\n");
+        }
+
+        if ("-".equals(target)) {
+            System.out.print(lines);
+            System.out.flush();
+        } else {
+            Files.write(Paths.get(target), lines.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String jsonValue(String value) {
+        if (value == null) {
+            return "null";
+        }
+        return MergeCommandLine.jsonString(value.length() > JSON_VALUE_CHARS ? value.substring(0, JSON_VALUE_CHARS) + "..." : value);
+    }
+}
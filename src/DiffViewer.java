@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the Dynamic XML Tree Editor application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Lists the structural differences between a saved file and the edited document and highlights them in the tree
+ *
+ * License: MIT License
+ */
+
+/**
+ * DiffViewer (แสดงความต่างระหว่างไฟล์กับเอกสารที่กำลังแก้ไข)
+ *
+ * - Editor Parse ไฟล์ที่เลือก (ค่าเริ่มต้นคือไฟล์ที่เปิดอยู่) แล้วเปรียบเทียบกับ xmlDocument ด้วย XMLDiff
+ *   ฝั่งเก่า = ไฟล์, ฝั่งใหม่ = เอกสารใน Editor
+ * - รายการความต่างแสดงเป็นสีตามชนิด (เพิ่ม = เขียว, ลบ = แดง, ค่า / Attribute เปลี่ยน = น้ำเงิน)
+ *   คลิกเพื่อเปิด Tree ไปยัง Element (ความต่างแบบลบเปิดไปยัง Element แม่)
+ * - Element ใน Tree ถูกไฮไลต์ด้วยสีเดียวกัน และ Element แม่ของความต่างแสดงเป็นสีส้ม (มีความต่างอยู่ข้างใน)
+ *   การไฮไลต์ถูกล้างเมื่อปิด Dialog
+ * - Dialog ไม่ใช่ Modal จึงแก้ไขเอกสารต่อได้ระหว่างเปิด (รายการไม่อัปเดตตาม ให้เปรียบเทียบใหม่)
+ */
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+final class DiffViewer extends JDialog {
+
+    private static final long serialVersionUID = 1L;
+
+    static final Color ADDED_COLOR = new Color(0, 128, 0);
+    static final Color REMOVED_COLOR = new Color(192, 0, 0);
+    static final Color CHANGED_COLOR = new Color(0, 64, 192);
+    /** Element แม่ของความต่าง */
+    static final Color CONTAINS_CHANGES_COLOR = new Color(204, 102, 0);
+
+    /**
+     * @param owner
+     * @param title       ชื่อไฟล์ที่ใช้เปรียบเทียบ
+     * @param diff
+     * @param elapsedMillis เวลาที่ใช้เปรียบเทียบ
+     * @param onSelect    เรียกพร้อม Element ของเอกสารใน Editor เมื่อเลือกความต่าง
+     * @param onClose     เรียกเมื่อปิด Dialog (ล้างการไฮไลต์)
+     */
+    DiffViewer(Frame owner, String title, XMLDiff diff, long elapsedMillis, Consumer<Element> onSelect, Runnable onClose) {
+        super(owner, "Differences: " + title + " -> current document", false);
+
+        JList<XMLDiff.Change> changeList = new JList<>(diff.changes.toArray(new XMLDiff.Change[0]));
+        changeList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        changeList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                Component component = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                if (!isSelected) {
+                    setForeground(colorOf(((XMLDiff.Change) value).kind));
+                }
+                return component;
+            }
+        });
+        changeList.addListSelectionListener(e -> {
+            XMLDiff.Change change = changeList.getSelectedValue();
+            if (!e.getValueIsAdjusting() && change != null && change.newElement != null) {
+                onSelect.accept(change.newElement);
+            }
+        });
+
+        String count = diff.isTruncated() ? "First " + diff.changes.size() + " of " + diff.changeCount : String.valueOf(diff.changeCount);
+        JLabel statusLabel = new JLabel(diff.changeCount == 0 ? "No differences (" + elapsedMillis + " ms)"
+                : count + " difference(s) in " + elapsedMillis + " ms, " + diff.skippedSubtrees + " identical branch(es) skipped");
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        bottomPanel.add(closeButton);
+
+        getContentPane().add(statusLabel, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(changeList), BorderLayout.CENTER);
+        getContentPane().add(bottomPanel, BorderLayout.SOUTH);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                onClose.run();
+            }
+        });
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setSize(800, 400);
+        setLocationRelativeTo(owner);
+    }
+
+    static Color colorOf(XMLDiff.Kind kind) {
+        switch (kind) {
+            case ADDED:
+                return ADDED_COLOR;
+            case REMOVED:
+                return REMOVED_COLOR;
+            default:
+                return CHANGED_COLOR;
+        }
+    }
+
+    /**
+     * สีของ Element ในเอกสารฝั่งใหม่สำหรับ DOMTreeModel.CellRenderer
+     *
+     * @param diff
+     * @return Element ที่เพิ่ม / เปลี่ยน -> สีตามชนิด, Element แม่ของความต่าง -> CONTAINS_CHANGES_COLOR
+     */
+    static Map<Element, Color> highlights(XMLDiff diff) {
+        Map<Element, Color> highlights = new IdentityHashMap<>();
+        for (XMLDiff.Change change : diff.changes) {
+            Element element = change.newElement;
+            if (element == null) {
+                continue;
+            }
+            // ความต่างแบบลบชี้ไปที่ Element แม่ จึงแสดงเป็น "มีความต่างอยู่ข้างใน"
+            if (change.kind != XMLDiff.Kind.REMOVED) {
+                highlights.put(element, colorOf(change.kind));
+            } else {
+                highlights.putIfAbsent(element, CONTAINS_CHANGES_COLOR);
+            }
+            for (Node parent = element.getParentNode(); parent instanceof Element; parent = parent.getParentNode()) {
+                if (highlights.putIfAbsent((Element) parent, CONTAINS_CHANGES_COLOR) != null) {
+                    break;
+                }
+            }
+        }
+        return highlights;
+    }
+}
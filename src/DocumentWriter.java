@@ -0,0 +1,593 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Fast DOM-to-UTF-8 writer with the same output bytes as the identity Transformer
+ *
+ * License: MIT License
+ */
+
+/**
+ * DocumentWriter
+ *
+ * - เขียน DOM เป็น UTF-8 ลง byte[] ที่ใช้ซ้ำ (1 ตัวต่อ Thread) แล้วเขียนลงไฟล์ด้วย FileChannel ครั้งเดียว
+ *   แทน Identity Transformer -> StreamResult(File) ที่ต้องผ่าน DOM2TO / SAX / Serializer หลายชั้น
+ * - ผลลัพธ์ (เมื่อไม่ใช้ indent) ตรงกับ Transformer ของ XMLSupport ทุก Byte ตามกติกาของ JDK Serializer:
+ *     Declaration: <?xml version="1.0" encoding="UTF-8" standalone="no"?> (ไม่มีขึ้นบรรทัดใหม่ต่อท้าย)
+ *     Element ที่ไม่มีลูก: <a/>
+ *     Text: & < > เป็น Entity, อักขระ < 0x20 (ยกเว้น \t \n), 0x7F-0x9F และอักขระนอก BMP เป็น &#N;
+ *     Attribute: & < > " เป็น Entity, อักขระ < 0x20 (รวม \t \n \r) และอักขระนอก BMP เป็น &#N;
+ *     Comment / Processing Instruction / CDATA: เขียนตามเดิม
+ *     Namespace: xmlns ตามลำดับ Attribute แล้วจึง Namespace ของ Attribute และของ Element ที่ยังไม่ได้ประกาศ
+ *                (Root Element ประกาศ Namespace ของ Prefix ตัวเองก่อน)
+ * - กรณีที่ยังไม่แน่ใจว่าจะตรงกับ Transformer (เช่น DOCTYPE, XML 1.1, CDATA ที่มี "]]>" หรืออักขระนอก BMP, Surrogate ที่ไม่ครบคู่,
+ *   Attribute ที่มี Namespace แต่ไม่มี Prefix, Prefix เดียวกันประกาศสองค่าใน Element เดียว) write() จะคืนค่า false โดยยังไม่เขียนไฟล์ ให้ผู้เรียกใช้ Transformer แทน
+ * - ชื่อ Tag / Attribute ถูกแปลงเป็น UTF-8 ครั้งเดียวแล้ว Cache ไว้ (ชื่อซ้ำกันเกือบทั้งเอกสาร)
+ * - indent = true: จัดรูปแบบให้อ่านง่าย (ย่อหน้าละ 2 ช่อง เฉพาะ Element ที่มีแต่ Element ลูก) ผลลัพธ์คงที่ทุกครั้ง
+ *   แต่ไม่ได้ตั้งใจให้ตรงกับ OutputKeys.INDENT ของ Transformer
+ */
+
+import org.w3c.dom.*;
+
+import javax.xml.XMLConstants;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+final class DocumentWriter {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    /** Buffer ที่ใหญ่กว่านี้จะไม่ถูกเก็บไว้ใช้ซ้ำ (ไม่ให้แต่ละ Thread ถือหน่วยความจำของไฟล์ใหญ่ไว้ตลอด) */
+    private static final int MAX_RETAINED_CAPACITY = 4 * 1024 * 1024;
+    private static final int MAX_CACHED_NAMES = 10_000;
+
+    private static final byte[] DECLARATION = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    private static final byte[] DECLARATION_NOT_STANDALONE = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+
+    /** Escape ของอักขระ ASCII (null = เขียนตามเดิม) */
+    private static final byte[][] TEXT_ESCAPES = new byte[128][];
+    private static final byte[][] ATTRIBUTE_ESCAPES = new byte[128][];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ATTRIBUTE_ESCAPES[c] = bytes("&#" + c + ";");
+            if (c != '\t' && c != '\n') {
+                TEXT_ESCAPES[c] = ATTRIBUTE_ESCAPES[c];
+            }
+        }
+        TEXT_ESCAPES['&'] = ATTRIBUTE_ESCAPES['&'] = bytes("&amp;");
+        TEXT_ESCAPES['<'] = ATTRIBUTE_ESCAPES['<'] = bytes("&lt;");
+        TEXT_ESCAPES['>'] = ATTRIBUTE_ESCAPES['>'] = bytes("&gt;");
+        ATTRIBUTE_ESCAPES['"'] = bytes("&quot;");
+        TEXT_ESCAPES[0x7F] = bytes("&#127;");
+    }
+
+    private static final ThreadLocal<DocumentWriter> WRITERS = ThreadLocal.withInitial(DocumentWriter::new);
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int length;
+    private boolean indent;
+    private final Map<String, byte[]> names = new HashMap<>();
+
+    // Namespace ที่ประกาศแล้ว (Stack แบบ Array: scopeStarts[depth] = ตำแหน่งเริ่มของ Element ระดับนั้น)
+    private String[] prefixes = new String[16];
+    private String[] namespaceURIs = new String[16];
+    private int namespaceCount;
+
+    private DocumentWriter() {
+    }
+
+    /**
+     * เขียน document ลง outputFile ด้วย DocumentWriter ของ Thread ปัจจุบัน
+     *
+     * @param document
+     * @param outputFile
+     * @param indent
+     * @return false เมื่อเอกสารนี้ต้องใช้ Transformer แทน (ไม่มีการเขียนไฟล์)
+     * @throws IOException
+     */
+    static boolean write(Document document, File outputFile, boolean indent) throws IOException {
+        DocumentWriter writer = WRITERS.get();
+        if (!writer.serialize(document, indent)) {
+            return false;
+        }
+        writer.writeTo(outputFile);
+        return true;
+    }
+
+    /**
+     * @param document
+     * @param indent
+     * @return bytes ของเอกสาร หรือ null เมื่อเอกสารนี้ต้องใช้ Transformer แทน
+     */
+    static byte[] toByteArray(Document document, boolean indent) {
+        DocumentWriter writer = WRITERS.get();
+        if (!writer.serialize(document, indent)) {
+            return null;
+        }
+        byte[] bytes = Arrays.copyOf(writer.buffer, writer.length);
+        writer.release();
+        return bytes;
+    }
+
+    /**
+     * เขียน document ลง buffer
+     *
+     * @param document
+     * @param indent
+     * @return false เมื่อต้องใช้ Transformer แทน
+     */
+    private boolean serialize(Document document, boolean indent) {
+        this.indent = indent;
+        length = 0;
+        namespaceCount = 0;
+        declareNamespace(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI);
+        declareNamespace(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI);
+
+        try {
+            if (!"1.0".equals(document.getXmlVersion())) {
+                throw new FallbackException();
+            }
+            append(document.getXmlStandalone() ? DECLARATION : DECLARATION_NOT_STANDALONE);
+            for (Node child = document.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (indent) {
+                    append('\n');
+                }
+                writeNode(child, 0);
+            }
+            if (indent) {
+                append('\n');
+            }
+            return true;
+        } catch (FallbackException e) {
+            release();
+            return false;
+        }
+    }
+
+    private void writeTo(File outputFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        length = 0;
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new byte[INITIAL_CAPACITY];
+        }
+    }
+
+    private void writeNode(Node node, int depth) throws FallbackException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                writeElement((Element) node, depth);
+                break;
+            case Node.TEXT_NODE:
+                writeEscaped(node.getNodeValue(), TEXT_ESCAPES, true);
+                break;
+            case Node.CDATA_SECTION_NODE:
+                String data = node.getNodeValue();
+                if (data.contains("]]>") || hasSurrogate(data)) {
+                    // Transformer แบ่งเป็นหลาย CDATA Section / เขียนอักขระนอก BMP ไว้นอก CDATA
+                    throw new FallbackException();
+                }
+                append("<![CDATA[");
+                writeRaw(data);
+                append("]]>");
+                break;
+            case Node.COMMENT_NODE:
+                append("<!--");
+                writeRaw(node.getNodeValue());
+                append("-->");
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                append("<?");
+                writeRaw(node.getNodeName());
+                String value = node.getNodeValue();
+                if (value != null && !value.isEmpty()) {
+                    if (!Character.isSpaceChar(value.charAt(0))) {
+                        append(' ');
+                    }
+                    // Transformer แยก "?>" ตัวแรกใน Data เป็น "? >"
+                    int end = value.indexOf("?>");
+                    if (end >= 0) {
+                        value = value.substring(0, end) + "? >" + value.substring(end + 2);
+                    }
+                    writeRaw(value);
+                }
+                append("?>");
+                break;
+            default:
+                // DOCTYPE, Entity Reference ฯลฯ
+                throw new FallbackException();
+        }
+    }
+
+    /**
+     * เขียน Element ตามลำดับเดียวกับ Transformer (DOM2TO):
+     * 0. เฉพาะ Root: Namespace ของ Prefix ของ Root (ดู rootNamespace)
+     * 1. xmlns ตามลำดับ Attribute (ตัดตัวที่ประกาศซ้ำกับ Scope ปัจจุบัน)
+     * 2. Attribute ปกติ (ประกาศ Namespace ของ Attribute ก่อนถ้ายังไม่มีใน Scope)
+     * 3. Namespace ของ Element ถ้ายังไม่ได้ประกาศ (Element ที่ไม่มี Namespace ใต้ Default Namespace ได้ xmlns="")
+     * Start Tag ปิดเมื่อเจอลูกตัวแรกที่มีเนื้อหา (Text / CDATA ว่างไม่นับ) ถ้าไม่มีเลยเขียนเป็น <a/>
+     *
+     * @param element
+     * @param depth
+     * @throws FallbackException
+     */
+    private void writeElement(Element element, int depth) throws FallbackException {
+        String qualifiedName = element.getNodeName();
+        int scopeStart = namespaceCount;
+
+        append('<');
+        append(nameBytes(qualifiedName));
+
+        NamedNodeMap attributes = element.getAttributes();
+        int attributeCount = attributes.getLength();
+
+        if (element.getParentNode().getNodeType() == Node.DOCUMENT_NODE) {
+            String rootNamespace = rootNamespace(element, attributes);
+            if (rootNamespace != null && !rootNamespace.isEmpty()) {
+                writeNamespace(prefixOf(qualifiedName), rootNamespace, scopeStart);
+            }
+        }
+
+        for (int i = 0; i < attributeCount; i++) {
+            Node attribute = attributes.item(i);
+            String name = attribute.getNodeName();
+            if (name.startsWith(XMLConstants.XMLNS_ATTRIBUTE)) {
+                String value = attribute.getNodeValue();
+                if (name.length() == 5) {
+                    writeNamespace(XMLConstants.DEFAULT_NS_PREFIX, value, scopeStart);
+                } else if (name.charAt(5) == ':' && !value.isEmpty()) {
+                    writeNamespace(name.substring(6), value, scopeStart);
+                } else {
+                    // เช่น xmlnsX="..." หรือ xmlns:p="" ซึ่ง Transformer จัดการต่างออกไป
+                    throw new FallbackException();
+                }
+            }
+        }
+
+        for (int i = 0; i < attributeCount; i++) {
+            Node attribute = attributes.item(i);
+            String name = attribute.getNodeName();
+            if (name.startsWith(XMLConstants.XMLNS_ATTRIBUTE)) {
+                continue;
+            }
+            String attributeNamespace = attribute.getNamespaceURI();
+            if (attributeNamespace != null && !attributeNamespace.isEmpty()) {
+                String prefix = prefixOf(name);
+                if (prefix.isEmpty()) {
+                    // Transformer จะสร้าง Prefix ให้เอง
+                    throw new FallbackException();
+                }
+                writeNamespace(prefix, attributeNamespace, scopeStart);
+            }
+            writeAttribute(nameBytes(name), attribute.getNodeValue());
+        }
+
+        String namespaceURI = element.getNamespaceURI();
+        if (namespaceURI != null) {
+            writeNamespace(prefixOf(qualifiedName), namespaceURI, scopeStart);
+        } else if (element.getLocalName() != null) {
+            writeNamespace(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI, scopeStart);
+        }
+
+        boolean startTagOpen = true;
+        boolean indentChildren = indent && hasOnlyMarkup(element);
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            short childType = child.getNodeType();
+            if (childType == Node.TEXT_NODE && indentChildren
+                    || (childType == Node.TEXT_NODE || childType == Node.CDATA_SECTION_NODE) && child.getNodeValue().isEmpty()) {
+                // Transformer ไม่เขียน Text / CDATA ที่ว่าง
+                continue;
+            }
+            if (startTagOpen) {
+                append('>');
+                startTagOpen = false;
+            }
+            if (indentChildren) {
+                newLine(depth + 1);
+            }
+            writeNode(child, depth + 1);
+        }
+        if (startTagOpen) {
+            append('/');
+            append('>');
+        } else {
+            if (indentChildren) {
+                newLine(depth);
+            }
+            append('<');
+            append('/');
+            append(nameBytes(qualifiedName));
+            append('>');
+        }
+        namespaceCount = scopeStart;
+    }
+
+    /**
+     * Transformer พัก Root Element ไว้จนกว่าจะเจอ Attribute ปกติตัวแรก (หรือลูก) แล้วจึงประกาศ Namespace ของ Prefix
+     * ของ Root ก่อน xmlns อื่นทั้งหมด โดยใช้ URI ตัวแรกของ Prefix นั้นที่พบระหว่างที่พักไว้
+     *
+     * @param root
+     * @param attributes
+     * @return URI ที่ถูกประกาศก่อน หรือ null ถ้าไม่มี
+     */
+    private static String rootNamespace(Element root, NamedNodeMap attributes) {
+        String rootPrefix = prefixOf(root.getNodeName());
+        Node firstAttribute = null;
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            String name = attribute.getNodeName();
+            if (!name.startsWith(XMLConstants.XMLNS_ATTRIBUTE)) {
+                if (firstAttribute == null) {
+                    firstAttribute = attribute;
+                }
+            } else if (name.length() == 5 ? rootPrefix.isEmpty() : name.substring(6).equals(rootPrefix)) {
+                return attribute.getNodeValue();
+            }
+        }
+        if (firstAttribute != null) {
+            String namespaceURI = firstAttribute.getNamespaceURI();
+            boolean samePrefix = namespaceURI != null && !namespaceURI.isEmpty() && prefixOf(firstAttribute.getNodeName()).equals(rootPrefix);
+            return samePrefix ? namespaceURI : null;
+        }
+        return root.getNamespaceURI();
+    }
+
+    /**
+     * @param element
+     * @return true เมื่อลูกที่เป็น Text ทั้งหมดเป็น Whitespace และไม่มี CDATA (จัดย่อหน้าได้โดยไม่เปลี่ยนข้อมูล)
+     */
+    private static boolean hasOnlyMarkup(Element element) {
+        boolean hasMarkup = false;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+                case Node.TEXT_NODE:
+                    if (!child.getNodeValue().trim().isEmpty()) {
+                        return false;
+                    }
+                    break;
+                case Node.CDATA_SECTION_NODE:
+                    return false;
+                default:
+                    hasMarkup = true;
+            }
+        }
+        return hasMarkup;
+    }
+
+    private void newLine(int depth) {
+        ensureCapacity(1 + depth * 2);
+        buffer[length++] = '\n';
+        for (int i = 0; i < depth * 2; i++) {
+            buffer[length++] = ' ';
+        }
+    }
+
+    /**
+     * ประกาศ Namespace ถ้า Prefix ยังไม่ได้ชี้ไปที่ namespaceURI (เหมือน NamespaceMappings.pushNamespace)
+     *
+     * @param prefix
+     * @param namespaceURI
+     * @param scopeStart ตำแหน่งแรกของ Namespace ที่ประกาศใน Element ปัจจุบัน
+     * @throws FallbackException เมื่อ Prefix เดียวกันถูกประกาศใน Element เดียวกันด้วย URI ต่างกัน
+     */
+    private void writeNamespace(String prefix, String namespaceURI, int scopeStart) throws FallbackException {
+        if (prefix.startsWith(XMLConstants.XML_NS_PREFIX) || lookupNamespace(prefix).equals(namespaceURI)) {
+            // Prefix "xml..." ประกาศใหม่ไม่ได้ (Transformer ข้ามเช่นกัน)
+            return;
+        }
+        for (int i = scopeStart; i < namespaceCount; i++) {
+            if (prefixes[i].equals(prefix)) {
+                // Transformer จะแทนค่า xmlns เดิมใน Start Tag
+                throw new FallbackException();
+            }
+        }
+        declareNamespace(prefix, namespaceURI);
+        if (prefix.isEmpty()) {
+            writeAttribute(nameBytes(XMLConstants.XMLNS_ATTRIBUTE), namespaceURI);
+        } else if (!namespaceURI.isEmpty()) {
+            writeAttribute(nameBytes(XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix), namespaceURI);
+        }
+    }
+
+    private void declareNamespace(String prefix, String namespaceURI) {
+        if (namespaceCount == prefixes.length) {
+            prefixes = Arrays.copyOf(prefixes, namespaceCount * 2);
+            namespaceURIs = Arrays.copyOf(namespaceURIs, namespaceCount * 2);
+        }
+        prefixes[namespaceCount] = prefix;
+        namespaceURIs[namespaceCount] = namespaceURI;
+        namespaceCount++;
+    }
+
+    private String lookupNamespace(String prefix) {
+        for (int i = namespaceCount - 1; i >= 0; i--) {
+            if (prefixes[i].equals(prefix)) {
+                return namespaceURIs[i];
+            }
+        }
+        return "";
+    }
+
+    private static String prefixOf(String qualifiedName) {
+        int colon = qualifiedName.indexOf(':');
+        return colon > 0 ? qualifiedName.substring(0, colon) : XMLConstants.DEFAULT_NS_PREFIX;
+    }
+
+    private void writeAttribute(byte[] name, String value) throws FallbackException {
+        append(' ');
+        append(name);
+        append('=');
+        append('"');
+        writeEscaped(value, ATTRIBUTE_ESCAPES, false);
+        append('"');
+    }
+
+    private byte[] nameBytes(String name) {
+        byte[] encoded = names.get(name);
+        if (encoded == null) {
+            if (names.size() >= MAX_CACHED_NAMES) {
+                names.clear();
+            }
+            encoded = bytes(name);
+            names.put(name, encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * เขียน Text / ค่า Attribute เป็น UTF-8 พร้อม Escape
+     *
+     * @param value
+     * @param escapes TEXT_ESCAPES หรือ ATTRIBUTE_ESCAPES
+     * @param text true = Text (0x80-0x9F เป็น &#N;)
+     * @throws FallbackException เมื่อมี Surrogate ที่ไม่ครบคู่ (Transformer จะ Error)
+     */
+    private void writeEscaped(String value, byte[][] escapes, boolean text) throws FallbackException {
+        int count = value.length();
+        // กรณีแย่สุด 1 char = 3 bytes (อักขระที่ต้อง Escape เรียก append แยก)
+        ensureCapacity(count * 3);
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte[] escape = escapes[c];
+                if (escape == null) {
+                    buffer[length++] = (byte) c;
+                } else {
+                    append(escape);
+                    ensureCapacity((count - i) * 3);
+                }
+            } else if (c < 0x800) {
+                if (text && c <= 0x9F) {
+                    appendCharacterReference(c);
+                    ensureCapacity((count - i) * 3);
+                } else {
+                    buffer[length++] = (byte) (0xC0 | (c >> 6));
+                    buffer[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            } else if (Character.isSurrogate(c)) {
+                if (!Character.isHighSurrogate(c) || i + 1 >= count || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    throw new FallbackException();
+                }
+                appendCharacterReference(Character.toCodePoint(c, value.charAt(++i)));
+                ensureCapacity((count - i) * 3);
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * เขียน Comment / PI / CDATA เป็น UTF-8 โดยไม่ Escape
+     *
+     * @param value
+     * @throws FallbackException เมื่อมีอักขระควบคุม หรือ Surrogate ที่ไม่ครบคู่
+     */
+    private void writeRaw(String value) throws FallbackException {
+        int count = value.length();
+        ensureCapacity(count * 3);
+        for (int i = 0; i < count; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c < 0x20 && c != '\t' && c != '\n') {
+                    throw new FallbackException();
+                }
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (!Character.isHighSurrogate(c) || i + 1 >= count || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                    throw new FallbackException();
+                }
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static boolean hasSurrogate(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isSurrogate(value.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendCharacterReference(int codePoint) {
+        append('&');
+        append('#');
+        append(Integer.toString(codePoint));
+        append(';');
+    }
+
+    private void append(char asciiChar) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) asciiChar;
+    }
+
+    private void append(String ascii) {
+        ensureCapacity(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            buffer[length++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (length + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + additional));
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * เอกสารนี้ต้องใช้ Transformer
+     */
+    private static final class FallbackException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        FallbackException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -15,9 +15,10 @@
 
 
 /**
- * การทำงานของ "buildTreeFromXML" และกระบวนการ Duplicate Node
+ * การแสดง Tree และกระบวนการ Duplicate Node
  *
- * - "buildTreeFromXML" ส่งผลให้เกิด field ซ้อนกัน (DuplicateNode) แต่จะไม่ส่งผลกระทบต่อไฟล์ XML หลังจาก Save
+ * - Tree อ่านโหนดจาก DOM โดยตรงผ่าน DOMTreeModel (ไม่สร้าง DefaultMutableTreeNode สำเนา)
+ *   เดิม "buildTreeFromXML" ทำให้เกิด field ซ้อนกัน (Root และ Field ที่ Duplicate แสดงซ้ำสองชั้น) ซึ่งไม่เกิดขึ้นแล้ว
  *
  * - การระบุชนิดข้อมูลของ Field ใน ReadyAPI:
  *   1. ReadyAPI รู้ชนิดข้อมูล (Data Type) ของ Field โดยอ้างอิงจากการ Generate Project ผ่าน WSDL
@@ -29,11 +30,11 @@
  *   2. Field ใดที่มีการกำหนด "Unbound" จะปรากฏข้อความ "Zero or more repetitions:" เหนือ Field นั้น
  *   3. หากพบ Field เหล่านี้ ระบบจะเพิ่ม Field ซ้ำ (Duplicate) ตามความจำเป็น
  *
- * - กระบวนการ Duplicate Node แบบใหม่:
- *   1. ใช้ฟังก์ชัน "collectFieldsWithZeroOrMoreRepetitions" ใน "listDuplicateAllowedFields"
- *      เพื่อรวบรวม Field ที่เข้าข่าย "Zero or more repetitions:"
- *   2. รายการ Field ที่พบทั้งหมดจะแสดงใน Terminal โดยเป็น Field ที่ตัดข้อมูลซ้ำออกแล้ว
- *   3. จากนั้น Copy รายการ ArrayList ที่ได้ไปใส่ใน "duplicateAllowedFields" (Whitelist) ด้วยตนเอง (Manual)
+ * - กระบวนการ Duplicate Node แบบใหม่ (RepeatableFieldRegistry):
+ *   1. รายการ Field ที่ Duplicate ได้อ่านจาก maxOccurs="unbounded" ใน XSD / WSDL หรือคอมเมนต์ "Zero or more repetitions:"
+ *      แล้ว Compile เป็นไฟล์ Cache (ไม่ต้อง Copy Whitelist มาวางในโค้ดเองอีก)
+ *   2. เทียบด้วย Path ของ Field ไม่ใช่ชื่อ Tag อย่างเดียว และใช้ Registry เดียวกับ XMLMerger
+ *   3. เมื่อเปิดไฟล์ที่มีคอมเมนต์ "Zero or more repetitions:" จะเพิ่ม Field เหล่านั้นเข้า Registry ของ Editor ด้วย
  *
  * - ข้อดีของกระบวนการแบบใหม่:
  *   1. ไม่ต้องค้นหาคำว่า "Zero or more repetitions:" ใน XML ซ้ำอีก
@@ -43,57 +44,63 @@
 
 
 import org.w3c.dom.*;
-import org.xml.sax.InputSource;
 
 import javax.swing.*;
-import javax.swing.event.TreeExpansionEvent;
-import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.*;
 import javax.xml.parsers.*;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.*;
 import javax.xml.transform.stream.*;
 import java.awt.*;
-import java.io.File;
-import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.*;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.Stack;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class DynamicXMLTreeEditor {
     private static Document xmlDocument;
     private static JTextField valueField;
     private static JTextField fieldNameField;
-    private static DefaultMutableTreeNode selectedNode;
+    // true = valueField แสดงเฉพาะส่วนต้นของค่าขนาดใหญ่ (แก้ไขผ่าน LargeValueViewer)
+    private static boolean valueTruncated;
+    private static Element selectedElement;
     private static JTree tree;
-    private static Stack<String> undoStack = new Stack<>();
-    private static Stack<String> redoStack = new Stack<>();
-
-    private static final Set<String> duplicateAllowedFields = new HashSet<>(Arrays.asList(
-            "LetterOfGuaranteeAssetDetail", "NotGenerate", "ExistingGuaranteeCollateralDetails", "needPaymentForAccruedInterestAmount", "isCustWillReqForDrawdownAfterCreditLineDecrease",
-            "AuthorizedPersonToSignContract", "Exe1VerifiedCorrect", "LeaseholdAssetDetail", "DocumentProperty", "SecurityDetail",
-            "StepRate", "JointVentureOrConsortiumProfiles", "PersonalOrJuristicProfiles", "FeePaymentMethod", "TFCCustomerNum",
-            "DGENSupport", "MortgageRank", "LegalActivityDetail", "feeContractReference", "CreditLineAccountInfo",
-            "StockAssetDetail", "ShipAssetDetail", "OwnerAuthPersonToPerformLegalActDetail", "CodeNameMappings", "LeaseholdAssetSubDetails",
-            "CarAssetDetail", "ExistingGuaranteeContractDetails", "BillExchangeAssetDetail", "ExistingLegalActType", "CustomerNameAndGUID",
-            "TemplateRefValue", "InstallmentEveryMonth", "CommoditiesAssetDetail", "Locations", "PackageFinanceDetails",
-            "AddExternalError", "Sequence", "TemplateKeyGUID", "TemplateDetail", "GoldAssetDetail",
-            "BillingScheduleTypes", "ALSCustomerNum", "CondominiumAssetDetail", "TemplateSubLevel", "TransferTo",
-            "BillInfos", "isSME", "needPaymentForAccruedInterest", "Covenants", "RightOnBenefitAssetDetail",
-            "CommercialCollateralContractDetail", "authorizedPersonToPerformLegalAct", "AuthorizedPerson", "ISupplyInfo", "PNDuePayments",
-            "CollateralDetail", "CustIdentification", "LeasingAssetDetail", "OtherFeeInfo", "PaymentStep",
-            "FeeInfo", "BondAssetDetail", "RemarkForAdditionalDocument", "InterestODInfo", "MachineAssetDetail",
-            "LinkageNoInCase", "ProjectNameSoftLoans", "RightDebtors", "RepaymentTransactionInfos", "ExistingLegalActivity",
-            "specialLoans", "FeeListDetail", "TransactionDetail", "IsNonstandardContract", "LandBuildingAssetDetail",
-            "AccountInfo", "SpecificDebtInContract", "InterestRateValueAsOfDates", "SplitOfShareCertificateDetail", "SpecialLoanTypes",
-            "PeriodInstallment", "MachineRegistrationNos", "ProcessAgentInfos", "CreditLineFees", "PensionAssetDetail",
-            "GuaranteeGroupDetail", "Date", "GuaranteeExistingContract", "DisbursementInfo", "ApplicationDetail",
-            "GuaranteeDetail", "KeeperDetails", "IsProcessIncreaseAndExtendCreditLine", "Paragraphs", "ContractLanguage"
-    ));
+    private static DOMTreeModel treeModel;
+    private static final EditHistory editHistory = new EditHistory(EditHistory.DEFAULT_MAX_BYTES);
+    private static JButton undoButton;
+    private static JButton redoButton;
+    private static JProgressBar progressBar;
+    private static JButton cancelButton;
+    private static final List<JButton> editButtons = new ArrayList<>();
+    private static SwingWorker<?, ?> activeWorker;
+
+    /** Index สำหรับค้นหา Field ของเอกสารที่เปิดอยู่ (null = ยังไม่ได้เปิดไฟล์) */
+    private static XMLSearchIndex searchIndex;
+    private static JTextField searchField;
+    private static JComboBox<XMLSearchIndex.Mode> searchMode;
+    private static JList<Element> searchResults;
+    private static JLabel searchStatus;
+    /** จำนวนผลลัพธ์สูงสุดที่แสดงต่อการค้นหา */
+    private static final int MAX_SEARCH_RESULTS = 500;
+
+    /** ไฟล์ (และ Entry ใน ZIP) ที่เปิดอยู่ ใช้เป็นค่าเริ่มต้นของ Compare */
+    private static File loadedFile;
+    private static String loadedEntryName;
+    private static DOMTreeModel.CellRenderer cellRenderer;
+    private static DiffViewer diffViewer;
+
+    /** จำนวนความต่างสูงสุดที่แสดงใน DiffViewer */
+    private static final int MAX_DIFF_CHANGES = 5000;
+
+    /**
+     * Field ที่ Duplicate ได้ (Registry ที่ใช้ร่วมกับ XMLMerger รวมกับคอมเมนต์ "Zero or more repetitions:" ของไฟล์ที่เปิด)
+     */
+    private static RepeatableFieldRegistry repeatableFields = RepeatableFieldRegistry.getDefault();
 
     public static void main(String[] args) {
         SwingUtilities.invokeLater(DynamicXMLTreeEditor::createAndShowGUI);
@@ -111,9 +118,49 @@ public class DynamicXMLTreeEditor {
 
         DefaultMutableTreeNode root = new DefaultMutableTreeNode("XML");
         tree = new JTree(root);
+        cellRenderer = new DOMTreeModel.CellRenderer();
+        tree.setCellRenderer(cellRenderer);
         JScrollPane treeScrollPane = new JScrollPane(tree);
 //        JScrollPane valueScrollPane = new JScrollPane(valueField);
 
+        // ช่องค้นหาเหนือ Tree: ชื่อ Field / ค่า (Prefix, Contains) หรือ Path เช่น CollateralDetail/SecurityDetail/MortgageRank
+        searchField = new JTextField();
+        searchMode = new JComboBox<>(XMLSearchIndex.Mode.values());
+        JButton searchButton = new JButton("Find");
+        JPanel searchOptionsPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        searchOptionsPanel.add(searchMode);
+        searchOptionsPanel.add(searchButton);
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchPanel.add(searchOptionsPanel, BorderLayout.EAST);
+        JPanel treePanel = new JPanel(new BorderLayout());
+        treePanel.add(searchPanel, BorderLayout.NORTH);
+        treePanel.add(treeScrollPane, BorderLayout.CENTER);
+
+        // ผลการค้นหา: คลิกเพื่อเปิด Tree ไปยัง Field นั้น (เปิดเฉพาะโหนดแม่ของ Field)
+        searchResults = new JList<>();
+        searchResults.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        searchResults.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                Element element = (Element) value;
+                String text = DOMTreeModel.directTextPreview(element, DOMTreeModel.CellRenderer.PREVIEW_CHARS, true);
+                String label = text.isEmpty() ? XMLSearchIndex.pathOf(element) : XMLSearchIndex.pathOf(element) + " : " + text;
+                return super.getListCellRendererComponent(list, label, index, isSelected, cellHasFocus);
+            }
+        });
+        searchResults.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && searchResults.getSelectedValue() != null) {
+                jumpToNode(frame, searchResults.getSelectedValue());
+            }
+        });
+        searchStatus = new JLabel(" ");
+        JPanel resultsPanel = new JPanel(new BorderLayout());
+        resultsPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        resultsPanel.add(searchStatus, BorderLayout.NORTH);
+        resultsPanel.add(new JScrollPane(searchResults), BorderLayout.CENTER);
+
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.insets = new Insets(5, 5, 5, 5);
@@ -130,56 +177,84 @@ public class DynamicXMLTreeEditor {
         JButton saveValueButton = new JButton("Save");
         JButton addSubfieldButton = new JButton("Add Subfield");
         JButton deleteFieldButton = new JButton("Delete Field");
-        JButton undoButton = new JButton("Undo");
-        JButton redoButton = new JButton("Redo");
+        undoButton = new JButton("Undo");
+        redoButton = new JButton("Redo");
         JButton duplicateFieldButton = new JButton("Duplicate Field");
+        JButton openValueButton = new JButton("Open Value");
 
         gbc.gridx = 0; gbc.gridy = 0; fieldPanel.add(fieldNameLabel, gbc);
         gbc.gridx = 1; gbc.gridy = 0; fieldPanel.add(fieldNameField, gbc);
         gbc.gridx = 0; gbc.gridy = 1; fieldPanel.add(valueLabel, gbc);
         gbc.gridx = 1; gbc.gridy = 1; fieldPanel.add(valueField, gbc);
         gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 2; fieldPanel.add(saveValueButton, gbc);
-        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2; fieldPanel.add(addSubfieldButton, gbc);
-        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2; fieldPanel.add(deleteFieldButton, gbc);
-        gbc.gridx = 0; gbc.gridy = 5; gbc.gridwidth = 2; fieldPanel.add(undoButton, gbc);
-        gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 2; fieldPanel.add(redoButton, gbc);
-        gbc.gridx = 0; gbc.gridy = 7; gbc.gridwidth = 2; fieldPanel.add(duplicateFieldButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2; fieldPanel.add(openValueButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 4; gbc.gridwidth = 2; fieldPanel.add(addSubfieldButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 5; gbc.gridwidth = 2; fieldPanel.add(deleteFieldButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 6; gbc.gridwidth = 2; fieldPanel.add(undoButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 7; gbc.gridwidth = 2; fieldPanel.add(redoButton, gbc);
+        gbc.gridx = 0; gbc.gridy = 8; gbc.gridwidth = 2; fieldPanel.add(duplicateFieldButton, gbc);
 //        fieldPanel.add(valueScrollPane, gbc);
 
         editorPanel.add(fieldPanel, BorderLayout.NORTH);
+        editorPanel.add(resultsPanel, BorderLayout.CENTER);
 
         JButton xmlMergerButton = new JButton("XML Merger");
         JButton loadXMLButton = new JButton("Load XML");
         JButton saveFileButton = new JButton("Save File");
+        JButton compareButton = new JButton("Compare");
+
+        // แสดงความคืบหน้าของการ Load/Save ที่ทำงานเบื้องหลัง (ซ่อนไว้เมื่อไม่มีงาน)
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        cancelButton = new JButton("Cancel");
+        cancelButton.setVisible(false);
+        cancelButton.addActionListener(e -> {
+            if (activeWorker != null) {
+                activeWorker.cancel(true);
+            }
+        });
 
+        bottomPanel.add(progressBar);
+        bottomPanel.add(cancelButton);
         bottomPanel.add(xmlMergerButton);
         bottomPanel.add(loadXMLButton);
         bottomPanel.add(saveFileButton);
+        bottomPanel.add(compareButton);
 
-        splitPane.setLeftComponent(treeScrollPane);
+        // ปุ่มที่แก้ไข DOM ถูกปิดระหว่าง Load/Save เพราะ DOM ไม่ Thread-safe
+        editButtons.addAll(Arrays.asList(saveValueButton, openValueButton, addSubfieldButton, deleteFieldButton, undoButton, redoButton,
+                duplicateFieldButton, loadXMLButton, saveFileButton, compareButton, searchButton));
+
+        splitPane.setLeftComponent(treePanel);
         splitPane.setRightComponent(editorPanel);
         splitPane.setOrientation(JSplitPane.HORIZONTAL_SPLIT);
         splitPane.setDividerLocation(500);
 
         frame.getContentPane().add(splitPane, BorderLayout.CENTER);
         frame.getContentPane().add(bottomPanel, BorderLayout.SOUTH);
+        updateUndoRedoButtons();
         frame.setVisible(true);
 
         tree.addTreeSelectionListener(e -> {
-            selectedNode = (DefaultMutableTreeNode) tree.getLastSelectedPathComponent();
-            if (selectedNode != null && selectedNode.getUserObject() instanceof Element) {
-                Element element = (Element) selectedNode.getUserObject();
+            Object selected = tree.getLastSelectedPathComponent();
+            selectedElement = selected instanceof Element ? (Element) selected : null;
+            if (selectedElement != null) {
+                Element element = selectedElement;
                 fieldNameField.setText(element.getTagName());
-                valueField.setText(element.getTextContent());
+                showFieldValue(element);
             }
         });
 
-        saveValueButton.addActionListener(e -> {saveStateToUndoStack();saveFieldValue();});
-        addSubfieldButton.addActionListener(e -> {saveStateToUndoStack();addSubfield();});
-        deleteFieldButton.addActionListener(e -> {saveStateToUndoStack();deleteField();});
+        saveValueButton.addActionListener(e -> saveFieldValue());
+        openValueButton.addActionListener(e -> openFieldValue(frame));
+        addSubfieldButton.addActionListener(e -> addSubfield());
+        deleteFieldButton.addActionListener(e -> deleteField());
         undoButton.addActionListener(e -> undo());
         redoButton.addActionListener(e -> redo());
-        duplicateFieldButton.addActionListener(e -> {saveStateToUndoStack();duplicateNode();});
+        duplicateFieldButton.addActionListener(e -> duplicateNode());
+        searchButton.addActionListener(e -> searchFields(frame));
+        searchField.addActionListener(e -> searchButton.doClick());
 
         xmlMergerButton.addActionListener(e -> {
             try {
@@ -215,211 +290,444 @@ public class DynamicXMLTreeEditor {
         });
 
 
-        loadXMLButton.addActionListener(e -> {loadXMLFile(frame);listDuplicateAllowedFields();});
+        loadXMLButton.addActionListener(e -> loadXMLFile(frame));
         saveFileButton.addActionListener(e -> saveXMLFile(frame));
+        compareButton.addActionListener(e -> compareWithFile(frame));
     }
 
     /**
-     * Save XML structure to undo stack
+     * Revert to previous state
+     * - ย้อนเฉพาะ Edit ล่าสุดใน editHistory (แก้ DOM และ Tree เฉพาะจุด ไม่ต้องสร้าง Tree ใหม่ทั้งหมด)
      */
-    private static void saveStateToUndoStack() {
-        try {
-            String currentState = convertXMLToString();
-            if (!undoStack.isEmpty() && !currentState.equals(undoStack.peek())) {
-                undoStack.push(currentState);
-                redoStack.clear();
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
+    private static void undo() {
+        if (editHistory.undo() != null) {
+            // โหนดที่เลือกไว้อาจถูกถอดออกจากเอกสารแล้ว
+            tree.clearSelection();
+        }
+        updateUndoRedoButtons();
+    }
+
+    /**
+     * Redo the reverted action
+     */
+    private static void redo() {
+        if (editHistory.redo() != null) {
+            tree.clearSelection();
         }
+        updateUndoRedoButtons();
     }
 
     /**
-     * Convert XML document to String
+     * ทำการแก้ไขผ่าน editHistory และอัปเดตปุ่ม Undo/Redo
      *
-     * @return
-     * @throws Exception
+     * @param edit
      */
-    private static String convertXMLToString() throws Exception {
-        Transformer transformer = TransformerFactory.newInstance().newTransformer();
-        // transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        StreamResult result = new StreamResult(new StringWriter());
-        transformer.transform(new DOMSource(xmlDocument), result);
-        return result.getWriter().toString();
+    private static void performEdit(EditHistory.Edit edit) {
+        editHistory.perform(edit);
+        updateUndoRedoButtons();
     }
 
     /**
-     * Revert to previous state
+     * เปิดปุ่ม Undo/Redo เฉพาะเมื่อมีประวัติ (และไม่มีงานเบื้องหลัง) และแสดงขนาดประวัติใน Tooltip
      */
-    private static void undo() {
-        if (!undoStack.isEmpty()) {
-            try {
-                redoStack.push(convertXMLToString());
+    private static void updateUndoRedoButtons() {
+        boolean idle = activeWorker == null;
+        undoButton.setEnabled(idle && editHistory.canUndo());
+        redoButton.setEnabled(idle && editHistory.canRedo());
+        String usage = String.format("Undo history: %,d KB", editHistory.getUsedBytes() / 1024);
+        undoButton.setToolTipText(usage);
+        redoButton.setToolTipText(usage);
+    }
 
-                String previousState = undoStack.pop();
-                xmlDocument = convertStringToXML(previousState);
-                reloadTree();
-            } catch (Exception ex) {
-                ex.printStackTrace();
+    /**
+     * load file from xml file (input)
+     * - Parse และสร้าง Tree Node ใน Background Thread (SwingWorker) แล้วค่อยสลับ TreeModel บน EDT เมื่อเสร็จ
+     * - แสดงความคืบหน้าตามจำนวน bytes ที่อ่าน และยกเลิกได้ด้วยปุ่ม Cancel
+     *
+     * @param frame
+     */
+    private static void loadXMLFile(JFrame frame) {
+        JFileChooser fileChooser = new JFileChooser();
+        int result = fileChooser.showOpenDialog(frame);
+        if (result == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            String entryName = null;
+            if (MergeArchive.isArchive(file)) {
+                // ZIP จาก XMLMerger --archive: เลือกไฟล์เดียวที่จะเปิด (ไม่แตกไฟล์ทั้งหมด)
+                entryName = chooseArchiveEntry(frame, file);
+                if (entryName == null) {
+                    return;
+                }
             }
+            startWorker(new LoadWorker(frame, file, entryName), "Loading");
         }
     }
 
     /**
-     * Redo the reverted action
+     * แสดงรายชื่อไฟล์ใน ZIP ให้เลือก
+     *
+     * @param frame
+     * @param archiveFile
+     * @return ชื่อ Entry ที่เลือก หรือ null ถ้ายกเลิก / อ่าน ZIP ไม่ได้
      */
-    private static void redo() {
-        if (!redoStack.isEmpty()) {
-            try {
-                undoStack.push(convertXMLToString());
-
-                String nextState = redoStack.pop();
-                xmlDocument = convertStringToXML(nextState);
-                reloadTree();
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
+    private static String chooseArchiveEntry(JFrame frame, File archiveFile) {
+        List<String> entryNames;
+        try (MergeArchive.Reader reader = new MergeArchive.Reader(archiveFile)) {
+            entryNames = reader.getEntryNames();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "Error reading archive: " + e.getMessage());
+            return null;
         }
+        if (entryNames.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "The archive contains no files.");
+            return null;
+        }
+        Object selected = JOptionPane.showInputDialog(frame, "Select a file in " + archiveFile.getName(), "Load XML",
+                JOptionPane.PLAIN_MESSAGE, null, entryNames.toArray(), entryNames.get(0));
+        return (String) selected;
     }
 
     /**
-     * Reload tree after undo/redo
+     * งานโหลดไฟล์ XML เบื้องหลัง (ผลลัพธ์คือ Document และ root ของ Tree ที่ยังไม่ถูกแสดง)
      */
-    private static void reloadTree() {
-        DefaultMutableTreeNode root = new DefaultMutableTreeNode("XML");
-        buildTreeFromXML(xmlDocument.getDocumentElement(), root);
-        ((DefaultTreeModel) tree.getModel()).setRoot(root);
-        ((DefaultTreeModel) tree.getModel()).reload();
+    private static class LoadWorker extends ProgressWorker<DOMTreeModel> {
+        private final JFrame frame;
+        private final File file;
+        /** ไฟล์ใน ZIP (null = file เป็นไฟล์ XML) */
+        private final String entryName;
+        private Document document;
+        private RepeatableFieldRegistry documentRepeatableFields;
+        private XMLSearchIndex documentIndex;
+
+        LoadWorker(JFrame frame, File file, String entryName) {
+            this.frame = frame;
+            this.file = file;
+            this.entryName = entryName;
+        }
+
+        @Override
+        protected DOMTreeModel doInBackground() throws Exception {
+            document = parseDocument(file, entryName, this);
+
+            // Field ที่มีคอมเมนต์ "Zero or more repetitions:" ในไฟล์นี้ Duplicate ได้เพิ่มจาก Registry กลาง
+            documentRepeatableFields = RepeatableFieldRegistry.getDefault().union(RepeatableFieldRegistry.fromComments(document));
+
+            // Index สำหรับค้นหา (สร้างที่นี่เพราะหลังจากนี้ DOM ถูกใช้บน EDT เท่านั้น)
+            documentIndex = XMLSearchIndex.build(document.getDocumentElement());
+
+            // TreeModel อ่านลูกจาก DOM เมื่อ JTree ขอ (ยังไม่ผูกกับ JTree จึงสร้างนอก EDT ได้)
+            return new DOMTreeModel(document.getDocumentElement());
+        }
+
+        @Override
+        protected void done() {
+            finishWorker();
+            try {
+                DOMTreeModel model = get();
+
+                // ตั้งค่า Tree
+                xmlDocument = document;
+                loadedFile = file;
+                loadedEntryName = entryName;
+                if (diffViewer != null) {
+                    diffViewer.dispose();
+                }
+                repeatableFields = documentRepeatableFields;
+                selectedElement = null;
+                valueTruncated = false;
+                valueField.setEditable(true);
+                valueField.setToolTipText(null);
+                treeModel = model;
+                tree.setModel(model);
+
+                // Index ติดตามการแก้ไขทุกอย่างที่ผ่าน Model (รวม Undo/Redo)
+                searchIndex = documentIndex;
+                model.addTreeModelListener(documentIndex);
+                searchResults.setListData(new Element[0]);
+                searchStatus.setText(" ");
+
+                // ประวัติ Undo/Redo อ้างอิงโหนดของเอกสารเดิม
+                editHistory.clear();
+                updateUndoRedoButtons();
+            } catch (CancellationException e) {
+                System.out.println("Loading cancelled: " + file.getName());
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(frame, "Error loading XML file: " + cause.getMessage());
+            }
+        }
     }
 
     /**
-     * Convert String to XML document
+     * อ่าน XML Document จากไฟล์หรือ Entry ใน ZIP (นับ bytes ที่อ่านเพื่อแสดงความคืบหน้าของ worker)
      *
-     * @param xmlString
+     * @param file
+     * @param entryName ไฟล์ใน ZIP (null = file เป็นไฟล์ XML)
+     * @param worker
      * @return
      * @throws Exception
      */
-    private static Document convertStringToXML(String xmlString) throws Exception {
-        DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        return builder.parse(new InputSource(new StringReader(xmlString)));
+    private static Document parseDocument(File file, String entryName, ProgressWorker<?> worker) throws Exception {
+        DocumentBuilder builder = XMLSupport.documentBuilder(false);
+        Document document;
+        if (entryName != null) {
+            try (MergeArchive.Reader reader = new MergeArchive.Reader(file);
+                 InputStream in = new ProgressInputStream(new BufferedInputStream(reader.open(entryName)), reader.getSize(entryName), worker)) {
+                document = builder.parse(in, file.toURI() + "!/" + entryName);
+            }
+        } else {
+            // Prescan ปฏิเสธไฟล์ที่ไม่ใช่ XML ก่อน Parse (อ่านเข้า Heap ไม่ map เพราะ Save File บันทึกทับไฟล์นี้ได้)
+            MappedXMLInput input = MappedXMLInput.open(file);
+            try (InputStream in = new ProgressInputStream(input.newInputStream(), input.size(), worker)) {
+                document = builder.parse(in, file.toURI().toString());
+            }
+        }
+        document.getDocumentElement().normalize();
+        return document;
     }
 
     /**
-     * load file from xml file (input)
-     *
-     * @param frame
+     * งานเบื้องหลังที่รายงานความคืบหน้าผ่าน ProgressInputStream
      */
-    private static void loadXMLFile(JFrame frame) {
-        JFileChooser fileChooser = new JFileChooser();
-        int result = fileChooser.showOpenDialog(frame);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            try {
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                DocumentBuilder builder = factory.newDocumentBuilder();
+    private abstract static class ProgressWorker<T> extends SwingWorker<T, Void> {
+        /**
+         * ให้ ProgressInputStream เรียก setProgress ได้ (protected ใน SwingWorker)
+         */
+        void reportProgress(int percent) {
+            setProgress(percent);
+        }
+    }
 
-                // โหลด XML Document
-                xmlDocument = builder.parse(file);
-                xmlDocument.getDocumentElement().normalize();
+    /**
+     * InputStream ที่นับจำนวน bytes ที่อ่าน รายงานเป็นเปอร์เซ็นต์ และหยุดอ่านเมื่องานถูกยกเลิก
+     */
+    private static class ProgressInputStream extends FilterInputStream {
+        private final long totalBytes;
+        private final ProgressWorker<?> worker;
+        private long bytesRead;
+
+        ProgressInputStream(InputStream in, long totalBytes, ProgressWorker<?> worker) {
+            super(in);
+            this.totalBytes = Math.max(1, totalBytes);
+            this.worker = worker;
+        }
 
-                // สร้าง root node ของ Tree
-                DefaultMutableTreeNode root = new DefaultMutableTreeNode(xmlDocument.getDocumentElement());
-                buildTreeFromXML(xmlDocument.getDocumentElement(), root);
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
 
-                // ตั้งค่า Tree
-                tree.setModel(new DefaultTreeModel(root));
-                addTreeWillExpandListener(tree);
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                advance(count);
+            }
+            return count;
+        }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(frame, "Error loading XML file: " + e.getMessage());
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            advance(skipped);
+            return skipped;
+        }
+
+        private void advance(long count) throws IOException {
+            if (worker.isCancelled()) {
+                throw new InterruptedIOException("Loading cancelled");
             }
+            bytesRead += count;
+            worker.reportProgress((int) Math.min(100, bytesRead * 100 / totalBytes));
         }
     }
 
     /**
-     * build tree structure from xml file
+     * เริ่มงานเบื้องหลัง: ปิดปุ่มแก้ไข แสดง Progress Bar และปุ่ม Cancel
      *
-     * @param element
-     * @param parent
+     * @param worker
+     * @param label
      */
-    private static void buildTreeFromXML(Element element, DefaultMutableTreeNode parent) {
-        DefaultMutableTreeNode node = new DefaultMutableTreeNode(element);
-        parent.add(node);
-
-        // ตรวจสอบว่ามีลูก (subfield) ที่เป็น Element หรือไม่
-        NodeList children = element.getChildNodes();
-        boolean hasElementChild = false;
-        for (int i = 0; i < children.getLength(); i++) {
-            if (children.item(i).getNodeType() == Node.ELEMENT_NODE) {
-                hasElementChild = true;
-                break;
+    private static void startWorker(SwingWorker<?, ?> worker, String label) {
+        activeWorker = worker;
+        editButtons.forEach(button -> button.setEnabled(false));
+
+        progressBar.setValue(0);
+        progressBar.setIndeterminate(false);
+        progressBar.setString(label + "...");
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+        progressBar.getParent().revalidate();
+
+        worker.addPropertyChangeListener(event -> {
+            if ("progress".equals(event.getPropertyName())) {
+                int percent = (Integer) event.getNewValue();
+                progressBar.setValue(percent);
+                progressBar.setString(label + " " + percent + "%");
             }
+        });
+        worker.execute();
+    }
+
+    /**
+     * จบงานเบื้องหลัง (เรียกจาก done() บน EDT)
+     */
+    private static void finishWorker() {
+        activeWorker = null;
+        editButtons.forEach(button -> button.setEnabled(true));
+        updateUndoRedoButtons();
+        progressBar.setVisible(false);
+        cancelButton.setVisible(false);
+        progressBar.getParent().revalidate();
+    }
+
+    /**
+     * ค้นหา Field จาก Index แล้วแสดงผลในรายการ (ถ้าพบตัวเดียวจะเปิด Tree ไปยัง Field นั้นทันที)
+     *
+     * @param frame
+     */
+    private static void searchFields(JFrame frame) {
+        if (searchIndex == null) {
+            JOptionPane.showMessageDialog(frame, "XML Document is not loaded.");
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        List<Element> results;
+        try {
+            results = searchIndex.search(searchField.getText(), (XMLSearchIndex.Mode) searchMode.getSelectedItem(), MAX_SEARCH_RESULTS);
+        } catch (IllegalArgumentException e) {
+            searchStatus.setText(e.getMessage());
+            return;
         }
+        long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
 
-        // เพิ่ม Placeholder "Loading..." เฉพาะเมื่อมีลูกที่เป็น Element
-        if (hasElementChild) {
-            DefaultMutableTreeNode loadingNode = new DefaultMutableTreeNode("Loading...");
-            node.add(loadingNode);
+        searchResults.setListData(results.toArray(new Element[0]));
+        String count = results.size() >= MAX_SEARCH_RESULTS ? "First " + MAX_SEARCH_RESULTS : String.valueOf(results.size());
+        searchStatus.setText(count + " match(es) in " + elapsedMillis + " ms");
+        if (results.size() == 1) {
+            searchResults.setSelectedIndex(0);
         }
     }
 
     /**
-     * Adds a listener to dynamically load XML child nodes when a tree node is expanded
+     * เปรียบเทียบเอกสารที่กำลังแก้ไขกับไฟล์ (ค่าเริ่มต้นคือไฟล์ที่เปิดอยู่ หรือเลือกไฟล์อื่น เช่น ผลลัพธ์ Merge อีกชุด)
      *
-     * @param tree
+     * @param frame
      */
-    private static void addTreeWillExpandListener(JTree tree) {
-        tree.addTreeWillExpandListener(new TreeWillExpandListener() {
-            @Override
-            public void treeWillExpand(TreeExpansionEvent event) throws ExpandVetoException {
-                DefaultMutableTreeNode expandingNode = (DefaultMutableTreeNode) event.getPath().getLastPathComponent();
-
-                // ตรวจสอบว่า UserObject เป็น Element
-                if (expandingNode.getUserObject() instanceof Element) {
-                    Element expandingElement = (Element) expandingNode.getUserObject();
-                    NodeList children = expandingElement.getChildNodes();
-
-                    // ลบ Placeholder ("Loading...") และเพิ่มลูกใหม่
-                    if (expandingNode.getChildCount() == 1 && "Loading...".equals(expandingNode.getFirstChild().toString())) {
-                        expandingNode.removeAllChildren(); // ลบ Placeholder
-
-                        for (int i = 0; i < children.getLength(); i++) {
-                            Node child = children.item(i);
-                            if (child.getNodeType() == Node.ELEMENT_NODE) {
-                                buildTreeFromXML((Element) child, expandingNode);
-                            }
-                        }
-                        ((DefaultTreeModel) tree.getModel()).reload(expandingNode);
-                    }
-                } else {
-                    throw new ClassCastException("Tree Node does not contain an Element object");
+    private static void compareWithFile(JFrame frame) {
+        if (xmlDocument == null) {
+            JOptionPane.showMessageDialog(frame, "XML Document is not loaded.");
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser(loadedFile);
+        fileChooser.setDialogTitle("Compare with");
+        fileChooser.setSelectedFile(loadedFile);
+        if (fileChooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            String entryName = null;
+            if (MergeArchive.isArchive(file)) {
+                entryName = chooseArchiveEntry(frame, file);
+                if (entryName == null) {
+                    return;
                 }
             }
-            @Override
-            public void treeWillCollapse(TreeExpansionEvent event) {
+            // เปรียบเทียบกับสำเนาที่สร้างบน EDT (แบบเดียวกับ Save) เพื่อไม่อ่าน xmlDocument นอก EDT
+            startWorker(new DiffWorker(frame, file, entryName, snapshot(xmlDocument)), "Comparing");
+        }
+    }
+
+    /**
+     * งาน Parse ไฟล์ที่ใช้เปรียบเทียบ และเปรียบเทียบด้วย XMLDiff เบื้องหลัง
+     * - XMLDiff เดินทั้งสองเอกสารเพื่อคำนวณ Hash (O(n) ทั้งเอกสาร) จึงทำนอก EDT กับสำเนาของ xmlDocument
+     *   (DOM ไม่ Thread-safe แม้แต่การอ่าน และ Tree อ่าน xmlDocument บน EDT ระหว่างที่งานนี้ทำงาน)
+     * - done() ย้าย Element ของผลลัพธ์จากสำเนากลับมาที่ xmlDocument (ปุ่มแก้ไขถูกปิดระหว่างงาน โครงสร้างจึงยังเหมือนสำเนา)
+     *   แล้วจึงไฮไลต์และเปิด DiffViewer
+     */
+    private static class DiffWorker extends ProgressWorker<XMLDiff> {
+        private final JFrame frame;
+        private final File file;
+        private final String entryName;
+        private final Document current;
+        private long elapsedMillis;
+
+        DiffWorker(JFrame frame, File file, String entryName, Document current) {
+            this.frame = frame;
+            this.file = file;
+            this.entryName = entryName;
+            this.current = current;
+        }
+
+        @Override
+        protected XMLDiff doInBackground() throws Exception {
+            Document baseline = parseDocument(file, entryName, this);
+            long startTime = System.nanoTime();
+            XMLDiff diff = XMLDiff.compare(baseline.getDocumentElement(), current.getDocumentElement(), MAX_DIFF_CHANGES);
+            elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+            return diff;
+        }
+
+        @Override
+        protected void done() {
+            finishWorker();
+            try {
+                XMLDiff diff = get();
+                diff.relocateNewElements(xmlDocument);
+
+                if (diffViewer != null) {
+                    diffViewer.dispose();
+                }
+                cellRenderer.setHighlights(DiffViewer.highlights(diff));
+                tree.repaint();
+                String title = entryName != null ? file.getName() + "!/" + entryName : file.getName();
+                DiffViewer viewer = new DiffViewer(frame, title, diff, elapsedMillis, element -> jumpToNode(frame, element), () -> {
+                    // Dialog เก่าที่ถูกแทนด้วยผลใหม่ไม่ล้างการไฮไลต์ของผลใหม่
+                    if (diffViewer == null || !diffViewer.isDisplayable()) {
+                        cellRenderer.setHighlights(new IdentityHashMap<>());
+                        tree.repaint();
+                    }
+                });
+                diffViewer = viewer;
+                viewer.setVisible(true);
+            } catch (CancellationException e) {
+                System.out.println("Compare cancelled: " + file.getName());
+            } catch (Exception e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                cause.printStackTrace();
+                JOptionPane.showMessageDialog(frame, "Error comparing XML file: " + cause.getMessage());
             }
-        });
+        }
     }
 
     /**
-     * update node label
+     * เปิด Tree ไปยัง Element (JTree ขยายเฉพาะโหนดแม่ของ Element ตาม TreePath กิ่งอื่นไม่ถูกอ่าน)
      *
-     * @param node
+     * @param frame
      * @param element
      */
-    private static void updateNodeLabel(DefaultMutableTreeNode node, Element element) {
-        String label = element.getTagName() + " : " + element.getTextContent();
-        node.setUserObject(label);
+    private static void jumpToNode(JFrame frame, Element element) {
+        TreePath path = treeModel.getPathTo(element);
+        if (path == null) {
+            JOptionPane.showMessageDialog(frame, "This field is no longer in the document.");
+            return;
+        }
+        tree.setSelectionPath(path);
+        tree.scrollPathToVisible(path);
     }
 
     /**
      * highlight node
      *
-     * @param node
+     * @param element
      */
-    private static void highlightNode(DefaultMutableTreeNode node) {
-        tree.setSelectionPath(new TreePath(node.getPath()));
+    private static void highlightNode(Element element) {
+        tree.setSelectionPath(treeModel.getPathTo(element));
     }
 
 
@@ -427,21 +735,58 @@ public class DynamicXMLTreeEditor {
      * save field value
      */
     private static void saveFieldValue() {
-        if (selectedNode != null && selectedNode.getUserObject() instanceof Element) {
-            Element element = (Element) selectedNode.getUserObject();
-            element.setTextContent(valueField.getText());
-            updateNodeLabel(selectedNode, element);
-            ((DefaultTreeModel) tree.getModel()).reload(selectedNode);
-            highlightNode(selectedNode);
+        if (selectedElement != null) {
+            if (valueTruncated) {
+                JOptionPane.showMessageDialog(null, "This value is too large to edit here. Use \"Open Value\" instead.");
+                return;
+            }
+            Element element = selectedElement;
+            performEdit(new EditHistory.SetTextEdit(treeModel, element, valueField.getText()));
+            highlightNode(element);
         }
     }
 
+    /**
+     * แสดงค่าของ Field ใน valueField
+     * ค่า = ข้อความตรงของ Element (DOMTreeModel.directText) ไม่รวมข้อความของ Subfield จึงตรงกับความยาวที่ใช้ตัดสินการตัดค่า
+     * ค่าที่ยาวเกิน LargeValueViewer.LARGE_VALUE_CHARS แสดงเฉพาะส่วนต้น (ไม่อ่านค่าทั้งก้อนเข้า JTextField)
+     */
+    private static void showFieldValue(Element element) {
+        long length = DOMTreeModel.directTextLength(element);
+        valueTruncated = length > LargeValueViewer.LARGE_VALUE_CHARS;
+        if (valueTruncated) {
+            valueField.setText(DOMTreeModel.directTextPreview(element, DOMTreeModel.CellRenderer.PREVIEW_CHARS, true));
+            valueField.setEditable(false);
+            valueField.setToolTipText(length + " characters - use \"Open Value\" to view or edit");
+        } else {
+            valueField.setText(DOMTreeModel.directText(element));
+            valueField.setEditable(true);
+            valueField.setToolTipText(null);
+        }
+    }
+
+    /**
+     * open field value: เปิดค่าเต็มของ Field ใน LargeValueViewer (แบ่งหน้า) และบันทึกผ่าน EditHistory เมื่อกด Apply
+     */
+    private static void openFieldValue(JFrame frame) {
+        if (selectedElement == null) {
+            return;
+        }
+        Element element = selectedElement;
+        String value = DOMTreeModel.directText(element);
+        new LargeValueViewer(frame, element.getTagName(), value, newValue -> {
+            performEdit(new EditHistory.SetTextEdit(treeModel, element, newValue));
+            highlightNode(element);
+            showFieldValue(element);
+        }).setVisible(true);
+    }
+
     /**
      *add sub field
      */
     private static void addSubfield() {
-        if (selectedNode != null && selectedNode.getUserObject() instanceof Element) {
-            Element parentElement = (Element) selectedNode.getUserObject();
+        if (selectedElement != null) {
+            Element parentElement = selectedElement;
             if (fieldNameField.getText().isEmpty()) {
                 JOptionPane.showMessageDialog(null, "Field name cannot be empty!");
                 return;
@@ -449,15 +794,13 @@ public class DynamicXMLTreeEditor {
 
             // สร้าง Subfield ใหม่ใน XML Document
             Element newElement = xmlDocument.createElement(fieldNameField.getText());
-            newElement.setTextContent(valueField.getText());
-            parentElement.appendChild(newElement);
+            newElement.setTextContent(valueTruncated ? "" : valueField.getText());
 
-            // เพิ่ม Subfield ใหม่ใน Tree View
-            DefaultMutableTreeNode newNode = new DefaultMutableTreeNode(newElement);
-            ((DefaultTreeModel) tree.getModel()).insertNodeInto(newNode, selectedNode, selectedNode.getChildCount());
+            // เพิ่ม Subfield ใหม่ใน XML Document และ Tree View
+            performEdit(new EditHistory.InsertNodeEdit("Add Subfield", treeModel, parentElement, newElement));
 
             // อัปเดต Tree View
-            updateTreeView(newNode);
+            updateTreeView(newElement);
         }
     }
 
@@ -465,56 +808,121 @@ public class DynamicXMLTreeEditor {
      * delete field
      */
     private static void deleteField() {
-        if (selectedNode != null && selectedNode.getParent() != null) {
-            // ลบโหนดใน XML Document
-            Element selectedElement = (Element) selectedNode.getUserObject();
-            Node parentElement = selectedElement.getParentNode();
-            if (parentElement != null) {
-                parentElement.removeChild(selectedElement);
-            }
-
-            // ลบโหนดใน Tree View
-            DefaultMutableTreeNode parentNode = (DefaultMutableTreeNode) selectedNode.getParent();
-            ((DefaultTreeModel) tree.getModel()).removeNodeFromParent(selectedNode);
+        // ลบ Root Element ไม่ได้
+        if (selectedElement != null && selectedElement != treeModel.getRoot()) {
+            // ลบโหนดใน XML Document และ Tree View
+            Element parentElement = (Element) selectedElement.getParentNode();
+            performEdit(new EditHistory.DeleteNodeEdit(treeModel, selectedElement));
 
             // อัปเดต Tree View
-            updateTreeView(parentNode);
+            updateTreeView(parentElement);
         }
     }
 
     /**
      * save xml file (output)
+     * - Serialize ใน Background Thread และเขียนลงไฟล์ชั่วคราว (.part) ก่อนย้ายทับไฟล์จริง
+     *   ถ้ายกเลิกหรือเกิดข้อผิดพลาด ไฟล์เดิมจะไม่ถูกแก้ไข
      *
      * @param frame
      */
     private static void saveXMLFile(JFrame frame) {
+        if (xmlDocument == null) {
+            JOptionPane.showMessageDialog(frame, "XML Document is not loaded.");
+            return;
+        }
+
         JFileChooser fileChooser = new JFileChooser();
         int result = fileChooser.showSaveDialog(frame);
         if (result == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
+            // Worker เขียนจากสำเนาที่สร้างบน EDT: Tree ยังอ่าน xmlDocument บน EDT ระหว่างบันทึก
+            // และการอ่าน Deferred DOM ของ Xerces ก็แก้ไขสถานะภายใน (DOM ไม่ Thread-safe แม้แต่การอ่าน)
+            startWorker(new SaveWorker(frame, snapshot(xmlDocument), xmlDocument.getXmlEncoding(), file), "Saving");
+            // ไม่ทราบขนาดไฟล์ผลลัพธ์ล่วงหน้า
+            progressBar.setIndeterminate(true);
+        }
+    }
+
+    /**
+     * สำเนาของเอกสารสำหรับงานเบื้องหลัง (เรียกบน EDT)
+     * - cloneNode ไม่คัดลอก standalone / version จึงตั้งให้เหมือนเดิม (Encoding ส่งให้ Transformer แยก)
+     *
+     * @param document
+     * @return
+     */
+    private static Document snapshot(Document document) {
+        Document copy = (Document) document.cloneNode(true);
+        copy.setXmlStandalone(document.getXmlStandalone());
+        copy.setXmlVersion(document.getXmlVersion());
+        return copy;
+    }
+
+    /**
+     * งานบันทึกไฟล์ XML เบื้องหลัง (เขียนจากสำเนาของ xmlDocument จึงไม่อ่าน DOM ที่ Tree ใช้อยู่พร้อมกัน)
+     */
+    private static class SaveWorker extends SwingWorker<Void, Void> {
+        private final JFrame frame;
+        private final Document document;
+        /** Encoding ใน XML Declaration ของไฟล์ที่เปิด (null = ค่าเริ่มต้นของ Transformer) */
+        private final String encoding;
+        private final File file;
+
+        SaveWorker(JFrame frame, Document document, String encoding, File file) {
+            this.frame = frame;
+            this.document = document;
+            this.encoding = encoding;
+            this.file = file;
+        }
+
+        @Override
+        protected Void doInBackground() throws Exception {
+            File partFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".part");
             try {
-                TransformerFactory transformerFactory = TransformerFactory.newInstance();
-                Transformer transformer = transformerFactory.newTransformer();
-                // transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-                transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-                DOMSource source = new DOMSource(xmlDocument);
-                StreamResult streamResult = new StreamResult(file);
-                transformer.transform(source, streamResult);
+                Transformer transformer = XMLSupport.transformer();
+                if (encoding != null) {
+                    transformer.setOutputProperty(OutputKeys.ENCODING, encoding);
+                }
+                DOMSource source = new DOMSource(document);
+
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(partFile)) {
+                    @Override
+                    public void write(byte[] buffer, int offset, int length) throws IOException {
+                        if (isCancelled()) {
+                            throw new InterruptedIOException("Saving cancelled");
+                        }
+                        super.write(buffer, offset, length);
+                    }
+                }) {
+                    transformer.transform(source, new StreamResult(out));
+                }
+                Files.move(partFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(partFile.toPath());
+            }
+            return null;
+        }
+
+        @Override
+        protected void done() {
+            finishWorker();
+            try {
+                get();
                 JOptionPane.showMessageDialog(frame, "File saved successfully!");
+            } catch (CancellationException e) {
+                System.out.println("Saving cancelled: " + file.getName());
             } catch (Exception ex) {
-                JOptionPane.showMessageDialog(frame, "Failed to save file: " + ex.getMessage());
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                JOptionPane.showMessageDialog(frame, "Failed to save file: " + cause.getMessage());
             }
         }
     }
 
     /**
      * Duplicate Field (Array)
-     * - "buildTreeFromXML" ส่งผลให้เกิด field ซ้อนกัน (DuplicateNode) แต่จะไม่ส่งผลกระทบต่อไฟล์ XML หลังจาก Save
      */
     private static void duplicateNode() {
-        if (selectedNode != null && selectedNode.getUserObject() instanceof Element) {
-            Element selectedElement = (Element) selectedNode.getUserObject();
-
+        if (selectedElement != null) {
             // ตรวจสอบว่าโหนดที่เลือกมีโหนดแม่ (Parent Node)
             Node parentNode = selectedElement.getParentNode();
             if (parentNode == null || !(parentNode instanceof Element)) {
@@ -522,8 +930,8 @@ public class DynamicXMLTreeEditor {
                 return;
             }
 
-            // ตรวจสอบว่า field อยู่ใน whitelist หรือไม่
-            if (!duplicateAllowedFields.contains(selectedElement.getTagName())) {
+            // ตรวจสอบว่า field Duplicate ได้หรือไม่ (ตาม Path ของ field)
+            if (!repeatableFields.isRepeatable(parentNode, selectedElement.getTagName())) {
                 JOptionPane.showMessageDialog(null, "This node cannot be duplicated because it is not allowed.");
                 return;
             }
@@ -534,20 +942,11 @@ public class DynamicXMLTreeEditor {
             // ล้างค่าภายในโหนดที่ Duplicate
             clearContent(duplicateElement);
 
-            // เพิ่มโหนดใหม่เข้าไปในโหนดแม่ใน XML Document
-            ((Element) parentNode).appendChild(duplicateElement);
-
-            // เพิ่มโหนดใหม่ใน Tree View
-            DefaultMutableTreeNode parentTreeNode = (DefaultMutableTreeNode) selectedNode.getParent();
-            DefaultMutableTreeNode newTreeNode = new DefaultMutableTreeNode(duplicateElement);
-            parentTreeNode.add(newTreeNode);
-
-            // สร้างโหนดย่อย (Child Nodes) ใน Tree View
-            buildTreeFromXML(duplicateElement, newTreeNode);
+            // เพิ่มโหนดใหม่เข้าไปในโหนดแม่ทั้งใน XML Document และ Tree View
+            performEdit(new EditHistory.InsertNodeEdit("Duplicate Field", treeModel, parentNode, duplicateElement));
 
             // อัปเดต Tree View
-            ((DefaultTreeModel) tree.getModel()).reload();
-            updateTreeView(newTreeNode);
+            updateTreeView(duplicateElement);
         }
     }
 
@@ -555,10 +954,10 @@ public class DynamicXMLTreeEditor {
      * ฟังก์ชันสำหรับอัปเดต Tree View เฉพาะจุด
      * โหนดที่ต้องการอัปเดต
      *
-     * @param node
+     * @param element
      */
-    private static void updateTreeView(DefaultMutableTreeNode node) {
-        TreePath path = new TreePath(node.getPath());
+    private static void updateTreeView(Element element) {
+        TreePath path = treeModel.getPathTo(element);
         tree.expandPath(path);
         tree.scrollPathToVisible(path);
     }
@@ -581,59 +980,4 @@ public class DynamicXMLTreeEditor {
             }
         }
     }
-
-
-    /**
-     * list duplicatable fields
-     */
-    private static void listDuplicateAllowedFields() {
-        if (xmlDocument == null) {
-            System.out.println("XML Document is not loaded.");
-            return;
-        }
-
-        // ใช้ Set เพื่อเก็บชื่อ field ที่ไม่ซ้ำ
-        Set<String> duplicateAllowedFields = new HashSet<>();
-
-        // เรียกใช้ฟังก์ชันเพื่อค้นหา field
-        Element rootElement = xmlDocument.getDocumentElement();
-        collectFieldsWithZeroOrMoreRepetitions(rootElement, duplicateAllowedFields);
-
-        // แสดงผลในรูปแบบที่พร้อม copy ลง whitelist
-        System.out.println("Copy the following whitelist:");
-        System.out.println("private static final Set<String> duplicateAllowedFields = new HashSet<>(Arrays.asList(");
-        for (String field : duplicateAllowedFields) {
-            System.out.println("    \"" + field + "\",");
-        }
-        System.out.println("));");
-    }
-
-    /**
-     * collect fields with "Zero or more repetitions:"
-     *
-     * @param node
-     * @param duplicateAllowedFields
-     */
-    private static void collectFieldsWithZeroOrMoreRepetitions(Node node, Set<String> duplicateAllowedFields) {
-        NodeList children = node.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
-
-            if (child.getNodeType() == Node.ELEMENT_NODE) {
-                // ตรวจสอบว่ามีคอมเมนต์ "Zero or more repetitions" ก่อนหน้าโหนดนี้หรือไม่
-                Node prev = child.getPreviousSibling();
-                while (prev != null) {
-                    if (prev.getNodeType() == Node.COMMENT_NODE &&
-                            prev.getNodeValue().contains("Zero or more repetitions:")) {
-                        duplicateAllowedFields.add(child.getNodeName()); // เพิ่ม field ลงใน Set
-                        break;
-                    }
-                    prev = prev.getPreviousSibling();
-                }
-
-                // ค้นหาในโหนดลูกต่อไป
-                collectFieldsWithZeroOrMoreRepetitions(child, duplicateAllowedFields);
-            }
-        }
-    }
 }
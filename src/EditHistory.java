@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the Dynamic XML Tree Editor application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Command-log undo/redo history with reversible edit operations and a memory cap
+ *
+ * License: MIT License
+ */
+
+/**
+ * EditHistory (Undo/Redo แบบเก็บเฉพาะการแก้ไข)
+ *
+ * - เดิม DynamicXMLTreeEditor เก็บทั้งเอกสารเป็น String ก่อนทุกการแก้ไข และ Parse กลับ + สร้าง Tree ใหม่ทุกครั้งที่ Undo/Redo
+ *   (ไฟล์ 20 MB = String 20+ MB ต่อการกด Save หนึ่งครั้ง และ UI ค้างหลายวินาทีตอน Undo)
+ * - EditHistory เก็บเฉพาะ Edit ที่ย้อนกลับได้ (SetTextEdit, InsertNodeEdit, DeleteNodeEdit)
+ *   แต่ละ Edit จำ Node เดิมไว้ (ไม่ Copy) จึงใช้เวลาและหน่วยความจำตามขนาดของการแก้ไขเท่านั้น
+ * - แต่ละ Edit แก้ DOM ผ่าน DOMTreeModel ซึ่งแจ้ง JTree เฉพาะจุด (ไม่ต้อง reloadTree ทั้งต้นไม้)
+ * - จำกัดหน่วยความจำของประวัติด้วย maxBytes (ประมาณจากขนาดข้อความและจำนวนโหนดที่ Edit อ้างอิง)
+ *   เมื่อเกินจะลบ Edit ที่เก่าที่สุดออก
+ */
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+final class EditHistory {
+
+    /**
+     * ขนาดประวัติเริ่มต้น (กำหนดได้ด้วย -Dxml2gui.undoHistoryMaxBytes=<bytes>)
+     */
+    static final long DEFAULT_MAX_BYTES = Long.getLong("xml2gui.undoHistoryMaxBytes", 64L * 1024 * 1024);
+
+    /**
+     * การแก้ไขที่ย้อนกลับได้ (redo = ทำการแก้ไข, undo = ย้อนการแก้ไข)
+     */
+    interface Edit {
+        void redo();
+
+        void undo();
+
+        /**
+         * @return ขนาดหน่วยความจำโดยประมาณที่ Edit นี้ทำให้ค้างอยู่ในประวัติ
+         */
+        long estimatedBytes();
+
+        String getName();
+    }
+
+    private final Deque<Edit> undoEdits = new ArrayDeque<>();
+    private final Deque<Edit> redoEdits = new ArrayDeque<>();
+    private final long maxBytes;
+    private long usedBytes;
+
+    EditHistory(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * ทำการแก้ไขและบันทึกลงประวัติ (ล้างประวัติ Redo)
+     *
+     * @param edit
+     */
+    void perform(Edit edit) {
+        edit.redo();
+
+        for (Edit redoEdit : redoEdits) {
+            usedBytes -= redoEdit.estimatedBytes();
+        }
+        redoEdits.clear();
+
+        undoEdits.push(edit);
+        usedBytes += edit.estimatedBytes();
+
+        // ลบ Edit ที่เก่าที่สุดจนกว่าจะไม่เกิน maxBytes (เก็บ Edit ล่าสุดไว้เสมอ)
+        while (usedBytes > maxBytes && undoEdits.size() > 1) {
+            usedBytes -= undoEdits.removeLast().estimatedBytes();
+        }
+    }
+
+    /**
+     * @return Edit ที่ถูกย้อนกลับ หรือ null ถ้าไม่มีประวัติ
+     */
+    Edit undo() {
+        Edit edit = undoEdits.poll();
+        if (edit != null) {
+            edit.undo();
+            redoEdits.push(edit);
+        }
+        return edit;
+    }
+
+    /**
+     * @return Edit ที่ถูกทำซ้ำ หรือ null ถ้าไม่มีประวัติ
+     */
+    Edit redo() {
+        Edit edit = redoEdits.poll();
+        if (edit != null) {
+            edit.redo();
+            undoEdits.push(edit);
+        }
+        return edit;
+    }
+
+    boolean canUndo() {
+        return !undoEdits.isEmpty();
+    }
+
+    boolean canRedo() {
+        return !redoEdits.isEmpty();
+    }
+
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * ล้างประวัติทั้งหมด (เช่น เมื่อโหลดเอกสารใหม่)
+     */
+    void clear() {
+        undoEdits.clear();
+        redoEdits.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * ประมาณขนาดหน่วยความจำของโหนดและโหนดลูกทั้งหมด (ข้อความ 2 bytes/ตัวอักษร + ค่าคงที่ต่อโหนด)
+     *
+     * @param node
+     * @return
+     */
+    static long estimateBytes(Node node) {
+        long bytes = 64;
+        String value = node.getNodeValue();
+        if (value != null) {
+            bytes += 2L * value.length();
+        }
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            bytes += estimateBytes(children.item(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * แก้ค่า (setTextContent) ของ Element
+     * - setTextContent ลบลูกทั้งหมดของ Element จึงเก็บลูกเดิมไว้เพื่อใส่กลับตอน Undo
+     */
+    static final class SetTextEdit implements Edit {
+        private final DOMTreeModel model;
+        private final Element element;
+        private final String newText;
+        private final List<Node> oldChildren = new ArrayList<>();
+        private final long estimatedBytes;
+
+        SetTextEdit(DOMTreeModel model, Element element, String newText) {
+            this.model = model;
+            this.element = element;
+            this.newText = newText;
+
+            long bytes = 128 + 2L * newText.length();
+            NodeList children = element.getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                oldChildren.add(children.item(i));
+                bytes += estimateBytes(children.item(i));
+            }
+            this.estimatedBytes = bytes;
+        }
+
+        @Override
+        public void redo() {
+            model.setTextContent(element, newText);
+        }
+
+        @Override
+        public void undo() {
+            model.replaceChildren(element, oldChildren);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String getName() {
+            return "Save";
+        }
+    }
+
+    /**
+     * เพิ่ม Element ต่อท้ายโหนดแม่ (ใช้กับ Add Subfield และ Duplicate Field)
+     */
+    static final class InsertNodeEdit implements Edit {
+        private final String name;
+        private final DOMTreeModel model;
+        private final Node parentElement;
+        private final Node element;
+        private final long estimatedBytes;
+
+        InsertNodeEdit(String name, DOMTreeModel model, Node parentElement, Node element) {
+            this.name = name;
+            this.model = model;
+            this.parentElement = parentElement;
+            this.element = element;
+            this.estimatedBytes = 128 + estimateBytes(element);
+        }
+
+        @Override
+        public void redo() {
+            model.insertChild(parentElement, element, null);
+        }
+
+        @Override
+        public void undo() {
+            model.removeChild(element);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * ลบ Element พร้อมโหนดลูกทั้งหมด (Undo ใส่กลับตำแหน่งเดิม)
+     */
+    static final class DeleteNodeEdit implements Edit {
+        private final DOMTreeModel model;
+        private final Node parentElement;
+        private final Node element;
+        private final Node nextSibling;
+        private final long estimatedBytes;
+
+        DeleteNodeEdit(DOMTreeModel model, Node element) {
+            this.model = model;
+            this.parentElement = element.getParentNode();
+            this.element = element;
+            this.nextSibling = element.getNextSibling();
+            this.estimatedBytes = 128 + estimateBytes(element);
+        }
+
+        @Override
+        public void redo() {
+            model.removeChild(element);
+        }
+
+        @Override
+        public void undo() {
+            model.insertChild(parentElement, element, nextSibling);
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String getName() {
+            return "Delete Field";
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Simple XPath-like field path shared by the editor search and the bulk editor
+ *
+ * License: MIT License
+ */
+
+/**
+ * FieldPath (Path แบบ XPath อย่างง่าย)
+ *
+ * - "CollateralDetail/SecurityDetail/MortgageRank" : Element ที่ Path ลงท้ายด้วย Segment เหล่านี้
+ * - "/Envelope/Body/Request"                       : เริ่มจาก Root
+ * - "ApplicationDetail//MortgageRank"              : ลูกหลานชั้นใดก็ได้
+ * - "*"                                            : Element ใดก็ได้ 1 ชั้น
+ * - "CollateralDetail[2]"                          : ตัวที่ 2 ในบรรดาพี่น้องชื่อเดียวกัน (นับจาก 1)
+ * - ชื่อที่ไม่มี Prefix เทียบกับ local name จึงใช้กับ SOAP ที่มี Namespace Prefix ได้
+ * - ใช้ใน XMLSearchIndex (Mode.PATH ของ Editor) และ BulkEditor (Rule ของการแก้ค่าหลายไฟล์) จึงเขียน Path แบบเดียวกันได้ทั้งสองที่
+ * - Immutable ใช้ร่วมกันได้ทุก Thread
+ */
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class FieldPath {
+    private final String text;
+    /** ชื่อของแต่ละ Segment ("" คือ "//") */
+    private final String[] names;
+    /** ลำดับในบรรดาพี่น้องชื่อเดียวกัน (นับจาก 1) หรือ 0 = ไม่กำหนด */
+    private final int[] positions;
+    private final boolean absolute;
+
+    private FieldPath(String text, String[] names, int[] positions, boolean absolute) {
+        this.text = text;
+        this.names = names;
+        this.positions = positions;
+        this.absolute = absolute;
+    }
+
+    /**
+     * @param text
+     * @return
+     * @throws IllegalArgumentException เมื่อ Path ไม่ถูกต้อง
+     */
+    static FieldPath parse(String text) {
+        List<String> tokens = new ArrayList<>(Arrays.asList(text.split("/", -1)));
+        boolean absolute = tokens.size() > 1 && tokens.get(0).isEmpty() && !tokens.get(1).isEmpty();
+        // ตัด "/" หรือ "//" ด้านหน้า ("//a" = "a" เพราะเทียบแบบลงท้ายอยู่แล้ว) และ "/" ด้านหลัง
+        while (!tokens.isEmpty() && tokens.get(0).isEmpty()) {
+            tokens.remove(0);
+        }
+        while (!tokens.isEmpty() && tokens.get(tokens.size() - 1).isEmpty()) {
+            tokens.remove(tokens.size() - 1);
+        }
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Empty path");
+        }
+
+        List<String> names = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (String token : tokens) {
+            // "a///b" เท่ากับ "a//b"
+            if (token.isEmpty() && names.get(names.size() - 1).isEmpty()) {
+                continue;
+            }
+            String name = token.trim();
+            int position = 0;
+            int bracket = name.indexOf('[');
+            if (bracket >= 0) {
+                if (!name.endsWith("]")) {
+                    throw new IllegalArgumentException("Invalid path segment: " + token);
+                }
+                try {
+                    position = Integer.parseInt(name.substring(bracket + 1, name.length() - 1).trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid position in path segment: " + token);
+                }
+                if (position < 1) {
+                    throw new IllegalArgumentException("Position must start at 1: " + token);
+                }
+                name = name.substring(0, bracket).trim();
+                if (name.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid path segment: " + token);
+                }
+            }
+            names.add(name);
+            positions.add(position);
+        }
+        return new FieldPath(text.trim(), names.toArray(new String[0]), positions.stream().mapToInt(Integer::intValue).toArray(), absolute);
+    }
+
+    String lastName() {
+        return RepeatableFieldRegistry.localName(names[names.length - 1]);
+    }
+
+    boolean isWildcardLast() {
+        return "*".equals(names[names.length - 1]);
+    }
+
+    boolean matches(Element element) {
+        return matches(element, names.length - 1);
+    }
+
+    /**
+     * @param node Element ที่ต้องตรงกับ Segment ที่ index
+     * @param index
+     * @return true เมื่อ node และ Parent ตรงกับ Segment ตั้งแต่ 0 ถึง index
+     */
+    private boolean matches(Node node, int index) {
+        if (!matchesSegment(node, index)) {
+            return false;
+        }
+        Node parent = node.getParentNode();
+        if (index == 0) {
+            return !absolute || parent == null || parent.getNodeType() == Node.DOCUMENT_NODE;
+        }
+        if (names[index - 1].isEmpty()) {
+            // "//": Ancestor ชั้นใดก็ได้ต้องตรงกับ Segment ก่อนหน้า
+            for (Node ancestor = parent; ancestor != null && ancestor.getNodeType() == Node.ELEMENT_NODE; ancestor = ancestor.getParentNode()) {
+                if (matches(ancestor, index - 2)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return parent != null && parent.getNodeType() == Node.ELEMENT_NODE && matches(parent, index - 1);
+    }
+
+    private boolean matchesSegment(Node node, int index) {
+        return matchesName(node, index) && (positions[index] == 0 || positions[index] == position(node));
+    }
+
+    private boolean matchesName(Node node, int index) {
+        String name = names[index];
+        if ("*".equals(name)) {
+            return true;
+        }
+        return name.indexOf(':') >= 0
+                ? name.equals(node.getNodeName())
+                : name.equals(RepeatableFieldRegistry.localName(node));
+    }
+
+    /**
+     * เทียบ element กับ Path โดยไม่สนใจ [n] แล้วคืน [n] ของ Segment ตาม Element ที่ Segment นั้นตรงกับ
+     * (ใช้หา Field ใน Template ซึ่งมี Field ที่ Duplicate ได้เพียงตัวเดียว เช่น CSV Column "CollateralDetail[2]/CollId")
+     *
+     * @param element
+     * @return Element (ตัวเองหรือ Ancestor) -> [n] เฉพาะ Segment ที่กำหนด [n] หรือ null เมื่อไม่ตรงกัน
+     */
+    Map<Node, Integer> bindPositions(Element element) {
+        Map<Node, Integer> bound = new IdentityHashMap<>();
+        return bindPositions(element, names.length - 1, bound) ? bound : null;
+    }
+
+    private boolean bindPositions(Node node, int index, Map<Node, Integer> bound) {
+        if (!matchesName(node, index)) {
+            return false;
+        }
+        Node parent = node.getParentNode();
+        boolean matched = false;
+        if (index == 0) {
+            matched = !absolute || parent == null || parent.getNodeType() == Node.DOCUMENT_NODE;
+        } else if (names[index - 1].isEmpty()) {
+            for (Node ancestor = parent; ancestor != null && ancestor.getNodeType() == Node.ELEMENT_NODE && !matched; ancestor = ancestor.getParentNode()) {
+                matched = bindPositions(ancestor, index - 2, bound);
+            }
+        } else {
+            matched = parent != null && parent.getNodeType() == Node.ELEMENT_NODE && bindPositions(parent, index - 1, bound);
+        }
+        // ใส่หลังจาก Segment ก่อนหน้าตรงทั้งหมดแล้วเท่านั้น (ทางที่ไม่ตรงไม่ทิ้งค่าไว้ใน bound)
+        if (matched && positions[index] > 0) {
+            bound.put(node, positions[index]);
+        }
+        return matched;
+    }
+
+    /**
+     * @param node
+     * @return ลำดับของ node ในบรรดาพี่น้องที่ชื่อเดียวกัน (นับจาก 1)
+     */
+    static int position(Node node) {
+        int position = 1;
+        for (Node sibling = node.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+            if (sibling.getNodeType() == Node.ELEMENT_NODE && sibling.getNodeName().equals(node.getNodeName())) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    static boolean hasNextWithSameName(Node node) {
+        for (Node sibling = node.getNextSibling(); sibling != null; sibling = sibling.getNextSibling()) {
+            if (sibling.getNodeType() == Node.ELEMENT_NODE && sibling.getNodeName().equals(node.getNodeName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the Dynamic XML Tree Editor application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Paged viewer/editor for large text values (Base64 payloads, embedded documents) of a single field
+ *
+ * License: MIT License
+ */
+
+/**
+ * LargeValueViewer (แสดง/แก้ไขค่าขนาดใหญ่ทีละหน้า)
+ *
+ * - เดิมค่าของ Field ถูกใส่ลงใน JTextField ทั้งก้อน ค่า Base64 ขนาดหลาย MB ทำให้ UI ค้างตอนเลือก Field
+ *   (JTextField วัดความกว้างของข้อความทั้งบรรทัด) และ Label ใน Tree ก็แสดงค่าทั้งก้อนเช่นกัน
+ * - Editor แสดงเฉพาะส่วนต้นของค่า (DOMTreeModel.directTextPreview) เมื่อค่ายาวเกิน LARGE_VALUE_CHARS
+ *   ค่าเต็มถูกอ่านจาก DOM เมื่อเปิด Viewer นี้เท่านั้น
+ * - ค่าถูกแบ่งเป็นหน้าละ PAGE_CHARS ตัวอักษร JTextArea มีข้อความเพียงหน้าเดียว
+ *   หน้าที่ถูกแก้ไขเก็บไว้ใน pages ตอนเปลี่ยนหน้า (ขอบหน้าไม่เลื่อนตามการแก้ไข)
+ * - Apply รวมทุกหน้าเป็นค่าเดียวแล้วส่งให้ onApply (Editor บันทึกผ่าน EditHistory จึง Undo ได้)
+ */
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+final class LargeValueViewer extends JDialog {
+
+    private static final long serialVersionUID = 1L;
+
+    /** ค่าที่ยาวกว่านี้ (ตัวอักษร) ถือเป็นค่าขนาดใหญ่: Editor แสดงเฉพาะส่วนต้นและให้แก้ไขผ่าน Viewer */
+    static final int LARGE_VALUE_CHARS = Integer.getInteger("xml2gui.largeValueChars", 4096);
+
+    /** จำนวนตัวอักษรต่อหน้า */
+    static final int PAGE_CHARS = 64 * 1024;
+
+    private final List<String> pages;
+    private final Consumer<String> onApply;
+    private final JTextArea textArea = new JTextArea();
+    private final JLabel pageLabel = new JLabel();
+    private final JButton firstButton = new JButton("<<");
+    private final JButton previousButton = new JButton("<");
+    private final JButton nextButton = new JButton(">");
+    private final JButton lastButton = new JButton(">>");
+    private int page;
+    private boolean pageModified;
+    private boolean modified;
+
+    /**
+     * @param owner
+     * @param title   ชื่อ Field (แสดงที่หัว Dialog)
+     * @param value   ค่าเต็มของ Field
+     * @param onApply เรียกพร้อมค่าใหม่เมื่อกด Apply และค่าถูกแก้ไข
+     */
+    LargeValueViewer(Frame owner, String title, String value, Consumer<String> onApply) {
+        super(owner, "Value of " + title, true);
+        this.pages = split(value);
+        this.onApply = onApply;
+
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        textArea.setLineWrap(true);
+        textArea.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                pageModified = true;
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                pageModified = true;
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        JButton applyButton = new JButton("Apply");
+        JButton closeButton = new JButton("Close");
+        firstButton.addActionListener(e -> showPage(0));
+        previousButton.addActionListener(e -> showPage(page - 1));
+        nextButton.addActionListener(e -> showPage(page + 1));
+        lastButton.addActionListener(e -> showPage(pages.size() - 1));
+        applyButton.addActionListener(e -> apply());
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel navigationPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        navigationPanel.add(firstButton);
+        navigationPanel.add(previousButton);
+        navigationPanel.add(nextButton);
+        navigationPanel.add(lastButton);
+        navigationPanel.add(pageLabel);
+        JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        actionPanel.add(applyButton);
+        actionPanel.add(closeButton);
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(navigationPanel, BorderLayout.WEST);
+        bottomPanel.add(actionPanel, BorderLayout.EAST);
+
+        getContentPane().add(new JScrollPane(textArea), BorderLayout.CENTER);
+        getContentPane().add(bottomPanel, BorderLayout.SOUTH);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        setSize(800, 600);
+        setLocationRelativeTo(owner);
+        showPage(0);
+    }
+
+    /**
+     * แบ่งค่าเป็นหน้า (ไม่ตัดกลาง Surrogate Pair)
+     *
+     * @param value
+     * @return อย่างน้อยหนึ่งหน้า
+     */
+    static List<String> split(String value) {
+        List<String> pages = new ArrayList<>(value.length() / PAGE_CHARS + 1);
+        int start = 0;
+        do {
+            int end = Math.min(value.length(), start + PAGE_CHARS);
+            if (end < value.length() && Character.isHighSurrogate(value.charAt(end - 1))) {
+                end--;
+            }
+            pages.add(value.substring(start, end));
+            start = end;
+        } while (start < value.length());
+        return pages;
+    }
+
+    private void showPage(int index) {
+        storePage();
+        page = Math.max(0, Math.min(index, pages.size() - 1));
+        textArea.setText(pages.get(page));
+        textArea.setCaretPosition(0);
+        pageModified = false;
+
+        firstButton.setEnabled(page > 0);
+        previousButton.setEnabled(page > 0);
+        nextButton.setEnabled(page < pages.size() - 1);
+        lastButton.setEnabled(page < pages.size() - 1);
+        pageLabel.setText("Page " + (page + 1) + " / " + pages.size() + " (" + length() + " characters)");
+    }
+
+    /**
+     * เก็บข้อความของหน้าปัจจุบันกลับเข้า pages ถ้าถูกแก้ไข
+     */
+    private void storePage() {
+        if (pageModified) {
+            pages.set(page, textArea.getText());
+            pageModified = false;
+            modified = true;
+        }
+    }
+
+    private long length() {
+        long length = 0;
+        for (String text : pages) {
+            length += text.length();
+        }
+        return length;
+    }
+
+    private void apply() {
+        storePage();
+        if (modified) {
+            StringBuilder value = new StringBuilder((int) Math.min(Integer.MAX_VALUE, length()));
+            for (String text : pages) {
+                value.append(text);
+            }
+            onApply.accept(value.toString());
+            modified = false;
+        }
+        dispose();
+    }
+}
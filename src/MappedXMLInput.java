@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Memory-mapped XML input with a prescan of encoding and root element
+ *
+ * License: MIT License
+ */
+
+/**
+ * MappedXMLInput
+ *
+ * - อ่านไฟล์ทั้งไฟล์เป็น ByteBuffer ครั้งเดียวผ่าน FileChannel แล้วให้ Parser อ่านจาก Buffer โดยตรง
+ *   (แทน DocumentBuilder.parse(File) ที่อ่านผ่าน FileInputStream + Buffer หลายชั้น)
+ *     open:       อ่านเข้า Heap ด้วย read ครั้งเดียว และปิดไฟล์ก่อนคืนค่า (ไฟล์ถูกเขียนทับ / แก้ไขต่อได้ทันที)
+ *     openMapped: ไฟล์ขนาด >= MAP_THRESHOLD ใช้ FileChannel.map (Memory-mapped, ไม่ Copy เข้า Heap)
+ *                 ไฟล์เล็กกว่านั้นอ่านเข้า Heap (การ map มีค่าใช้จ่ายคงที่สูงกว่าการอ่านไฟล์เล็ก)
+ * - Prescan ก่อน Parse (อ่านเฉพาะส่วนต้นของไฟล์จนเจอ Root Element):
+ *     Encoding จาก BOM / XML Declaration (ค่าเริ่มต้น UTF-8)
+ *     ชื่อ Root Element (ข้าม Comment, Processing Instruction และ DOCTYPE)
+ *     ไฟล์ว่าง หรือไม่ได้ขึ้นต้นด้วย Markup (เช่น ไฟล์ Excel / Text ที่ตั้งชื่อเป็น .xml) -> IOException ทันทีโดยไม่ต้อง Parse
+ * - Buffer ที่ map แล้ว JVM จะคืนให้ OS เมื่อ GC เก็บ (Java ไม่มี unmap) และบน Windows ไฟล์ที่ยังถูก map อยู่
+ *   ถูกแทนที่หรือตัดให้สั้นลงไม่ได้ ("user-mapped section open") จึงใช้ openMapped เฉพาะ Input ที่อ่านอย่างเดียว
+ *   และไม่มีใครเขียนทับระหว่างที่โปรแกรมทำงาน (ไฟล์ของ diff) ส่วนไฟล์ที่ Editor / edit --in-place บันทึกทับ,
+ *   Source และ XML Structure ที่ --watch เฝ้าอยู่ ใช้ open
+ */
+
+import org.xml.sax.InputSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+final class MappedXMLInput {
+
+    /** ไฟล์ที่ขนาดตั้งแต่ค่านี้จะใช้ FileChannel.map */
+    static final int MAP_THRESHOLD = 256 * 1024;
+
+    final File file;
+    /** Encoding จาก BOM / XML Declaration (เช่น "UTF-8", "UTF-16LE", "TIS-620") */
+    final String encoding;
+    /** ชื่อ Root Element (รวม Prefix) */
+    final String rootElement;
+    private final ByteBuffer buffer;
+
+    private MappedXMLInput(File file, ByteBuffer buffer, String encoding, String rootElement) {
+        this.file = file;
+        this.buffer = buffer;
+        this.encoding = encoding;
+        this.rootElement = rootElement;
+    }
+
+    /**
+     * อ่านไฟล์เข้า Heap และ Prescan (ไม่ map จึงเขียนทับไฟล์ได้ทันทีหลังคืนค่า)
+     *
+     * @param file
+     * @return
+     * @throws IOException เมื่ออ่านไฟล์ไม่ได้ หรือไฟล์ไม่ใช่ XML
+     */
+    static MappedXMLInput open(File file) throws IOException {
+        return open(file, false);
+    }
+
+    /**
+     * เปิดไฟล์และ Prescan โดย map ไฟล์ขนาดใหญ่ (ใช้เฉพาะไฟล์ที่ไม่ถูกเขียนทับระหว่างที่ Buffer ยังอยู่)
+     *
+     * @param file
+     * @return
+     * @throws IOException เมื่ออ่านไฟล์ไม่ได้ หรือไฟล์ไม่ใช่ XML
+     */
+    static MappedXMLInput openMapped(File file) throws IOException {
+        return open(file, true);
+    }
+
+    private static MappedXMLInput open(File file, boolean map) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large (" + size + " bytes)");
+            }
+            if (map && size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // อ่านจนครบ (ไฟล์อาจถูกตัดให้สั้นลงระหว่างอ่าน)
+                }
+                buffer.flip();
+            }
+        }
+
+        Prescan prescan = new Prescan(buffer);
+        String problem = prescan.run();
+        if (problem != null) {
+            throw new IOException(file + " is not an XML file: " + problem);
+        }
+        return new MappedXMLInput(file, buffer, prescan.encoding, prescan.rootElement);
+    }
+
+    /**
+     * @return ขนาดไฟล์ (bytes)
+     */
+    int size() {
+        return buffer.limit();
+    }
+
+    /**
+     * @return InputStream ใหม่ที่อ่านตั้งแต่ต้นไฟล์ (เปิดได้หลายครั้ง ไม่ต้องปิด)
+     */
+    InputStream newInputStream() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    /**
+     * @return InputSource สำหรับ DocumentBuilder.parse (System ID = URI ของไฟล์ เหมือน parse(File))
+     */
+    InputSource newInputSource() {
+        InputSource source = new InputSource(newInputStream());
+        source.setSystemId(file.toURI().toString());
+        return source;
+    }
+
+    /**
+     * InputStream บน ByteBuffer (อ่านเป็นช่วงด้วย get(byte[]) ไม่ Copy ทั้งไฟล์)
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * อ่าน Prolog ของไฟล์ทีละ Code Unit (1 byte หรือ 2 bytes สำหรับ UTF-16) โดยสนใจเฉพาะอักขระ ASCII ของ Markup
+     */
+    private static final class Prescan {
+        private final ByteBuffer buffer;
+        private int position;
+        private int unitSize = 1;
+        private boolean bigEndian;
+        String encoding = "UTF-8";
+        String rootElement;
+
+        Prescan(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return null เมื่อเป็น XML หรือเหตุผลที่ไม่ใช่
+         */
+        String run() {
+            int limit = buffer.limit();
+            if (limit == 0) {
+                return "the file is empty";
+            }
+            detectByteOrder(limit);
+
+            boolean first = true;
+            while (true) {
+                skipWhitespace();
+                int c = unit(position);
+                if (c < 0) {
+                    return "no root element";
+                }
+                if (c != '<') {
+                    return "unexpected content before the root element";
+                }
+                if (startsWith("<?")) {
+                    int end = indexOf("?>", position + 2 * unitSize);
+                    if (end < 0) {
+                        return "unterminated processing instruction";
+                    }
+                    if (first && startsWith("<?xml") && isWhitespace(unit(position + 5 * unitSize))) {
+                        readDeclaredEncoding(end);
+                    }
+                    position = end + 2 * unitSize;
+                } else if (startsWith("<!--")) {
+                    int end = indexOf("-->", position + 4 * unitSize);
+                    if (end < 0) {
+                        return "unterminated comment";
+                    }
+                    position = end + 3 * unitSize;
+                } else if (startsWith("<!DOCTYPE")) {
+                    if (!skipDocumentType()) {
+                        return "unterminated DOCTYPE";
+                    }
+                } else {
+                    return readRootElement();
+                }
+                first = false;
+            }
+        }
+
+        private void detectByteOrder(int limit) {
+            int b0 = limit > 0 ? buffer.get(0) & 0xFF : -1;
+            int b1 = limit > 1 ? buffer.get(1) & 0xFF : -1;
+            int b2 = limit > 2 ? buffer.get(2) & 0xFF : -1;
+            int b3 = limit > 3 ? buffer.get(3) & 0xFF : -1;
+            if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+                position = 3;
+            } else if (b0 == 0xFE && b1 == 0xFF) {
+                setUtf16(true, 2);
+            } else if (b0 == 0xFF && b1 == 0xFE) {
+                setUtf16(false, 2);
+            } else if (b0 == 0x00 && b1 == '<' && b2 == 0x00 && b3 == '?') {
+                setUtf16(true, 0);
+            } else if (b0 == '<' && b1 == 0x00 && b2 == '?' && b3 == 0x00) {
+                setUtf16(false, 0);
+            }
+        }
+
+        private void setUtf16(boolean bigEndian, int start) {
+            this.unitSize = 2;
+            this.bigEndian = bigEndian;
+            this.position = start;
+            this.encoding = bigEndian ? "UTF-16BE" : "UTF-16LE";
+        }
+
+        /**
+         * @param index ตำแหน่งเป็น byte
+         * @return Code Unit ที่ตำแหน่งนั้น หรือ -1 เมื่อเกินท้ายไฟล์
+         */
+        private int unit(int index) {
+            if (index < 0 || index + unitSize > buffer.limit()) {
+                return -1;
+            }
+            if (unitSize == 1) {
+                return buffer.get(index) & 0xFF;
+            }
+            int high = buffer.get(bigEndian ? index : index + 1) & 0xFF;
+            int low = buffer.get(bigEndian ? index + 1 : index) & 0xFF;
+            return (high << 8) | low;
+        }
+
+        private boolean startsWith(String ascii) {
+            return matches(ascii, position);
+        }
+
+        private boolean matches(String ascii, int index) {
+            for (int i = 0; i < ascii.length(); i++) {
+                if (unit(index + i * unitSize) != ascii.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int indexOf(String ascii, int from) {
+            for (int index = from; unit(index) >= 0; index += unitSize) {
+                if (matches(ascii, index)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        private static boolean isWhitespace(int c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+        }
+
+        private void skipWhitespace() {
+            while (isWhitespace(unit(position))) {
+                position += unitSize;
+            }
+        }
+
+        /**
+         * อ่าน encoding="..." ของ XML Declaration (ถ้าไม่ได้มาจาก BOM ของ UTF-16)
+         *
+         * @param end ตำแหน่งของ "?>"
+         */
+        private void readDeclaredEncoding(int end) {
+            int index = indexOf("encoding", position);
+            if (index < 0 || index > end || unitSize == 2) {
+                return;
+            }
+            index += 8 * unitSize;
+            while (isWhitespace(unit(index))) {
+                index += unitSize;
+            }
+            if (unit(index) != '=') {
+                return;
+            }
+            index += unitSize;
+            while (isWhitespace(unit(index))) {
+                index += unitSize;
+            }
+            int quote = unit(index);
+            if (quote != '"' && quote != '\'') {
+                return;
+            }
+            StringBuilder name = new StringBuilder();
+            for (index += unitSize; index < end && unit(index) != quote; index += unitSize) {
+                name.append((char) unit(index));
+            }
+            if (name.length() > 0) {
+                encoding = name.toString();
+            }
+        }
+
+        /**
+         * ข้าม <!DOCTYPE ...> รวม Internal Subset ใน [...]
+         *
+         * @return false เมื่อไม่เจอจุดสิ้นสุด
+         */
+        private boolean skipDocumentType() {
+            boolean inSubset = false;
+            int quote = 0;
+            for (int index = position + 9 * unitSize; ; index += unitSize) {
+                int c = unit(index);
+                if (c < 0) {
+                    return false;
+                }
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '[') {
+                    inSubset = true;
+                } else if (c == ']') {
+                    inSubset = false;
+                } else if (c == '>' && !inSubset) {
+                    position = index + unitSize;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return null เมื่ออ่านชื่อ Root Element ได้
+         */
+        private String readRootElement() {
+            int start = position + unitSize;
+            int index = start;
+            int c;
+            while ((c = unit(index)) >= 0 && !isWhitespace(c) && c != '/' && c != '>') {
+                index += unitSize;
+            }
+            if (index == start) {
+                return "missing root element name";
+            }
+            byte[] name = new byte[index - start];
+            buffer.duplicate().position(start).get(name);
+            rootElement = new String(name, nameCharset());
+            return null;
+        }
+
+        private Charset nameCharset() {
+            if (unitSize == 2) {
+                return bigEndian ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_16LE;
+            }
+            try {
+                return Charset.forName(encoding);
+            } catch (RuntimeException e) {
+                // Encoding ที่ JVM ไม่รู้จัก Parser จะแจ้ง Error เอง
+                return StandardCharsets.UTF_8;
+            }
+        }
+    }
+}
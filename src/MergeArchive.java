@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Single-file ZIP output for merged documents, and random-access reading of its entries
+ *
+ * License: MIT License
+ */
+
+/**
+ * MergeArchive
+ *
+ * - เขียนผลลัพธ์ของทุกไฟล์ลงใน ZIP ไฟล์เดียว (แทนการสร้างไฟล์ละไฟล์ในโฟลเดอร์ Output)
+ *   ลดค่าใช้จ่ายของ Filesystem (สร้าง/ปิดไฟล์, Metadata) เมื่อมีไฟล์เล็กจำนวนมาก โดยเฉพาะบน Network Share
+ * - ชื่อ Entry = Path ของไฟล์ผลลัพธ์เทียบกับโฟลเดอร์ Output (เช่น "sub/Case01.xml") ตาม MergeOptions.resolveOutputPath
+ * - Index คือ Central Directory ของ ZIP (เขียนตอน close) จึงเปิดอ่าน Entry เดียวได้ทันทีโดยไม่ต้องแตกไฟล์ทั้งหมด
+ *   และเปิดด้วยโปรแกรม ZIP ทั่วไปได้
+ * - Writer: เขียนลงไฟล์ .part ก่อน แล้วเปลี่ยนชื่อเมื่อ close สำเร็จ (ไฟล์ที่ค้างจากการหยุดกลางคันจะไม่ถูกมองว่าสมบูรณ์)
+ *   add() Thread-safe แต่ XMLMerger เรียกจาก Thread เดียวตามลำดับของ Source เพื่อให้ลำดับ Entry คงที่ทุกครั้ง
+ * - Reader: เปิด Entry ตามชื่อผ่าน ZipFile (ใช้ใน DynamicXMLTreeEditor "Load XML" และเครื่องมืออื่น)
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+final class MergeArchive {
+
+    private MergeArchive() {
+    }
+
+    /**
+     * @param file
+     * @return true เมื่อเป็นไฟล์ที่ควรเปิดด้วย Reader (นามสกุล .zip)
+     */
+    static boolean isArchive(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    /**
+     * เขียน ZIP ของผลลัพธ์ทั้งหมด
+     */
+    static final class Writer implements Closeable {
+        private final File archiveFile;
+        private final File partFile;
+        private final ZipOutputStream zip;
+        private int entryCount;
+        private boolean closed;
+
+        /**
+         * @param archiveFile
+         * @throws IOException
+         */
+        Writer(File archiveFile) throws IOException {
+            this.archiveFile = archiveFile;
+            this.partFile = new File(archiveFile.getPath() + ".part");
+            File directory = archiveFile.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create folder " + directory);
+            }
+            this.zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(partFile), 64 * 1024));
+            // XML บีบอัดได้ดีแม้ระดับต่ำสุด ระดับนี้เร็วกว่าค่าเริ่มต้นหลายเท่า
+            zip.setLevel(Deflater.BEST_SPEED);
+        }
+
+        /**
+         * เพิ่มไฟล์ผลลัพธ์หนึ่งไฟล์
+         *
+         * @param entryName เช่น "sub/Case01.xml"
+         * @param data
+         * @param lastModified เวลาของ Entry (ใช้เวลาของ Source ให้ ZIP เหมือนเดิมเมื่อ Merge ซ้ำ)
+         * @throws IOException รวมถึงชื่อ Entry ซ้ำ
+         */
+        synchronized void add(String entryName, byte[] data, long lastModified) throws IOException {
+            ZipEntry entry = new ZipEntry(entryName);
+            entry.setTime(lastModified);
+            zip.putNextEntry(entry);
+            zip.write(data);
+            zip.closeEntry();
+            entryCount++;
+        }
+
+        synchronized int getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * เขียน Central Directory แล้วแทนที่ไฟล์ ZIP เดิม (ถ้ามี)
+         *
+         * @throws IOException
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                zip.close();
+            } catch (IOException e) {
+                Files.deleteIfExists(partFile.toPath());
+                throw e;
+            }
+            Files.move(partFile.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /**
+         * ยกเลิก: ลบไฟล์ .part และไม่แตะไฟล์ ZIP เดิม
+         */
+        synchronized void discard() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                zip.close();
+            } catch (IOException e) {
+                // กำลังยกเลิกอยู่แล้ว
+            }
+            partFile.delete();
+        }
+    }
+
+    /**
+     * อ่าน Entry ของ ZIP ทีละตัว (Thread-safe ตาม ZipFile)
+     */
+    static final class Reader implements Closeable {
+        private final ZipFile zipFile;
+
+        /**
+         * @param archiveFile
+         * @throws IOException เมื่อไม่ใช่ไฟล์ ZIP
+         */
+        Reader(File archiveFile) throws IOException {
+            this.zipFile = new ZipFile(archiveFile);
+        }
+
+        /**
+         * @return ชื่อ Entry ทั้งหมดตามลำดับใน ZIP (ไม่รวมโฟลเดอร์)
+         */
+        List<String> getEntryNames() {
+            List<String> names = new ArrayList<>(zipFile.size());
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements(); ) {
+                ZipEntry entry = entries.nextElement();
+                if (!entry.isDirectory()) {
+                    names.add(entry.getName());
+                }
+            }
+            return Collections.unmodifiableList(names);
+        }
+
+        /**
+         * @param entryName
+         * @return ขนาดก่อนบีบอัด (-1 ถ้าไม่ทราบ)
+         * @throws FileNotFoundException เมื่อไม่มี Entry นี้
+         */
+        long getSize(String entryName) throws FileNotFoundException {
+            return entry(entryName).getSize();
+        }
+
+        /**
+         * เปิด Entry เดียว (อ่านจากตำแหน่งของ Entry โดยตรง ไม่แตกไฟล์อื่น)
+         *
+         * @param entryName
+         * @return
+         * @throws IOException
+         */
+        InputStream open(String entryName) throws IOException {
+            return zipFile.getInputStream(entry(entryName));
+        }
+
+        private ZipEntry entry(String entryName) throws FileNotFoundException {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null || entry.isDirectory()) {
+                throw new FileNotFoundException(entryName + " not found in " + zipFile.getName());
+            }
+            return entry;
+        }
+
+        @Override
+        public void close() throws IOException {
+            zipFile.close();
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Headless command-line batch mode for XMLMerger
+ *
+ * License: MIT License
+ */
+
+/**
+ * วิธีการใช้งาน:
+ * java XMLMerger --structure clean-xml.xml --input SourceFiles --output Result [options]
+ *
+ * - ไม่ต้องแก้ Path ในโค้ดก่อนรัน ใช้บน Linux CI / Pipeline ได้
+ * - --input ใส่ได้หลายครั้ง รับได้ทั้งไฟล์, โฟลเดอร์ (ไฟล์ *.xml) และ Glob เช่น "SourceFiles/**\/*.xml"
+ * - ผลลัพธ์ของแต่ละไฟล์เขียนเป็น JSON Lines (1 บรรทัดต่อไฟล์) ด้วย --results <file> หรือ --results - (stdout)
+ *   {"file":"...","output":"...","status":"ok|unchanged|failed|skipped","millis":12.345,"domFallback":false,"error":null}
+ *   (domFallback = true: ใช้ --streaming แต่ไฟล์นี้ Stream ไม่ได้ จึงถูก Merge ด้วย DOM)
+ * - --metrics <file.json|file.csv> เขียนเวลาแต่ละขั้นตอน (parse, template, merge, duplicate, remove, serialize)
+ *   และตัวนับของทุกไฟล์พร้อมผลรวม (ดู MergeMetrics) และรันด้วย -XX:StartFlightRecording เพื่อบันทึก JFR Event ได้
+ * - --watch ทำงานต่อหลัง Merge รอบแรก: Merge ไฟล์ที่ถูกเพิ่ม/แก้ไขในโฟลเดอร์ Input ทันที (ดู MergeWatcher)
+ * - --incremental ข้ามไฟล์ที่ไม่เปลี่ยนจากรอบก่อน (status = unchanged) ตาม Manifest ในโฟลเดอร์ Output
+ * - --archive <file.zip> เขียนผลลัพธ์ทั้งหมดลง ZIP ไฟล์เดียวแทน --output (ดู MergeArchive)
+ *
+ * Exit code:
+ *   0 = Merge สำเร็จทุกไฟล์
+ *   1 = มีบางไฟล์ Merge ไม่สำเร็จ (หรือถูกข้ามเพราะ --fail-fast)
+ *   2 = Argument ไม่ถูกต้อง หรือไม่พบไฟล์ Input
+ *   3 = Error ที่ทำให้ Merge ไม่ได้เลย (เช่น อ่าน XML Structure ไม่ได้, สร้างโฟลเดอร์ Output ไม่ได้)
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class MergeCommandLine {
+
+    static final int EXIT_SUCCESS = 0;
+    static final int EXIT_FILES_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+    static final int EXIT_FATAL = 3;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java XMLMerger --structure <file> --input <dir|file|glob> [--input ...] (--output <dir> | --archive <zip>) [options]",
+            "",
+            "Options:",
+            "  -s, --structure <file>    XML Structure File (clean-xml.xml)",
+            "  -i, --input <path>        Source XML: file, directory (*.xml) or glob such as \"data/**/*.xml\"",
+            "  -o, --output <dir>        Output directory (created if missing)",
+            "  -a, --archive <file.zip>  Write every merged file into one ZIP instead of an output directory",
+            "  -r, --recursive           Include sub-directories of directory inputs (keeps the folder structure)",
+            "  -t, --threads <n>         Worker threads (default: number of CPU cores)",
+            "  -n, --name-pattern <p>    Output file name, tokens {name} {base} {ext} (default: {name})",
+            "      --repeatable <file>   Repeatable fields: compiled cache, XSD/WSDL, or XML with SoapUI comments",
+            "      --streaming           Use the streaming (StAX) merge for large files",
+            "      --pretty              Indent the merged output (2 spaces per level)",
+            "      --incremental         Merge only files whose source, structure or rules changed since the",
+            "                            last run; delete outputs whose source is gone (manifest in <output>)",
+            "      --watch               Keep running and merge files added or changed in the input directories",
+            "      --debounce <ms>       Watch mode: wait for this quiet period before merging a file (default: 200)",
+            "      --fail-fast           Skip the remaining files after the first failure",
+            "      --results <file|->    Write per-file results as JSON Lines (- = stdout)",
+            "      --metrics <file>      Write per-phase timings and counters of every file (.csv = CSV, otherwise JSON)",
+            "  -q, --quiet               Do not print the per-file log",
+            "  -h, --help                Show this help",
+            "",
+            "Bulk edit of field values: java XMLMerger edit --help",
+            "One XML file per CSV row:  java XMLMerger csv --help",
+            "Compare two results:       java XMLMerger diff --help",
+            "",
+            "Exit codes: 0 = all merged, 1 = some files failed, 2 = usage error / no input, 3 = fatal error");
+
+    private MergeCommandLine() {
+    }
+
+    /**
+     * รัน Merge ตาม Argument
+     *
+     * @param args
+     * @return exit code
+     */
+    static int run(String[] args) {
+        String structure = null;
+        String output = null;
+        String results = null;
+        String repeatable = null;
+        String metrics = null;
+        String archive = null;
+        List<String> inputs = new ArrayList<>();
+        boolean recursive = false;
+        boolean quiet = false;
+        int threads = XMLMerger.DEFAULT_THREAD_COUNT;
+        String namePattern = "{name}";
+        boolean streaming = false;
+        boolean prettyPrint = false;
+        boolean failFast = false;
+        boolean incremental = false;
+        boolean watch = false;
+        long debounceMillis = MergeWatcher.DEFAULT_DEBOUNCE_MILLIS;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-s":
+                    case "--structure":
+                        structure = value(args, ++i, arg);
+                        break;
+                    case "-i":
+                    case "--input":
+                        inputs.add(value(args, ++i, arg));
+                        break;
+                    case "-o":
+                    case "--output":
+                        output = value(args, ++i, arg);
+                        break;
+                    case "-a":
+                    case "--archive":
+                        archive = value(args, ++i, arg);
+                        break;
+                    case "-r":
+                    case "--recursive":
+                        recursive = true;
+                        break;
+                    case "-t":
+                    case "--threads":
+                        threads = Integer.parseInt(value(args, ++i, arg));
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("--threads must be at least 1");
+                        }
+                        break;
+                    case "-n":
+                    case "--name-pattern":
+                        namePattern = value(args, ++i, arg);
+                        if (namePattern.isEmpty() || namePattern.contains("/") || namePattern.contains("\\")) {
+                            throw new IllegalArgumentException("--name-pattern must be a file name");
+                        }
+                        break;
+                    case "--repeatable":
+                        repeatable = value(args, ++i, arg);
+                        break;
+                    case "--streaming":
+                        streaming = true;
+                        break;
+                    case "--pretty":
+                        prettyPrint = true;
+                        break;
+                    case "--incremental":
+                        incremental = true;
+                        break;
+                    case "--watch":
+                        watch = true;
+                        break;
+                    case "--debounce":
+                        debounceMillis = Long.parseLong(value(args, ++i, arg));
+                        if (debounceMillis < 0) {
+                            throw new IllegalArgumentException("--debounce must not be negative");
+                        }
+                        break;
+                    case "--fail-fast":
+                        failFast = true;
+                        break;
+                    case "--results":
+                        results = value(args, ++i, arg);
+                        break;
+                    case "--metrics":
+                        metrics = value(args, ++i, arg);
+                        break;
+                    case "-q":
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return EXIT_SUCCESS;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (structure == null || (output == null && archive == null) || inputs.isEmpty()) {
+                throw new IllegalArgumentException("--structure, --input and --output (or --archive) are required");
+            }
+            if (archive != null && (output != null || incremental || watch)) {
+                throw new IllegalArgumentException("--archive cannot be combined with --output, --incremental or --watch");
+            }
+            if (watch) {
+                for (String input : inputs) {
+                    if (!Files.isDirectory(Paths.get(input))) {
+                        throw new IllegalArgumentException("--watch needs directory inputs: " + input);
+                    }
+                    if (Paths.get(input).toAbsolutePath().normalize().equals(Paths.get(output).toAbsolutePath().normalize())) {
+                        throw new IllegalArgumentException("--watch needs an output directory different from the input");
+                    }
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException เป็น IllegalArgumentException ด้วย
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        File structureFile = new File(structure);
+        if (!structureFile.isFile()) {
+            System.err.println("Error: XML Structure File not found: " + structureFile);
+            return EXIT_USAGE;
+        }
+
+        if (repeatable != null) {
+            try {
+                RepeatableFieldRegistry.setDefault(RepeatableFieldRegistry.load(new File(repeatable)));
+            } catch (Exception e) {
+                System.err.println("Error: cannot load repeatable fields from " + repeatable + ": " + e.getMessage());
+                return EXIT_FATAL;
+            }
+        }
+
+        File archiveFile = archive == null ? null : new File(archive);
+        File outputDirectory = archiveFile == null ? new File(output) : archiveFile.getAbsoluteFile().getParentFile();
+        MergeOptions options = new MergeOptions(structureFile, outputDirectory);
+        options.archiveFile = archiveFile;
+        options.threads = threads;
+        options.namePattern = namePattern;
+        options.streaming = streaming;
+        options.prettyPrint = prettyPrint;
+        options.continueOnError = !failFast;
+        options.incremental = incremental;
+        options.collectMetrics = metrics != null;
+
+        // ถ้าผลลัพธ์ออก stdout ให้ Log ไป stderr เพื่อไม่ให้ปนกัน
+        boolean resultsToStdout = "-".equals(results);
+        options.log = quiet ? new PrintStream(OutputStream.nullOutputStream()) : resultsToStdout ? System.err : System.out;
+
+        List<File> sourceFiles;
+        try {
+            sourceFiles = expandInputs(inputs, recursive, options.relativeDirectories);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: input not found or unreadable: " + e.getMessage());
+            return EXIT_USAGE;
+        }
+        if (sourceFiles.isEmpty()) {
+            System.err.println("Error: no XML files matched " + inputs);
+            return EXIT_USAGE;
+        }
+        // Input หลายชุดที่มีไฟล์ชื่อเดียวกันจะเขียนทับผลลัพธ์ของกัน: หยุดก่อน Merge
+        Map<File, File> conflicts = options.findOutputConflicts(sourceFiles);
+        if (!conflicts.isEmpty()) {
+            conflicts.forEach((sourceFile, firstSource) -> System.err.println("Error: " + sourceFile + " and " + firstSource
+                    + " would both be written to " + options.resolveOutputPath(sourceFile)));
+            System.err.println("Merge the common parent directory with --recursive to keep the sub-directories apart.");
+            return EXIT_USAGE;
+        }
+
+        if (archiveFile == null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            System.err.println("Error: cannot create output directory: " + outputDirectory);
+            return EXIT_FATAL;
+        }
+
+        long startTime = System.nanoTime();
+        options.log.printf("%-30s | %-15s\n", "File Name", "Time (seconds)");
+        options.log.println("--------------------------------------------------");
+
+        List<XMLMerger.MergeResult> mergeResults;
+        try {
+            mergeResults = XMLMerger.mergeFiles(options, sourceFiles);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return EXIT_FATAL;
+        }
+
+        long failedCount = mergeResults.stream().filter(result -> !result.isSuccess()).count();
+        long unchangedCount = mergeResults.stream().filter(result -> result.unchanged).count();
+        options.log.println("--------------------------------------------------");
+        options.log.printf("%-30s | %-15.7f\n", "Total Execution Time", (System.nanoTime() - startTime) / 1_000_000_000.0);
+        options.log.printf("Merged %d of %d file(s), %d failed or skipped.\n",
+                mergeResults.size() - failedCount - unchangedCount, mergeResults.size(), failedCount);
+        if (incremental) {
+            options.log.printf("Unchanged (not merged again): %d file(s).\n", unchangedCount);
+        }
+        long fallbackCount = mergeResults.stream().filter(result -> result.domFallback).count();
+        if (fallbackCount > 0) {
+            options.log.printf("Not streamed (merged with DOM instead): %d file(s).\n", fallbackCount);
+        }
+
+        if (results != null) {
+            try {
+                writeResults(mergeResults, results);
+            } catch (IOException e) {
+                System.err.println("Error: cannot write results: " + e.getMessage());
+                return EXIT_FATAL;
+            }
+        }
+
+        if (metrics != null) {
+            List<MergeMetrics> fileMetrics = mergeResults.stream()
+                    .filter(result -> result.metrics != null)
+                    .map(result -> result.metrics)
+                    .collect(Collectors.toList());
+            options.log.println("Phases: " + MergeMetrics.aggregate(fileMetrics).phaseSummary());
+            try {
+                if (metrics.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                    MergeMetrics.writeCsv(fileMetrics, Paths.get(metrics));
+                } else {
+                    MergeMetrics.writeJson(fileMetrics, Paths.get(metrics));
+                }
+            } catch (IOException e) {
+                System.err.println("Error: cannot write metrics: " + e.getMessage());
+                return EXIT_FATAL;
+            }
+        }
+
+        if (watch) {
+            return watch(options, inputs, recursive, debounceMillis);
+        }
+
+        return failedCount == 0 ? EXIT_SUCCESS : EXIT_FILES_FAILED;
+    }
+
+    /**
+     * เฝ้าโฟลเดอร์ Input หลัง Merge รอบแรก จนกว่าจะถูกหยุด (Ctrl+C)
+     *
+     * @param options
+     * @param inputs
+     * @param recursive
+     * @param debounceMillis
+     * @return exit code
+     */
+    private static int watch(MergeOptions options, List<String> inputs, boolean recursive, long debounceMillis) {
+        MergeWatcher watcher;
+        try {
+            watcher = new MergeWatcher(options, inputs.stream().map(Paths::get).collect(Collectors.toList()), recursive, debounceMillis);
+        } catch (Exception e) {
+            System.err.println("Error: cannot start watch mode: " + e.getMessage());
+            return EXIT_FATAL;
+        }
+        // Ctrl+C: รอให้ไฟล์ที่กำลังเขียนเสร็จก่อนปิดโปรแกรม
+        Runtime.getRuntime().addShutdownHook(new Thread(watcher::close));
+        watcher.run();
+        return EXIT_SUCCESS;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    /**
+     * แปลง Input (ไฟล์, โฟลเดอร์, Glob) เป็นรายการไฟล์ เรียงตาม Path และไม่ซ้ำกัน
+     *
+     * @param inputs
+     * @param recursive
+     * @param relativeDirectories เก็บโฟลเดอร์ย่อยของแต่ละไฟล์เทียบกับโฟลเดอร์ Input
+     * @return
+     * @throws IOException
+     */
+    static List<File> expandInputs(List<String> inputs, boolean recursive, Map<File, String> relativeDirectories) throws IOException {
+        Map<File, String> files = new LinkedHashMap<>();
+
+        for (String input : inputs) {
+            int globStart = indexOfGlob(input);
+            if (globStart < 0) {
+                Path path = Paths.get(input);
+                if (Files.isRegularFile(path)) {
+                    files.putIfAbsent(path.toFile(), "");
+                } else if (Files.isDirectory(path)) {
+                    collect(path, recursive ? Integer.MAX_VALUE : 1, file -> isXmlFile(file), files);
+                } else {
+                    throw new NoSuchFileException(input);
+                }
+                continue;
+            }
+
+            // แยกส่วนที่ไม่มี Glob (โฟลเดอร์เริ่มต้น) ออกจาก Pattern
+            int separator = Math.max(input.lastIndexOf('/', globStart), input.lastIndexOf('\\', globStart));
+            Path base = separator < 0 ? Paths.get(".") : Paths.get(input.substring(0, separator + 1));
+            String pattern = input.substring(separator + 1).replace('\\', '/');
+            if (!Files.isDirectory(base)) {
+                throw new NoSuchFileException(base.toString());
+            }
+
+            List<PathMatcher> matchers = globMatchers(pattern);
+            boolean deep = recursive || pattern.contains("/");
+            collect(base, deep ? Integer.MAX_VALUE : 1,
+                    file -> matchers.stream().anyMatch(matcher -> matcher.matches(base.relativize(file))), files);
+        }
+
+        relativeDirectories.putAll(files);
+        return new ArrayList<>(files.keySet());
+    }
+
+    /**
+     * PathMatcher ของ Glob โดยให้ "**\/" ตรงกับโฟลเดอร์ศูนย์ระดับด้วย
+     * (Glob ของ Java ต้องมี "/" หลัง ** จึงทำให้ "in/**\/*.xml" ไม่ตรงกับไฟล์ในโฟลเดอร์ in เอง)
+     *
+     * @param pattern
+     * @return Pattern เดิม และ Pattern ที่ตัด "**\/" ออกทุกแบบ
+     */
+    static List<PathMatcher> globMatchers(String pattern) {
+        Set<String> patterns = new LinkedHashSet<>();
+        addGlobVariants(pattern, 0, patterns);
+        List<PathMatcher> matchers = new ArrayList<>(patterns.size());
+        for (String variant : patterns) {
+            matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + variant));
+        }
+        return matchers;
+    }
+
+    private static void addGlobVariants(String pattern, int from, Set<String> patterns) {
+        patterns.add(pattern);
+        for (int i = pattern.indexOf("**/", from); i >= 0; i = pattern.indexOf("**/", i + 1)) {
+            // ตัดได้เฉพาะ ** ที่เป็นโฟลเดอร์ทั้งระดับ (ต้นของ Pattern หรือหลัง "/")
+            if (i == 0 || pattern.charAt(i - 1) == '/') {
+                addGlobVariants(pattern.substring(0, i) + pattern.substring(i + 3), i, patterns);
+            }
+        }
+    }
+
+    private static void collect(Path base, int maxDepth, java.util.function.Predicate<Path> filter,
+                                Map<File, String> files) throws IOException {
+        try (Stream<Path> paths = Files.walk(base, maxDepth)) {
+            for (Path file : paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList())) {
+                Path parent = base.relativize(file).getParent();
+                files.putIfAbsent(file.toFile(), parent == null ? "" : parent.toString());
+            }
+        }
+    }
+
+    private static boolean isXmlFile(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml");
+    }
+
+    private static int indexOfGlob(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * เขียนผลลัพธ์ของแต่ละไฟล์เป็น JSON Lines
+     *
+     * @param mergeResults
+     * @param target ชื่อไฟล์ หรือ "-" สำหรับ stdout
+     * @throws IOException
+     */
+    private static void writeResults(List<XMLMerger.MergeResult> mergeResults, String target) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (XMLMerger.MergeResult result : mergeResults) {
+            String status = result.skipped ? "skipped" : result.unchanged ? "unchanged" : result.error == null ? "ok" : "failed";
+            lines.append("{\"file\":").append(jsonString(result.sourceFile.getPath()))
+                    .append(",\"output\":").append(result.outputFile == null ? "null" : jsonString(result.outputFile.getPath()))
+                    .append(",\"status\":\"").append(status).append('"')
+                    .append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", result.elapsedNanos / 1_000_000.0))
+                    .append(",\"domFallback\":").append(result.domFallback)
+                    .append(",\"error\":").append(result.error == null ? "null" : jsonString(String.valueOf(result.error.getMessage())))
+                    .append("}\n");
+        }
+
+        if ("-".equals(target)) {
+            System.out.print(lines);
+            System.out.flush();
+        } else {
+            Files.write(Paths.get(target), lines.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Content-hash manifest for incremental merges (skip unchanged source files)
+ *
+ * License: MIT License
+ */
+
+/**
+ * MergeManifest
+ *
+ * - เก็บไว้ในโฟลเดอร์ Output ชื่อ .xml2gui-manifest (ไฟล์ข้อความ UTF-8) บันทึก SHA-256 ของ:
+ *     1. XML Structure File
+ *     2. Rule ของ Repeatable Field ที่ใช้ (RepeatableFieldRegistry.getRules() และ getTagNames())
+ *     3. Source แต่ละไฟล์ พร้อมขนาด, เวลาแก้ไขล่าสุด และไฟล์ Output ที่ได้
+ * - ถ้า Structure หรือ Rule เปลี่ยน ทุกไฟล์ต้อง Merge ใหม่ทั้งหมด
+ * - Source ที่ขนาดและเวลาแก้ไขตรงกับ Manifest จะไม่อ่านไฟล์เพื่อ Hash ซ้ำ (แบบเดียวกับ git index)
+ *   ถ้าเวลาแก้ไขเปลี่ยนแต่เนื้อหาเหมือนเดิมก็ยังถือว่าไม่เปลี่ยน
+ * - Output ที่ Source หายไป (หรือชื่อ Output เปลี่ยนเพราะ namePattern) จะถูกลบใน removeOrphans
+ * - ไฟล์ที่ Merge ไม่สำเร็จจะไม่ถูกบันทึก จึงถูก Merge ใหม่ในรอบถัดไป
+ *
+ * รูปแบบไฟล์:
+ *   xml2gui-manifest 1
+ *   structure <sha256>
+ *   rules <sha256>
+ *   <sha256>\t<size>\t<lastModified>\t<output (เทียบกับโฟลเดอร์ Output)>\t<source (Absolute Path)>
+ */
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class MergeManifest {
+
+    static final String FILE_NAME = ".xml2gui-manifest";
+    private static final String HEADER = "xml2gui-manifest 1";
+
+    /**
+     * ข้อมูลของ Source หนึ่งไฟล์
+     */
+    static final class Entry {
+        final String hash;
+        final long size;
+        final long lastModified;
+        final String output;
+
+        Entry(String hash, long size, long lastModified, String output) {
+            this.hash = hash;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.output = output;
+        }
+    }
+
+    private final File outputDirectory;
+    private final String structureHash;
+    private final String rulesHash;
+    /** Entry จากรอบก่อน (ว่างถ้า Structure หรือ Rule เปลี่ยน) */
+    private final Map<String, Entry> previous;
+    /** Entry ของรอบนี้ (เขียนจากหลาย Thread) */
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private MergeManifest(File outputDirectory, String structureHash, String rulesHash, Map<String, Entry> previous) {
+        this.outputDirectory = outputDirectory;
+        this.structureHash = structureHash;
+        this.rulesHash = rulesHash;
+        this.previous = previous;
+    }
+
+    /**
+     * อ่าน Manifest ของโฟลเดอร์ Output (ถ้าไม่มี หรืออ่านไม่ได้ ถือว่าทุกไฟล์เปลี่ยน)
+     *
+     * @param outputDirectory
+     * @param xmlStructureFile
+     * @param repeatableFields
+     * @return
+     * @throws IOException เมื่ออ่าน XML Structure File ไม่ได้
+     */
+    static MergeManifest load(File outputDirectory, File xmlStructureFile, RepeatableFieldRegistry repeatableFields) throws IOException {
+        String structureHash = hash(xmlStructureFile);
+        List<String> rules = new ArrayList<>(repeatableFields.getRules());
+        // ชื่อ Tag แบบเต็มเทียบต่างจาก Rule ที่เขียนเหมือนกัน จึงแยกด้วยเครื่องหมาย "="
+        repeatableFields.getTagNames().forEach(tagName -> rules.add("=" + tagName));
+        String rulesHash = hash(rules);
+
+        Map<String, Entry> previous = new HashMap<>();
+        Path manifestFile = new File(outputDirectory, FILE_NAME).toPath();
+        if (Files.isRegularFile(manifestFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+                if (HEADER.equals(reader.readLine())
+                        && ("structure " + structureHash).equals(reader.readLine())
+                        && ("rules " + rulesHash).equals(reader.readLine())) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = line.split("\t", 5);
+                        if (fields.length == 5) {
+                            previous.put(fields[4], new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // Manifest เสีย: Merge ใหม่ทั้งหมด
+                previous.clear();
+            }
+        }
+        return new MergeManifest(outputDirectory, structureHash, rulesHash, previous);
+    }
+
+    /**
+     * ตรวจว่า Source ต้อง Merge ใหม่หรือไม่ (Thread-safe)
+     * - ไม่เปลี่ยน: บันทึก Entry ของรอบนี้ทันทีแล้วคืน null
+     * - เปลี่ยน: คืน Entry ใหม่ ให้เรียก markMerged(sourceFile, entry) หลัง Merge สำเร็จ
+     *
+     * @param sourceFile
+     * @param outputFile
+     * @return null ถ้าข้ามไฟล์นี้ได้
+     * @throws IOException
+     */
+    Entry check(File sourceFile, File outputFile) throws IOException {
+        String key = key(sourceFile);
+        String output = relativeOutput(outputFile);
+        long size = sourceFile.length();
+        long lastModified = sourceFile.lastModified();
+
+        Entry old = previous.get(key);
+        boolean reusable = old != null && old.output.equals(output) && outputFile.isFile();
+        if (reusable && old.size == size && old.lastModified == lastModified) {
+            current.put(key, old);
+            return null;
+        }
+
+        Entry entry = new Entry(hash(sourceFile), size, lastModified, output);
+        if (reusable && old.hash.equals(entry.hash)) {
+            current.put(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+    void markMerged(File sourceFile, Entry entry) {
+        current.put(key(sourceFile), entry);
+    }
+
+    /**
+     * ลบ Output ของรอบก่อนที่ไม่มี Source ในรอบนี้แล้ว (ไม่ลบไฟล์ที่เป็น Output ของ Source ในรอบนี้)
+     *
+     * @param currentOutputs Output ของ Source ทุกไฟล์ในรอบนี้ (รวมไฟล์ที่ Merge ไม่สำเร็จ)
+     * @return ไฟล์ที่ถูกลบ
+     */
+    List<File> removeOrphans(Collection<File> currentOutputs) {
+        Set<String> keep = new HashSet<>();
+        for (File outputFile : currentOutputs) {
+            keep.add(relativeOutput(outputFile));
+        }
+
+        List<File> removed = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Entry entry : previous.values()) {
+            if (keep.contains(entry.output) || !seen.add(entry.output)) {
+                continue;
+            }
+            File orphan = new File(outputDirectory, entry.output);
+            if (orphan.isFile() && orphan.delete()) {
+                removed.add(orphan);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * เขียน Manifest ของรอบนี้ (เขียนไฟล์ชั่วคราวก่อนแล้วแทนที่ เพื่อไม่ให้ Manifest เสียถ้าหยุดกลางคัน)
+     *
+     * @throws IOException
+     */
+    void save() throws IOException {
+        StringBuilder text = new StringBuilder(64 * (current.size() + 3));
+        text.append(HEADER).append('\n')
+                .append("structure ").append(structureHash).append('\n')
+                .append("rules ").append(rulesHash).append('\n');
+        for (Map.Entry<String, Entry> item : new TreeMap<>(current).entrySet()) {
+            Entry entry = item.getValue();
+            text.append(entry.hash).append('\t')
+                    .append(entry.size).append('\t')
+                    .append(entry.lastModified).append('\t')
+                    .append(entry.output).append('\t')
+                    .append(item.getKey()).append('\n');
+        }
+
+        Path manifestFile = new File(outputDirectory, FILE_NAME).toPath();
+        Path temporaryFile = manifestFile.resolveSibling(FILE_NAME + ".tmp");
+        Files.write(temporaryFile, text.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temporaryFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaryFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String key(File sourceFile) {
+        return sourceFile.getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    private String relativeOutput(File outputFile) {
+        Path base = outputDirectory.getAbsoluteFile().toPath().normalize();
+        return base.relativize(outputFile.getAbsoluteFile().toPath().normalize()).toString().replace('\\', '/');
+    }
+
+    /**
+     * SHA-256 ของเนื้อหาไฟล์ (Hex)
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    static String hash(File file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String hash(Collection<String> rules) {
+        MessageDigest digest = sha256();
+        for (String rule : rules) {
+            digest.update(rule.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // ทุก JVM ต้องรองรับ SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Per-phase timings and counters of a merge, exported as JSON / CSV / JFR events
+ *
+ * License: MIT License
+ */
+
+/**
+ * MergeMetrics
+ *
+ * - เก็บเวลาของแต่ละขั้นตอนของการ Merge หนึ่งไฟล์ (nanoseconds):
+ *     parse     = อ่าน Source เป็น DOM
+ *     template  = สร้าง Document ใหม่จาก MergeTemplate
+ *     merge     = mergeNodes ทั้งหมด (รวม duplicate และ remove)
+ *     duplicate = สร้าง Field ที่ Duplicate (importNode ของ Template)
+ *     remove    = ลบ Field ต้นฉบับที่ว่าง / Special Field ที่ค่าซ้ำ
+ *     serialize = เขียนไฟล์ผลลัพธ์ (Transformer)
+ *   ไฟล์ที่ Merge แบบ Streaming จะนับเวลาทั้งหมดเป็น merge (อ่าน/Merge/เขียนพร้อมกัน) และ streamed = true
+ * - ตัวนับ: จำนวน Element ของ Source และผลลัพธ์ (เฉพาะ DOM Merge), Field ที่ Duplicate, โหนดที่ Import, โหนดที่ลบ
+ *   และขนาดไฟล์ที่เขียน
+ * - Export: writeJson / writeCsv (ทุกไฟล์ + แถวรวม) และ JFR Event "xml2gui.MergeFile" (บันทึกเฉพาะเมื่อมี Recording
+ *   เช่น java -XX:StartFlightRecording=filename=merge.jfr XMLMerger ... แล้วเปิดด้วย JDK Mission Control / jfr print)
+ * - MergeMetrics หนึ่งตัวใช้ใน Thread เดียว (ไฟล์ละตัว) ไม่ต้อง Synchronize
+ */
+
+import jdk.jfr.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+final class MergeMetrics {
+
+    static final int PARSE = 0;
+    static final int TEMPLATE = 1;
+    static final int MERGE = 2;
+    static final int DUPLICATE = 3;
+    static final int REMOVE = 4;
+    static final int SERIALIZE = 5;
+    static final String[] PHASES = {"parse", "template", "merge", "duplicate", "remove", "serialize"};
+
+    final File sourceFile;
+    final long[] phaseNanos = new long[PHASES.length];
+    long totalNanos;
+    long sourceNodes;
+    long outputNodes;
+    long duplicatesCreated;
+    long nodesImported;
+    long nodesRemoved;
+    long bytesWritten;
+    boolean streamed;
+    boolean failed;
+
+    private MergeFileEvent event;
+
+    MergeMetrics(File sourceFile) {
+        this.sourceFile = sourceFile;
+    }
+
+    /**
+     * เริ่มจับเวลา JFR Event ของไฟล์นี้ (ถ้ามี Recording ที่เปิด Event นี้อยู่)
+     */
+    void begin() {
+        MergeFileEvent fileEvent = new MergeFileEvent();
+        if (fileEvent.isEnabled()) {
+            fileEvent.begin();
+            event = fileEvent;
+        }
+    }
+
+    /**
+     * @return true เมื่อมี JFR Recording ที่เปิด Event นี้อยู่ (ใช้ตัดสินว่าต้องเก็บ Metrics แม้ไม่ได้ Export)
+     */
+    static boolean isEventEnabled() {
+        return new MergeFileEvent().isEnabled();
+    }
+
+    void add(int phase, long nanos) {
+        phaseNanos[phase] += nanos;
+    }
+
+    /**
+     * จบการวัดของไฟล์นี้ และส่ง JFR Event (ถ้าเปิดอยู่)
+     *
+     * @param totalNanos
+     * @param failed
+     */
+    void finish(long totalNanos, boolean failed) {
+        this.totalNanos = totalNanos;
+        this.failed = failed;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.file = sourceFile.getPath();
+                event.parse = phaseNanos[PARSE];
+                event.template = phaseNanos[TEMPLATE];
+                event.merge = phaseNanos[MERGE];
+                event.duplicate = phaseNanos[DUPLICATE];
+                event.remove = phaseNanos[REMOVE];
+                event.serialize = phaseNanos[SERIALIZE];
+                event.sourceNodes = sourceNodes;
+                event.outputNodes = outputNodes;
+                event.duplicatesCreated = duplicatesCreated;
+                event.nodesImported = nodesImported;
+                event.nodesRemoved = nodesRemoved;
+                event.bytesWritten = bytesWritten;
+                event.streamed = streamed;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * รวม Metrics ของทุกไฟล์ (ผลรวมของเวลาและตัวนับ)
+     *
+     * @param metrics
+     * @return
+     */
+    static MergeMetrics aggregate(List<MergeMetrics> metrics) {
+        MergeMetrics total = new MergeMetrics(new File("TOTAL"));
+        for (MergeMetrics file : metrics) {
+            total.addAll(file);
+            total.totalNanos += file.totalNanos;
+        }
+        return total;
+    }
+
+    /**
+     * บวกเวลาของแต่ละขั้นตอนและตัวนับของ other เข้ากับ Metrics นี้ (ไม่รวม totalNanos)
+     *
+     * @param other
+     */
+    void addAll(MergeMetrics other) {
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            phaseNanos[phase] += other.phaseNanos[phase];
+        }
+        sourceNodes += other.sourceNodes;
+        outputNodes += other.outputNodes;
+        duplicatesCreated += other.duplicatesCreated;
+        nodesImported += other.nodesImported;
+        nodesRemoved += other.nodesRemoved;
+        bytesWritten += other.bytesWritten;
+    }
+
+    /**
+     * สรุปเวลารวมของแต่ละขั้นตอน (สำหรับ Log)
+     *
+     * @return เช่น "parse 1.234 s (40.1%), template 0.120 s (3.9%), ..."
+     */
+    String phaseSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            summary.append(String.format(Locale.ROOT, "%s %.3f s (%.1f%%)", PHASES[phase], phaseNanos[phase] / 1_000_000_000.0,
+                    totalNanos == 0 ? 0.0 : phaseNanos[phase] * 100.0 / totalNanos));
+        }
+        return summary.toString();
+    }
+
+    /**
+     * เขียน Metrics เป็น JSON: {"files":[...],"total":{...}} (เวลาเป็น milliseconds)
+     *
+     * @param metrics
+     * @param target
+     * @throws IOException
+     */
+    static void writeJson(List<MergeMetrics> metrics, Path target) throws IOException {
+        StringBuilder json = new StringBuilder(256 * (metrics.size() + 1)).append("{\"files\":[");
+        for (int i = 0; i < metrics.size(); i++) {
+            json.append(i == 0 ? "\n  " : ",\n  ");
+            metrics.get(i).appendJson(json);
+        }
+        json.append("\n],\"total\":");
+        aggregate(metrics).appendJson(json);
+        json.append(",\"fileCount\":").append(metrics.size()).append("}\n");
+        Files.write(target, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void appendJson(StringBuilder json) {
+        json.append("{\"file\":").append(MergeCommandLine.jsonString(sourceFile.getPath()));
+        json.append(",\"totalMillis\":").append(millis(totalNanos));
+        for (int phase = 0; phase < PHASES.length; phase++) {
+            json.append(",\"").append(PHASES[phase]).append("Millis\":").append(millis(phaseNanos[phase]));
+        }
+        json.append(",\"sourceNodes\":").append(sourceNodes)
+                .append(",\"outputNodes\":").append(outputNodes)
+                .append(",\"duplicatesCreated\":").append(duplicatesCreated)
+                .append(",\"nodesImported\":").append(nodesImported)
+                .append(",\"nodesRemoved\":").append(nodesRemoved)
+                .append(",\"bytesWritten\":").append(bytesWritten)
+                .append(",\"streamed\":").append(streamed)
+                .append(",\"failed\":").append(failed)
+                .append('}');
+    }
+
+    /**
+     * เขียน Metrics เป็น CSV (1 แถวต่อไฟล์ แถวสุดท้ายเป็นผลรวม file = TOTAL)
+     *
+     * @param metrics
+     * @param target
+     * @throws IOException
+     */
+    static void writeCsv(List<MergeMetrics> metrics, Path target) throws IOException {
+        StringBuilder csv = new StringBuilder(160 * (metrics.size() + 2)).append("file,total_ms");
+        for (String phase : PHASES) {
+            csv.append(',').append(phase).append("_ms");
+        }
+        csv.append(",source_nodes,output_nodes,duplicates_created,nodes_imported,nodes_removed,bytes_written,streamed,failed\n");
+        for (MergeMetrics file : metrics) {
+            file.appendCsv(csv);
+        }
+        aggregate(metrics).appendCsv(csv);
+        Files.write(target, csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void appendCsv(StringBuilder csv) {
+        String path = sourceFile.getPath();
+        if (path.indexOf(',') >= 0 || path.indexOf('"') >= 0 || path.indexOf('\n') >= 0) {
+            path = '"' + path.replace("\"", "\"\"") + '"';
+        }
+        csv.append(path).append(',').append(millis(totalNanos));
+        for (long nanos : phaseNanos) {
+            csv.append(',').append(millis(nanos));
+        }
+        csv.append(',').append(sourceNodes)
+                .append(',').append(outputNodes)
+                .append(',').append(duplicatesCreated)
+                .append(',').append(nodesImported)
+                .append(',').append(nodesRemoved)
+                .append(',').append(bytesWritten)
+                .append(',').append(streamed)
+                .append(',').append(failed)
+                .append('\n');
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * JFR Event ของการ Merge หนึ่งไฟล์ (Duration = เวลาทั้งหมดของไฟล์)
+     */
+    @Name("xml2gui.MergeFile")
+    @Label("Merge File")
+    @Category("xml2gui")
+    @Description("One source file merged into the XML Structure")
+    @StackTrace(false)
+    static final class MergeFileEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Parse") @Timespan(Timespan.NANOSECONDS)
+        long parse;
+        @Label("Template") @Timespan(Timespan.NANOSECONDS)
+        long template;
+        @Label("Merge") @Timespan(Timespan.NANOSECONDS)
+        long merge;
+        @Label("Duplicate") @Timespan(Timespan.NANOSECONDS)
+        long duplicate;
+        @Label("Remove") @Timespan(Timespan.NANOSECONDS)
+        long remove;
+        @Label("Serialize") @Timespan(Timespan.NANOSECONDS)
+        long serialize;
+        @Label("Source Nodes")
+        long sourceNodes;
+        @Label("Output Nodes")
+        long outputNodes;
+        @Label("Duplicates Created")
+        long duplicatesCreated;
+        @Label("Nodes Imported")
+        long nodesImported;
+        @Label("Nodes Removed")
+        long nodesRemoved;
+        @Label("Bytes Written") @DataAmount
+        long bytesWritten;
+        @Label("Streamed")
+        boolean streamed;
+        @Label("Failed")
+        boolean failed;
+    }
+}
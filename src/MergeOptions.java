@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Settings for a batch merge run (shared by the GUI and the command line)
+ *
+ * License: MIT License
+ */
+
+/**
+ * MergeOptions
+ *
+ * - รวมค่าที่ใช้ในการ Merge หนึ่งครั้ง แทนการส่ง Parameter หลายตัวเข้า XMLMerger.mergeFiles
+ * - namePattern กำหนดชื่อไฟล์ผลลัพธ์ โดยแทนที่:
+ *     {name} = ชื่อไฟล์ Source ทั้งหมด (เช่น Case01.xml)
+ *     {base} = ชื่อไฟล์ Source ไม่รวมนามสกุล (เช่น Case01)
+ *     {ext}  = นามสกุลของไฟล์ Source ไม่รวมจุด (เช่น xml)
+ *   ค่าเริ่มต้น "{name}" (ชื่อเดียวกับ Source) และ "Merged_{name}" ให้ผลเหมือนโค้ดที่ Comment ไว้ใน saveMergedXML
+ * - relativeDirectories: โฟลเดอร์ย่อยของ Source เทียบกับโฟลเดอร์ Input (ใช้เมื่อ Merge แบบ recursive
+ *   เพื่อสร้างโครงสร้างโฟลเดอร์เดียวกันใน Output และไม่ให้ไฟล์ชื่อซ้ำเขียนทับกัน)
+ * - archiveFile: เขียนผลลัพธ์ทั้งหมดลง ZIP ไฟล์เดียว ชื่อ Entry = resolveOutputPath (outputDirectory ไม่ถูกใช้)
+ * - Source ต่างโฟลเดอร์ที่ได้ Path ผลลัพธ์เดียวกัน (เช่น -i d1 -i d2 ที่มี x.xml ทั้งคู่) ตรวจด้วย findOutputConflicts
+ *   เพื่อไม่ให้ Worker เขียนไฟล์เดียวกันพร้อมกันและทับผลลัพธ์ของกันโดยไม่มีการแจ้ง
+ */
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class MergeOptions {
+
+    final File xmlStructureFile;
+    final File outputDirectory;
+    int threads = XMLMerger.DEFAULT_THREAD_COUNT;
+    boolean continueOnError = true;
+    boolean streaming;
+    /** จัดย่อหน้าไฟล์ผลลัพธ์ (ดู DocumentWriter) */
+    boolean prettyPrint;
+    /** ข้ามไฟล์ที่ไม่เปลี่ยน ตาม Manifest ในโฟลเดอร์ Output (ดู MergeManifest) */
+    boolean incremental;
+    /** เก็บ MergeMetrics ของแต่ละไฟล์ไว้ใน MergeResult.metrics */
+    boolean collectMetrics;
+    /** เขียนผลลัพธ์ทั้งหมดลง ZIP ไฟล์นี้แทนโฟลเดอร์ Output (ดู MergeArchive) null = เขียนเป็นไฟล์ */
+    File archiveFile;
+    String namePattern = "{name}";
+    /** Log ของแต่ละไฟล์ (ตาราง File Name | Time) */
+    PrintStream log = System.out;
+    final Map<File, String> relativeDirectories = new HashMap<>();
+
+    MergeOptions(File xmlStructureFile, File outputDirectory) {
+        this.xmlStructureFile = xmlStructureFile;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * ไฟล์ผลลัพธ์ของ Source ตาม outputDirectory, relativeDirectories และ namePattern
+     *
+     * @param sourceFile
+     * @return
+     */
+    File resolveOutputFile(File sourceFile) {
+        return new File(outputDirectory, resolveOutputPath(sourceFile));
+    }
+
+    /**
+     * @param sourceFiles
+     * @return Source ที่ได้ Path ผลลัพธ์ซ้ำกับ Source ก่อนหน้า -> Source ก่อนหน้านั้น (เรียงตามลำดับของ sourceFiles)
+     */
+    Map<File, File> findOutputConflicts(List<File> sourceFiles) {
+        Map<String, File> firstSources = new HashMap<>();
+        Map<File, File> conflicts = new LinkedHashMap<>();
+        for (File sourceFile : sourceFiles) {
+            File firstSource = firstSources.putIfAbsent(resolveOutputPath(sourceFile), sourceFile);
+            if (firstSource != null) {
+                conflicts.put(sourceFile, firstSource);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Path ของผลลัพธ์เทียบกับโฟลเดอร์ Output (คั่นด้วย "/" เช่น "sub/Case01.xml") ใช้เป็นชื่อ Entry ของ MergeArchive
+     *
+     * @param sourceFile
+     * @return
+     */
+    String resolveOutputPath(File sourceFile) {
+        String name = sourceFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot + 1) : "";
+
+        String outputName = namePattern
+                .replace("{name}", name)
+                .replace("{base}", base)
+                .replace("{ext}", extension);
+
+        String relativeDirectory = relativeDirectories.getOrDefault(sourceFile, "");
+        return relativeDirectory.isEmpty() ? outputName : relativeDirectory.replace(File.separatorChar, '/') + "/" + outputName;
+    }
+}
@@ -0,0 +1,540 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Precompiled, immutable representation of the XML Structure File (clean-xml.xml)
+ *
+ * License: MIT License
+ */
+
+/**
+ * MergeTemplate (โครงสร้าง XML ที่ Compile ไว้ครั้งเดียวต่อการรัน)
+ *
+ * - เดิม XMLMerger เรียก cleanDoc.cloneNode(true) ทั้งเอกสารสำหรับทุกไฟล์ ซึ่งเป็นส่วนที่ใช้เวลามากที่สุด
+ *   เมื่อ clean-xml.xml มาจาก WSDL ขนาดใหญ่ (Element หลายหมื่นตัว)
+ * - MergeTemplate อ่านโครงสร้างครั้งเดียวแล้วเก็บแบบแก้ไขไม่ได้ (Immutable) ในรูป Array แทน Object ต่อโหนด:
+ *   1. โหนดคือเลข int (0 = Document, เรียงแบบ Pre-order) มี Array ของ type, parent, firstChild, nextSibling
+ *   2. ชื่อ Tag ของ Element ถูก Intern เป็น Tag ID ด้วย TagSymbols (0 ... getTagCount() - 1) ส่วน String อื่น
+ *      (Namespace, ค่า Text/Comment, Attribute) เก็บใน String Pool ที่ไม่ซ้ำกัน (Whitespace ระหว่าง Tag ใช้ร่วมกันหมด)
+ *   3. Index ของลูก (parent, Tag ID) -> ลูกตัวแรก เป็น Hash Table แบบ Open Addressing ของ long/int
+ *      และ nextWithSameTag ต่อโหนด (แทน Map<String, List> ของแต่ละ Element เทียบเท่า buildNodeMap ของ XMLMerger)
+ *   4. เครื่องหมาย Field ที่ Duplicate ได้ (repeatable) ตาม RepeatableFieldRegistry (ตรวจด้วย Path ของ Field ตอน Compile)
+ * - หน่วยความจำต่อโหนดจึงเหลือไม่กี่ int (ไม่มี Object Header, List, Map ต่อโหนด) และไม่อ้างอิง DOM ต้นฉบับ
+ * - เพราะไม่มีการแก้ไขหลัง Compile จึงแชร์ระหว่าง Worker Thread ได้โดยไม่ต้อง Parse ซ้ำต่อ Thread
+ * - newDocument() สร้าง Document ใหม่จาก Array โดยตรง (ไม่ผ่าน cloneNode ของ DOM)
+ *   ส่วน Writer ที่ไม่ต้องใช้ DOM (StreamingMerger) เดินและค้นหาลูกบน Template โดยตรง
+ *   และเขียนกิ่งที่ Source ไม่ได้แตะ (untouched branches) ออกจาก Template ได้ทันทีโดยไม่สร้าง DOM เลย
+ */
+
+import org.w3c.dom.*;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.File;
+import java.util.*;
+
+final class MergeTemplate {
+
+    /** ไม่มีโหนด (เช่น ไม่มีลูก/พี่น้องถัดไป หรือหาไม่พบ) */
+    static final int NONE = -1;
+    /** โหนดของ Document (ลูกคือ Comment/PI ก่อนและหลัง Root รวมถึง Root) */
+    static final int DOCUMENT = 0;
+
+    private static final byte REPEATABLE = 1;
+    private static final byte HAS_ELEMENT_CHILD = 2;
+    private static final byte HAS_REPEATABLE_CHILD = 4;
+
+    // ข้อมูลต่อโหนด (ดัชนี = เลขโหนด)
+    private final short[] types;
+    private final int[] tags;
+    private final int[] names;
+    private final int[] namespaces;
+    private final int[] values;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] nextWithSameTag;
+    private final byte[] flags;
+    /** Attribute ของโหนด n อยู่ที่ attributes[attributeStarts[n] ... attributeStarts[n + 1]) ชุดละ 3 ค่า */
+    private final int[] attributeStarts;
+    /** ดัชนีใน strings ชุดละ 3 ค่า: namespaceURI, qualified name, value */
+    private final int[] attributes;
+
+    private final String[] strings;
+    /** ชื่อ Tag ของ Element (ไม่มีการ intern เพิ่มหลัง Compile จึงอ่านพร้อมกันหลาย Thread ได้) */
+    private final TagSymbols tagSymbols;
+
+    // Index ของลูก: key = (parent << 32) | tagId, ค่า = ลูกตัวแรกที่มี Tag นั้น (0 = ช่องว่าง เพราะ Document ไม่เป็นลูกของใคร)
+    private final long[] indexKeys;
+    private final int[] indexNodes;
+    private final int indexShift;
+
+    private final DocumentTypeInfo documentType;
+    private final boolean xmlStandalone;
+    private final String xmlVersion;
+    private final int elementCount;
+
+    private MergeTemplate(Compiler compiler, DocumentTypeInfo documentType, boolean xmlStandalone, String xmlVersion) {
+        int nodeCount = compiler.nodeCount;
+        this.types = Arrays.copyOf(compiler.types, nodeCount);
+        this.tags = Arrays.copyOf(compiler.tags, nodeCount);
+        this.names = Arrays.copyOf(compiler.names, nodeCount);
+        this.namespaces = Arrays.copyOf(compiler.namespaces, nodeCount);
+        this.values = Arrays.copyOf(compiler.values, nodeCount);
+        this.parents = Arrays.copyOf(compiler.parents, nodeCount);
+        this.firstChildren = Arrays.copyOf(compiler.firstChildren, nodeCount);
+        this.nextSiblings = Arrays.copyOf(compiler.nextSiblings, nodeCount);
+        this.flags = Arrays.copyOf(compiler.flags, nodeCount);
+        this.attributeStarts = Arrays.copyOf(compiler.attributeStarts, nodeCount + 1);
+        this.attributes = Arrays.copyOf(compiler.attributes, compiler.attributeLength);
+        this.strings = compiler.strings.toArray(new String[0]);
+        this.tagSymbols = compiler.tagSymbols;
+        this.documentType = documentType;
+        this.xmlStandalone = xmlStandalone;
+        this.xmlVersion = xmlVersion;
+        this.elementCount = compiler.elementCount;
+
+        // ขนาด Table เป็นกำลังของ 2 ที่ใหญ่กว่าจำนวน Element อย่างน้อย 2 เท่า (Load factor <= 0.5)
+        int capacity = Integer.highestOneBit(Math.max(elementCount, 1) * 2 + 1) << 1;
+        this.indexKeys = new long[capacity];
+        this.indexNodes = new int[capacity];
+        this.indexShift = 64 - Integer.numberOfTrailingZeros(capacity);
+        this.nextWithSameTag = new int[nodeCount];
+        Arrays.fill(nextWithSameTag, NONE);
+
+        // Pre-order = ลำดับในเอกสาร จึงต่อ nextWithSameTag ตามลำดับของพี่น้องได้ในรอบเดียว
+        int[] lastWithSameTag = new int[capacity];
+        for (int node = 1; node < nodeCount; node++) {
+            if (types[node] != Node.ELEMENT_NODE) {
+                continue;
+            }
+            long key = indexKey(parents[node], tags[node]);
+            int slot = slot(key);
+            while (indexNodes[slot] != 0 && indexKeys[slot] != key) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            if (indexNodes[slot] == 0) {
+                indexKeys[slot] = key;
+                indexNodes[slot] = node;
+            } else {
+                nextWithSameTag[lastWithSameTag[slot]] = node;
+            }
+            lastWithSameTag[slot] = node;
+        }
+    }
+
+    /**
+     * load and compile XML Structure File
+     *
+     * @param xmlStructureFile
+     * @param builder DocumentBuilder แบบ Namespace Aware (ใช้เฉพาะตอน Compile)
+     * @param repeatableFields Field ที่ Duplicate ได้
+     * @return
+     * @throws Exception
+     */
+    static MergeTemplate load(File xmlStructureFile, DocumentBuilder builder, RepeatableFieldRegistry repeatableFields) throws Exception {
+        return compile(builder.parse(MappedXMLInput.open(xmlStructureFile).newInputSource()), repeatableFields);
+    }
+
+    /**
+     * compile XML Structure Document เป็น Template (Document ต้นฉบับไม่ถูกแก้ไขและไม่ถูกอ้างอิงต่อ)
+     *
+     * @param xmlStructureDoc
+     * @param repeatableFields
+     * @return
+     */
+    static MergeTemplate compile(Document xmlStructureDoc, RepeatableFieldRegistry repeatableFields) {
+        Compiler compiler = new Compiler(repeatableFields);
+        compiler.compileNode(xmlStructureDoc, NONE);
+
+        DocumentTypeInfo documentType = null;
+        DocumentType doctype = xmlStructureDoc.getDoctype();
+        if (doctype != null) {
+            documentType = new DocumentTypeInfo(doctype.getName(), doctype.getPublicId(), doctype.getSystemId());
+        }
+
+        return new MergeTemplate(compiler, documentType, xmlStructureDoc.getXmlStandalone(), xmlStructureDoc.getXmlVersion());
+    }
+
+    /**
+     * สร้าง Document ใหม่จาก Template (ใช้แทน cleanDoc.cloneNode(true))
+     *
+     * @param builder
+     * @return
+     */
+    Document newDocument(DocumentBuilder builder) {
+        Document document;
+        if (documentType != null) {
+            DOMImplementation implementation = builder.getDOMImplementation();
+            DocumentType doctype = implementation.createDocumentType(documentType.name, documentType.publicId, documentType.systemId);
+            document = implementation.createDocument(null, null, doctype);
+        } else {
+            document = builder.newDocument();
+        }
+        document.setXmlStandalone(xmlStandalone);
+        document.setXmlVersion(xmlVersion);
+
+        for (int child = firstChildren[DOCUMENT]; child != NONE; child = nextSiblings[child]) {
+            document.appendChild(materialize(document, child));
+        }
+        return document;
+    }
+
+    /**
+     * สร้าง DOM Node จากโหนดนี้และโหนดลูกทั้งหมด
+     *
+     * @param document
+     * @param node
+     * @return
+     */
+    Node materialize(Document document, int node) {
+        switch (types[node]) {
+            case Node.ELEMENT_NODE:
+                Element element = document.createElementNS(getNamespaceURI(node), tagSymbols.getName(tags[node]));
+                for (int i = attributeStarts[node]; i < attributeStarts[node + 1]; i += 3) {
+                    element.setAttributeNS(string(attributes[i]), strings[attributes[i + 1]], strings[attributes[i + 2]]);
+                }
+                for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+                    element.appendChild(materialize(document, child));
+                }
+                return element;
+            case Node.TEXT_NODE:
+                return document.createTextNode(getValue(node));
+            case Node.CDATA_SECTION_NODE:
+                return document.createCDATASection(getValue(node));
+            case Node.COMMENT_NODE:
+                return document.createComment(getValue(node));
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                return document.createProcessingInstruction(getName(node), getValue(node));
+            case Node.ENTITY_REFERENCE_NODE:
+                return document.createEntityReference(getName(node));
+            default:
+                throw new IllegalStateException("Unsupported node type in XML Structure: " + types[node]);
+        }
+    }
+
+    /**
+     * @return Document Element ของ Template
+     */
+    int getRoot() {
+        for (int child = firstChildren[DOCUMENT]; child != NONE; child = nextSiblings[child]) {
+            if (types[child] == Node.ELEMENT_NODE) {
+                return child;
+            }
+        }
+        throw new IllegalStateException("XML Structure has no document element");
+    }
+
+    short getType(int node) {
+        return types[node];
+    }
+
+    /**
+     * @param node
+     * @return ชื่อ Tag (Element), Target (PI) หรือชื่อ Entity ส่วนโหนดอื่นคืนค่าแบบเดียวกับ Node.getNodeName()
+     */
+    String getName(int node) {
+        return types[node] == Node.ELEMENT_NODE ? tagSymbols.getName(tags[node]) : strings[names[node]];
+    }
+
+    String getNamespaceURI(int node) {
+        return string(namespaces[node]);
+    }
+
+    String getValue(int node) {
+        return string(values[node]);
+    }
+
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    boolean isRepeatable(int node) {
+        return (flags[node] & REPEATABLE) != 0;
+    }
+
+    boolean hasElementChild(int node) {
+        return (flags[node] & HAS_ELEMENT_CHILD) != 0;
+    }
+
+    boolean hasRepeatableChild(int node) {
+        return (flags[node] & HAS_REPEATABLE_CHILD) != 0;
+    }
+
+    int getAttributeCount(int node) {
+        return (attributeStarts[node + 1] - attributeStarts[node]) / 3;
+    }
+
+    String getAttributeNamespaceURI(int node, int index) {
+        return string(attributes[attributeStarts[node] + index * 3]);
+    }
+
+    String getAttributeName(int node, int index) {
+        return strings[attributes[attributeStarts[node] + index * 3 + 1]];
+    }
+
+    String getAttributeValue(int node, int index) {
+        return strings[attributes[attributeStarts[node] + index * 3 + 2]];
+    }
+
+    /**
+     * @param node Element
+     * @return Tag ID ของ Element (NONE สำหรับโหนดประเภทอื่น)
+     */
+    int getTagId(int node) {
+        return tags[node];
+    }
+
+    /**
+     * @param tagName
+     * @return Tag ID ของชื่อนี้ (NONE ถ้าไม่มีใน Template)
+     */
+    int getTagId(String tagName) {
+        return tagSymbols.find(tagName);
+    }
+
+    String getTagName(int tagId) {
+        return tagSymbols.getName(tagId);
+    }
+
+    /**
+     * @return จำนวนชื่อ Tag ที่ไม่ซ้ำกันใน Template
+     */
+    int getTagCount() {
+        return tagSymbols.size();
+    }
+
+    /**
+     * หาโหนดลูกตัวแรกตาม tagName (เทียบเท่า findChildNode ของ XMLMerger)
+     *
+     * @param node
+     * @param tagName
+     * @return NONE ถ้าไม่พบ
+     */
+    int findChild(int node, String tagName) {
+        int tagId = getTagId(tagName);
+        return tagId == NONE ? NONE : findChild(node, tagId);
+    }
+
+    /**
+     * หาโหนดลูกตัวแรกตาม Tag ID (ลูกตัวถัดไปที่ชื่อเดียวกันใช้ getNextWithSameTag)
+     *
+     * @param node
+     * @param tagId
+     * @return NONE ถ้าไม่พบ
+     */
+    int findChild(int node, int tagId) {
+        long key = indexKey(node, tagId);
+        for (int slot = slot(key); indexNodes[slot] != 0; slot = (slot + 1) & (indexKeys.length - 1)) {
+            if (indexKeys[slot] == key) {
+                return indexNodes[slot];
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * @param node Element
+     * @return พี่น้องตัวถัดไปที่มีชื่อ Tag เดียวกัน (NONE ถ้าไม่มี)
+     */
+    int getNextWithSameTag(int node) {
+        return nextWithSameTag[node];
+    }
+
+    boolean isXmlStandalone() {
+        return xmlStandalone;
+    }
+
+    String getXmlVersion() {
+        return xmlVersion;
+    }
+
+    boolean hasDocumentType() {
+        return documentType != null;
+    }
+
+    int getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * @return จำนวนโหนดทั้งหมด (รวม Document, Text, Comment)
+     */
+    int getNodeCount() {
+        return types.length;
+    }
+
+    private String string(int index) {
+        return index == NONE ? null : strings[index];
+    }
+
+    private static long indexKey(int parent, int tagId) {
+        return ((long) parent << 32) | (tagId & 0xFFFFFFFFL);
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> indexShift);
+    }
+
+    /**
+     * ตัวช่วย Compile: เดิน DOM แบบ Pre-order แล้วเติม Array ที่ขยายได้ (ตัดขนาดให้พอดีใน Constructor ของ MergeTemplate)
+     */
+    private static final class Compiler {
+        private final RepeatableFieldRegistry repeatableFields;
+
+        short[] types = new short[256];
+        int[] tags = new int[256];
+        int[] names = new int[256];
+        int[] namespaces = new int[256];
+        int[] values = new int[256];
+        int[] parents = new int[256];
+        int[] firstChildren = new int[256];
+        int[] nextSiblings = new int[256];
+        byte[] flags = new byte[256];
+        int[] attributeStarts = new int[257];
+        int[] attributes = new int[256];
+        int nodeCount;
+        int attributeLength;
+        int elementCount;
+
+        final List<String> strings = new ArrayList<>();
+        final Map<String, Integer> stringIds = new HashMap<>();
+        final TagSymbols tagSymbols;
+
+        Compiler(RepeatableFieldRegistry repeatableFields) {
+            this.repeatableFields = repeatableFields;
+            this.tagSymbols = new TagSymbols(repeatableFields);
+        }
+
+        /**
+         * เพิ่ม node และลูกทั้งหมด (เรียกซ้ำสำหรับโหนดลูก)
+         *
+         * @param node
+         * @param parent
+         * @return เลขโหนดที่เพิ่ม
+         */
+        int compileNode(Node node, int parent) {
+            int index = nodeCount++;
+            ensureCapacity(nodeCount);
+
+            short type = node.getNodeType();
+            types[index] = type;
+            parents[index] = parent;
+            firstChildren[index] = NONE;
+            nextSiblings[index] = NONE;
+            namespaces[index] = intern(node.getNamespaceURI());
+            values[index] = intern(node.getNodeValue());
+            tags[index] = NONE;
+            names[index] = NONE;
+
+            String name = node.getNodeName();
+            if (type == Node.ELEMENT_NODE) {
+                elementCount++;
+                tags[index] = tagSymbols.intern(name);
+                if (repeatableFields.isRepeatable(node.getParentNode(), name)) {
+                    flags[index] |= REPEATABLE;
+                }
+
+                NamedNodeMap attributeMap = node.getAttributes();
+                ensureAttributeCapacity(attributeLength + attributeMap.getLength() * 3);
+                for (int i = 0; i < attributeMap.getLength(); i++) {
+                    Node attribute = attributeMap.item(i);
+                    attributes[attributeLength++] = intern(attribute.getNamespaceURI());
+                    attributes[attributeLength++] = intern(attribute.getNodeName());
+                    attributes[attributeLength++] = intern(attribute.getNodeValue());
+                }
+            } else {
+                names[index] = intern(name);
+            }
+            attributeStarts[index + 1] = attributeLength;
+
+            int previous = NONE;
+            NodeList childNodes = node.getChildNodes();
+            for (int i = 0; i < childNodes.getLength(); i++) {
+                Node child = childNodes.item(i);
+                // DocumentType เก็บแยกไว้ใน DocumentTypeInfo
+                if (child.getNodeType() == Node.DOCUMENT_TYPE_NODE) {
+                    continue;
+                }
+                int childIndex = compileNode(child, index);
+                if (previous == NONE) {
+                    firstChildren[index] = childIndex;
+                } else {
+                    nextSiblings[previous] = childIndex;
+                }
+                previous = childIndex;
+
+                if (types[childIndex] == Node.ELEMENT_NODE) {
+                    flags[index] |= HAS_ELEMENT_CHILD;
+                }
+                if ((flags[childIndex] & REPEATABLE) != 0) {
+                    flags[index] |= HAS_REPEATABLE_CHILD;
+                }
+            }
+            return index;
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.add(value);
+                stringIds.put(value, id);
+            }
+            return id;
+        }
+
+        private void ensureCapacity(int size) {
+            if (size <= types.length) {
+                return;
+            }
+            int capacity = types.length * 2;
+            types = Arrays.copyOf(types, capacity);
+            tags = Arrays.copyOf(tags, capacity);
+            names = Arrays.copyOf(names, capacity);
+            namespaces = Arrays.copyOf(namespaces, capacity);
+            values = Arrays.copyOf(values, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            attributeStarts = Arrays.copyOf(attributeStarts, capacity + 1);
+        }
+
+        private void ensureAttributeCapacity(int size) {
+            if (size > attributes.length) {
+                attributes = Arrays.copyOf(attributes, Math.max(size, attributes.length * 2));
+            }
+        }
+    }
+
+    /**
+     * ข้อมูล DOCTYPE ของ XML Structure (ถ้ามี)
+     */
+    private static final class DocumentTypeInfo {
+        final String name;
+        final String publicId;
+        final String systemId;
+
+        DocumentTypeInfo(String name, String publicId, String systemId) {
+            this.name = name;
+            this.publicId = publicId;
+            this.systemId = systemId;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Watch-folder mode: merge new or changed source files as soon as they are written
+ *
+ * License: MIT License
+ */
+
+/**
+ * MergeWatcher
+ *
+ * - ใช้ java.nio.file.WatchService เฝ้าโฟลเดอร์ Source (และโฟลเดอร์ย่อยเมื่อใช้ --recursive)
+ * - MergeTemplate ของ XML Structure ถูก Compile ครั้งเดียวและเก็บไว้ในหน่วยความจำตลอดการทำงาน
+ *   (ถ้าไฟล์ XML Structure ถูกแก้ไข จะ Compile ใหม่แล้ว Merge ทุกไฟล์อีกครั้ง)
+ * - Debounce: Event ของไฟล์เดียวกันที่เกิดติดกัน (เช่น Editor เขียนไฟล์หลายครั้ง) จะรอจนไม่มี Event ใหม่
+ *   ตาม debounceMillis ก่อน Merge ครั้งเดียว
+ * - ไฟล์ Source ที่ถูกลบ จะลบไฟล์ Output ของไฟล์นั้นด้วย
+ * - หลัง Merge ชุดหนึ่งเสร็จ (ไม่มีงานค้าง) จะพิมพ์บรรทัดสถานะ:
+ *   [watch] queue=0 active=0 merged=12 failed=0 latency last=85.2 ms avg=90.4 ms
+ *   (latency = เวลาจาก Event สุดท้ายของไฟล์ จนเขียน Output เสร็จ รวมเวลา Debounce)
+ *
+ * วิธีการใช้งาน:
+ * java XMLMerger --structure clean-xml.xml --input SourceFiles --output Result --watch [--debounce 200]
+ * (หยุดด้วย Ctrl+C)
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+final class MergeWatcher {
+
+    static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private final MergeOptions options;
+    private final List<Path> roots;
+    private final boolean recursive;
+    private final long debounceNanos;
+    private final PrintStream log;
+    private final Path structureFile;
+    private final Path outputDirectory;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    /** ไฟล์ที่รอ Debounce -> เวลา (nanoTime) ของ Event ล่าสุด (ใช้เฉพาะ Thread ที่เรียก run) */
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+    /** ไฟล์ที่กำลัง Merge อยู่ (ไม่ส่งไฟล์เดียวกันซ้ำจนกว่าจะเสร็จ) */
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+    private volatile MergeTemplate template;
+    private long structureChangedAt = -1;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong lastLatencyNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+
+    /**
+     * @param options
+     * @param inputDirectories โฟลเดอร์ Source ที่ต้องการเฝ้า
+     * @param recursive
+     * @param debounceMillis
+     * @throws Exception เมื่อโหลด XML Structure ไม่ได้ หรือเฝ้าโฟลเดอร์ไม่ได้
+     */
+    MergeWatcher(MergeOptions options, List<Path> inputDirectories, boolean recursive, long debounceMillis) throws Exception {
+        this.options = options;
+        this.roots = inputDirectories.stream().map(path -> path.toAbsolutePath().normalize()).collect(Collectors.toList());
+        this.recursive = recursive;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, debounceMillis));
+        this.log = options.log;
+        this.structureFile = options.xmlStructureFile.toPath().toAbsolutePath().normalize();
+        this.outputDirectory = options.outputDirectory.toPath().toAbsolutePath().normalize();
+        this.template = MergeTemplate.load(options.xmlStructureFile, XMLSupport.documentBuilder(true), RepeatableFieldRegistry.getDefault());
+        this.executor = Executors.newFixedThreadPool(Math.max(1, options.threads));
+
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path root : roots) {
+            register(root);
+        }
+        Path structureDirectory = structureFile.getParent();
+        if (!directories.containsValue(structureDirectory)) {
+            directories.put(structureDirectory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), structureDirectory);
+        }
+    }
+
+    /**
+     * เฝ้าโฟลเดอร์จนกว่า Thread จะถูก interrupt หรือ WatchService ถูกปิด
+     */
+    void run() {
+        log.printf("[watch] watching %s (debounce %d ms, %d thread(s))\n",
+                roots, TimeUnit.NANOSECONDS.toMillis(debounceNanos), Math.max(1, options.threads));
+        printStatus();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = pending.isEmpty() && structureChangedAt < 0
+                        ? watchService.take()
+                        : watchService.poll(Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDueNanos() - System.nanoTime())), TimeUnit.MILLISECONDS);
+                // รวม Event ที่เข้ามาพร้อมกันทั้งหมดก่อน
+                while (key != null) {
+                    processEvents(key);
+                    key = watchService.poll();
+                }
+                flushDue();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * ปิด WatchService และรอให้ไฟล์ที่กำลัง Merge เขียนเสร็จ (ใช้ใน Shutdown Hook)
+     */
+    void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // ปิดไม่ได้ก็ไม่มีผลกับไฟล์ Output
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        if (!recursive) {
+            directories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.startsWith(outputDirectory) && !dir.equals(directory)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                directories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void processEvents(WatchKey key) {
+        Path directory = directories.get(key);
+        long now = System.nanoTime();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Event หาย: ตรวจทุกไฟล์ใหม่
+                requeueAll(now);
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+
+            if (path.equals(structureFile)) {
+                if (event.kind() != ENTRY_DELETE) {
+                    structureChangedAt = now;
+                }
+                continue;
+            }
+            if (rootOf(path) == null) {
+                continue;
+            }
+
+            if (event.kind() == ENTRY_CREATE && recursive && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    register(path);
+                    // ไฟล์ที่ถูกสร้างก่อน Register โฟลเดอร์เสร็จจะไม่มี Event
+                    queueExisting(path, now);
+                } catch (IOException e) {
+                    log.printf("[watch] cannot watch %s: %s\n", path, e.getMessage());
+                }
+            } else if (event.kind() == ENTRY_DELETE) {
+                pending.remove(path);
+                removeOutput(path);
+            } else if (isXmlFile(path)) {
+                pending.put(path, now);
+            }
+        }
+
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private long nextDueNanos() {
+        long due = Long.MAX_VALUE;
+        for (long eventTime : pending.values()) {
+            due = Math.min(due, eventTime + debounceNanos);
+        }
+        if (structureChangedAt >= 0) {
+            due = Math.min(due, structureChangedAt + debounceNanos);
+        }
+        return due;
+    }
+
+    private void flushDue() {
+        long now = System.nanoTime();
+
+        if (structureChangedAt >= 0 && now - structureChangedAt >= debounceNanos) {
+            structureChangedAt = -1;
+            try {
+                template = MergeTemplate.load(options.xmlStructureFile, XMLSupport.documentBuilder(true), RepeatableFieldRegistry.getDefault());
+                log.printf("[watch] XML Structure changed, merging all files again\n");
+                requeueAll(now - debounceNanos);
+            } catch (Exception e) {
+                log.printf("[watch] cannot reload XML Structure (keeping the previous one): %s\n", e.getMessage());
+            }
+        }
+
+        Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> item = iterator.next();
+            Path path = item.getKey();
+            long eventTime = item.getValue();
+            if (now - eventTime < debounceNanos || inFlight.contains(path)) {
+                // ไฟล์ที่กำลัง Merge อยู่จะถูก Merge ใหม่หลังรอบนี้เสร็จ
+                continue;
+            }
+            iterator.remove();
+            if (Files.isRegularFile(path)) {
+                submit(path, eventTime);
+            }
+        }
+    }
+
+    private void submit(Path path, long eventTime) {
+        File sourceFile = path.toFile();
+        Path root = rootOf(path);
+        Path parent = root.relativize(path).getParent();
+        options.relativeDirectories.put(sourceFile, parent == null ? "" : parent.toString());
+        File outputFile = options.resolveOutputFile(sourceFile);
+        MergeTemplate currentTemplate = template;
+
+        inFlight.add(path);
+        queued.incrementAndGet();
+        executor.execute(() -> {
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            long mergeStartTime = System.nanoTime();
+            try {
+                XMLMerger.mergeFile(XMLSupport.documentBuilder(true), XMLSupport.transformer(), currentTemplate,
+                        sourceFile, outputFile, options.streaming, options.prettyPrint, null);
+                long finished = System.nanoTime();
+                long latency = finished - eventTime;
+                merged.incrementAndGet();
+                lastLatencyNanos.set(latency);
+                totalLatencyNanos.addAndGet(latency);
+                log.printf("%-30s | %-15.7f\n", sourceFile.getName(), (finished - mergeStartTime) / 1_000_000_000.0);
+            } catch (Exception ex) {
+                failed.incrementAndGet();
+                log.printf("%-30s | %-15.7f | FAILED: %s\n", sourceFile.getName(),
+                        (System.nanoTime() - mergeStartTime) / 1_000_000_000.0, ex.getMessage());
+            } finally {
+                inFlight.remove(path);
+                if (active.decrementAndGet() == 0 && queued.get() == 0) {
+                    printStatus();
+                }
+            }
+        });
+    }
+
+    private void printStatus() {
+        long count = merged.get();
+        log.printf(Locale.ROOT, "[watch] queue=%d active=%d merged=%d failed=%d latency last=%.1f ms avg=%.1f ms\n",
+                queued.get(), active.get(), count, failed.get(),
+                lastLatencyNanos.get() / 1_000_000.0,
+                count == 0 ? 0.0 : totalLatencyNanos.get() / 1_000_000.0 / count);
+    }
+
+    private void removeOutput(Path path) {
+        if (!isXmlFile(path)) {
+            return;
+        }
+        File sourceFile = path.toFile();
+        Path root = rootOf(path);
+        Path parent = root.relativize(path).getParent();
+        options.relativeDirectories.put(sourceFile, parent == null ? "" : parent.toString());
+        File outputFile = options.resolveOutputFile(sourceFile);
+        options.relativeDirectories.remove(sourceFile);
+        if (outputFile.isFile() && outputFile.delete()) {
+            log.printf("%-30s | REMOVED (source deleted)\n", outputFile.getName());
+        }
+    }
+
+    private void requeueAll(long eventTime) {
+        for (Path root : roots) {
+            queueExisting(root, eventTime);
+        }
+    }
+
+    private void queueExisting(Path directory, long eventTime) {
+        try (Stream<Path> paths = Files.walk(directory, recursive ? Integer.MAX_VALUE : 1)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(MergeWatcher::isXmlFile)
+                    .filter(path -> !path.startsWith(outputDirectory))
+                    .forEach(path -> pending.put(path, eventTime));
+        } catch (IOException e) {
+            log.printf("[watch] cannot list %s: %s\n", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * @param path
+     * @return โฟลเดอร์ Input ที่มีไฟล์นี้ (null ถ้าไม่อยู่ในโฟลเดอร์ที่เฝ้า หรืออยู่ในโฟลเดอร์ Output)
+     */
+    private Path rootOf(Path path) {
+        if (path.startsWith(outputDirectory)) {
+            return null;
+        }
+        for (Path root : roots) {
+            if (path.startsWith(root) && (recursive || path.getParent().equals(root))) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isXmlFile(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml");
+    }
+}
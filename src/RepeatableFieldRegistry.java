@@ -0,0 +1,739 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Registry of repeatable (unbounded) fields read from XSD/WSDL or SoapUI comments, with a compiled cache
+ *
+ * License: MIT License
+ */
+
+/**
+ * RepeatableFieldRegistry (รายการ Field ที่ Duplicate ได้)
+ *
+ * - เดิม XMLMerger และ DynamicXMLTreeEditor มี Whitelist (duplicateAllowedFields) ชุดเดียวกันแยกกันคนละไฟล์
+ *   ซึ่งได้จากการ Copy ผลลัพธ์ของ listDuplicateAllowedFields มาวางเอง และเทียบเฉพาะชื่อ Tag
+ *   (Field ชื่อเดียวกันที่อยู่คนละที่ในเอกสาร จะถูกมองว่า Duplicate ได้ทั้งหมด)
+ * - RepeatableFieldRegistry เก็บเป็น Path ของ Field (local name คั่นด้วย "/") เช่น
+ *   "Request/ApplicationDetail/CollateralDetails/CollateralDetail"
+ *   และเทียบแบบ Suffix: Field ตรงกับ Rule เมื่อ Path ของ Field ลงท้ายด้วย Rule นั้น
+ *   (Rule ที่เป็นชื่อ Tag อย่างเดียว เช่น "CollateralDetail" ตรงกับ Field ชื่อนี้ทุก Path และทุก Prefix เช่น v1:CollateralDetail)
+ * - BUILTIN_FIELDS เก็บแยกเป็นชื่อ Tag แบบเต็ม (tagNames) และเทียบกับชื่อรวม Prefix เหมือน Whitelist เดิม
+ *   (Tag ที่มี Prefix เช่น v1:CollateralDetail จึงไม่ตรงกับ "CollateralDetail" และผลการ Merge แบบ Default ไม่เปลี่ยน)
+ * - แหล่งของ Rule:
+ *   1. XSD / WSDL: Element ที่มี maxOccurs="unbounded" (หรือมากกว่า 1) รวมถึง sequence/choice ที่ซ้ำได้
+ *      โดยตาม xs:import / xs:include / type / ref / group / extension จนได้ Path จาก Global Element
+ *   2. XML ที่ Generate จาก SoapUI: Element ที่มีคอมเมนต์ "Zero or more repetitions:" อยู่ด้านบน (ใช้เมื่อไม่มี XSD)
+ *   3. BUILTIN_FIELDS: Whitelist เดิม (ใช้เมื่อไม่ได้กำหนดไฟล์)
+ * - Compile เป็นไฟล์ Cache (Binary: String Pool + Rule เป็น Index) เพื่อให้เปิดโปรแกรมได้ทันทีโดยไม่ต้องอ่าน Schema ทุกครั้ง
+ * - getDefault() ใช้ร่วมกันทั้ง XMLMerger, StreamingMerger, MergeTemplate และ DynamicXMLTreeEditor
+ *   กำหนดไฟล์ได้ด้วย -Dxml2gui.repeatableFields=<cache|xsd|wsdl|xml> หรือ --repeatable ของ XMLMerger Command Line
+ *
+ * วิธีการใช้งาน (Compile Cache):
+ * java RepeatableFieldRegistry --schema Service.wsdl --output repeatable-fields.bin
+ * java RepeatableFieldRegistry --comments clean-xml.xml --builtin --output repeatable-fields.bin
+ * java RepeatableFieldRegistry --comments GeneratedRequests --output repeatable-fields.bin   (ทุกไฟล์ *.xml ในโฟลเดอร์)
+ * java RepeatableFieldRegistry --list repeatable-fields.bin
+ */
+
+import org.w3c.dom.*;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+final class RepeatableFieldRegistry {
+
+    static final String REPETITION_COMMENT = "Zero or more repetitions:";
+
+    /**
+     * Whitelist เดิม (ชื่อ Tag) ใช้เมื่อไม่ได้กำหนดไฟล์ Schema / Cache
+     */
+    static final Set<String> BUILTIN_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "LetterOfGuaranteeAssetDetail", "NotGenerate", "ExistingGuaranteeCollateralDetails", "needPaymentForAccruedInterestAmount", "isCustWillReqForDrawdownAfterCreditLineDecrease",
+            "AuthorizedPersonToSignContract", "Exe1VerifiedCorrect", "LeaseholdAssetDetail", "DocumentProperty", "SecurityDetail",
+            "StepRate", "JointVentureOrConsortiumProfiles", "PersonalOrJuristicProfiles", "FeePaymentMethod", "TFCCustomerNum",
+            "DGENSupport", "MortgageRank", "LegalActivityDetail", "feeContractReference", "CreditLineAccountInfo",
+            "StockAssetDetail", "ShipAssetDetail", "OwnerAuthPersonToPerformLegalActDetail", "CodeNameMappings", "LeaseholdAssetSubDetails",
+            "CarAssetDetail", "ExistingGuaranteeContractDetails", "BillExchangeAssetDetail", "ExistingLegalActType", "CustomerNameAndGUID",
+            "TemplateRefValue", "InstallmentEveryMonth", "CommoditiesAssetDetail", "Locations", "PackageFinanceDetails",
+            "AddExternalError", "Sequence", "TemplateKeyGUID", "TemplateDetail", "GoldAssetDetail",
+            "BillingScheduleTypes", "ALSCustomerNum", "CondominiumAssetDetail", "TemplateSubLevel", "TransferTo",
+            "BillInfos", "isSME", "needPaymentForAccruedInterest", "Covenants", "RightOnBenefitAssetDetail",
+            "CommercialCollateralContractDetail", "authorizedPersonToPerformLegalAct", "AuthorizedPerson", "ISupplyInfo", "PNDuePayments",
+            "CollateralDetail", "CustIdentification", "LeasingAssetDetail", "OtherFeeInfo", "PaymentStep",
+            "FeeInfo", "BondAssetDetail", "RemarkForAdditionalDocument", "InterestODInfo", "MachineAssetDetail",
+            "LinkageNoInCase", "ProjectNameSoftLoans", "RightDebtors", "RepaymentTransactionInfos", "ExistingLegalActivity",
+            "specialLoans", "FeeListDetail", "TransactionDetail", "IsNonstandardContract", "LandBuildingAssetDetail",
+            "AccountInfo", "SpecificDebtInContract", "InterestRateValueAsOfDates", "SplitOfShareCertificateDetail", "SpecialLoanTypes",
+            "PeriodInstallment", "MachineRegistrationNos", "ProcessAgentInfos", "CreditLineFees", "PensionAssetDetail",
+            "GuaranteeGroupDetail", "Date", "GuaranteeExistingContract", "DisbursementInfo", "ApplicationDetail",
+            "GuaranteeDetail", "KeeperDetails", "IsProcessIncreaseAndExtendCreditLine", "Paragraphs", "ContractLanguage"
+    )));
+
+    private static final int CACHE_MAGIC = 0x58524652; // "XRFR"
+    private static final int CACHE_VERSION = 2;
+
+    private static final Object DEFAULT_LOCK = new Object();
+    private static volatile RepeatableFieldRegistry defaultRegistry;
+
+    /** ชื่อ Tag แบบเต็ม (รวม Prefix) ที่ Duplicate ได้ทุก Path (Whitelist เดิม) */
+    private final Set<String> tagNames;
+    /** Rule ทั้งหมด (Path ของ local name แบบ root-first) */
+    private final Set<String> rules;
+    /** Trie แบบย้อนกลับ: เริ่มจากชื่อ Field แล้วไล่ขึ้นไปหา Parent */
+    private final Segment trie = new Segment();
+
+    private RepeatableFieldRegistry(Collection<String> tagNames, Collection<String> rules) {
+        this.tagNames = Collections.unmodifiableSet(new TreeSet<>(tagNames));
+        this.rules = Collections.unmodifiableSet(new TreeSet<>(rules));
+        for (String rule : this.rules) {
+            String[] segments = rule.split("/");
+            Segment segment = trie;
+            for (int i = segments.length - 1; i >= 0; i--) {
+                segment = segment.children.computeIfAbsent(segments[i], k -> new Segment());
+            }
+            segment.terminal = true;
+        }
+    }
+
+    /**
+     * โหนดของ Trie (ชื่อ Parent -> Segment)
+     */
+    private static final class Segment {
+        final Map<String, Segment> children = new HashMap<>();
+        boolean terminal;
+    }
+
+    /**
+     * @param rules Path ของ Field (local name คั่นด้วย "/")
+     * @return
+     */
+    static RepeatableFieldRegistry of(Collection<String> rules) {
+        return new RepeatableFieldRegistry(Collections.emptySet(), rules);
+    }
+
+    /**
+     * @return Registry ของ BUILTIN_FIELDS (เทียบชื่อ Tag แบบเต็ม)
+     */
+    static RepeatableFieldRegistry builtin() {
+        return new RepeatableFieldRegistry(BUILTIN_FIELDS, Collections.emptySet());
+    }
+
+    /**
+     * Registry ที่ใช้ร่วมกันทั้งโปรแกรม (โหลดจาก -Dxml2gui.repeatableFields ครั้งแรกที่เรียก หรือใช้ BUILTIN_FIELDS)
+     *
+     * @return
+     */
+    static RepeatableFieldRegistry getDefault() {
+        RepeatableFieldRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (DEFAULT_LOCK) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = loadConfigured();
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    static void setDefault(RepeatableFieldRegistry registry) {
+        synchronized (DEFAULT_LOCK) {
+            defaultRegistry = registry;
+        }
+    }
+
+    private static RepeatableFieldRegistry loadConfigured() {
+        String configured = System.getProperty("xml2gui.repeatableFields");
+        if (configured == null || configured.isEmpty()) {
+            return builtin();
+        }
+        try {
+            return load(new File(configured));
+        } catch (Exception e) {
+            System.err.println("Cannot load repeatable fields from " + configured + ", using the built-in list: " + e.getMessage());
+            return builtin();
+        }
+    }
+
+    /**
+     * ตรวจว่า Field (tagName) ที่เป็นลูกของ parentPath Duplicate ได้หรือไม่
+     *
+     * @param parentPath local name ของ Parent ตั้งแต่ Root (root-first)
+     * @param tagName    ชื่อ Tag แบบเต็ม (รวม Prefix)
+     * @return
+     */
+    boolean isRepeatable(List<String> parentPath, String tagName) {
+        if (tagNames.contains(tagName)) {
+            return true;
+        }
+        Segment segment = trie.children.get(localName(tagName));
+        for (int i = parentPath.size() - 1; segment != null; i--) {
+            if (segment.terminal) {
+                return true;
+            }
+            if (i < 0) {
+                return false;
+            }
+            segment = segment.children.get(parentPath.get(i));
+        }
+        return false;
+    }
+
+    /**
+     * ตรวจแบบไม่ดู Path (ใช้คำนวณ Flag ต่อ Tag ID ของ TagSymbols)
+     *
+     * @param tagName
+     * @return false เมื่อไม่มี Rule ใดลงท้ายด้วยชื่อนี้ (Duplicate ไม่ได้ไม่ว่าจะอยู่ที่ Path ใด)
+     */
+    boolean mayBeRepeatable(String tagName) {
+        return tagNames.contains(tagName) || trie.children.containsKey(localName(tagName));
+    }
+
+    /**
+     * ตรวจว่า Field (tagName) ที่เป็นลูกของ parent Duplicate ได้หรือไม่ (ไล่ Parent จาก DOM)
+     *
+     * @param parent Element แม่ (หรือ Document / null สำหรับ Root)
+     * @param tagName ชื่อ Tag แบบเต็ม (รวม Prefix)
+     * @return
+     */
+    boolean isRepeatable(Node parent, String tagName) {
+        if (tagNames.contains(tagName)) {
+            return true;
+        }
+        Segment segment = trie.children.get(localName(tagName));
+        Node node = parent;
+        while (segment != null) {
+            if (segment.terminal) {
+                return true;
+            }
+            if (node == null || node.getNodeType() != Node.ELEMENT_NODE) {
+                return false;
+            }
+            segment = segment.children.get(localName(node));
+            node = node.getParentNode();
+        }
+        return false;
+    }
+
+    /**
+     * @return Rule ทั้งหมด เรียงตามตัวอักษร
+     */
+    Set<String> getRules() {
+        return rules;
+    }
+
+    /**
+     * @return ชื่อ Tag แบบเต็มที่ Duplicate ได้ทุก Path เรียงตามตัวอักษร
+     */
+    Set<String> getTagNames() {
+        return tagNames;
+    }
+
+    int size() {
+        return tagNames.size() + rules.size();
+    }
+
+    /**
+     * รวม Rule ของสอง Registry
+     *
+     * @param other
+     * @return
+     */
+    RepeatableFieldRegistry union(RepeatableFieldRegistry other) {
+        if (rules.containsAll(other.rules) && tagNames.containsAll(other.tagNames)) {
+            return this;
+        }
+        Set<String> combinedTagNames = new HashSet<>(tagNames);
+        combinedTagNames.addAll(other.tagNames);
+        Set<String> combined = new HashSet<>(rules);
+        combined.addAll(other.rules);
+        return new RepeatableFieldRegistry(combinedTagNames, combined);
+    }
+
+    /**
+     * @param qualifiedName
+     * @return ชื่อที่ตัด Prefix ของ Namespace ออก
+     */
+    static String localName(String qualifiedName) {
+        int colon = qualifiedName.indexOf(':');
+        return colon < 0 ? qualifiedName : qualifiedName.substring(colon + 1);
+    }
+
+    static String localName(Node node) {
+        String localName = node.getLocalName();
+        return localName != null ? localName : localName(node.getNodeName());
+    }
+
+    /**
+     * @param element
+     * @return local name ของ element และ Parent ทั้งหมด ตั้งแต่ Root (root-first)
+     */
+    static List<String> pathOf(Node element) {
+        LinkedList<String> path = new LinkedList<>();
+        for (Node node = element; node != null && node.getNodeType() == Node.ELEMENT_NODE; node = node.getParentNode()) {
+            path.addFirst(localName(node));
+        }
+        return new ArrayList<>(path);
+    }
+
+    /**
+     * อ่าน Registry จากไฟล์ (ตรวจชนิดเอง): Cache ที่ Compile แล้ว, XSD / WSDL หรือ XML ที่มีคอมเมนต์ของ SoapUI
+     *
+     * @param file
+     * @return
+     * @throws Exception
+     */
+    static RepeatableFieldRegistry load(File file) throws Exception {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (file.length() >= 4 && in.readInt() == CACHE_MAGIC) {
+                return readCache(in);
+            }
+        }
+
+        // ดูเฉพาะ Root Element เพื่อเลือกวิธีอ่าน (XML ของ SoapUI อ่านแบบ Stream ไม่ต้องสร้าง DOM)
+        String rootNamespace;
+        String rootName;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = XMLSupport.INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                reader.nextTag();
+                rootNamespace = reader.getNamespaceURI();
+                rootName = reader.getLocalName();
+            } finally {
+                reader.close();
+            }
+        }
+
+        boolean isSchema = XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(rootNamespace) && "schema".equals(rootName);
+        boolean isWsdl = "definitions".equals(rootName) || "description".equals(rootName);
+        if (isSchema || isWsdl) {
+            return fromSchema(file);
+        }
+        return of(RepetitionCommentScanner.scan(file).keySet());
+    }
+
+    /**
+     * อ่าน Rule จาก XSD หรือ WSDL (รวมทุก Schema ที่ถูก import / include)
+     *
+     * @param schemaFile
+     * @return
+     * @throws Exception
+     */
+    static RepeatableFieldRegistry fromSchema(File schemaFile) throws Exception {
+        SchemaReader reader = new SchemaReader(XMLSupport.documentBuilder(true));
+        reader.read(schemaFile.toURI().toString(), null);
+        return of(reader.collectRules());
+    }
+
+    /**
+     * อ่าน Rule จากคอมเมนต์ "Zero or more repetitions:" ของ XML ที่ Generate ผ่าน SoapUI
+     * - คอมเมนต์ต้องอยู่ก่อน Field โดยตรง (ข้ามได้เฉพาะ Whitespace และคอมเมนต์อื่น เช่น "Optional:")
+     *
+     * @param node Document หรือ Element
+     * @return
+     */
+    static RepeatableFieldRegistry fromComments(Node node) {
+        // ใช้หลักการเดียวกับ RepetitionCommentScanner (ไล่ Sibling ไปข้างหน้าครั้งเดียว ไม่ย้อนกลับ)
+        Set<String> rules = new HashSet<>();
+        Node root = node.getNodeType() == Node.DOCUMENT_NODE ? ((Document) node).getDocumentElement() : node;
+        if (root != null) {
+            List<String> path = pathOf(root);
+            collectCommentRules(root, path, rules);
+        }
+        return of(rules);
+    }
+
+    private static void collectCommentRules(Node node, List<String> path, Set<String> rules) {
+        // true เมื่อคอมเมนต์ที่เกี่ยวข้องล่าสุดก่อน Element ถัดไปคือ "Zero or more repetitions:"
+        boolean pending = false;
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            switch (child.getNodeType()) {
+                case Node.COMMENT_NODE:
+                    if (child.getNodeValue().contains(REPETITION_COMMENT)) {
+                        pending = true;
+                    }
+                    break;
+                case Node.TEXT_NODE:
+                case Node.CDATA_SECTION_NODE:
+                    if (!child.getNodeValue().trim().isEmpty()) {
+                        pending = false;
+                    }
+                    break;
+                case Node.ELEMENT_NODE:
+                    path.add(localName(child));
+                    if (pending) {
+                        rules.add(String.join("/", path));
+                    }
+                    collectCommentRules(child, path, rules);
+                    path.remove(path.size() - 1);
+                    pending = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * บันทึก Cache: MAGIC, VERSION, String Pool ของชื่อ Field, Rule เป็นรายการ Index (varint) แล้วชื่อ Tag แบบเต็มเป็น Index
+     *
+     * @param file
+     * @throws IOException
+     */
+    void save(File file) throws IOException {
+        Map<String, Integer> pool = new LinkedHashMap<>();
+        List<int[]> encodedRules = new ArrayList<>(rules.size());
+        for (String rule : rules) {
+            String[] segments = rule.split("/");
+            int[] indexes = new int[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                indexes[i] = pool.computeIfAbsent(segments[i], k -> pool.size());
+            }
+            encodedRules.add(indexes);
+        }
+        int[] encodedTagNames = new int[tagNames.size()];
+        int tagNameCount = 0;
+        for (String tagName : tagNames) {
+            encodedTagNames[tagNameCount++] = pool.computeIfAbsent(tagName, k -> pool.size());
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+            writeVarInt(out, pool.size());
+            for (String name : pool.keySet()) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(out, bytes.length);
+                out.write(bytes);
+            }
+            writeVarInt(out, encodedRules.size());
+            for (int[] indexes : encodedRules) {
+                writeVarInt(out, indexes.length);
+                for (int index : indexes) {
+                    writeVarInt(out, index);
+                }
+            }
+            writeVarInt(out, encodedTagNames.length);
+            for (int index : encodedTagNames) {
+                writeVarInt(out, index);
+            }
+        }
+    }
+
+    private static RepeatableFieldRegistry readCache(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        // Version 1 ไม่มีชื่อ Tag แบบเต็ม (ทุก Rule เทียบด้วย local name)
+        if (version != 1 && version != CACHE_VERSION) {
+            throw new IOException("Unsupported repeatable field cache version " + version);
+        }
+        String[] pool = new String[readVarInt(in)];
+        for (int i = 0; i < pool.length; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            pool[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int ruleCount = readVarInt(in);
+        List<String> rules = new ArrayList<>(ruleCount);
+        StringBuilder rule = new StringBuilder();
+        for (int i = 0; i < ruleCount; i++) {
+            rule.setLength(0);
+            int segmentCount = readVarInt(in);
+            for (int j = 0; j < segmentCount; j++) {
+                if (j > 0) {
+                    rule.append('/');
+                }
+                rule.append(pool[readVarInt(in)]);
+            }
+            rules.add(rule.toString());
+        }
+        List<String> tagNames = new ArrayList<>();
+        if (version >= 2) {
+            int tagNameCount = readVarInt(in);
+            for (int i = 0; i < tagNameCount; i++) {
+                tagNames.add(pool[readVarInt(in)]);
+            }
+        }
+        return new RepeatableFieldRegistry(tagNames, rules);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed repeatable field cache");
+    }
+
+    /**
+     * อ่าน XSD (รวมถึง Schema ใน wsdl:types) แล้วไล่ Path จาก Global Element ทุกตัว
+     */
+    private static final class SchemaReader {
+        private static final String XSD = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+        private static final int MAX_DEPTH = 64;
+        private static final int MAX_RULES = 1_000_000;
+
+        private final DocumentBuilder builder;
+        private final Set<String> loadedSchemas = new HashSet<>();
+        private final Map<String, Element> elements = new LinkedHashMap<>();
+        private final Map<String, Element> complexTypes = new HashMap<>();
+        private final Map<String, Element> groups = new HashMap<>();
+        private final Set<String> rules = new HashSet<>();
+        /** Type / Group ที่กำลังไล่อยู่ (กัน Schema ที่อ้างถึงตัวเอง) */
+        private final Set<Element> activeDeclarations = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        SchemaReader(DocumentBuilder builder) {
+            this.builder = builder;
+        }
+
+        /**
+         * อ่าน Schema (และ Schema ที่ถูก import / include) แล้วเก็บ Global Declaration
+         *
+         * @param uri
+         * @param document ถ้า null จะ Parse จาก uri
+         * @throws Exception
+         */
+        void read(String uri, Document document) throws Exception {
+            if (!loadedSchemas.add(uri)) {
+                return;
+            }
+            if (document == null) {
+                document = builder.parse(uri);
+            }
+
+            NodeList schemas = document.getElementsByTagNameNS(XSD, "schema");
+            List<String> references = new ArrayList<>();
+            for (int i = 0; i < schemas.getLength(); i++) {
+                for (Element child : xsdChildren((Element) schemas.item(i))) {
+                    String name = child.getAttribute("name");
+                    switch (child.getLocalName()) {
+                        case "element":
+                            elements.putIfAbsent(name, child);
+                            break;
+                        case "complexType":
+                            complexTypes.putIfAbsent(name, child);
+                            break;
+                        case "group":
+                            groups.putIfAbsent(name, child);
+                            break;
+                        case "import":
+                        case "include":
+                        case "redefine":
+                            if (!child.getAttribute("schemaLocation").isEmpty()) {
+                                references.add(URI.create(uri).resolve(child.getAttribute("schemaLocation")).toString());
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            for (String reference : references) {
+                read(reference, null);
+            }
+        }
+
+        Set<String> collectRules() {
+            List<String> path = new ArrayList<>();
+            for (Element element : elements.values()) {
+                walkElement(element, path, false);
+            }
+            return rules;
+        }
+
+        private void walkElement(Element declaration, List<String> path, boolean repeatedByParticle) {
+            Element target = declaration;
+            String name = declaration.getAttribute("name");
+            String ref = declaration.getAttribute("ref");
+            if (!ref.isEmpty()) {
+                name = localName(ref);
+                target = elements.get(name);
+            }
+
+            path.add(name);
+            if (repeatedByParticle || isMultiple(declaration)) {
+                if (rules.size() >= MAX_RULES) {
+                    throw new IllegalStateException("Schema expands to more than " + MAX_RULES + " repeatable paths");
+                }
+                rules.add(String.join("/", path));
+            }
+
+            if (target != null && path.size() < MAX_DEPTH) {
+                Element type = firstXsdChild(target, "complexType");
+                if (type == null && !target.getAttribute("type").isEmpty()) {
+                    type = complexTypes.get(localName(target.getAttribute("type")));
+                }
+                walkDeclaration(type, path, false);
+            }
+            path.remove(path.size() - 1);
+        }
+
+        /**
+         * ไล่ complexType / group (ถ้าไม่ได้กำลังไล่อยู่แล้ว)
+         */
+        private void walkDeclaration(Element declaration, List<String> path, boolean repeated) {
+            if (declaration != null && activeDeclarations.add(declaration)) {
+                walkContent(declaration, path, repeated);
+                activeDeclarations.remove(declaration);
+            }
+        }
+
+        private void walkContent(Element node, List<String> path, boolean repeated) {
+            for (Element child : xsdChildren(node)) {
+                switch (child.getLocalName()) {
+                    case "sequence":
+                    case "choice":
+                    case "all":
+                        walkContent(child, path, repeated || isMultiple(child));
+                        break;
+                    case "element":
+                        walkElement(child, path, repeated);
+                        break;
+                    case "group":
+                        walkDeclaration(groups.get(localName(child.getAttribute("ref"))), path, repeated || isMultiple(child));
+                        break;
+                    case "complexContent":
+                        walkContent(child, path, repeated);
+                        break;
+                    case "extension":
+                    case "restriction":
+                        walkDeclaration(complexTypes.get(localName(child.getAttribute("base"))), path, repeated);
+                        walkContent(child, path, repeated);
+                        break;
+                    default:
+                        // attribute, annotation, simpleContent, any: ไม่มี Element ลูก
+                        break;
+                }
+            }
+        }
+
+        private static boolean isMultiple(Element particle) {
+            String maxOccurs = particle.getAttribute("maxOccurs").trim();
+            if (maxOccurs.isEmpty()) {
+                return false;
+            }
+            if ("unbounded".equals(maxOccurs)) {
+                return true;
+            }
+            try {
+                return Integer.parseInt(maxOccurs) > 1;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static List<Element> xsdChildren(Element parent) {
+            List<Element> children = new ArrayList<>();
+            for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE && XSD.equals(child.getNamespaceURI())) {
+                    children.add((Element) child);
+                }
+            }
+            return children;
+        }
+
+        private static Element firstXsdChild(Element parent, String localName) {
+            for (Element child : xsdChildren(parent)) {
+                if (localName.equals(child.getLocalName())) {
+                    return child;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Compile Registry เป็นไฟล์ Cache หรือแสดง Rule ในไฟล์
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        List<File> schemas = new ArrayList<>();
+        List<String> commentInputs = new ArrayList<>();
+        boolean includeBuiltin = false;
+        File output = null;
+        File list = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--schema":
+                        schemas.add(new File(args[++i]));
+                        break;
+                    case "--comments":
+                        commentInputs.add(args[++i]);
+                        break;
+                    case "--builtin":
+                        includeBuiltin = true;
+                        break;
+                    case "--output":
+                        output = new File(args[++i]);
+                        break;
+                    case "--list":
+                        list = new File(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (list == null && (output == null || (schemas.isEmpty() && commentInputs.isEmpty() && !includeBuiltin))) {
+                throw new IllegalArgumentException("--output and at least one of --schema, --comments, --builtin are required");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Error: " + (e instanceof ArrayIndexOutOfBoundsException ? "missing option value" : e.getMessage()));
+            System.err.println("Usage: java RepeatableFieldRegistry [--schema <xsd|wsdl>]... [--comments <soapui.xml|folder|glob>]... [--builtin] --output <cache>");
+            System.err.println("       java RepeatableFieldRegistry --list <cache|xsd|wsdl|xml>");
+            System.exit(MergeCommandLine.EXIT_USAGE);
+            return;
+        }
+
+        try {
+            if (list != null) {
+                RepeatableFieldRegistry registry = load(list);
+                registry.getRules().forEach(System.out::println);
+                registry.getTagNames().forEach(tagName -> System.out.println(tagName + "\t(exact tag name)"));
+                System.err.println(registry.size() + " rule(s)");
+                return;
+            }
+
+            RepeatableFieldRegistry registry = includeBuiltin ? builtin() : of(Collections.emptySet());
+            for (File schema : schemas) {
+                registry = registry.union(fromSchema(schema));
+            }
+            if (!commentInputs.isEmpty()) {
+                Map<String, Integer> counts = new HashMap<>();
+                for (File commentFile : MergeCommandLine.expandInputs(commentInputs, true, new HashMap<>())) {
+                    RepetitionCommentScanner.scan(commentFile, counts);
+                }
+                registry = registry.union(of(counts.keySet()));
+            }
+            registry.save(output);
+            System.out.println("Saved " + registry.size() + " rule(s) to " + output + " (" + output.length() + " bytes)");
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(MergeCommandLine.EXIT_FATAL);
+        }
+    }
+}
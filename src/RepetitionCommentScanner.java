@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Single-pass StAX scanner for SoapUI "Zero or more repetitions:" comments
+ *
+ * License: MIT License
+ */
+
+/**
+ * RepetitionCommentScanner
+ *
+ * - อ่านไฟล์ที่ Generate จาก SoapUI ด้วย StAX ครั้งเดียว (ไม่สร้าง DOM) และไม่ย้อนกลับไปดู Sibling ก่อนหน้า
+ * - จำเฉพาะว่า "คอมเมนต์ที่เกี่ยวข้องล่าสุด" ของลำดับ Sibling ปัจจุบันเป็น "Zero or more repetitions:" หรือไม่
+ *   (คอมเมนต์อื่น เช่น "Optional:" และ Whitespace ไม่ล้างสถานะ ส่วน Element และข้อความจริงจะล้างสถานะ)
+ * - ผลลัพธ์เป็น Path ของ Field (local name คั่นด้วย "/") พร้อมจำนวนครั้งที่พบ
+ *
+ * วิธีการใช้งาน (ทั้งโฟลเดอร์):
+ * java RepetitionCommentScanner GeneratedRequests --recursive
+ * java RepetitionCommentScanner "GeneratedRequests/**\/*.xml" > repeatable-fields.tsv
+ * (Compile เป็น Cache ด้วย java RepeatableFieldRegistry --comments GeneratedRequests --output repeatable-fields.bin)
+ */
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.*;
+
+final class RepetitionCommentScanner {
+
+    private RepetitionCommentScanner() {
+    }
+
+    /**
+     * @param file
+     * @return Path ของ Field ที่มีคอมเมนต์ "Zero or more repetitions:" -> จำนวนครั้งที่พบ
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    static Map<String, Integer> scan(File file) throws IOException, XMLStreamException {
+        Map<String, Integer> counts = new HashMap<>();
+        scan(file, counts);
+        return counts;
+    }
+
+    /**
+     * scan แล้วรวมจำนวนเข้า counts (ใช้กับหลายไฟล์)
+     *
+     * @param file
+     * @param counts
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    static void scan(File file, Map<String, Integer> counts) throws IOException, XMLStreamException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            scan(in, file.toURI().toString(), counts);
+        }
+    }
+
+    static void scan(InputStream in, String systemId, Map<String, Integer> counts) throws XMLStreamException {
+        XMLStreamReader reader = XMLSupport.INPUT_FACTORY.createXMLStreamReader(systemId, in);
+        try {
+            List<String> path = new ArrayList<>();
+            StringBuilder joined = new StringBuilder();
+            boolean pending = false;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.COMMENT:
+                        if (reader.getText().contains(RepeatableFieldRegistry.REPETITION_COMMENT)) {
+                            pending = true;
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (!reader.isWhiteSpace() && !reader.getText().trim().isEmpty()) {
+                            pending = false;
+                        }
+                        break;
+                    case XMLStreamConstants.START_ELEMENT:
+                        path.add(reader.getLocalName());
+                        if (pending) {
+                            joined.setLength(0);
+                            for (String segment : path) {
+                                if (joined.length() > 0) {
+                                    joined.append('/');
+                                }
+                                joined.append(segment);
+                            }
+                            counts.merge(joined.toString(), 1, Integer::sum);
+                        }
+                        // ลำดับ Sibling ใหม่ (ลูกของ Element นี้)
+                        pending = false;
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        path.remove(path.size() - 1);
+                        pending = false;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    public static void main(String[] args) {
+        List<String> inputs = new ArrayList<>();
+        boolean recursive = false;
+        for (String arg : args) {
+            if ("-r".equals(arg) || "--recursive".equals(arg)) {
+                recursive = true;
+            } else {
+                inputs.add(arg);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: java RepetitionCommentScanner <file|folder|glob>... [--recursive]");
+            System.err.println("Prints <count>\\t<path> for every field marked \"" + RepeatableFieldRegistry.REPETITION_COMMENT + "\"");
+            System.exit(MergeCommandLine.EXIT_USAGE);
+            return;
+        }
+
+        List<File> files;
+        try {
+            files = MergeCommandLine.expandInputs(inputs, recursive, new HashMap<>());
+        } catch (IOException e) {
+            System.err.println("Error: input not found or unreadable: " + e.getMessage());
+            System.exit(MergeCommandLine.EXIT_USAGE);
+            return;
+        }
+
+        Map<String, Integer> counts = new TreeMap<>();
+        int failed = 0;
+        for (File file : files) {
+            try {
+                scan(file, counts);
+            } catch (IOException | XMLStreamException e) {
+                System.err.println("FAILED: " + file + ": " + e.getMessage());
+                failed++;
+            }
+        }
+
+        counts.forEach((path, count) -> System.out.println(count + "\t" + path));
+        System.err.println(counts.size() + " repeatable path(s) in " + (files.size() - failed) + " of " + files.size() + " file(s)");
+        System.exit(failed == 0 ? MergeCommandLine.EXIT_SUCCESS : MergeCommandLine.EXIT_FILES_FAILED);
+    }
+}
@@ -0,0 +1,684 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Streaming merge path: reads the source with a pull parser (StAX) and writes the merged output with XMLStreamWriter
+ *
+ * License: MIT License
+ */
+
+/**
+ * StreamingMerger (Merge แบบ Streaming โดยไม่สร้าง DOM ของ Source ทั้งไฟล์)
+ *
+ * - อ่านไฟล์ Source ด้วย XMLStreamReader แล้วเดินไปพร้อมกับ MergeTemplate (โครงสร้างที่ Compile ไว้แล้ว)
+ * - เขียนผลลัพธ์ทีละส่วนด้วย XMLStreamWriter กิ่งของ Template ที่ Source ไม่ได้แตะจะถูกเขียนออกจาก Template โดยตรง
+ * - ผลลัพธ์ต้องตรงกับ mergeNodes (DOM) + Transformer ทุก Byte จึงใช้กติกาดังนี้:
+ *   1. Element ที่ Template ไม่มีลูก (Leaf) หรือมีลูกที่ Duplicate ได้ (เช่น CollateralDetails)
+ *      จะอ่านเฉพาะกิ่งนั้นเป็น DOM แล้วเรียก XMLMerger.mergeNodes กับกิ่งนั้น (Buffered)
+ *   2. Element อื่นจะ Stream ลูกตามลำดับของ Template ส่วน Field ที่ไม่มีใน Template จะถูก Import ต่อท้าย
+ *   3. กรณีที่ Stream ให้ผลตรงกับ DOM ไม่ได้ (เช่น ลำดับ Field ใน Source สลับกับ Template, มี Text ปนใน Element ที่มีลูก)
+ *      จะยกเลิกไฟล์ชั่วคราว (.part) แล้วคืนค่า false เพื่อให้ XMLMerger ใช้ DOM Merge แทน
+ * - หน่วยความจำจึงขึ้นกับความลึกของเอกสาร และขนาดของกิ่งที่ต้อง Buffer (ส่วนที่ Duplicate ได้) ไม่ใช่ขนาดไฟล์ทั้งหมด
+ */
+
+import org.w3c.dom.*;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+final class StreamingMerger {
+
+    private final MergeTemplate template;
+    private final DocumentBuilder builder;
+    private final XMLStreamReader reader;
+    private final XMLStreamWriter writer;
+    private final OutputStream output;
+
+    // local name ของ Element ของ Template ที่กำลังเขียน (Path ของ Parent สำหรับ RepeatableFieldRegistry)
+    private final List<String> path = new ArrayList<>();
+    private final RepeatableFieldRegistry repeatableFields = RepeatableFieldRegistry.getDefault();
+    // ตัวนับของกิ่งที่ Merge ด้วย DOM (null = ไม่เก็บ)
+    private final MergeMetrics metrics;
+
+    // Namespace ที่ประกาศแล้วในแต่ละระดับ (ใช้ตัดการประกาศซ้ำแบบเดียวกับ Transformer)
+    private final Deque<Map<String, String>> namespaceScopes = new ArrayDeque<>();
+
+    private StreamingMerger(MergeTemplate template, DocumentBuilder builder, XMLStreamReader reader,
+                            OutputStream output, MergeMetrics metrics) throws XMLStreamException {
+        this.template = template;
+        this.metrics = metrics;
+        this.builder = builder;
+        this.reader = reader;
+        this.output = output;
+        this.writer = XMLSupport.OUTPUT_FACTORY.createXMLStreamWriter(output, "UTF-8");
+
+        Map<String, String> rootScope = new HashMap<>();
+        rootScope.put(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI);
+        rootScope.put(XMLConstants.DEFAULT_NS_PREFIX, XMLConstants.NULL_NS_URI);
+        namespaceScopes.push(rootScope);
+    }
+
+    /**
+     * Merge ไฟล์เดียวแบบ Streaming
+     *
+     * @param template
+     * @param builder ใช้สร้าง DOM เฉพาะกิ่งที่ต้อง Buffer
+     * @param sourceFile
+     * @param outputFile
+     * @return true เมื่อ Merge สำเร็จ, false เมื่อไฟล์นี้ต้องใช้ DOM Merge แทน (ไม่มีไฟล์ผลลัพธ์ถูกเขียน)
+     * @throws Exception
+     */
+    static boolean merge(MergeTemplate template, DocumentBuilder builder, File sourceFile, File outputFile) throws Exception {
+        return merge(template, builder, sourceFile, outputFile, null);
+    }
+
+    /**
+     * merge พร้อมเก็บตัวนับ (Duplicate / Import / ลบ) ของกิ่งที่ Merge ด้วย DOM ลงใน metrics
+     *
+     * @param template
+     * @param builder
+     * @param sourceFile
+     * @param outputFile
+     * @param metrics null = ไม่เก็บ
+     * @return
+     * @throws Exception
+     */
+    static boolean merge(MergeTemplate template, DocumentBuilder builder, File sourceFile, File outputFile,
+                         MergeMetrics metrics) throws Exception {
+        File partFile = new File(outputFile.getPath() + ".part");
+        boolean merged = false;
+
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(partFile), 64 * 1024)) {
+            merged = merge(template, builder, sourceFile, output, metrics);
+        } finally {
+            if (!merged) {
+                Files.deleteIfExists(partFile.toPath());
+            }
+        }
+
+        if (merged) {
+            Files.move(partFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return merged;
+    }
+
+    /**
+     * Merge ไฟล์เดียวแบบ Streaming เป็น bytes (ใช้เมื่อเขียนผลลัพธ์ลง MergeArchive)
+     *
+     * @param template
+     * @param builder
+     * @param sourceFile
+     * @param metrics null = ไม่เก็บ
+     * @return ผลลัพธ์ หรือ null เมื่อไฟล์นี้ต้องใช้ DOM Merge แทน
+     * @throws Exception
+     */
+    static byte[] mergeToBytes(MergeTemplate template, DocumentBuilder builder, File sourceFile, MergeMetrics metrics) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, sourceFile.length() + 1024));
+        return merge(template, builder, sourceFile, output, metrics) ? output.toByteArray() : null;
+    }
+
+    /**
+     * @return false เมื่อต้องใช้ DOM Merge (สิ่งที่เขียนลง output แล้วต้องทิ้ง)
+     */
+    private static boolean merge(MergeTemplate template, DocumentBuilder builder, File sourceFile, OutputStream output,
+                                 MergeMetrics metrics) throws Exception {
+        try (InputStream input = MappedXMLInput.open(sourceFile).newInputStream()) {
+            XMLStreamReader reader = XMLSupport.INPUT_FACTORY.createXMLStreamReader(input);
+            try {
+                new StreamingMerger(template, builder, reader, output, metrics).mergeDocument();
+                return true;
+            } catch (FallbackException e) {
+                // ไฟล์นี้ต้องใช้ DOM Merge
+                return false;
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * เขียน XML Declaration, โหนดระดับ Document ของ Template และ Merge Root
+     *
+     * @throws Exception
+     */
+    private void mergeDocument() throws Exception {
+        if (!"1.0".equals(template.getXmlVersion()) || template.hasDocumentType()) {
+            throw new FallbackException();
+        }
+
+        String declaration = template.isXmlStandalone()
+                ? "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                : "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>";
+        output.write(declaration.getBytes(StandardCharsets.UTF_8));
+
+        while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+            // ข้าม Prolog ของ Source (mergeNodes เริ่มที่ Document Element)
+        }
+
+        for (int child = template.getFirstChild(MergeTemplate.DOCUMENT); child != MergeTemplate.NONE; child = template.getNextSibling(child)) {
+            if (template.getType(child) == Node.ELEMENT_NODE) {
+                mergeElement(child);
+            } else {
+                writeTemplateNode(child);
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Merge Element ของ Source (Reader อยู่ที่ START_ELEMENT) เข้ากับ cleanNode ของ Template
+     * เมื่อจบเมธอด Reader จะอยู่ที่ END_ELEMENT ของ Element นั้น
+     *
+     * @param cleanNode
+     * @throws Exception
+     */
+    private void mergeElement(int cleanNode) throws Exception {
+        if (!template.hasElementChild(cleanNode) || template.hasRepeatableChild(cleanNode)) {
+            mergeBuffered(cleanNode);
+            return;
+        }
+
+        String cleanName = template.getName(cleanNode);
+        writeStartTag(cleanName, template.getNamespaceURI(cleanNode), templateAttributes(cleanNode), false);
+        path.add(RepeatableFieldRegistry.localName(cleanName));
+
+        // ลูกตัวถัดไปของ Template ที่ยังไม่ได้เขียน
+        int cursor = template.getFirstChild(cleanNode);
+
+        // Field ที่ไม่มีใน Template จะถูก Import ต่อท้ายลูกทั้งหมด (เหมือน appendChild ใน mergeNodes)
+        Document importDoc = null;
+        List<Element> importedNodes = new ArrayList<>();
+        Map<String, Element> importedByTag = new HashMap<>();
+
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String tagName = qualifiedName(reader.getPrefix(), reader.getLocalName());
+
+                if (repeatableFields.isRepeatable(path, tagName)) {
+                    // Template ไม่มี Field นี้: Field ปกติจะไม่ถูก Merge ส่วน Field พิเศษต้องใช้ DOM
+                    if (XMLMerger.isSpecialDuplicateFields(tagName)) {
+                        throw new FallbackException();
+                    }
+                    skipElement();
+                    continue;
+                }
+
+                int correspondingCleanNode = template.findChild(cleanNode, tagName);
+                if (correspondingCleanNode != MergeTemplate.NONE) {
+                    if (!follows(cursor, correspondingCleanNode)) {
+                        // Source ย้อนกลับไปหา Field ที่เขียนไปแล้ว
+                        throw new FallbackException();
+                    }
+                    for (; cursor != correspondingCleanNode; cursor = template.getNextSibling(cursor)) {
+                        writeTemplateNode(cursor);
+                    }
+                    mergeElement(correspondingCleanNode);
+                    cursor = template.getNextSibling(correspondingCleanNode);
+                } else {
+                    if (importDoc == null) {
+                        importDoc = builder.newDocument();
+                    }
+                    Element sourceChild = readElement(importDoc);
+                    Element importedNode = importedByTag.get(tagName);
+                    if (importedNode != null) {
+                        XMLMerger.mergeNodes(importDoc, importedNode, sourceChild, path, metrics);
+                    } else {
+                        importedNodes.add(sourceChild);
+                        importedByTag.put(tagName, sourceChild);
+                    }
+                }
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+                // mergeNodes จะ setTextContent ทับลูกทั้งหมด ซึ่งเขียนแบบ Stream ไม่ได้
+                if (!reader.getText().trim().isEmpty()) {
+                    throw new FallbackException();
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+            // COMMENT, CDATA, PROCESSING_INSTRUCTION ของ Source ไม่ถูกนำมา Merge
+        }
+
+        for (; cursor != MergeTemplate.NONE; cursor = template.getNextSibling(cursor)) {
+            writeTemplateNode(cursor);
+        }
+        for (Element importedNode : importedNodes) {
+            writeDomNode(importedNode);
+        }
+        path.remove(path.size() - 1);
+        writeEndTag();
+    }
+
+    /**
+     * อ่านกิ่งนี้ของ Source เป็น DOM แล้ว Merge ด้วย XMLMerger.mergeNodes (ใช้กับ Leaf และ Field ที่ Duplicate ได้)
+     *
+     * @param cleanNode
+     * @throws Exception
+     */
+    private void mergeBuffered(int cleanNode) throws Exception {
+        Document document = builder.newDocument();
+        Element sourceNode = readElement(document);
+        Node resultNode = template.materialize(document, cleanNode);
+
+        XMLMerger.mergeNodes(document, resultNode, sourceNode, path, metrics);
+        writeDomNode(resultNode);
+    }
+
+    /**
+     * ตรวจว่า node อยู่ที่ from หรือเป็นพี่น้องที่ตามหลัง from
+     *
+     * @param from
+     * @param node
+     * @return
+     */
+    private boolean follows(int from, int node) {
+        for (int sibling = from; sibling != MergeTemplate.NONE; sibling = template.getNextSibling(sibling)) {
+            if (sibling == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ข้าม Element ปัจจุบันทั้งกิ่ง (Reader อยู่ที่ START_ELEMENT)
+     *
+     * @throws XMLStreamException
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * อ่าน Element ปัจจุบันทั้งกิ่งเป็น DOM (ให้ผลเหมือน DocumentBuilder.parse)
+     *
+     * @param document
+     * @return
+     * @throws XMLStreamException
+     */
+    private Element readElement(Document document) throws XMLStreamException {
+        Element root = createElement(document);
+        Node current = root;
+
+        while (current != null) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    Element element = createElement(document);
+                    current.appendChild(element);
+                    current = element;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    current = current == root ? null : current.getParentNode();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    // รวม Text ที่ติดกันเป็นโหนดเดียวแบบเดียวกับ DOM Parser
+                    Node last = current.getLastChild();
+                    if (last != null && last.getNodeType() == Node.TEXT_NODE) {
+                        ((Text) last).appendData(reader.getText());
+                    } else {
+                        current.appendChild(document.createTextNode(reader.getText()));
+                    }
+                    break;
+                case XMLStreamConstants.CDATA:
+                    current.appendChild(document.createCDATASection(reader.getText()));
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    current.appendChild(document.createComment(reader.getText()));
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    current.appendChild(document.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * สร้าง Element จาก START_ELEMENT ปัจจุบัน พร้อม Namespace Declaration และ Attribute
+     *
+     * @param document
+     * @return
+     */
+    private Element createElement(Document document) {
+        String namespaceURI = emptyToNull(reader.getNamespaceURI());
+        Element element = document.createElementNS(namespaceURI, qualifiedName(reader.getPrefix(), reader.getLocalName()));
+
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            String name = prefix == null || prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix;
+            String uri = reader.getNamespaceURI(i);
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, name, uri == null ? "" : uri);
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttributeNS(emptyToNull(reader.getAttributeNamespace(i)),
+                    qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    /**
+     * เขียนโหนดของ Template (ที่ Source ไม่ได้แตะ) ออกไปตรงๆ
+     *
+     * @param node
+     * @throws Exception
+     */
+    private void writeTemplateNode(int node) throws Exception {
+        switch (template.getType(node)) {
+            case Node.ELEMENT_NODE:
+                int firstChild = template.getFirstChild(node);
+                boolean empty = firstChild == MergeTemplate.NONE;
+                writeStartTag(template.getName(node), template.getNamespaceURI(node), templateAttributes(node), empty);
+                if (!empty) {
+                    for (int child = firstChild; child != MergeTemplate.NONE; child = template.getNextSibling(child)) {
+                        writeTemplateNode(child);
+                    }
+                    writeEndTag();
+                }
+                break;
+            case Node.TEXT_NODE:
+                writeText(template.getValue(node));
+                break;
+            case Node.CDATA_SECTION_NODE:
+                writeCData(template.getValue(node));
+                break;
+            case Node.COMMENT_NODE:
+                writer.writeComment(template.getValue(node));
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                writeProcessingInstruction(template.getName(node), template.getValue(node));
+                break;
+            default:
+                throw new FallbackException();
+        }
+    }
+
+    /**
+     * เขียน DOM Node (กิ่งที่ Buffer หรือ Import) ออกไป
+     *
+     * @param node
+     * @throws Exception
+     */
+    private void writeDomNode(Node node) throws Exception {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                boolean empty = !node.hasChildNodes();
+                writeStartTag(node.getNodeName(), node.getNamespaceURI(), domAttributes(node), empty);
+                if (!empty) {
+                    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        writeDomNode(child);
+                    }
+                    writeEndTag();
+                }
+                break;
+            case Node.TEXT_NODE:
+                writeText(node.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                writeCData(node.getNodeValue());
+                break;
+            case Node.COMMENT_NODE:
+                writer.writeComment(node.getNodeValue());
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                writeProcessingInstruction(node.getNodeName(), node.getNodeValue());
+                break;
+            default:
+                throw new FallbackException();
+        }
+    }
+
+    private String[] templateAttributes(int node) {
+        int count = template.getAttributeCount(node);
+        String[] attributes = new String[count * 3];
+        for (int i = 0; i < count; i++) {
+            attributes[i * 3] = template.getAttributeNamespaceURI(node, i);
+            attributes[i * 3 + 1] = template.getAttributeName(node, i);
+            attributes[i * 3 + 2] = template.getAttributeValue(node, i);
+        }
+        return attributes;
+    }
+
+    private static String[] domAttributes(Node node) {
+        NamedNodeMap attributeMap = node.getAttributes();
+        String[] attributes = new String[attributeMap.getLength() * 3];
+        for (int i = 0; i < attributeMap.getLength(); i++) {
+            Node attribute = attributeMap.item(i);
+            attributes[i * 3] = attribute.getNamespaceURI();
+            attributes[i * 3 + 1] = attribute.getNodeName();
+            attributes[i * 3 + 2] = attribute.getNodeValue();
+        }
+        return attributes;
+    }
+
+    /**
+     * เขียน Start Tag ตามลำดับเดียวกับ Transformer:
+     * 1. เฉพาะ Root: Namespace ของ Prefix ของ Root (ดู rootNamespace)
+     * 2. xmlns ตามลำดับ Attribute (ตัดตัวที่ประกาศซ้ำกับ Scope ปัจจุบัน)
+     * 3. Attribute ปกติ (ประกาศ Namespace ของ Attribute ก่อนถ้ายังไม่มีใน Scope)
+     * 4. Namespace ของ Element ถ้ายังไม่ได้ประกาศ
+     *
+     * @param qualifiedName
+     * @param namespaceURI
+     * @param attributes ชุดละ 3 ค่า: namespaceURI, qualified name, value
+     * @param empty เขียนเป็น Empty Element (เช่น <Note/>)
+     * @throws Exception
+     */
+    private void writeStartTag(String qualifiedName, String namespaceURI, String[] attributes, boolean empty) throws Exception {
+        if (empty) {
+            writer.writeEmptyElement(qualifiedName);
+        } else {
+            writer.writeStartElement(qualifiedName);
+        }
+        boolean root = namespaceScopes.size() == 1;
+        Map<String, String> scope = new HashMap<>();
+        namespaceScopes.push(scope);
+
+        String elementPrefix = prefixOf(qualifiedName);
+
+        if (root) {
+            String rootNamespace = rootNamespace(elementPrefix, namespaceURI, attributes);
+            if (rootNamespace != null && !rootNamespace.isEmpty()) {
+                declareNamespace(scope, elementPrefix, rootNamespace);
+            }
+        }
+
+        for (int i = 0; i < attributes.length; i += 3) {
+            if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attributes[i])) {
+                continue;
+            }
+            String name = attributes[i + 1];
+            String prefix = name.equals(XMLConstants.XMLNS_ATTRIBUTE) ? XMLConstants.DEFAULT_NS_PREFIX : name.substring(6);
+            declareNamespace(scope, prefix, attributes[i + 2]);
+        }
+
+        for (int i = 0; i < attributes.length; i += 3) {
+            String attributeNamespace = attributes[i];
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attributeNamespace)) {
+                continue;
+            }
+            String name = attributes[i + 1];
+            if (attributeNamespace != null && !attributeNamespace.isEmpty()) {
+                String prefix = prefixOf(name);
+                if (prefix.isEmpty()) {
+                    // Transformer จะสร้าง Prefix ให้เอง
+                    throw new FallbackException();
+                }
+                declareNamespace(scope, prefix, attributeNamespace);
+            }
+            writeAttribute(name, attributes[i + 2]);
+        }
+
+        if (namespaceURI != null) {
+            declareNamespace(scope, elementPrefix, namespaceURI);
+        } else if (!lookupNamespace(XMLConstants.DEFAULT_NS_PREFIX).isEmpty() && elementPrefix.isEmpty()) {
+            // Element ไม่มี Namespace แต่อยู่ใต้ Default Namespace
+            throw new FallbackException();
+        }
+
+        if (empty) {
+            namespaceScopes.pop();
+        }
+    }
+
+    /**
+     * Namespace ที่ Transformer ประกาศก่อน xmlns อื่นของ Root (ดู DocumentWriter.rootNamespace)
+     *
+     * @param rootPrefix
+     * @param namespaceURI
+     * @param attributes
+     * @return
+     */
+    private static String rootNamespace(String rootPrefix, String namespaceURI, String[] attributes) {
+        int firstAttribute = -1;
+        for (int i = 0; i < attributes.length; i += 3) {
+            if (!XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attributes[i])) {
+                if (firstAttribute < 0) {
+                    firstAttribute = i;
+                }
+                continue;
+            }
+            String name = attributes[i + 1];
+            if (name.equals(XMLConstants.XMLNS_ATTRIBUTE) ? rootPrefix.isEmpty() : name.substring(6).equals(rootPrefix)) {
+                return attributes[i + 2];
+            }
+        }
+        if (firstAttribute >= 0) {
+            String attributeNamespace = attributes[firstAttribute];
+            boolean samePrefix = attributeNamespace != null && !attributeNamespace.isEmpty()
+                    && prefixOf(attributes[firstAttribute + 1]).equals(rootPrefix);
+            return samePrefix ? attributeNamespace : null;
+        }
+        return namespaceURI;
+    }
+
+    private void writeEndTag() throws XMLStreamException {
+        writer.writeEndElement();
+        namespaceScopes.pop();
+    }
+
+    private void declareNamespace(Map<String, String> scope, String prefix, String namespaceURI) throws Exception {
+        if (lookupNamespace(prefix).equals(namespaceURI)) {
+            return;
+        }
+        scope.put(prefix, namespaceURI);
+        writeAttribute(prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE : XMLConstants.XMLNS_ATTRIBUTE + ":" + prefix, namespaceURI);
+    }
+
+    private String lookupNamespace(String prefix) {
+        for (Map<String, String> scope : namespaceScopes) {
+            String namespaceURI = scope.get(prefix);
+            if (namespaceURI != null) {
+                return namespaceURI;
+            }
+        }
+        return "";
+    }
+
+    private static String prefixOf(String qualifiedName) {
+        int colon = qualifiedName.indexOf(':');
+        return colon > 0 ? qualifiedName.substring(0, colon) : XMLConstants.DEFAULT_NS_PREFIX;
+    }
+
+    private void writeAttribute(String name, String value) throws Exception {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            // Transformer เขียนตัวอักษรเหล่านี้เป็น Character Reference ซึ่ง XMLStreamWriter เขียนใน Attribute ไม่ได้
+            if (c == '\n' || c == '\t' || needsCharacterReference(c)) {
+                throw new FallbackException();
+            }
+        }
+        writer.writeAttribute(name, value);
+    }
+
+    /**
+     * เขียน Text โดยใช้ Character Reference ในตำแหน่งเดียวกับ Transformer (เช่น \r -> &#13;)
+     *
+     * @param text
+     * @throws XMLStreamException
+     */
+    private void writeText(String text) throws XMLStreamException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (needsCharacterReference(c)) {
+                if (i > start) {
+                    writer.writeCharacters(text.substring(start, i));
+                }
+                int codePoint = text.codePointAt(i);
+                writer.writeEntityRef("#" + codePoint);
+                i += Character.charCount(codePoint) - 1;
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            writer.writeCharacters(start == 0 ? text : text.substring(start));
+        }
+    }
+
+    private static boolean needsCharacterReference(char c) {
+        return c == '\r' || (c >= 0x7F && c <= 0x9F) || Character.isSurrogate(c);
+    }
+
+    private void writeCData(String data) throws Exception {
+        if (data.contains("]]>")) {
+            throw new FallbackException();
+        }
+        writer.writeCData(data);
+    }
+
+    private void writeProcessingInstruction(String target, String data) throws Exception {
+        if (data == null || data.isEmpty()) {
+            writer.writeProcessingInstruction(target);
+        } else if (Character.isSpaceChar(data.charAt(0)) || data.contains("?>")) {
+            // Transformer ไม่เว้นวรรคหลัง Target / แยก "?>" เป็น "? >"
+            throw new FallbackException();
+        } else {
+            writer.writeProcessingInstruction(target, data);
+        }
+    }
+
+    /**
+     * ไฟล์นี้ Stream ให้ได้ผลเหมือน DOM ไม่ได้ ต้องใช้ DOM Merge
+     */
+    private static final class FallbackException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        FallbackException() {
+            super(null, null, false, false);
+        }
+    }
+}
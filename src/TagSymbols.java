@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Symbol table of tag names: maps each distinct tag name to a dense int ID with per-ID flags
+ *
+ * License: MIT License
+ */
+
+/**
+ * TagSymbols (ตารางชื่อ Tag -> Tag ID)
+ *
+ * - ชื่อ Tag แต่ละชื่อถูกแปลงเป็น int ครั้งเดียว (intern) เมื่อพบครั้งแรก ID เรียงต่อกันตั้งแต่ 0
+ *   หลังจากนั้นการเทียบชื่อ Tag เป็นการเทียบ int แทน String.equals / HashSet.contains
+ * - เก็บ Flag ต่อ ID เป็น BitSet (คำนวณครั้งเดียวตอน intern):
+ *   1. repeatable: local name เป็นชื่อ Field สุดท้ายของ Rule ใดๆ ใน RepeatableFieldRegistry
+ *      ถ้าไม่มี Flag นี้ Tag นั้น Duplicate ไม่ได้แน่นอน (ไม่ต้องไล่ Path) ถ้ามีต้องตรวจ Path ด้วย isRepeatable ต่อ
+ *   2. special: Field ที่ Duplicate ได้แต่ไม่มี Subfield (XMLMerger.isSpecialDuplicateFields)
+ * - ไม่ Thread-safe: XMLMerger สร้างหนึ่งตารางต่อการ Merge หนึ่งครั้ง ส่วน MergeTemplate เติมตอน Compile แล้วอ่านอย่างเดียว
+ */
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+final class TagSymbols {
+
+    /** ไม่มี Tag ID (ไม่ใช่ Element หรือไม่เคย intern) */
+    static final int NONE = -1;
+
+    private final RepeatableFieldRegistry repeatableFields;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] names = new String[64];
+    private int size;
+    private final BitSet repeatable = new BitSet();
+    private final BitSet special = new BitSet();
+
+    /**
+     * @param repeatableFields ใช้คำนวณ Flag repeatable ของแต่ละ ID
+     */
+    TagSymbols(RepeatableFieldRegistry repeatableFields) {
+        this.repeatableFields = repeatableFields;
+    }
+
+    /**
+     * @param tagName ชื่อ Tag (รวม Prefix)
+     * @return Tag ID ของชื่อนี้ (สร้างใหม่ถ้ายังไม่มี)
+     */
+    int intern(String tagName) {
+        Integer id = ids.get(tagName);
+        if (id != null) {
+            return id;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = tagName;
+        if (repeatableFields.mayBeRepeatable(tagName)) {
+            repeatable.set(size);
+        }
+        if (XMLMerger.isSpecialDuplicateFields(tagName)) {
+            special.set(size);
+        }
+        ids.put(tagName, size);
+        return size++;
+    }
+
+    /**
+     * @param tagName
+     * @return Tag ID ของชื่อนี้ (NONE ถ้ายังไม่เคย intern)
+     */
+    int find(String tagName) {
+        Integer id = ids.get(tagName);
+        return id == null ? NONE : id;
+    }
+
+    String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return จำนวนชื่อ Tag ที่ไม่ซ้ำกัน
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param id
+     * @return false เมื่อ Tag นี้ Duplicate ไม่ได้ไม่ว่าจะอยู่ที่ Path ใด
+     */
+    boolean mayBeRepeatable(int id) {
+        return repeatable.get(id);
+    }
+
+    /**
+     * @param id
+     * @return true เมื่อเป็น Field ที่ Duplicate ได้แต่ไม่มี Subfield
+     */
+    boolean isSpecial(int id) {
+        return special.get(id);
+    }
+}
@@ -0,0 +1,393 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Structural diff of two XML trees aligned by path and repetition index, skipping identical subtrees by hash
+ *
+ * License: MIT License
+ */
+
+/**
+ * XMLDiff (เปรียบเทียบโครงสร้าง XML สองชุด)
+ *
+ * - เดิมต้องใช้ Text Diff ภายนอก ซึ่งรายงานทุกบรรทัดเมื่อไฟล์ถูกจัดย่อหน้าใหม่ และช้ามากกับไฟล์ขนาดหลายสิบ MB
+ * - จับคู่ Element ตามชื่อ Tag (Qualified Name) และลำดับการซ้ำ: ลูกชื่อ X ตัวที่ n ของฝั่งเก่าคู่กับลูกชื่อ X ตัวที่ n ของฝั่งใหม่
+ *   (กติกาเดียวกับ XMLMerger.mergeDuplicateFields ที่จับคู่ Field ซ้ำของ Source กับ Clean ตามลำดับ)
+ *   ลำดับระหว่าง Tag ต่างชื่อจึงไม่ถือเป็นความต่าง (Merge ก็ไม่สนใจลำดับนี้เช่นกัน)
+ * - ค่า = ข้อความตรงของ Element (ตัดช่องว่างหัวท้ายแบบเดียวกับ Merge) ช่องว่างสำหรับย่อหน้า, Comment
+ *   และการประกาศ xmlns ไม่ถูกนำมาเปรียบเทียบ
+ * - Hash ของทุก Subtree คำนวณจากล่างขึ้นบนครั้งเดียว (ชื่อ, Attribute, ค่า, Hash ของลูกตามลำดับ)
+ *   คู่ที่ Hash เท่ากันถูกข้ามทั้งกิ่งโดยไม่ต้องเดินลงไป (Hash 64 bit จึงถือว่าไม่ชนกันในทางปฏิบัติ)
+ *   เก็บ Hash ไว้เฉพาะ Element ที่มีลูก Element (Leaf ซึ่งเป็นส่วนใหญ่ของเอกสารคำนวณใหม่เมื่อใช้ เพราะถูกพอๆ กับค้นใน Map
+ *   และไฟล์หลายล้าน Element ไม่ต้องเก็บ Long ทุกตัวไว้ใน Heap)
+ * - Element ที่มีเพียงฝั่งเดียวถูกรายงานเป็นความต่างเดียวทั้งกิ่ง (ADDED / REMOVED) ไม่แตกเป็นรายการลูก
+ */
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.io.File;
+import java.util.*;
+
+final class XMLDiff {
+
+    enum Kind {
+        /** มีเฉพาะฝั่งใหม่ */
+        ADDED('+'),
+        /** มีเฉพาะฝั่งเก่า */
+        REMOVED('-'),
+        /** ค่าของ Element เปลี่ยน */
+        VALUE('~'),
+        /** Attribute เพิ่ม / ลบ / เปลี่ยนค่า */
+        ATTRIBUTE('@');
+
+        final char symbol;
+
+        Kind(char symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    /**
+     * ความต่างหนึ่งรายการ
+     * - oldElement / newElement คือ Element ของแต่ละฝั่ง ฝั่งที่ไม่มี Element (ADDED / REMOVED) เก็บ Element แม่ของฝั่งนั้นแทน
+     *   (Editor ใช้ newElement เปิด Tree ไปยังตำแหน่งของความต่าง)
+     * - oldValue / newValue เป็น null เมื่อฝั่งนั้นไม่มีค่า
+     */
+    static final class Change {
+        final Kind kind;
+        final String path;
+        final String oldValue;
+        final String newValue;
+        final Element oldElement;
+        final Element newElement;
+
+        Change(Kind kind, String path, String oldValue, String newValue, Element oldElement, Element newElement) {
+            this.kind = kind;
+            this.path = path;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+            this.oldElement = oldElement;
+            this.newElement = newElement;
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case ADDED:
+                    return kind.symbol + " " + path + (newValue.isEmpty() ? "" : " : " + preview(newValue, PREVIEW_CHARS));
+                case REMOVED:
+                    return kind.symbol + " " + path + (oldValue.isEmpty() ? "" : " : " + preview(oldValue, PREVIEW_CHARS));
+                default:
+                    return kind.symbol + " " + path + " : " + quote(oldValue) + " -> " + quote(newValue);
+            }
+        }
+
+        private static String quote(String value) {
+            return value == null ? "(none)" : "\"" + preview(value, PREVIEW_CHARS) + "\"";
+        }
+    }
+
+    /** จำนวนตัวอักษรของค่าที่แสดงใน Change.toString() */
+    static final int PREVIEW_CHARS = 80;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** Hash ของ Element ที่มีลูก Element ทั้งสองฝั่ง (Element ต่างเอกสารไม่มีทางเป็นตัวเดียวกัน จึงใช้ Map เดียวได้) */
+    private final Map<Element, Long> hashes = new IdentityHashMap<>();
+    private final int maxChanges;
+
+    /** ความต่างตามลำดับเอกสารฝั่งใหม่ (เก็บไม่เกิน maxChanges รายการ) */
+    final List<Change> changes = new ArrayList<>();
+    /** จำนวนความต่างทั้งหมด (รวมที่เกิน maxChanges) */
+    long changeCount;
+    /** จำนวนคู่ Element ที่ถูกเปรียบเทียบ */
+    long comparedElements;
+    /** จำนวนกิ่งที่เหมือนกันและถูกข้ามด้วย Hash */
+    long skippedSubtrees;
+
+    private XMLDiff(int maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    /**
+     * @param oldRoot
+     * @param newRoot
+     * @param maxChanges จำนวนความต่างสูงสุดที่เก็บใน changes (changeCount ยังนับต่อจนครบ)
+     * @return ผลการเปรียบเทียบ
+     */
+    static XMLDiff compare(Element oldRoot, Element newRoot, int maxChanges) {
+        XMLDiff diff = new XMLDiff(maxChanges);
+        diff.hash(oldRoot);
+        diff.hash(newRoot);
+        if (oldRoot.getNodeName().equals(newRoot.getNodeName())) {
+            diff.compare(oldRoot, newRoot, oldRoot.getNodeName());
+        } else {
+            diff.add(new Change(Kind.REMOVED, oldRoot.getNodeName(), value(oldRoot), null, oldRoot, null));
+            diff.add(new Change(Kind.ADDED, newRoot.getNodeName(), null, value(newRoot), null, newRoot));
+        }
+        return diff;
+    }
+
+    /**
+     * Parse และเปรียบเทียบไฟล์ XML สองไฟล์ (ไฟล์ใหญ่ถูก Memory-map ผ่าน MappedXMLInput)
+     *
+     * @param oldFile
+     * @param newFile
+     * @param maxChanges
+     * @return
+     * @throws Exception เมื่ออ่านหรือ Parse ไฟล์ไม่ได้
+     */
+    static XMLDiff compare(File oldFile, File newFile, int maxChanges) throws Exception {
+        Document oldDocument = XMLSupport.documentBuilder(true).parse(MappedXMLInput.openMapped(oldFile).newInputSource());
+        Document newDocument = XMLSupport.documentBuilder(true).parse(MappedXMLInput.openMapped(newFile).newInputSource());
+        return compare(oldDocument.getDocumentElement(), newDocument.getDocumentElement(), maxChanges);
+    }
+
+    /**
+     * @return true เมื่อจำนวนความต่างเกิน maxChanges (changes ไม่ครบ)
+     */
+    boolean isTruncated() {
+        return changeCount > changes.size();
+    }
+
+    /**
+     * ย้าย newElement ของทุกความต่างไปยัง Element ตำแหน่งเดียวกันใน target
+     * (Editor เปรียบเทียบกับสำเนาของเอกสารเบื้องหลัง แล้วแสดงผลบนเอกสารจริงที่มีโครงสร้างเหมือนสำเนา)
+     *
+     * @param target เอกสารที่มีโครงสร้าง Element เหมือนเอกสารฝั่งใหม่
+     */
+    void relocateNewElements(Document target) {
+        for (int i = 0; i < changes.size(); i++) {
+            Change change = changes.get(i);
+            if (change.newElement != null) {
+                changes.set(i, new Change(change.kind, change.path, change.oldValue, change.newValue, change.oldElement,
+                        locate(change.newElement, target)));
+            }
+        }
+        // Hash อ้างอิง Element ของสำเนา ไม่ต้องเก็บไว้อีก
+        hashes.clear();
+    }
+
+    /**
+     * @param element Element ในเอกสารหนึ่ง
+     * @param target
+     * @return Element ที่อยู่ตำแหน่งเดียวกัน (ลำดับใน Element ลูกของแต่ละระดับ) ใน target
+     */
+    private static Element locate(Element element, Document target) {
+        Deque<Integer> positions = new ArrayDeque<>();
+        for (Node node = element; node.getParentNode() instanceof Element; node = node.getParentNode()) {
+            int position = 0;
+            for (Node sibling = node.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+                if (sibling.getNodeType() == Node.ELEMENT_NODE) {
+                    position++;
+                }
+            }
+            positions.push(position);
+        }
+
+        Element located = target.getDocumentElement();
+        for (int position : positions) {
+            Node child = located.getFirstChild();
+            for (int remaining = position; child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE && remaining-- == 0) {
+                    break;
+                }
+            }
+            located = (Element) child;
+        }
+        return located;
+    }
+
+    /**
+     * @param value
+     * @param maxChars
+     * @return value ที่ตัดเหลือ maxChars ตัวอักษร (ต่อท้ายด้วย ... เมื่อถูกตัด) และแทนการขึ้นบรรทัดใหม่ด้วยช่องว่าง
+     */
+    static String preview(String value, int maxChars) {
+        String text = value.length() > maxChars ? value.substring(0, maxChars) + "..." : value;
+        return text.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * เปรียบเทียบคู่ Element ชื่อเดียวกัน
+     *
+     * @param oldElement
+     * @param newElement
+     * @param path Path ของคู่นี้ (ตำแหน่ง [n] เมื่อ Tag ซ้ำในฝั่งใดฝั่งหนึ่ง)
+     */
+    private void compare(Element oldElement, Element newElement, String path) {
+        comparedElements++;
+        if (hashOf(oldElement) == hashOf(newElement)) {
+            skippedSubtrees++;
+            return;
+        }
+
+        compareAttributes(oldElement, newElement, path);
+        String oldValue = value(oldElement);
+        String newValue = value(newElement);
+        if (!oldValue.equals(newValue)) {
+            add(new Change(Kind.VALUE, path, oldValue, newValue, oldElement, newElement));
+        }
+
+        // ลูกฝั่งเก่าแยกตามชื่อ Tag เรียงตามลำดับเอกสาร
+        Map<String, List<Element>> oldChildren = new LinkedHashMap<>();
+        for (Node child = oldElement.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                oldChildren.computeIfAbsent(child.getNodeName(), k -> new ArrayList<>(1)).add((Element) child);
+            }
+        }
+        Map<String, Integer> newCounts = new HashMap<>();
+        for (Node child = newElement.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                newCounts.merge(child.getNodeName(), 1, Integer::sum);
+            }
+        }
+
+        // ลูกชื่อ X ตัวที่ n คู่กับลูกชื่อ X ตัวที่ n ของอีกฝั่ง (แบบ mergeDuplicateFields)
+        Map<String, Integer> positions = new HashMap<>();
+        for (Node child = newElement.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            String name = child.getNodeName();
+            int index = positions.merge(name, 1, Integer::sum) - 1;
+            List<Element> candidates = oldChildren.getOrDefault(name, Collections.emptyList());
+            String childPath = childPath(path, name, index, Math.max(candidates.size(), newCounts.get(name)));
+            if (index < candidates.size()) {
+                compare(candidates.get(index), (Element) child, childPath);
+            } else {
+                add(new Change(Kind.ADDED, childPath, null, value((Element) child), oldElement, (Element) child));
+            }
+        }
+        for (Map.Entry<String, List<Element>> entry : oldChildren.entrySet()) {
+            List<Element> candidates = entry.getValue();
+            int newCount = newCounts.getOrDefault(entry.getKey(), 0);
+            for (int index = newCount; index < candidates.size(); index++) {
+                String childPath = childPath(path, entry.getKey(), index, candidates.size());
+                add(new Change(Kind.REMOVED, childPath, value(candidates.get(index)), null, candidates.get(index), newElement));
+            }
+        }
+    }
+
+    private void compareAttributes(Element oldElement, Element newElement, String path) {
+        NamedNodeMap oldAttributes = oldElement.getAttributes();
+        for (int i = 0; i < oldAttributes.getLength(); i++) {
+            Attr attribute = (Attr) oldAttributes.item(i);
+            if (isNamespaceDeclaration(attribute)) {
+                continue;
+            }
+            Attr other = newElement.getAttributeNode(attribute.getName());
+            if (other == null || !attribute.getValue().equals(other.getValue())) {
+                add(new Change(Kind.ATTRIBUTE, path + "/@" + attribute.getName(), attribute.getValue(),
+                        other == null ? null : other.getValue(), oldElement, newElement));
+            }
+        }
+        NamedNodeMap newAttributes = newElement.getAttributes();
+        for (int i = 0; i < newAttributes.getLength(); i++) {
+            Attr attribute = (Attr) newAttributes.item(i);
+            if (!isNamespaceDeclaration(attribute) && oldElement.getAttributeNode(attribute.getName()) == null) {
+                add(new Change(Kind.ATTRIBUTE, path + "/@" + attribute.getName(), null, attribute.getValue(), oldElement, newElement));
+            }
+        }
+    }
+
+    private void add(Change change) {
+        changeCount++;
+        if (changes.size() < maxChanges) {
+            changes.add(change);
+        }
+    }
+
+    private static String childPath(String parentPath, String name, int index, int count) {
+        return count > 1 ? parentPath + "/" + name + "[" + (index + 1) + "]" : parentPath + "/" + name;
+    }
+
+    /**
+     * @param element
+     * @return ข้อความตรงของ Element ตัดช่องว่างหัวท้าย (ช่องว่างสำหรับย่อหน้าจึงเป็นค่าว่าง)
+     */
+    private static String value(Element element) {
+        return DOMTreeModel.directText(element).trim();
+    }
+
+    private static boolean isNamespaceDeclaration(Attr attribute) {
+        String name = attribute.getName();
+        return name.equals("xmlns") || name.startsWith("xmlns:");
+    }
+
+    private long hashOf(Element element) {
+        Long hash = hashes.get(element);
+        return hash != null ? hash : hash(element);
+    }
+
+    /**
+     * Hash ของ Subtree จากล่างขึ้นบน (เก็บ Element ที่มีลูก Element ไว้ใน hashes)
+     * - Attribute รวมแบบไม่ขึ้นกับลำดับ ลูกรวมตามลำดับเอกสาร
+     *
+     * @param element
+     * @return
+     */
+    private long hash(Element element) {
+        long hash = combine(FNV_OFFSET, hash(element.getNodeName()));
+
+        long attributes = 0;
+        NamedNodeMap attributeMap = element.getAttributes();
+        for (int i = 0; i < attributeMap.getLength(); i++) {
+            Attr attribute = (Attr) attributeMap.item(i);
+            if (!isNamespaceDeclaration(attribute)) {
+                attributes += mix(combine(hash(attribute.getName()), hash(attribute.getValue())));
+            }
+        }
+        hash = combine(combine(hash, attributes), hash(value(element)));
+
+        boolean leaf = true;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                hash = combine(hash, hash((Element) child));
+                leaf = false;
+            }
+        }
+        hash = mix(hash);
+        if (!leaf) {
+            hashes.put(element, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * FNV-1a 64 bit ของตัวอักษรใน text
+     */
+    private static long hash(String text) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long combine(long hash, long value) {
+        return (Long.rotateLeft(hash, 31) ^ value) * FNV_PRIME;
+    }
+
+    /**
+     * Finalizer ของ MurmurHash3 (กระจาย Bit ก่อนนำไปรวมต่อ)
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9e53e3bd44bL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
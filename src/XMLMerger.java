@@ -14,121 +14,525 @@
 
 /**
  * วิธีการใช้งาน:
- * 1. ใช้งานผ่านการรันโค้ดโดยตรง (เลือก Path สำหรับ XML Structure, XML to Merge และ Save Path)
- * 2. ใช้งานผ่าน GUI (บรรทัด 150)
+ * 1. ใช้งานผ่าน Command Line (ไม่มี GUI, ใช้กับ Script / CI ได้ รายละเอียดดูที่ MergeCommandLine)
+ *    java XMLMerger --structure clean-xml.xml --input SourceFiles --output Result [--recursive] [--threads 8]
+ * 2. ใช้งานผ่าน GUI (รัน java XMLMerger โดยไม่ใส่ Argument)
  * 3. ใช้งานผ่าน Application (src/application/XMLMerger.exe)
+ * 4. แก้ค่า Field หลายไฟล์พร้อมกัน (รายละเอียดดูที่ BulkEditCommandLine)
+ *    java XMLMerger edit --input SourceFiles --output Edited --set "CollateralDetail/CollId=C001"
+ * 5. สร้างไฟล์จาก CSV (แถวละหนึ่งไฟล์ รายละเอียดดูที่ CsvMergeCommandLine)
+ *    java XMLMerger csv --structure clean-xml.xml --csv TestData.csv --output Result
+ * 6. เปรียบเทียบผลลัพธ์สองชุดตามโครงสร้าง (รายละเอียดดูที่ DiffCommandLine)
+ *    java XMLMerger diff --old Result-v1 --new Result-v2
  */
 
 import org.w3c.dom.*;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.IntStream;
+import java.util.zip.ZipException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 
 public class XMLMerger {
 
-    private static final Set<String> duplicateAllowedFields = new HashSet<>(Arrays.asList(
-            "LetterOfGuaranteeAssetDetail", "NotGenerate", "ExistingGuaranteeCollateralDetails", "needPaymentForAccruedInterestAmount", "isCustWillReqForDrawdownAfterCreditLineDecrease",
-            "AuthorizedPersonToSignContract", "Exe1VerifiedCorrect", "LeaseholdAssetDetail", "DocumentProperty", "SecurityDetail",
-            "StepRate", "JointVentureOrConsortiumProfiles", "PersonalOrJuristicProfiles", "FeePaymentMethod", "TFCCustomerNum",
-            "DGENSupport", "MortgageRank", "LegalActivityDetail", "feeContractReference", "CreditLineAccountInfo",
-            "StockAssetDetail", "ShipAssetDetail", "OwnerAuthPersonToPerformLegalActDetail", "CodeNameMappings", "LeaseholdAssetSubDetails",
-            "CarAssetDetail", "ExistingGuaranteeContractDetails", "BillExchangeAssetDetail", "ExistingLegalActType", "CustomerNameAndGUID",
-            "TemplateRefValue", "InstallmentEveryMonth", "CommoditiesAssetDetail", "Locations", "PackageFinanceDetails",
-            "AddExternalError", "Sequence", "TemplateKeyGUID", "TemplateDetail", "GoldAssetDetail",
-            "BillingScheduleTypes", "ALSCustomerNum", "CondominiumAssetDetail", "TemplateSubLevel", "TransferTo",
-            "BillInfos", "isSME", "needPaymentForAccruedInterest", "Covenants", "RightOnBenefitAssetDetail",
-            "CommercialCollateralContractDetail", "authorizedPersonToPerformLegalAct", "AuthorizedPerson", "ISupplyInfo", "PNDuePayments",
-            "CollateralDetail", "CustIdentification", "LeasingAssetDetail", "OtherFeeInfo", "PaymentStep",
-            "FeeInfo", "BondAssetDetail", "RemarkForAdditionalDocument", "InterestODInfo", "MachineAssetDetail",
-            "LinkageNoInCase", "ProjectNameSoftLoans", "RightDebtors", "RepaymentTransactionInfos", "ExistingLegalActivity",
-            "specialLoans", "FeeListDetail", "TransactionDetail", "IsNonstandardContract", "LandBuildingAssetDetail",
-            "AccountInfo", "SpecificDebtInContract", "InterestRateValueAsOfDates", "SplitOfShareCertificateDetail", "SpecialLoanTypes",
-            "PeriodInstallment", "MachineRegistrationNos", "ProcessAgentInfos", "CreditLineFees", "PensionAssetDetail",
-            "GuaranteeGroupDetail", "Date", "GuaranteeExistingContract", "DisbursementInfo", "ApplicationDetail",
-            "GuaranteeDetail", "KeeperDetails", "IsProcessIncreaseAndExtendCreditLine", "Paragraphs", "ContractLanguage"
+    /**
+     * Field ที่ Duplicate ได้แต่ไม่มี Subfield (Unbound Leaf) ต้อง Import ค่าจาก Source ทุกตัว
+     */
+    private static final Set<String> specialDuplicateFields = new HashSet<>(Arrays.asList(
+            "ProjectNameSoftLoans", "ExistingGuaranteeCollateralDetails", "creditLineFees",
+            "feeContractReference", "SpecificDebtInContract", "RemarkForAdditionalDocument"
     ));
 
+    /**
+     * จำนวน Thread เริ่มต้นสำหรับการ Merge แบบขนาน (เท่ากับจำนวน Core ของเครื่อง)
+     */
+    static final int DEFAULT_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * ไม่มี Argument = เปิด GUI, "edit ..." = BulkEditCommandLine, "csv ..." = CsvMergeCommandLine, "diff ..." = DiffCommandLine, Argument อื่น = Merge แบบ Command Line
+     * (exit code ดูที่ MergeCommandLine)
+     */
     public static void main(String[] args) {
+        if (args.length == 0 && !GraphicsEnvironment.isHeadless()) {
+            SwingUtilities.invokeLater(XMLMerger::XMLMergerGUI);
+            return;
+        }
+        // Headless โดยไม่มี Argument ไปที่ MergeCommandLine (แสดง Usage และ exit 2)
+        String command = args.length > 0 ? args[0] : "";
+        String[] commandArgs = args.length > 0 ? Arrays.copyOfRange(args, 1, args.length) : args;
+        if (BulkEditCommandLine.COMMAND.equals(command)) {
+            System.exit(BulkEditCommandLine.run(commandArgs));
+        }
+        if (CsvMergeCommandLine.COMMAND.equals(command)) {
+            System.exit(CsvMergeCommandLine.run(commandArgs));
+        }
+        if (DiffCommandLine.COMMAND.equals(command)) {
+            System.exit(DiffCommandLine.run(commandArgs));
+        }
+        System.exit(MergeCommandLine.run(args));
+    }
+
+    /**
+     * ผลลัพธ์การ Merge ของแต่ละไฟล์ (ใช้สำหรับ Log และสรุปผล)
+     */
+    static final class MergeResult {
+        final File sourceFile;
+        final File outputFile;
+        final long elapsedNanos;
+        final Exception error;
+        final boolean skipped;
+        /** Incremental: Source และ Output ไม่เปลี่ยนจากรอบก่อน จึงไม่ได้ Merge ใหม่ (ถือว่าสำเร็จ) */
+        final boolean unchanged;
+        /** เวลาแต่ละขั้นตอนและตัวนับ (null เมื่อไม่ได้เก็บ Metrics หรือไม่ได้ Merge ไฟล์นี้) */
+        final MergeMetrics metrics;
+        /** ใช้ Streaming แต่ไฟล์นี้ Stream ไม่ได้ จึงถูก Parse ใหม่และ Merge ด้วย DOM */
+        final boolean domFallback;
+
+        MergeResult(File sourceFile, File outputFile, long elapsedNanos, Exception error, boolean skipped) {
+            this(sourceFile, outputFile, elapsedNanos, error, skipped, false, null, false);
+        }
+
+        MergeResult(File sourceFile, File outputFile, long elapsedNanos, Exception error, boolean skipped, boolean unchanged,
+                    MergeMetrics metrics, boolean domFallback) {
+            this.sourceFile = sourceFile;
+            this.outputFile = outputFile;
+            this.elapsedNanos = elapsedNanos;
+            this.error = error;
+            this.skipped = skipped;
+            this.unchanged = unchanged;
+            this.metrics = metrics;
+            this.domFallback = domFallback;
+        }
+
+        boolean isSuccess() {
+            return error == null && !skipped;
+        }
+    }
+
+    /**
+     * Merge ไฟล์ทั้งหมดแบบขนาน (Parallel Batch Merge)
+     *
+     * - ใช้ Worker Pool ขนาดคงที่ตามจำนวน threads
+     * - แต่ละ Thread ใช้ DocumentBuilder และ Transformer ของตัวเองจาก XMLSupport เพราะ JAXP Object ไม่ Thread-safe
+     * - XML Structure ถูก Compile เป็น MergeTemplate ครั้งเดียว และแชร์ระหว่าง Thread
+     * - continueOnError = true: ไฟล์ที่ Error จะถูกบันทึกใน MergeResult แล้วทำไฟล์ถัดไปต่อ
+     * - continueOnError = false: เมื่อเจอ Error ไฟล์แรก ไฟล์ที่ยังไม่เริ่มจะถูกข้าม (skipped)
+     * - streaming = true: ใช้ StreamingMerger (ไม่สร้าง DOM ของ Source ทั้งไฟล์) และใช้ DOM เฉพาะไฟล์ที่ Stream ไม่ได้
+     *   (ไฟล์เหล่านี้ถูก Log ว่า "DOM fallback" และ MergeResult.domFallback = true)
+     *
+     * @param xmlStructureFile
+     * @param sourceFiles
+     * @param saveFolderPath
+     * @param threads
+     * @param continueOnError
+     * @param streaming
+     * @return ผลลัพธ์ของแต่ละไฟล์ เรียงตามลำดับของ sourceFiles
+     * @throws Exception เมื่อโหลด XML Structure ไม่ได้
+     */
+    static List<MergeResult> mergeFiles(File xmlStructureFile, File[] sourceFiles, String saveFolderPath,
+                                        int threads, boolean continueOnError, boolean streaming) throws Exception {
+        MergeOptions options = new MergeOptions(xmlStructureFile, new File(saveFolderPath));
+        options.threads = threads;
+        options.continueOnError = continueOnError;
+        options.streaming = streaming;
+        return mergeFiles(options, Arrays.asList(sourceFiles));
+    }
+
+    /**
+     * Merge ไฟล์ทั้งหมดแบบขนานตาม MergeOptions (ชื่อไฟล์ผลลัพธ์จาก MergeOptions.resolveOutputFile)
+     *
+     * - incremental = true: ข้ามไฟล์ที่ Source, XML Structure และ Rule ไม่เปลี่ยนจากรอบก่อน (ดู MergeManifest)
+     *   ลบ Output ที่ไม่มี Source แล้ว และบันทึก Manifest ใหม่หลัง Merge เสร็จ
+     * - collectMetrics = true (หรือมี JFR Recording ที่เปิด Event xml2gui.MergeFile): เก็บ MergeMetrics ของแต่ละไฟล์
+     * - archiveFile != null: เขียนผลลัพธ์ทั้งหมดลง ZIP ไฟล์เดียว (MergeResult.outputFile = archiveFile/ชื่อ Entry)
+     *   Entry ถูกเขียนตามลำดับของ sourceFiles โดยมีไฟล์ที่ส่งให้ Worker แล้วแต่ยังไม่ถูกเขียนไม่เกิน threads * 4 ไฟล์
+     *   (ไฟล์แรกที่ช้าจึงไม่ทำให้ผลลัพธ์ที่เหลือทั้ง Batch ค้างอยู่ใน Memory)
+     * - Source ที่ได้ Path ผลลัพธ์ซ้ำกับ Source ก่อนหน้า (MergeOptions.findOutputConflicts) ไม่ถูก Merge และถือว่าไม่สำเร็จ
+     *
+     * @param options
+     * @param sourceFiles
+     * @return ผลลัพธ์ของแต่ละไฟล์ เรียงตามลำดับของ sourceFiles
+     * @throws Exception เมื่อโหลด XML Structure ไม่ได้
+     */
+    static List<MergeResult> mergeFiles(MergeOptions options, List<File> sourceFiles) throws Exception {
+        PrintStream log = options.log;
+
+        // Compile XML Structure ครั้งเดียว แล้วแชร์ Template (Immutable) ให้ทุก Thread
+        RepeatableFieldRegistry repeatableFields = RepeatableFieldRegistry.getDefault();
+        MergeTemplate template = MergeTemplate.load(options.xmlStructureFile, XMLSupport.documentBuilder(true), repeatableFields);
+        MergeManifest manifest = options.incremental
+                ? MergeManifest.load(options.outputDirectory, options.xmlStructureFile, repeatableFields)
+                : null;
+        boolean collectMetrics = options.collectMetrics || MergeMetrics.isEventEnabled();
+        boolean streaming = options.streaming && !options.prettyPrint;
+        MergeArchive.Writer archive = options.archiveFile != null ? new MergeArchive.Writer(options.archiveFile) : null;
+        // ผลลัพธ์ที่ Merge แล้วแต่ยังไม่ถูกเขียนลง ZIP (Thread หลักเขียนตามลำดับของ sourceFiles)
+        Map<File, byte[]> archiveData = new ConcurrentHashMap<>();
+        Deque<Future<MergeResult>> pending = new ArrayDeque<>();
+        int window = Math.max(1, options.threads) * 4;
+        List<MergeResult> results = new ArrayList<>(sourceFiles.size());
+
+        Map<File, File> conflicts = options.findOutputConflicts(sourceFiles);
+
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, options.threads));
+
         try {
-            // จับเวลาเริ่มต้น
-            long startTime = System.nanoTime();
-
-            // Load XML Structure
-            File cleanFile = new File("C:\\Installer\\XMLToMerge\\XMLStructure\\clean-xml.xml");
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document cleanDoc = builder.parse(cleanFile);
-
-            // Load Folder (XML to Merge)
-            File sourceDir = new File("C:\\Installer\\XMLToMerge\\SourceFiles\\testdataXML_SIT");
-            File[] sourceFiles = sourceDir.listFiles((dir, name) -> name.endsWith(".xml"));
-
-            // Header ของ log
-            System.out.printf("%-30s | %-15s\n", "File Name", "Time (seconds)");
-            System.out.println("--------------------------------------------------");
-
-            if (sourceFiles != null) {
-                for (File sourceFile : sourceFiles) {
+            for (File sourceFile : sourceFiles) {
+                File outputFile = archive != null
+                        ? new File(options.archiveFile, options.resolveOutputPath(sourceFile))
+                        : options.resolveOutputFile(sourceFile);
+                File conflict = conflicts.get(sourceFile);
+                if (conflict != null) {
+                    // ไม่เขียนทับผลลัพธ์ของ Source ก่อนหน้า
+                    IOException error = new IOException("Output " + options.resolveOutputPath(sourceFile) + " is also the output of " + conflict);
+                    log.printf("%-30s | FAILED: %s\n", sourceFile.getName(), error.getMessage());
+                    pending.add(CompletableFuture.completedFuture(new MergeResult(sourceFile, outputFile, 0, error, false)));
+                    continue;
+                }
+                pending.add(executor.submit(() -> {
+                    if (aborted.get()) {
+                        return new MergeResult(sourceFile, outputFile, 0, null, true);
+                    }
+
                     long mergeStartTime = System.nanoTime(); // จับเวลาเริ่มต้นแต่ละไฟล์
-                    Document sourceDoc = builder.parse(sourceFile);
+                    MergeMetrics metrics = null;
+                    try {
+                        MergeManifest.Entry entry = null;
+                        if (manifest != null) {
+                            entry = manifest.check(sourceFile, outputFile);
+                            if (entry == null) {
+                                return new MergeResult(sourceFile, outputFile, System.nanoTime() - mergeStartTime, null, false, true, null, false);
+                            }
+                        }
 
-                    Document resultDoc = (Document) cleanDoc.cloneNode(true);
-                    Node resultRoot = resultDoc.getDocumentElement();
+                        // Streaming ต้องมี MergeMetrics เสมอ เพื่อรู้ว่าไฟล์ไหนกลับไปใช้ DOM (metrics.streamed)
+                        if (collectMetrics || streaming) {
+                            metrics = new MergeMetrics(sourceFile);
+                        }
+                        if (collectMetrics) {
+                            metrics.begin();
+                        }
+                        if (archive != null) {
+                            archiveData.put(sourceFile, mergeToBytes(XMLSupport.documentBuilder(true), XMLSupport.transformer(),
+                                    template, sourceFile, options.streaming, options.prettyPrint, metrics));
+                        } else {
+                            mergeFile(XMLSupport.documentBuilder(true), XMLSupport.transformer(), template, sourceFile, outputFile,
+                                    options.streaming, options.prettyPrint, metrics);
+                        }
+                        long elapsed = System.nanoTime() - mergeStartTime;
+                        if (metrics != null) {
+                            metrics.finish(elapsed, false);
+                        }
+                        if (manifest != null) {
+                            manifest.markMerged(sourceFile, entry);
+                        }
 
-                    Node sourceRoot = sourceDoc.getDocumentElement();
-                    mergeNodes(resultDoc, resultRoot, sourceRoot);
+                        // Log รายละเอียดของแต่ละไฟล์
+                        boolean domFallback = streaming && !metrics.streamed;
+                        log.printf(domFallback ? "%-30s | %-15.7f | DOM fallback\n" : "%-30s | %-15.7f\n",
+                                sourceFile.getName(), elapsed / 1_000_000_000.0);
+                        return new MergeResult(sourceFile, outputFile, elapsed, null, false, false,
+                                collectMetrics ? metrics : null, domFallback);
+                    } catch (Exception ex) {
+                        long elapsed = System.nanoTime() - mergeStartTime;
+                        if (metrics != null) {
+                            metrics.finish(elapsed, true);
+                        }
+                        if (!options.continueOnError) {
+                            aborted.set(true);
+                        }
+                        log.printf("%-30s | %-15.7f | FAILED: %s\n", sourceFile.getName(),
+                                elapsed / 1_000_000_000.0, ex.getMessage());
+                        return new MergeResult(sourceFile, outputFile, elapsed, ex, false, false,
+                                collectMetrics ? metrics : null, false);
+                    }
+                }));
 
-                    saveMergedXML(resultDoc, sourceFile.getName());
-                    long mergeEndTime = System.nanoTime(); // จับเวลาสิ้นสุดแต่ละไฟล์
+                // เขียนผลลัพธ์ที่เก่าที่สุดก่อนส่งไฟล์ถัดไป เมื่อมีไฟล์ค้างครบ window
+                while (pending.size() >= window) {
+                    results.add(finish(pending.poll(), archive, archiveData, options));
+                }
+            }
+            while (!pending.isEmpty()) {
+                results.add(finish(pending.poll(), archive, archiveData, options));
+            }
+            if (archive != null) {
+                archive.close();
+            }
 
-                    // Log รายละเอียดของแต่ละไฟล์
-                    System.out.printf("%-30s | %-15.7f\n", sourceFile.getName(),
-                            (mergeEndTime - mergeStartTime) / 1_000_000_000.0);
+            if (manifest != null) {
+                List<File> outputFiles = new ArrayList<>(results.size());
+                results.forEach(result -> outputFiles.add(result.outputFile));
+                for (File orphan : manifest.removeOrphans(outputFiles)) {
+                    log.printf("%-30s | REMOVED (source no longer exists)\n", orphan.getName());
                 }
+                manifest.save();
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+            if (archive != null) {
+                // Error ก่อน close(): ไม่ทิ้ง ZIP ที่ไม่สมบูรณ์ไว้
+                archive.discard();
             }
+        }
+    }
 
-            long endTime = System.nanoTime(); // จับเวลาสิ้นสุด
-            System.out.println("--------------------------------------------------");
-            System.out.printf("%-30s | %-15.7f\n", "Total Execution Time",
-                    (endTime - startTime) / 1_000_000_000.0);
-            System.out.println("Merge completed successfully!");
+    /**
+     * รอผลลัพธ์ของไฟล์หนึ่ง และเขียนลง ZIP เมื่อเป็นโหมด Archive (เรียกจาก Thread หลักตามลำดับของ sourceFiles)
+     *
+     * @param future
+     * @param archive null = เขียนเป็นไฟล์ (Worker เขียนเองแล้ว)
+     * @param archiveData
+     * @param options
+     * @return
+     * @throws Exception
+     */
+    private static MergeResult finish(Future<MergeResult> future, MergeArchive.Writer archive, Map<File, byte[]> archiveData,
+                                      MergeOptions options) throws Exception {
+        MergeResult result;
+        try {
+            result = future.get();
+        } catch (ExecutionException e) {
+            // ไม่ควรเกิดขึ้น เพราะ Task จับ Exception เองแล้ว
+            throw new IllegalStateException(e.getCause());
+        }
+        byte[] data = archive != null ? archiveData.remove(result.sourceFile) : null;
+        if (data != null) {
+            try {
+                archive.add(options.resolveOutputPath(result.sourceFile), data, result.sourceFile.lastModified());
+            } catch (ZipException e) {
+                // ชื่อ Entry ซ้ำ (ไม่ควรเกิดขึ้นหลัง findOutputConflicts): ไฟล์นี้ถือว่าไม่สำเร็จ
+                options.log.printf("%-30s | FAILED: %s\n", result.sourceFile.getName(), e.getMessage());
+                result = new MergeResult(result.sourceFile, result.outputFile, result.elapsedNanos, e, false, false, result.metrics, result.domFallback);
+            }
+        }
+        return result;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Merge ไฟล์เดียว: parse -> สร้าง Document จาก Template -> mergeNodes -> save
+     *
+     * @param builder
+     * @param transformer
+     * @param template
+     * @param sourceFile
+     * @param outputFile
+     * @param streaming
+     * @throws Exception
+     */
+    static void mergeFile(DocumentBuilder builder, Transformer transformer, MergeTemplate template,
+                                  File sourceFile, File outputFile, boolean streaming) throws Exception {
+        mergeFile(builder, transformer, template, sourceFile, outputFile, streaming, false, null);
+    }
+
+    /**
+     * mergeFile พร้อมเก็บเวลาแต่ละขั้นตอนและตัวนับลงใน metrics
+     *
+     * @param builder
+     * @param transformer
+     * @param template
+     * @param sourceFile
+     * @param outputFile
+     * @param streaming
+     * @param prettyPrint จัดย่อหน้าไฟล์ผลลัพธ์ (ไม่ใช้ Streaming เพราะ StreamingMerger เขียนแบบไม่จัดย่อหน้า)
+     * @param metrics null = ไม่เก็บ
+     * @throws Exception
+     */
+    static void mergeFile(DocumentBuilder builder, Transformer transformer, MergeTemplate template,
+                          File sourceFile, File outputFile, boolean streaming, boolean prettyPrint,
+                          MergeMetrics metrics) throws Exception {
+        // โฟลเดอร์ย่อยของ Output (กรณี Merge แบบ recursive)
+        File outputDirectory = outputFile.getParentFile();
+        if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create folder " + outputDirectory);
+        }
+
+        if (streaming && !prettyPrint) {
+            long phaseStart = System.nanoTime();
+            // ตัวนับของรอบ Streaming แยกไว้ก่อน (ถ้าต้องกลับไปใช้ DOM ตัวนับของรอบนี้ไม่นับ แต่นับเวลา)
+            MergeMetrics streamMetrics = metrics == null ? null : new MergeMetrics(sourceFile);
+            boolean streamed = StreamingMerger.merge(template, builder, sourceFile, outputFile, streamMetrics);
+            if (metrics != null) {
+                metrics.add(MergeMetrics.MERGE, System.nanoTime() - phaseStart);
+                if (streamed) {
+                    metrics.addAll(streamMetrics);
+                    metrics.streamed = true;
+                    metrics.bytesWritten = outputFile.length();
+                }
+            }
+            if (streamed) {
+                return;
+            }
+        }
+
+        Document resultDoc = mergeDocument(builder, template, sourceFile, metrics);
+        long phaseStart = System.nanoTime();
+        saveMergedXML(transformer, resultDoc, outputFile, prettyPrint);
+        if (metrics != null) {
+            metrics.add(MergeMetrics.SERIALIZE, System.nanoTime() - phaseStart);
+            metrics.bytesWritten = outputFile.length();
         }
     }
 
+    /**
+     * mergeFile แต่คืนผลลัพธ์เป็น bytes แทนการเขียนไฟล์ (ใช้เมื่อเขียนลง MergeArchive)
+     *
+     * @param builder
+     * @param transformer
+     * @param template
+     * @param sourceFile
+     * @param streaming
+     * @param prettyPrint
+     * @param metrics null = ไม่เก็บ
+     * @return
+     * @throws Exception
+     */
+    static byte[] mergeToBytes(DocumentBuilder builder, Transformer transformer, MergeTemplate template,
+                               File sourceFile, boolean streaming, boolean prettyPrint, MergeMetrics metrics) throws Exception {
+        if (streaming && !prettyPrint) {
+            long phaseStart = System.nanoTime();
+            MergeMetrics streamMetrics = metrics == null ? null : new MergeMetrics(sourceFile);
+            byte[] data = StreamingMerger.mergeToBytes(template, builder, sourceFile, streamMetrics);
+            if (metrics != null) {
+                metrics.add(MergeMetrics.MERGE, System.nanoTime() - phaseStart);
+                if (data != null) {
+                    metrics.addAll(streamMetrics);
+                    metrics.streamed = true;
+                    metrics.bytesWritten = data.length;
+                }
+            }
+            if (data != null) {
+                return data;
+            }
+        }
+
+        Document resultDoc = mergeDocument(builder, template, sourceFile, metrics);
+        long phaseStart = System.nanoTime();
+        byte[] data = serialize(transformer, resultDoc, prettyPrint);
+        if (metrics != null) {
+            metrics.add(MergeMetrics.SERIALIZE, System.nanoTime() - phaseStart);
+            metrics.bytesWritten = data.length;
+        }
+        return data;
+    }
+
+    /**
+     * เขียน Document เป็น bytes ด้วย DocumentWriter (เอกสารที่ไม่รองรับใช้ Transformer)
+     *
+     * @param transformer
+     * @param document
+     * @param prettyPrint
+     * @return
+     * @throws TransformerException
+     */
+    static byte[] serialize(Transformer transformer, Document document, boolean prettyPrint) throws TransformerException {
+        byte[] data = DocumentWriter.toByteArray(document, prettyPrint);
+        if (data == null) {
+            transformer.setOutputProperty(OutputKeys.INDENT, prettyPrint ? "yes" : "no");
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            transformer.transform(new DOMSource(document), new StreamResult(output));
+            data = output.toByteArray();
+        }
+        return data;
+    }
 
     /**
-     * save merged XML Files only for manual filled paths
+     * parse Source -> สร้าง Document จาก Template -> mergeNodes (ยังไม่เขียนผลลัพธ์)
      *
+     * @param builder
+     * @param template
+     * @param sourceFile
+     * @param metrics null = ไม่เก็บ
+     * @return
+     * @throws Exception
+     */
+    private static Document mergeDocument(DocumentBuilder builder, MergeTemplate template, File sourceFile,
+                                          MergeMetrics metrics) throws Exception {
+        long phaseStart = System.nanoTime();
+        // Prescan ปฏิเสธไฟล์ที่ไม่ใช่ XML ก่อน Parse (ไม่ map: ระหว่าง --watch ผู้ทดสอบยังบันทึกทับ Source ได้)
+        Document sourceDoc = builder.parse(MappedXMLInput.open(sourceFile).newInputSource());
+        if (metrics != null) {
+            metrics.add(MergeMetrics.PARSE, System.nanoTime() - phaseStart);
+        }
+        return mergeDocument(builder, template, sourceDoc, metrics);
+    }
+
+    /**
+     * สร้าง Document จาก Template -> mergeNodes กับ Source ที่อยู่ในหน่วยความจำแล้ว
+     * (ใช้โดย CsvMerger ซึ่งสร้าง Source จากแถวของ CSV โดยไม่ต้องเขียนเป็นไฟล์ XML ก่อน)
+     *
+     * @param builder
+     * @param template
+     * @param sourceDoc
+     * @param metrics null = ไม่เก็บ
+     * @return
+     */
+    static Document mergeDocument(DocumentBuilder builder, MergeTemplate template, Document sourceDoc, MergeMetrics metrics) {
+        long phaseStart = System.nanoTime();
+        Document resultDoc = template.newDocument(builder);
+        Node resultRoot = resultDoc.getDocumentElement();
+        if (metrics != null) {
+            metrics.add(MergeMetrics.TEMPLATE, System.nanoTime() - phaseStart);
+            metrics.sourceNodes = sourceDoc.getElementsByTagName("*").getLength();
+            phaseStart = System.nanoTime();
+        }
+
+        Node sourceRoot = sourceDoc.getDocumentElement();
+        mergeNodes(resultDoc, resultRoot, sourceRoot, RepeatableFieldRegistry.pathOf(resultRoot.getParentNode()), metrics);
+        if (metrics != null) {
+            metrics.add(MergeMetrics.MERGE, System.nanoTime() - phaseStart);
+            metrics.outputNodes = resultDoc.getElementsByTagName("*").getLength();
+        }
+        return resultDoc;
+    }
+
+
+    /**
+     * save Merged XML Files to folder
+     *
+     * - เขียนด้วย DocumentWriter (ได้ Byte เดียวกับ Transformer แต่เร็วกว่าหลายเท่า)
+     * - เอกสารที่ DocumentWriter ไม่รองรับ (เช่น มี DOCTYPE) ใช้ Transformer แบบเดิม
+     *
+     * @param transformer
      * @param resultDoc
-     * @param sourceFileName
+     * @param outputFile
+     * @param prettyPrint
      * @throws TransformerException
+     * @throws IOException
      */
-    private static void saveMergedXML(Document resultDoc, String sourceFileName) throws TransformerException {
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+    private static void saveMergedXML(Transformer transformer, Document resultDoc, File outputFile, boolean prettyPrint)
+            throws TransformerException, IOException {
+        if (DocumentWriter.write(resultDoc, outputFile, prettyPrint)) {
+            return;
+        }
 
-        String outputFileName = "C:\\Installer\\XMLToMerge\\FinishedAllFiles\\Result_testdataXML_SIT\\" /* + "Merged_" */ + sourceFileName;
-        StreamResult result = new StreamResult(new File(outputFileName));
+        // indent-amount ของ XMLSupport.transformer() มีผลเมื่อเปิด INDENT เท่านั้น (Transformer ใช้ซ้ำใน Thread จึงตั้งค่าทุกครั้ง)
+        transformer.setOutputProperty(OutputKeys.INDENT, prettyPrint ? "yes" : "no");
+        StreamResult result = new StreamResult(outputFile);
 
         DOMSource domSource = new DOMSource(resultDoc);
         transformer.transform(domSource, result);
@@ -142,13 +546,8 @@ public class XMLMerger {
     private static JTextField xmlStructureField;
     private static JTextField sourceFolderField;
     private static JTextField saveFolderField;
-
-    /**
-     * 3 บรรทัดด้านล่าง คือโค้ดที่ใช้เปิดใช้งาน GUI (อย่าลืมปิด main ด้านบน)
-     */
-//    public static void main(String[] args) {
-//        SwingUtilities.invokeLater(XMLMerger::XMLMergerGUI);
-//    }
+    private static JSpinner threadCountSpinner;
+    private static JCheckBox streamingCheckBox;
 
     private static void XMLMergerGUI() {
         frame = new JFrame("XML Merger Tool");
@@ -164,6 +563,7 @@ public class XMLMerger {
         xmlStructureField = createFileChooserPanel(formPanel, "XML Structure File:", "Choose XML Structure File", true);
         sourceFolderField = createFileChooserPanel(formPanel, "Source Folder:", "Choose Source Folder", false);
         saveFolderField = createFileChooserPanel(formPanel, "Save Folder:", "Choose Save Folder", false);
+        threadCountSpinner = createThreadCountPanel(formPanel);
 
         // Panel สำหรับปุ่มด้านล่าง
         JPanel buttonPanel = new JPanel();
@@ -172,6 +572,10 @@ public class XMLMerger {
         JButton mergeButton = new JButton("Merge Files");
         mergeButton.addActionListener(new MergeActionListener());
 
+        // Streaming Merge สำหรับไฟล์ขนาดใหญ่ (ไม่โหลด Source ทั้งไฟล์เป็น DOM)
+        streamingCheckBox = new JCheckBox("Streaming (large files)");
+
+        buttonPanel.add(streamingCheckBox);
         buttonPanel.add(mergeButton);
 
         // เพิ่ม Panel ต่างๆ เข้า Frame
@@ -226,6 +630,32 @@ public class XMLMerger {
         return textField;
     }
 
+    /**
+     * create Thread Count Panel (จำนวน Thread ที่ใช้ Merge แบบขนาน)
+     *
+     * @param parent
+     * @return
+     */
+    private static JSpinner createThreadCountPanel(JPanel parent) {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+
+        JLabel labelComponent = new JLabel("Threads:");
+        JSpinner spinner = new JSpinner(new SpinnerNumberModel(DEFAULT_THREAD_COUNT, 1, 256, 1));
+
+        labelComponent.setPreferredSize(new Dimension(150, 30));
+        spinner.setMaximumSize(new Dimension(150, 30));
+
+        panel.add(labelComponent);
+        panel.add(Box.createHorizontalStrut(10));
+        panel.add(spinner);
+        panel.add(Box.createHorizontalGlue());
+
+        parent.add(panel);
+        return spinner;
+    }
+
     private static class MergeActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
@@ -248,149 +678,154 @@ public class XMLMerger {
                     return;
                 }
 
-                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-                factory.setNamespaceAware(true);
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                Document xmlStructureDoc = builder.parse(xmlStructureFile);
-
-                for (File sourceFile : sourceFiles) {
-                    Document sourceDoc = builder.parse(sourceFile);
-
-                    Document resultDoc = (Document) xmlStructureDoc.cloneNode(true);
-                    Node resultRoot = resultDoc.getDocumentElement();
+                int threads = (Integer) threadCountSpinner.getValue();
+                boolean streaming = streamingCheckBox.isSelected();
+                List<MergeResult> results = mergeFiles(xmlStructureFile, sourceFiles, saveFolderPath, threads, true, streaming);
+                long failedCount = results.stream().filter(result -> !result.isSuccess()).count();
 
-                    Node sourceRoot = sourceDoc.getDocumentElement();
-                    mergeNodes(resultDoc, resultRoot, sourceRoot);
-
-                    saveMergedXML(resultDoc, saveFolderPath, sourceFile.getName());
+                if (failedCount == 0) {
+                    JOptionPane.showMessageDialog(frame, "Merge completed successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(frame, failedCount + " of " + results.size() + " file(s) failed to merge (see log)",
+                            "Warning", JOptionPane.WARNING_MESSAGE);
                 }
 
-                JOptionPane.showMessageDialog(frame, "Merge completed successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(frame, "An error occurred: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 ex.printStackTrace();
             }
         }
+    }
+
+    /**
+     * รวมโหนด (Node) ระหว่างโครงสร้าง XML สองชุด (4 กรณีหลัก)
+     *
+     * เมธอดนี้ใช้สำหรับการรวมโหนดจาก XML ต้นทาง (source) เข้ากับ XML ปลายทาง (clean)
+     * โดยรองรับ 4 กรณีหลัก:
+     * 1. การรวมโหนดแบบปกติ: โหนดที่มีโครงสร้างตรงกันจะถูกรวมข้อมูลเข้าด้วยกัน
+     * 2. การรวมโหนดแบบ "Unbound Field" ที่มีลูกเพียง 1 ตัว เช่น ALSCustomerNums ที่มี "ALSCustomerNum"
+     * 3. การรวมโหนดแบบ "Unbound Field" ที่มีโครงสร้างซับซ้อน เช่น CollateralDetails ที่มีหลาย "CollateralDetail"
+     * 4. การรวมโหนดแบบ "Unbound Field" ที่ไม่มีโครงสร้างลูก (ไม่มี Subfields) เช่น ProjectNameSoftLoans ที่ไม่มี "ProjectNameSoftLoan"
+     *
+     * เมธอดนี้มี 2 รูปแบบ:
+     * แบบที่ 1: ทำงานกับโครงสร้างโหนดโดยตรง ไม่ใช้ HashMap เหมาะสำหรับ XML ที่มีขนาดเล็กหรือโครงสร้างไม่ซับซ้อน แต่ประสิทธิภาพอาจช้ากว่าสำหรับเอกสารขนาดใหญ่
+     * แบบที่ 2: ใช้ "HashMap" ในการค้นหาและรวมโหนด เหมาะสำหรับเอกสาร XML ที่มีขนาดใหญ่และต้องการความเร็วในการประมวลผล (เร็วขึ้นสูงสุด 2.67 เท่า)
+     *
+     * โค้ดนี้เป็นรูปแบบที่ 1 โดยประมวลผลโหนดแบบเรียงลำดับโดยตรง
+     * (ไม่ได้ใช้ในการ Merge จริง เก็บไว้เพื่อเปรียบเทียบประสิทธิภาพกับแบบที่ 2 ใน bench (MergeBenchmarks.mergeNodesDirect))
+     *
+     * @param cleanDoc
+     * @param cleanNode
+     * @param sourceNode
+     */
+    static void mergeNodesDirect(Document cleanDoc, Node cleanNode, Node sourceNode) {
+        RepeatableFieldRegistry repeatableFields = RepeatableFieldRegistry.getDefault();
+        NodeList sourceChildren = sourceNode.getChildNodes();
+
+        for (int i = 0; i < sourceChildren.getLength(); i++) {
+            Node sourceChild = sourceChildren.item(i);
 
+            if (sourceChild.getNodeType() == Node.ELEMENT_NODE) {
+                String tagName = sourceChild.getNodeName();
+
+                /**
+                 * 1. ตรวจสอบว่า Field ต้อง Duplicate หรือไม่:
+                 * - ในกรณีที่ XML โครงสร้าง (Structure) มี Field ซ้ำเพียง 1 อัน เช่น ALSCustomerNum แต่ XML ข้อมูล (Test Data) มี Field ซ้ำหลายอัน เช่น CollateralDetail, TransactionDetail, หรือ DisbursementInfo
+                 * - ระบบจะ Duplicate Field เพิ่มขึ้น เพื่อให้โครงสร้างรองรับข้อมูลทั้งหมด แล้วลบต้นฉบับที่ซ้ำด้วย removeDuplicateNodes
+                 */
+                if (repeatableFields.isRepeatable(cleanNode, tagName)) {
+                    int sourceCount = countChildrenWithData(sourceNode, tagName);
+                    int cleanCount = countChildrenWithData(cleanNode, tagName);
+                    boolean didDuplicate = false;
+                    boolean didSpecialDuplicate = false;
+
+                    /**
+                     * 2. กรณีจำนวน Field ใน Source มากกว่า Clean:
+                     * - หาก sourceCount > cleanCount เช่น CollateralDetail มี 2 Field ใน Source แต่ Clean มีแค่ 1 Field (เพราะเป็นโครงสร้างเปล่า):
+                     * - ระบบจะ Duplicate Field เพิ่มเติมเพื่อให้โครงสร้างรองรับข้อมูลทั้งหมด
+                     */
+                    if (sourceCount > cleanCount) {
+                        duplicateField(cleanDoc, cleanNode, findChildNode(cleanNode, tagName), sourceCount - cleanCount);
+                        didDuplicate = true;
+                    }
 
-        /**
-         * save Merged XML Files to folder
-         *
-         * @param resultDoc
-         * @param saveFolderPath
-         * @param sourceFileName
-         * @throws Exception
-         */
-        private void saveMergedXML(Document resultDoc, String saveFolderPath, String sourceFileName) throws Exception {
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            // transformer.setOutputProperty("indent", "yes");
+                    /**
+                     * 3. กรณี Field พิเศษ ("Special Duplicate Fields"):
+                     * - ตรวจสอบว่า Field ที่อยู่ในกลุ่ม isSpecialDuplicateFields เช่น ProjectNameSoftLoans, ExistingGuaranteeCollateralDetails, ...
+                     * - หากพบว่า Field เหล่านี้มีข้อมูลซ้ำหลายอัน ระบบจะเพิ่ม/รวมข้อมูลจาก Source เข้ามาใน Clean และลบต้นฉบับด้วย removeSpecialDuplicateNodes
+                     * - การแยกกรณีนี้ออกจาก Duplicate ปกติเพราะเป็น Field แบบ Unbound ที่ไม่มี Subfield เช่น ProjectNameSoftLoans ไม่มี "ProjectNameSoftLoan"
+                     */
+                    if (isSpecialDuplicateFields(tagName)) {
+                        Node importedNode = cleanDoc.importNode(sourceChild, true);
+                        cleanNode.appendChild(importedNode);
+                        didSpecialDuplicate = true;
+                    }
 
-            String outputFileName = saveFolderPath + File.separator /* + "Merged_" */ + sourceFileName;
-            StreamResult result = new StreamResult(new File(outputFileName));
+                    /**
+                     * 4. การ Merge หลัง Duplicate:
+                     * - เมื่อ Duplicate Field เพิ่มแล้ว ระบบจะ Merge ข้อมูลเฉพาะ Field ที่ถูก Duplicate ไม่กระทบต้นฉบับ
+                     */
+                    mergeDuplicateFieldsDirect(cleanDoc, cleanNode, sourceNode, tagName);
+
+                    /**
+                     * 5. ลบต้นฉบับหลัง Duplicate:
+                     * - หากมีการ Duplicate Field (didDuplicate เป็นจริง): ลบต้นฉบับซ้ำด้วย removeDuplicateNodes
+                     * - หากมีการ Special Duplicate (didSpecialDuplicate เป็นจริง): ลบต้นฉบับพิเศษด้วย removeSpecialDuplicateNodes
+                     */
+                    if (didDuplicate) {
+                        removeDuplicateNodes(cleanNode, findChildNodes(cleanNode, tagName));
+                    } else if (didSpecialDuplicate) {
+                        removeSpecialDuplicateNodes(cleanNode, tagName);
+                    }
+                } else {
+                    Node correspondingCleanNode = findChildNode(cleanNode, tagName);
 
-            DOMSource domSource = new DOMSource(resultDoc);
-            transformer.transform(domSource, result);
+                    if (correspondingCleanNode != null) {
+                        mergeNodesDirect(cleanDoc, correspondingCleanNode, sourceChild);
+                    } else {
+                        Node importedNode = cleanDoc.importNode(sourceChild, true);
+                        cleanNode.appendChild(importedNode);
+                    }
+                }
+            } else if (sourceChild.getNodeType() == Node.TEXT_NODE) {
+                if (!sourceChild.getTextContent().trim().isEmpty()) {
+                    cleanNode.setTextContent(sourceChild.getTextContent().trim());
+                }
+            }
         }
     }
 
-        /**
-         * รวมโหนด (Node) ระหว่างโครงสร้าง XML สองชุด (4 กรณีหลัก)
-         *
-         * เมธอดนี้ใช้สำหรับการรวมโหนดจาก XML ต้นทาง (source) เข้ากับ XML ปลายทาง (clean)
-         * โดยรองรับ 4 กรณีหลัก:
-         * 1. การรวมโหนดแบบปกติ: โหนดที่มีโครงสร้างตรงกันจะถูกรวมข้อมูลเข้าด้วยกัน
-         * 2. การรวมโหนดแบบ "Unbound Field" ที่มีลูกเพียง 1 ตัว เช่น ALSCustomerNums ที่มี "ALSCustomerNum"
-         * 3. การรวมโหนดแบบ "Unbound Field" ที่มีโครงสร้างซับซ้อน เช่น CollateralDetails ที่มีหลาย "CollateralDetail"
-         * 4. การรวมโหนดแบบ "Unbound Field" ที่ไม่มีโครงสร้างลูก (ไม่มี Subfields) เช่น ProjectNameSoftLoans ที่ไม่มี "ProjectNameSoftLoan"
-         *
-         * เมธอดนี้มี 2 รูปแบบ:
-         * แบบที่ 1: ทำงานกับโครงสร้างโหนดโดยตรง ไม่ใช้ HashMap เหมาะสำหรับ XML ที่มีขนาดเล็กหรือโครงสร้างไม่ซับซ้อน แต่ประสิทธิภาพอาจช้ากว่าสำหรับเอกสารขนาดใหญ่
-         * แบบที่ 2: ใช้ "HashMap" ในการค้นหาและรวมโหนด เหมาะสำหรับเอกสาร XML ที่มีขนาดใหญ่และต้องการความเร็วในการประมวลผล (เร็วขึ้นสูงสุด 2.67 เท่า)
-         *
-         * โค้ดนี้เป็นรูปแบบที่ 1 โดยประมวลผลโหนดแบบเรียงลำดับโดยตรง
-         *
-         * @param cleanDoc
-         * @param cleanNode
-         * @param sourceNode
-         */
-//        private static void mergeNodes(Document cleanDoc, Node cleanNode, Node sourceNode) {
-//            NodeList sourceChildren = sourceNode.getChildNodes();
-//
-//            for (int i = 0; i < sourceChildren.getLength(); i++) {
-//                Node sourceChild = sourceChildren.item(i);
-//
-//                if (sourceChild.getNodeType() == Node.ELEMENT_NODE) {
-//                    String tagName = sourceChild.getNodeName();
-//
-//                    /**
-//                     * 1. ตรวจสอบว่า Field ต้อง Duplicate หรือไม่:
-//                     * - ในกรณีที่ XML โครงสร้าง (Structure) มี Field ซ้ำเพียง 1 อัน เช่น ALSCustomerNum แต่ XML ข้อมูล (Test Data) มี Field ซ้ำหลายอัน เช่น CollateralDetail, TransactionDetail, หรือ DisbursementInfo
-//                     * - ระบบจะ Duplicate Field เพิ่มขึ้น เพื่อให้โครงสร้างรองรับข้อมูลทั้งหมด แล้วลบต้นฉบับที่ซ้ำด้วย removeDuplicateNodes
-//                     */
-//                    if (duplicateAllowedFields.contains(tagName)) {
-//                        int sourceCount = countChildrenWithData(sourceNode, tagName);
-//                        int cleanCount = countChildrenWithData(cleanNode, tagName);
-//                        boolean didDuplicate = false;
-//                        boolean didSpecialDuplicate = false;
-//
-//                        /**
-//                         * 2. กรณีจำนวน Field ใน Source มากกว่า Clean:
-//                         * - หาก sourceCount > cleanCount เช่น CollateralDetail มี 2 Field ใน Source แต่ Clean มีแค่ 1 Field (เพราะเป็นโครงสร้างเปล่า):
-//                         * - ระบบจะ Duplicate Field เพิ่มเติมเพื่อให้โครงสร้างรองรับข้อมูลทั้งหมด
-//                         */
-//                        if (sourceCount > cleanCount) {
-//                            duplicateField(cleanDoc, cleanNode, tagName, sourceCount - cleanCount);
-//                            didDuplicate = true;
-//                        }
-//
-//                        /**
-//                         * 3. กรณี Field พิเศษ ("Special Duplicate Fields"):
-//                         * - ตรวจสอบว่า Field ที่อยู่ในกลุ่ม isSpecialDuplicateFields เช่น ProjectNameSoftLoans, ExistingGuaranteeCollateralDetails, ...
-//                         * - หากพบว่า Field เหล่านี้มีข้อมูลซ้ำหลายอัน ระบบจะเพิ่ม/รวมข้อมูลจาก Source เข้ามาใน Clean และลบต้นฉบับด้วย removeSpecialDuplicateNodes
-//                         * - การแยกกรณีนี้ออกจาก Duplicate ปกติเพราะเป็น Field แบบ Unbound ที่ไม่มี Subfield เช่น ProjectNameSoftLoans ไม่มี "ProjectNameSoftLoan"
-//                         */
-//                        if (isSpecialDuplicateFields(tagName)) {
-//                            Node importedNode = cleanDoc.importNode(sourceChild, true);
-//                            cleanNode.appendChild(importedNode);
-//                            didSpecialDuplicate = true;
-//                        }
-//
-//                        /**
-//                         * 4. การ Merge หลัง Duplicate:
-//                         * - เมื่อ Duplicate Field เพิ่มแล้ว ระบบจะ Merge ข้อมูลเฉพาะ Field ที่ถูก Duplicate ไม่กระทบต้นฉบับ
-//                         */
-//                        mergeDuplicateFields(cleanDoc, cleanNode, sourceNode, tagName);
-//
-//                        /**
-//                         * 5. ลบต้นฉบับหลัง Duplicate:
-//                         * - หากมีการ Duplicate Field (didDuplicate เป็นจริง): ลบต้นฉบับซ้ำด้วย removeDuplicateNodes
-//                         * - หากมีการ Special Duplicate (didSpecialDuplicate เป็นจริง): ลบต้นฉบับพิเศษด้วย removeSpecialDuplicateNodes
-//                         */
-//                        if (didDuplicate) {
-//                            removeDuplicateNodes(cleanNode, tagName);
-//                        } else if (didSpecialDuplicate) {
-//                            removeSpecialDuplicateNodes(cleanNode, tagName);
-//                        }
-//                    } else {
-//                        Node correspondingCleanNode = findChildNode(cleanNode, tagName);
-//
-//                        if (correspondingCleanNode != null) {
-//                            mergeNodes(cleanDoc, correspondingCleanNode, sourceChild);
-//                        } else {
-//                            Node importedNode = cleanDoc.importNode(sourceChild, true);
-//                            cleanNode.appendChild(importedNode);
-//                        }
-//                    }
-//                } else if (sourceChild.getNodeType() == Node.TEXT_NODE) {
-//                    if (!sourceChild.getTextContent().trim().isEmpty()) {
-//                        cleanNode.setTextContent(sourceChild.getTextContent().trim());
-//                    }
-//                }
-//            }
-//        }
+    /**
+     * ฟังก์ชันเติมข้อมูลใน Field ที่ Duplicate สำหรับ mergeNodesDirect (เรียก mergeNodesDirect ซ้ำแทน mergeNodes)
+     *
+     * @param cleanDoc
+     * @param cleanNode
+     * @param sourceNode
+     * @param tagName
+     */
+    private static void mergeDuplicateFieldsDirect(Document cleanDoc, Node cleanNode, Node sourceNode, String tagName) {
+        NodeList cleanChildren = cleanNode.getChildNodes();
+        NodeList sourceChildren = sourceNode.getChildNodes();
+
+        int cleanIndex = 0;
+
+        for (int i = 0; i < sourceChildren.getLength(); i++) {
+            Node sourceChild = sourceChildren.item(i);
+
+            if (sourceChild.getNodeType() == Node.ELEMENT_NODE && sourceChild.getNodeName().equals(tagName)) {
+                while (cleanIndex < cleanChildren.getLength()) {
+                    Node cleanChild = cleanChildren.item(cleanIndex);
+
+                    if (cleanChild.getNodeType() == Node.ELEMENT_NODE && cleanChild.getNodeName().equals(tagName)) {
+                        mergeNodesDirect(cleanDoc, cleanChild, sourceChild);
+                        cleanIndex++;
+                        break;
+                    }
+                    cleanIndex++;
+                }
+            }
+        }
+    }
 
 
     /**
@@ -413,78 +848,289 @@ public class XMLMerger {
      * @param cleanNode
      * @param sourceNode
      */
-    private static void mergeNodes(Document cleanDoc, Node cleanNode, Node sourceNode) {
+    static void mergeNodes(Document cleanDoc, Node cleanNode, Node sourceNode) {
+        mergeNodes(cleanDoc, cleanNode, sourceNode, RepeatableFieldRegistry.pathOf(cleanNode.getParentNode()));
+    }
+
+    /**
+     * mergeNodes สำหรับ cleanNode ที่ไม่ได้อยู่ในตำแหน่งจริงของเอกสาร (เช่น กิ่งที่ StreamingMerger Buffer ไว้)
+     *
+     * @param cleanDoc
+     * @param cleanNode
+     * @param sourceNode
+     * @param parentPath local name ของ Parent ของ cleanNode ตั้งแต่ Root (ใช้ตรวจ Field ที่ Duplicate ได้ตาม Path)
+     */
+    static void mergeNodes(Document cleanDoc, Node cleanNode, Node sourceNode, List<String> parentPath) {
+        mergeNodes(cleanDoc, cleanNode, sourceNode, parentPath, null);
+    }
+
+    /**
+     * mergeNodes พร้อมเก็บเวลา duplicate / remove และตัวนับลงใน metrics
+     *
+     * @param cleanDoc
+     * @param cleanNode
+     * @param sourceNode
+     * @param parentPath
+     * @param metrics null = ไม่เก็บ
+     */
+    static void mergeNodes(Document cleanDoc, Node cleanNode, Node sourceNode, List<String> parentPath, MergeMetrics metrics) {
+        MergeContext context = new MergeContext(RepeatableFieldRegistry.getDefault(), parentPath, metrics);
+        context.path.add(RepeatableFieldRegistry.localName(cleanNode));
+        mergeNodes(cleanDoc, cleanNode, sourceNode, context);
+        if (metrics != null) {
+            metrics.duplicatesCreated += context.duplicates;
+            metrics.nodesImported += context.imported;
+            metrics.nodesRemoved += context.removed;
+        }
+    }
+
+    /**
+     * สถานะที่ใช้ร่วมกันตลอด Recursion ของ mergeNodes
+     */
+    private static final class MergeContext {
+        final RepeatableFieldRegistry repeatableFields;
+        /** Tag ID ของชื่อ Tag ทั้งหมดที่พบใน Source ของการ Merge ครั้งนี้ */
+        final TagSymbols symbols;
+        /** local name ของ cleanNode ปัจจุบันและ Parent ทั้งหมด (root-first) */
+        final List<String> path;
+        /** ตัวนับการแก้ไข DOM */
+        int mutations;
+        /** ตัวนับสำหรับ MergeMetrics (Field ที่ Duplicate, โหนดที่ Import, โหนดที่ลบ) */
+        int duplicates;
+        int imported;
+        int removed;
+        /** null = ไม่จับเวลา duplicate / remove */
+        final MergeMetrics metrics;
+
+        MergeContext(RepeatableFieldRegistry repeatableFields, List<String> parentPath, MergeMetrics metrics) {
+            this.repeatableFields = repeatableFields;
+            this.symbols = new TagSymbols(repeatableFields);
+            this.path = new ArrayList<>(parentPath);
+            this.metrics = metrics;
+        }
+
+        /**
+         * @param children
+         * @return Tag ID ของลูกแต่ละตัว (TagSymbols.NONE สำหรับโหนดที่ไม่ใช่ Element)
+         */
+        int[] tagsOf(NodeList children) {
+            int[] tags = new int[children.getLength()];
+            for (int i = 0; i < tags.length; i++) {
+                Node child = children.item(i);
+                tags[i] = child.getNodeType() == Node.ELEMENT_NODE ? symbols.intern(child.getNodeName()) : TagSymbols.NONE;
+            }
+            return tags;
+        }
+
+        long startPhase() {
+            return metrics == null ? 0 : System.nanoTime();
+        }
+
+        void endPhase(int phase, long phaseStart) {
+            if (metrics != null) {
+                metrics.add(phase, System.nanoTime() - phaseStart);
+            }
+        }
+    }
+
+    /**
+     * mergeNodes แบบนับจำนวนการแก้ไข DOM (mutations) เพื่อใช้ตรวจว่าการ Merge ซ้ำไม่มีอะไรเปลี่ยน
+     *
+     * - cleanNodeMap ถูกสร้างครั้งเดียว แล้วอัปเดตเฉพาะส่วนที่เพิ่ม/ลบ (ไม่ Rebuild ทุกครั้ง)
+     * - ลูกของ sourceNode ถูกแปลงเป็น Tag ID ครั้งเดียว การเทียบชื่อ Tag หลังจากนั้นเป็นการเทียบ int
+     *   และ Tag ที่ไม่มี Flag repeatable ของ TagSymbols ไม่ต้องไล่ Path ใน RepeatableFieldRegistry
+     * - จำนวน Field ที่มีข้อมูลใน sourceNode (countChildrenWithData) ถูก Cache ต่อ Tag ID
+     * - Field ที่ Duplicate ได้จะถูก Merge ใหม่ทุกครั้งที่เจอใน Source (ผลลัพธ์ขึ้นกับการ Merge ซ้ำนี้)
+     *   แต่เมื่อรอบใดไม่มีการแก้ไข DOM เลย รอบถัดไปของ tagName เดียวกันจะได้ผลเหมือนเดิม จึงข้ามได้
+     *   ทำให้ Field ที่ซ้ำหลายร้อยตัว (เช่น CollateralDetail) ใช้เวลาเป็นเชิงเส้นแทน O(n²)
+     *
+     * @param cleanDoc
+     * @param cleanNode
+     * @param sourceNode
+     * @param context Registry, Path ของ cleanNode และตัวนับการแก้ไข DOM (ใช้ร่วมกันทั้ง Recursion)
+     */
+    private static void mergeNodes(Document cleanDoc, Node cleanNode, Node sourceNode, MergeContext context) {
             // สร้าง HashMap สำหรับ cleanNode
             Map<String, List<Node>> cleanNodeMap = buildNodeMap(cleanNode);
+            // true เมื่อ setTextContent ลบลูกของ cleanNode ไปแล้ว (cleanNodeMap ไม่ตรงกับ DOM จนกว่าจะมีการเพิ่ม/ลบโหนด)
+            boolean textReplaced = false;
+
+            // สร้างเมื่อพบ Field ที่ Duplicate ได้ตัวแรก (Element ส่วนใหญ่ไม่มี)
+            RepeatableTags repeatableTags = null;
 
             NodeList sourceChildren = sourceNode.getChildNodes();
+            int[] sourceTags = context.tagsOf(sourceChildren);
 
-            for (int i = 0; i < sourceChildren.getLength(); i++) {
+            for (int i = 0; i < sourceTags.length; i++) {
                 Node sourceChild = sourceChildren.item(i);
+                int tag = sourceTags[i];
 
-                if (sourceChild.getNodeType() == Node.ELEMENT_NODE) {
-                    String tagName = sourceChild.getNodeName();
+                if (tag != TagSymbols.NONE) {
+                    String tagName = context.symbols.getName(tag);
 
                     // ตรวจสอบว่าเป็น Field ที่ต้อง Duplicate
-                    if (duplicateAllowedFields.contains(tagName)) {
-                        int sourceCount = countChildrenWithData(sourceNode, tagName);
+                    if (context.symbols.mayBeRepeatable(tag) && context.repeatableFields.isRepeatable(context.path, tagName)) {
+                        if (repeatableTags == null) {
+                            repeatableTags = new RepeatableTags();
+                        }
+                        int slot = repeatableTags.slotOf(tag);
+                        if (repeatableTags.sourceCounts[slot] < 0) {
+                            repeatableTags.sourceCounts[slot] = countChildrenWithData(sourceChildren, sourceTags, tag);
+                        }
+                        int sourceCount = repeatableTags.sourceCounts[slot];
                         int cleanCount = cleanNodeMap.containsKey(tagName) ? cleanNodeMap.get(tagName).size() : 0;
 
                         boolean didDuplicate = false;
                         boolean didSpecialDuplicate = false;
+                        int mutationsBefore = context.mutations;
 
                         // Duplicate Field เกินไปก่อน
                         if (sourceCount > cleanCount) {
-                            duplicateField(cleanDoc, cleanNode, tagName, sourceCount - cleanCount);
+                            long phaseStart = context.startPhase();
+                            Node templateNode = textReplaced ? findChildNode(cleanNode, tagName) : firstNode(cleanNodeMap, tagName);
+                            List<Node> duplicates = duplicateField(cleanDoc, cleanNode, templateNode, sourceCount - cleanCount);
+                            context.endPhase(MergeMetrics.DUPLICATE, phaseStart);
+                            context.mutations += duplicates.size();
+                            context.duplicates += duplicates.size();
                             didDuplicate = true;
 
                             // อัพเดต HashMap หลัง Duplicate
-                            cleanNodeMap = buildNodeMap(cleanNode);
+                            if (textReplaced) {
+                                cleanNodeMap = buildNodeMap(cleanNode);
+                                textReplaced = false;
+                            } else {
+                                cleanNodeMap.computeIfAbsent(tagName, k -> new ArrayList<>()).addAll(duplicates);
+                            }
                         }
 
                         // เช็คกรณีพิเศษ
-                        if (isSpecialDuplicateFields(tagName)) {
+                        if (context.symbols.isSpecial(tag)) {
                             Node importedNode = cleanDoc.importNode(sourceChild, true);
                             cleanNode.appendChild(importedNode);
+                            context.mutations++;
+                            context.imported++;
                             didSpecialDuplicate = true;
 
                             // อัพเดต HashMap หลังเพิ่ม Special Node
-                            cleanNodeMap = buildNodeMap(cleanNode);
+                            if (textReplaced) {
+                                cleanNodeMap = buildNodeMap(cleanNode);
+                                textReplaced = false;
+                            } else {
+                                cleanNodeMap.computeIfAbsent(tagName, k -> new ArrayList<>()).add(importedNode);
+                            }
                         }
 
-                        // Merge ข้อมูล
-                        mergeDuplicateFields(cleanDoc, cleanNode, sourceNode, tagName);
+                        // Merge ข้อมูล (ข้ามได้เมื่อรอบก่อนหน้าของ tagName นี้ไม่มีการแก้ไข DOM)
+                        if (didDuplicate || didSpecialDuplicate || !repeatableTags.stable[slot]) {
+                            // cleanNodeMap ต้องตรงกับ DOM เพราะใช้แทนการวนลูกของ cleanNode
+                            if (textReplaced) {
+                                cleanNodeMap = buildNodeMap(cleanNode);
+                                textReplaced = false;
+                            }
+                            mergeDuplicateFields(cleanDoc, cleanNodeMap.getOrDefault(tagName, Collections.emptyList()),
+                                    sourceChildren, sourceTags, tag, context);
+                        }
 
                         // ลบต้นฉบับหลัง Duplicate
-                        if (didDuplicate) {
-                            removeDuplicateNodes(cleanNode, tagName);
-                            cleanNodeMap = buildNodeMap(cleanNode);
-                        } else if (didSpecialDuplicate) {
-                            removeSpecialDuplicateNodes(cleanNode, tagName);
-                            cleanNodeMap = buildNodeMap(cleanNode);
+                        if (didDuplicate || didSpecialDuplicate) {
+                            long phaseStart = context.startPhase();
+                            List<Node> tagNodes = cleanNodeMap.getOrDefault(tagName, Collections.emptyList());
+                            int removed = didDuplicate ? removeDuplicateNodes(cleanNode, tagNodes) : removeSpecialDuplicateNodes(cleanNode, tagNodes);
+                            context.endPhase(MergeMetrics.REMOVE, phaseStart);
+                            context.mutations += removed;
+                            context.removed += removed;
                         }
+
+                        repeatableTags.stable[slot] = !didDuplicate && !didSpecialDuplicate && context.mutations == mutationsBefore;
                     } else {
                         // กรณีไม่ใช่ Field ที่ Duplicate
                         List<Node> correspondingCleanNodes = cleanNodeMap.get(tagName);
 
                         if (correspondingCleanNodes != null && !correspondingCleanNodes.isEmpty()) {
-                            mergeNodes(cleanDoc, correspondingCleanNodes.get(0), sourceChild);
+                            context.path.add(RepeatableFieldRegistry.localName(tagName));
+                            mergeNodes(cleanDoc, correspondingCleanNodes.get(0), sourceChild, context);
+                            context.path.remove(context.path.size() - 1);
                         } else {
                             Node importedNode = cleanDoc.importNode(sourceChild, true);
                             cleanNode.appendChild(importedNode);
+                            context.mutations++;
+                            context.imported++;
 
                             // อัพเดต HashMap หลังเพิ่ม Node
-                            cleanNodeMap = buildNodeMap(cleanNode);
+                            if (textReplaced) {
+                                cleanNodeMap = buildNodeMap(cleanNode);
+                                textReplaced = false;
+                            } else {
+                                cleanNodeMap.computeIfAbsent(tagName, k -> new ArrayList<>()).add(importedNode);
+                            }
                         }
                     }
                 } else if (sourceChild.getNodeType() == Node.TEXT_NODE) {
-                    if (!sourceChild.getTextContent().trim().isEmpty()) {
-                        cleanNode.setTextContent(sourceChild.getTextContent().trim());
+                    String text = sourceChild.getTextContent().trim();
+                    if (!text.isEmpty() && !hasOnlyText(cleanNode, text)) {
+                        cleanNode.setTextContent(text);
+                        context.mutations++;
+                        textReplaced = true;
                     }
                 }
             }
         }
 
+    /**
+     * สถานะของ Field ที่ Duplicate ได้ในลูกของ sourceNode หนึ่งตัว (Tag ID -> จำนวนใน Source, ผลรอบก่อนไม่มีการแก้ไข)
+     * จำนวน Tag ต่อ Parent มีไม่กี่ตัว จึงค้นหาแบบเรียงลำดับใน Array
+     */
+    private static final class RepeatableTags {
+        int[] tags = new int[4];
+        /** -1 = ยังไม่ได้นับ */
+        int[] sourceCounts = new int[4];
+        boolean[] stable = new boolean[4];
+        int size;
+
+        /**
+         * @param tag
+         * @return ตำแหน่งของ tag (เพิ่มใหม่ถ้ายังไม่มี)
+         */
+        int slotOf(int tag) {
+            for (int i = 0; i < size; i++) {
+                if (tags[i] == tag) {
+                    return i;
+                }
+            }
+            if (size == tags.length) {
+                tags = Arrays.copyOf(tags, size * 2);
+                sourceCounts = Arrays.copyOf(sourceCounts, size * 2);
+                stable = Arrays.copyOf(stable, size * 2);
+            }
+            tags[size] = tag;
+            sourceCounts[size] = -1;
+            return size++;
+        }
+    }
+
+    /**
+     * @param nodeMap
+     * @param tagName
+     * @return โหนดแรกของ tagName ใน nodeMap (เทียบเท่า findChildNode เมื่อ nodeMap ตรงกับ DOM)
+     */
+    private static Node firstNode(Map<String, List<Node>> nodeMap, String tagName) {
+        List<Node> nodes = nodeMap.get(tagName);
+        return nodes == null || nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    /**
+     * ตรวจว่า node มีลูกเป็น Text Node เดียวที่มีค่าเท่ากับ text (setTextContent ซ้ำจะไม่เปลี่ยนอะไร)
+     *
+     * @param node
+     * @param text
+     * @return
+     */
+    private static boolean hasOnlyText(Node node, String text) {
+        Node firstChild = node.getFirstChild();
+        return firstChild != null && firstChild.getNextSibling() == null
+                && firstChild.getNodeType() == Node.TEXT_NODE && text.equals(firstChild.getNodeValue());
+    }
+
     /**
      * สร้างแผนที่ (HashMap) ของโหนดจาก NodeList
      *
@@ -515,7 +1161,7 @@ public class XMLMerger {
      * @param parentNode โหนดต้นทางที่ต้องการสร้างแผนที่โหนดลูก
      * @return แผนที่ (Map) ที่จับคู่ tagName กับ List ของโหนดลูกที่มีชื่อแท็กเดียวกัน
      */
-    private static Map<String, List<Node>> buildNodeMap(Node parentNode) {
+    static Map<String, List<Node>> buildNodeMap(Node parentNode) {
         Map<String, List<Node>> nodeMap = new HashMap<>();
         NodeList children = parentNode.getChildNodes();
 
@@ -536,11 +1182,7 @@ public class XMLMerger {
      * @param tagName
      * @return
      */
-    private static boolean isSpecialDuplicateFields(String tagName) {
-        List<String> specialDuplicateFields = Arrays.asList(
-                "ProjectNameSoftLoans", "ExistingGuaranteeCollateralDetails", "creditLineFees",
-                "feeContractReference", "SpecificDebtInContract", "RemarkForAdditionalDocument"
-        );
+    static boolean isSpecialDuplicateFields(String tagName) {
         return specialDuplicateFields.contains(tagName);
     }
 
@@ -580,25 +1222,53 @@ public class XMLMerger {
         }
     }
 
+    /**
+     * remove special duplicate nodes โดยใช้รายการโหนดของ tagName จาก cleanNodeMap (ไม่ต้องวนลูกทั้งหมดของ parentNode)
+     * โหนดที่ถูกลบจะถูกเอาออกจาก tagNodes ด้วย
+     *
+     * @param parentNode
+     * @param tagNodes โหนดลูกของ parentNode ที่มี tagName เดียวกัน เรียงตามลำดับในเอกสาร
+     * @return จำนวนโหนดที่ลบ
+     */
+    private static int removeSpecialDuplicateNodes(Node parentNode, List<Node> tagNodes) {
+        Set<String> uniqueValues = new HashSet<>();
+        int removed = 0;
+
+        Iterator<Node> iterator = tagNodes.iterator();
+        while (iterator.hasNext()) {
+            Node node = iterator.next();
+            // ถ้าค่ามีอยู่แล้วใน Set ก็ให้ลบโหนดนี้ออก
+            if (!uniqueValues.add(node.getTextContent().trim())) {
+                parentNode.removeChild(node);
+                iterator.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
     /**
      * remove duplicated nodes (เช็ค isNodeEmpty ไหม จากนั้นค่อยลบ Node ต้นฉบับ)
+     * ใช้รายการโหนดของ tagName จาก cleanNodeMap และเอาโหนดที่ลบออกจาก tagNodes ด้วย
      *
      * @param parent
-     * @param tagName
+     * @param tagNodes โหนดลูกของ parent ที่มี tagName เดียวกัน เรียงตามลำดับในเอกสาร
+     * @return จำนวนโหนดที่ลบ
      */
-    private static void removeDuplicateNodes(Node parent, String tagName) {
-        NodeList children = parent.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
-
-            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(tagName)) {
-                // ตรวจสอบว่าโหนดว่างเปล่าหรือซ้ำซ้อน
-                if (isNodeEmpty(child)) {
-                    parent.removeChild(child);
-                    i--; // ปรับ index หลังจากลบ
-                }
+    static int removeDuplicateNodes(Node parent, List<Node> tagNodes) {
+        int removed = 0;
+
+        Iterator<Node> iterator = tagNodes.iterator();
+        while (iterator.hasNext()) {
+            Node child = iterator.next();
+            // ตรวจสอบว่าโหนดว่างเปล่าหรือซ้ำซ้อน
+            if (isNodeEmpty(child)) {
+                parent.removeChild(child);
+                iterator.remove();
+                removed++;
             }
         }
+        return removed;
     }
 
     /**
@@ -625,54 +1295,49 @@ public class XMLMerger {
      *
      * @param cleanDoc
      * @param cleanNode
-     * @param tagName
+     * @param templateNode โหนดแรกของ tagName ใน cleanNode (null = ไม่มีโครงสร้างให้ Duplicate)
      * @param count
+     * @return โหนดที่ Duplicate เพิ่ม (ต่อท้าย cleanNode ตามลำดับ)
      */
-    private static void duplicateField(Document cleanDoc, Node cleanNode, String tagName, int count) {
-        Node templateNode = findChildNode(cleanNode, tagName);
+    private static List<Node> duplicateField(Document cleanDoc, Node cleanNode, Node templateNode, int count) {
+        if (templateNode == null) {
+            return Collections.emptyList();
+        }
 
-        if (templateNode != null) {
-            for (int i = 0; i < count; i++) {
-                Node duplicateNode = cleanDoc.importNode(templateNode, true);
-                cleanNode.appendChild(duplicateNode);
-            }
+        List<Node> duplicates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Node duplicateNode = cleanDoc.importNode(templateNode, true);
+            cleanNode.appendChild(duplicateNode);
+            duplicates.add(duplicateNode);
         }
+        return duplicates;
     }
 
     /**
-     * ฟังก์ชันเติมข้อมูลใน Field ที่ Duplicate
+     * ฟังก์ชันเติมข้อมูลใน Field ที่ Duplicate (จับคู่ตามลำดับ: ตัวที่ n ของ Source กับตัวที่ n ของ cleanNode)
      *
      * @param cleanDoc
-     * @param cleanNode
-     * @param sourceNode
-     * @param tagName
+     * @param cleanTagNodes ลูกของ cleanNode ที่มี Tag นี้ เรียงตามลำดับในเอกสาร (จาก cleanNodeMap)
+     * @param sourceChildren ลูกของ sourceNode
+     * @param sourceTags Tag ID ของ sourceChildren
+     * @param tag
+     * @param context
      */
-    private static void mergeDuplicateFields(Document cleanDoc, Node cleanNode, Node sourceNode, String tagName) {
-        NodeList cleanChildren = cleanNode.getChildNodes();
-        NodeList sourceChildren = sourceNode.getChildNodes();
-
+    private static void mergeDuplicateFields(Document cleanDoc, List<Node> cleanTagNodes, NodeList sourceChildren, int[] sourceTags,
+                                             int tag, MergeContext context) {
         int cleanIndex = 0;
+        context.path.add(RepeatableFieldRegistry.localName(context.symbols.getName(tag)));
 
-        for (int i = 0; i < sourceChildren.getLength(); i++) {
-            Node sourceChild = sourceChildren.item(i);
-
-            if (sourceChild.getNodeType() == Node.ELEMENT_NODE && sourceChild.getNodeName().equals(tagName)) {
-                while (cleanIndex < cleanChildren.getLength()) {
-                    Node cleanChild = cleanChildren.item(cleanIndex);
-
-                    if (cleanChild.getNodeType() == Node.ELEMENT_NODE && cleanChild.getNodeName().equals(tagName)) {
-                        mergeNodes(cleanDoc, cleanChild, sourceChild);
-                        cleanIndex++;
-                        break;
-                    }
-                    cleanIndex++;
-                }
+        for (int i = 0; i < sourceTags.length && cleanIndex < cleanTagNodes.size(); i++) {
+            if (sourceTags[i] == tag) {
+                mergeNodes(cleanDoc, cleanTagNodes.get(cleanIndex++), sourceChildren.item(i), context);
             }
         }
+        context.path.remove(context.path.size() - 1);
     }
 
     /**
-     * ฟังก์ชันตรวจสอบจำนวน Field ที่มีข้อมูล
+     * ฟังก์ชันตรวจสอบจำนวน Field ที่มีข้อมูล (เทียบชื่อ Tag ใช้ใน mergeNodesDirect)
      *
      * @param parent
      * @param tagName
@@ -692,13 +1357,32 @@ public class XMLMerger {
         return count;
     }
 
+    /**
+     * ฟังก์ชันตรวจสอบจำนวน Field ที่มีข้อมูล (เทียบ Tag ID ใช้ใน mergeNodes)
+     *
+     * @param children
+     * @param tags Tag ID ของ children
+     * @param tag
+     * @return
+     */
+    private static int countChildrenWithData(NodeList children, int[] tags, int tag) {
+        int count = 0;
+
+        for (int i = 0; i < tags.length; i++) {
+            if (tags[i] == tag && hasNonEmptyChild(children.item(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * ฟังก์ชันตรวจสอบว่ามีข้อมูลใน Node หรือไม่
      *
      * @param node
      * @return
      */
-    private static boolean hasNonEmptyChild(Node node) {
+    static boolean hasNonEmptyChild(Node node) {
         NodeList children = node.getChildNodes();
 
         for (int i = 0; i < children.getLength(); i++) {
@@ -729,6 +1413,25 @@ public class XMLMerger {
         }
         return null;
     }
+
+    /**
+     * ฟังก์ชันค้นหา Element ลูกทั้งหมดตามชื่อ (เรียงตามลำดับในเอกสาร)
+     *
+     * @param parent
+     * @param tagName
+     * @return
+     */
+    private static List<Node> findChildNodes(Node parent, String tagName) {
+        List<Node> nodes = new ArrayList<>();
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(tagName)) {
+                nodes.add(child);
+            }
+        }
+        return nodes;
+    }
 }
 
 
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the Dynamic XML Tree Editor application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Search index over the Elements of the loaded document (tag names, paths and text values)
+ *
+ * License: MIT License
+ */
+
+/**
+ * XMLSearchIndex (ค้นหา Field ใน Editor โดยไม่ต้องเปิด Tree ทีละชั้น)
+ *
+ * - สร้างครั้งเดียวหลัง Parse (ใน LoadWorker เบื้องหลัง) โดยเดินทั้งเอกสารผ่าน getFirstChild / getNextSibling
+ * - Index สองชุด เรียงตามตัวอักษรแบบไม่สนตัวพิมพ์ (TreeMap จึงค้นหาแบบ Prefix ด้วย subMap ได้ทันที):
+ *   1. local name ของ Tag -> Element ทั้งหมดที่ใช้ชื่อนี้ (ตามลำดับในเอกสาร)
+ *   2. ค่า Text ของ Element (เฉพาะ Text ที่เป็นลูกโดยตรง ไม่รวมกิ่งย่อย) -> Element
+ * - รูปแบบการค้นหา (Mode):
+ *   1. PREFIX   : ชื่อ Tag หรือค่าที่ขึ้นต้นด้วยคำค้น
+ *   2. CONTAINS : ชื่อ Tag หรือค่าที่มีคำค้นอยู่ข้างใน (วนเฉพาะ Key ที่ไม่ซ้ำกัน ไม่ใช่ทุก Element)
+ *   3. PATH     : Path คล้าย XPath เช่น "CollateralDetail/SecurityDetail/MortgageRank" (ลงท้ายด้วย Path นี้),
+ *                 "/Envelope/Body/Request" (เริ่มจาก Root), "ApplicationDetail//MortgageRank" (ลูกหลานชั้นใดก็ได้),
+ *                 "*" (Element ใดก็ได้ 1 ชั้น), "CollateralDetail[2]" (ตัวที่ 2 ในบรรดาพี่น้องชื่อเดียวกัน นับจาก 1)
+ *                 ชื่อที่ไม่มี Prefix เทียบกับ local name จึงใช้กับ SOAP ที่มี Namespace Prefix ได้ (ดู FieldPath)
+ * - อัปเดตทีละจุดผ่าน TreeModelListener ของ DOMTreeModel (การแก้ไขทุกอย่างรวมถึง Undo/Redo ผ่าน Model):
+ *   เพิ่มโหนด = Index กิ่งนั้น, ลบโหนด = เอากิ่งนั้นออก, แก้ค่า = Index ค่าใหม่ของ Element นั้น
+ *   เมื่อ setTextContent ลบลูกของ Element ที่มีลูก (treeStructureChanged) ลูกเดิมที่หลุดจากเอกสารจะถูกตัดออกตอนค้นหา
+ * - ใช้บน EDT เท่านั้น (ยกเว้นการสร้างใน LoadWorker ก่อนส่งให้ EDT)
+ */
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import java.util.*;
+import java.util.function.Predicate;
+
+final class XMLSearchIndex implements TreeModelListener {
+
+    enum Mode {
+        PREFIX("Prefix"), CONTAINS("Contains"), PATH("Path");
+
+        private final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /** ความยาวสูงสุดของค่าที่เก็บใน Index (ค่าที่ยาวกว่านี้เช่น Base64 ค้นหาได้เฉพาะส่วนต้น) */
+    static final int MAX_INDEXED_VALUE = 256;
+
+    private final Element root;
+    private final TreeMap<String, Set<Element>> byName = new TreeMap<>();
+    private final TreeMap<String, Set<Element>> byValue = new TreeMap<>();
+    /** Key ของค่าที่ Index ไว้ของแต่ละ Element (ใช้เอาออกเมื่อค่าเปลี่ยน) */
+    private final Map<Element, String> indexedValues = new IdentityHashMap<>();
+
+    private XMLSearchIndex(Element root) {
+        this.root = root;
+    }
+
+    /**
+     * สร้าง Index ของทุก Element ใต้ root (รวม root)
+     *
+     * @param root
+     * @return
+     */
+    static XMLSearchIndex build(Element root) {
+        XMLSearchIndex index = new XMLSearchIndex(root);
+        index.addSubtree(root);
+        return index;
+    }
+
+    /**
+     * ค้นหา Element
+     *
+     * @param query
+     * @param mode
+     * @param limit จำนวนผลลัพธ์สูงสุด
+     * @return Element ที่ยังอยู่ในเอกสาร (ชื่อตรงก่อน แล้วจึงค่า) ไม่ซ้ำกัน
+     * @throws IllegalArgumentException เมื่อ Path ไม่ถูกต้อง
+     */
+    List<Element> search(String query, Mode mode, int limit) {
+        String text = query.trim();
+        Set<Element> results = new LinkedHashSet<>();
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Element> detached = new ArrayList<>();
+
+        if (mode == Mode.PATH) {
+            FieldPath path = FieldPath.parse(text);
+            Collection<Set<Element>> candidates = path.isWildcardLast()
+                    ? byName.values()
+                    : Collections.singletonList(byName.getOrDefault(key(path.lastName()), Collections.emptySet()));
+            for (Set<Element> elements : candidates) {
+                collect(elements, path::matches, results, detached, limit);
+            }
+        } else {
+            String key = key(text);
+            for (TreeMap<String, Set<Element>> index : Arrays.asList(byName, byValue)) {
+                Collection<Set<Element>> matches;
+                if (mode == Mode.PREFIX) {
+                    matches = index.subMap(key, true, key + Character.MAX_VALUE, false).values();
+                } else {
+                    matches = new ArrayList<>();
+                    for (Map.Entry<String, Set<Element>> entry : index.entrySet()) {
+                        if (entry.getKey().contains(key)) {
+                            matches.add(entry.getValue());
+                        }
+                    }
+                }
+                for (Set<Element> elements : matches) {
+                    collect(elements, element -> true, results, detached, limit);
+                }
+            }
+        }
+
+        // เอาออกหลังวนเสร็จ (ระหว่างวนแก้ไข Map ไม่ได้)
+        for (Element element : detached) {
+            removeElement(element);
+        }
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * เพิ่ม Element ที่ยังอยู่ในเอกสารและผ่าน filter ลงใน results ส่วน Element ที่หลุดจากเอกสารแล้วเก็บไว้ใน detached
+     */
+    private void collect(Set<Element> elements, Predicate<Element> filter, Set<Element> results, List<Element> detached, int limit) {
+        for (Element element : elements) {
+            if (results.size() >= limit) {
+                return;
+            }
+            if (!isAttached(element)) {
+                detached.add(element);
+            } else if (filter.test(element)) {
+                results.add(element);
+            }
+        }
+    }
+
+    private boolean isAttached(Node node) {
+        for (Node current = node; current != null; current = current.getParentNode()) {
+            if (current == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param element
+     * @return Path สำหรับแสดงผล เช่น "Root/CollateralDetails/CollateralDetail[2]/CollId"
+     */
+    static String pathOf(Element element) {
+        LinkedList<String> segments = new LinkedList<>();
+        for (Node node = element; node != null && node.getNodeType() == Node.ELEMENT_NODE; node = node.getParentNode()) {
+            int position = FieldPath.position(node);
+            boolean repeated = position > 1 || FieldPath.hasNextWithSameName(node);
+            segments.addFirst(repeated ? node.getNodeName() + "[" + position + "]" : node.getNodeName());
+        }
+        return String.join("/", segments);
+    }
+
+    private static String key(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private void addSubtree(Element element) {
+        byName.computeIfAbsent(key(RepeatableFieldRegistry.localName(element)), k -> new LinkedHashSet<>()).add(element);
+        updateValue(element);
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                addSubtree((Element) child);
+            }
+        }
+    }
+
+    private void removeSubtree(Element element) {
+        removeElement(element);
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                removeSubtree((Element) child);
+            }
+        }
+    }
+
+    private void removeElement(Element element) {
+        String nameKey = key(RepeatableFieldRegistry.localName(element));
+        Set<Element> elements = byName.get(nameKey);
+        if (elements != null && elements.remove(element) && elements.isEmpty()) {
+            byName.remove(nameKey);
+        }
+        removeValue(element);
+    }
+
+    private void updateValue(Element element) {
+        removeValue(element);
+        // อ่านเฉพาะส่วนต้นของค่า (ไม่ Copy ค่าขนาดใหญ่ทั้งก้อน)
+        String value = DOMTreeModel.directTextPreview(element, MAX_INDEXED_VALUE, false);
+        if (!value.isEmpty()) {
+            String valueKey = key(value);
+            byValue.computeIfAbsent(valueKey, k -> new LinkedHashSet<>()).add(element);
+            indexedValues.put(element, valueKey);
+        }
+    }
+
+    private void removeValue(Element element) {
+        String valueKey = indexedValues.remove(element);
+        if (valueKey != null) {
+            Set<Element> elements = byValue.get(valueKey);
+            if (elements != null && elements.remove(element) && elements.isEmpty()) {
+                byValue.remove(valueKey);
+            }
+        }
+    }
+
+    @Override
+    public void treeNodesChanged(TreeModelEvent e) {
+        Object[] children = e.getChildren();
+        if (children == null) {
+            updateValue((Element) e.getTreePath().getLastPathComponent());
+            return;
+        }
+        for (Object child : children) {
+            updateValue((Element) child);
+        }
+    }
+
+    @Override
+    public void treeNodesInserted(TreeModelEvent e) {
+        for (Object child : e.getChildren()) {
+            addSubtree((Element) child);
+        }
+    }
+
+    @Override
+    public void treeNodesRemoved(TreeModelEvent e) {
+        for (Object child : e.getChildren()) {
+            removeSubtree((Element) child);
+        }
+    }
+
+    @Override
+    public void treeStructureChanged(TreeModelEvent e) {
+        // ลูกเดิมไม่อยู่ใน DOM แล้ว (ถูกตัดออกตอนค้นหา) จึง Index เฉพาะค่าและลูกใหม่
+        Element element = (Element) e.getTreePath().getLastPathComponent();
+        updateValue(element);
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                addSubtree((Element) child);
+            }
+        }
+    }
+}
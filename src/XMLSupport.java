@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Shared JAXP factories and per-thread DocumentBuilder / Transformer instances
+ *
+ * License: MIT License
+ */
+
+/**
+ * XMLSupport
+ *
+ * - การเรียก DocumentBuilderFactory.newInstance() / TransformerFactory.newInstance() ต้องค้นหา Implementation
+ *   ผ่าน Service Loader ทุกครั้ง (ช้ามากเมื่อเรียกซ้ำหลายพันไฟล์) จึงสร้าง Factory ที่ตั้งค่าแล้วไว้ครั้งเดียว
+ * - Factory ใช้ร่วมกันได้ทุก Thread (ตั้งค่าเสร็จก่อนใช้งาน) แต่ DocumentBuilder และ Transformer ไม่ Thread-safe
+ *   จึงเก็บเป็น ThreadLocal (1 ตัวต่อ Thread) และ reset() ทุกครั้งก่อนส่งให้ผู้ใช้
+ *   (ล้าง ErrorHandler, EntityResolver, Parameter และ Output Property ที่ผู้ใช้ครั้งก่อนตั้งไว้)
+ * - documentBuilder(true) ใช้กับ XMLMerger (Namespace-aware), documentBuilder(false) ใช้กับ Editor
+ *   (Editor สร้าง Element ด้วย createElement ซึ่งไม่มี Namespace)
+ */
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+final class XMLSupport {
+
+    private static final DocumentBuilderFactory NAMESPACE_AWARE_BUILDER_FACTORY = createDocumentBuilderFactory(true);
+    private static final DocumentBuilderFactory BUILDER_FACTORY = createDocumentBuilderFactory(false);
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+
+    /** StAX Factory (Thread-safe หลังตั้งค่าเสร็จ) */
+    static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final ThreadLocal<DocumentBuilder> NAMESPACE_AWARE_BUILDERS =
+            ThreadLocal.withInitial(() -> newDocumentBuilder(NAMESPACE_AWARE_BUILDER_FACTORY));
+    private static final ThreadLocal<DocumentBuilder> BUILDERS =
+            ThreadLocal.withInitial(() -> newDocumentBuilder(BUILDER_FACTORY));
+    private static final ThreadLocal<Transformer> TRANSFORMERS = ThreadLocal.withInitial(XMLSupport::newTransformer);
+
+    private XMLSupport() {
+    }
+
+    /**
+     * DocumentBuilder ของ Thread ปัจจุบัน (reset แล้ว)
+     * - ห้ามส่งต่อให้ Thread อื่น และใช้ได้จนกว่าจะเรียก documentBuilder() ครั้งถัดไปใน Thread เดียวกัน
+     *
+     * @param namespaceAware
+     * @return
+     */
+    static DocumentBuilder documentBuilder(boolean namespaceAware) {
+        DocumentBuilder builder = (namespaceAware ? NAMESPACE_AWARE_BUILDERS : BUILDERS).get();
+        builder.reset();
+        return builder;
+    }
+
+    /**
+     * Identity Transformer ของ Thread ปัจจุบัน (reset แล้ว ตั้ง indent-amount = 2 แบบเดียวกับไฟล์ที่ Save เดิม)
+     *
+     * @return
+     */
+    static Transformer transformer() {
+        Transformer transformer = TRANSFORMERS.get();
+        transformer.reset();
+        // transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+        return transformer;
+    }
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory(boolean namespaceAware) {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        return factory;
+    }
+
+    private static DocumentBuilder newDocumentBuilder(DocumentBuilderFactory factory) {
+        try {
+            // DocumentBuilderFactory ไม่รับประกันว่า newDocumentBuilder() Thread-safe
+            synchronized (factory) {
+                return factory.newDocumentBuilder();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Transformer newTransformer() {
+        try {
+            synchronized (TRANSFORMER_FACTORY) {
+                return TRANSFORMER_FACTORY.newTransformer();
+            }
+        } catch (TransformerConfigurationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        // ให้ CDATA แยกเป็น Event ของตัวเอง (DOM เก็บเป็น CDATASection ซึ่ง mergeNodes ไม่นำมาใช้)
+        String reportCdata = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+        if (factory.isPropertySupported(reportCdata)) {
+            factory.setProperty(reportCdata, true);
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Tests for the input file / folder / glob expansion of the command line tools
+ *
+ * License: MIT License
+ */
+
+/**
+ * วิธีการใช้งาน:
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out ExpandInputsTest
+ *
+ * - สร้างโฟลเดอร์ชั่วคราว: in/top.xml, in/sub/deep.xml, in/sub/x/deeper.xml, in/sub/notes.txt
+ * - ตรวจผลของ MergeCommandLine.expandInputs (ไฟล์ที่ได้เรียงตาม Path และโฟลเดอร์ย่อยของแต่ละไฟล์)
+ * - Exit code 1 เมื่อมี Test ที่ไม่ผ่าน
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ExpandInputsTest {
+
+    private static Path in;
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        Path root = Files.createTempDirectory("expand-inputs");
+        try {
+            in = root.resolve("in");
+            write(in.resolve("top.xml"));
+            write(in.resolve("sub/deep.xml"));
+            write(in.resolve("sub/x/deeper.xml"));
+            write(in.resolve("sub/notes.txt"));
+
+            // "**/" ตรงกับโฟลเดอร์ศูนย์ระดับด้วย: ไฟล์ในโฟลเดอร์ in เองต้องไม่หาย
+            check("in/**/*.xml", false, "sub/deep.xml=sub", "sub/x/deeper.xml=sub/x", "top.xml=");
+            check("in/**/**/*.xml", false, "sub/deep.xml=sub", "sub/x/deeper.xml=sub/x", "top.xml=");
+            // โฟลเดอร์ย่อยนับจากส่วนที่ไม่มี Glob (in/sub)
+            check("in/sub/**/*.xml", false, "sub/deep.xml=", "sub/x/deeper.xml=x");
+            check("in/**/x/*.xml", false, "sub/x/deeper.xml=sub/x");
+            // "*" ไม่ข้าม "/" แม้ใช้ --recursive
+            check("in/*.xml", true, "top.xml=");
+            check("in", false, "top.xml=");
+            check("in", true, "sub/deep.xml=sub", "sub/x/deeper.xml=sub/x", "top.xml=");
+        } finally {
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+            }
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " test(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All tests passed");
+    }
+
+    /**
+     * @param input     Input ที่สัมพันธ์กับโฟลเดอร์ชั่วคราว
+     * @param recursive
+     * @param expected  "ไฟล์ (เทียบกับ in)=โฟลเดอร์ย่อย" ตามลำดับที่ expandInputs คืน
+     */
+    private static void check(String input, boolean recursive, String... expected) throws IOException {
+        Map<File, String> relativeDirectories = new HashMap<>();
+        String absolute = in.getParent().toString().replace('\\', '/') + "/" + input;
+        List<String> actual = new ArrayList<>();
+        for (File file : MergeCommandLine.expandInputs(Collections.singletonList(absolute), recursive, relativeDirectories)) {
+            String path = in.relativize(file.toPath()).toString().replace('\\', '/');
+            actual.add(path + "=" + relativeDirectories.get(file).replace('\\', '/'));
+        }
+
+        String name = input + (recursive ? " --recursive" : "");
+        if (actual.equals(Arrays.asList(expected))) {
+            System.out.println("PASS " + name);
+        } else {
+            failures++;
+            System.out.println("FAIL " + name + ": expected " + Arrays.asList(expected) + " but was " + actual);
+        }
+    }
+
+    private static void write(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, "<root/>".getBytes(StandardCharsets.UTF_8));
+    }
+}
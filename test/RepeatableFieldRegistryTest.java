@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2025 Phumsith Insakul. All rights reserved.
+ *
+ * This code is part of the XMLMerger application.
+ *
+ * Author: Phumsith Insakul
+ * Email: phumparfait@gmail.com
+ *
+ * Description:
+ * Tests for repeatable field matching, including namespace-prefixed tags
+ *
+ * License: MIT License
+ */
+
+/**
+ * วิธีการใช้งาน:
+ * javac -encoding UTF-8 -d out src/*.java test/*.java
+ * java -cp out RepeatableFieldRegistryTest
+ *
+ * - BUILTIN_FIELDS เทียบชื่อ Tag แบบเต็ม (Whitelist เดิม): v1:CollateralDetail ไม่ตรงกับ "CollateralDetail"
+ * - Rule จาก Schema / คอมเมนต์เทียบ local name: ตรงกับทุก Prefix
+ * - Cache ต้องเก็บทั้งสองแบบไว้ได้ตรงเดิม
+ * - Merge เอกสารที่มี Prefix ด้วย Registry Default ต้องได้ผลเหมือน Whitelist เดิม (ทั้ง DOM และ Streaming)
+ * - Exit code 1 เมื่อมี Test ที่ไม่ผ่าน
+ */
+
+import org.w3c.dom.Document;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RepeatableFieldRegistryTest {
+
+    private static final String STRUCTURE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<Request xmlns:v1=\"http://example.com/v1\">\n"
+            + "   <CollateralDetails>\n"
+            + "      <CollateralDetail><CollId></CollId></CollateralDetail>\n"
+            + "   </CollateralDetails>\n"
+            + "   <v1:CollateralDetails>\n"
+            + "      <v1:CollateralDetail><v1:CollId></v1:CollId></v1:CollateralDetail>\n"
+            + "   </v1:CollateralDetails>\n"
+            + "</Request>\n";
+
+    private static final String SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<Request xmlns:v1=\"http://example.com/v1\">\n"
+            + "   <CollateralDetails>\n"
+            + "      <CollateralDetail><CollId>C1</CollId></CollateralDetail>\n"
+            + "      <CollateralDetail><CollId>C2</CollId></CollateralDetail>\n"
+            + "   </CollateralDetails>\n"
+            + "   <v1:CollateralDetails>\n"
+            + "      <v1:CollateralDetail><v1:CollId>P1</v1:CollId></v1:CollateralDetail>\n"
+            + "      <v1:CollateralDetail><v1:CollId>P2</v1:CollId></v1:CollateralDetail>\n"
+            + "   </v1:CollateralDetails>\n"
+            + "</Request>\n";
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        List<String> path = Arrays.asList("Request", "CollateralDetails");
+
+        RepeatableFieldRegistry builtin = RepeatableFieldRegistry.builtin();
+        check("builtin matches bare tag", builtin.isRepeatable(path, "CollateralDetail"));
+        check("builtin ignores prefixed tag", !builtin.isRepeatable(path, "v1:CollateralDetail"));
+        check("builtin mayBeRepeatable ignores prefixed tag", !builtin.mayBeRepeatable("v1:CollateralDetail"));
+
+        RepeatableFieldRegistry rules = RepeatableFieldRegistry.of(Collections.singleton("CollateralDetails/CollateralDetail"));
+        check("path rule matches bare tag", rules.isRepeatable(path, "CollateralDetail"));
+        check("path rule matches prefixed tag", rules.isRepeatable(path, "v1:CollateralDetail"));
+        check("path rule checks parent", !rules.isRepeatable(Collections.singletonList("Request"), "CollateralDetail"));
+
+        RepeatableFieldRegistry union = builtin.union(rules);
+        check("union keeps tag names and rules", union.getTagNames().equals(builtin.getTagNames())
+                && union.getRules().equals(rules.getRules()));
+
+        File directory = Files.createTempDirectory("repeatable-fields").toFile();
+        try {
+            File cache = new File(directory, "rules.bin");
+            union.save(cache);
+            RepeatableFieldRegistry loaded = RepeatableFieldRegistry.load(cache);
+            check("cache keeps tag names", loaded.getTagNames().equals(union.getTagNames()));
+            check("cache keeps rules", loaded.getRules().equals(union.getRules()));
+            builtin.save(cache);
+            check("cached builtin ignores prefixed tag", !RepeatableFieldRegistry.load(cache).isRepeatable(path, "v1:CollateralDetail"));
+
+            // Registry Default: CollateralDetail ที่ไม่มี Prefix Duplicate ได้ ส่วน v1:CollateralDetail เหลือตัวเดียวเหมือนเดิม
+            RepeatableFieldRegistry.setDefault(builtin);
+            File structureFile = write(new File(directory, "structure.xml"), STRUCTURE);
+            File sourceFile = write(new File(directory, "source.xml"), SOURCE);
+            MergeTemplate template = MergeTemplate.load(structureFile, XMLSupport.documentBuilder(true), builtin);
+            for (boolean streaming : new boolean[]{false, true}) {
+                File outputFile = new File(directory, streaming ? "streaming.xml" : "dom.xml");
+                XMLMerger.mergeFile(XMLSupport.documentBuilder(true), XMLSupport.transformer(), template, sourceFile, outputFile, streaming);
+                Document result = XMLSupport.documentBuilder(true).parse(outputFile);
+                String mode = streaming ? " (streaming)" : " (DOM)";
+                check("bare CollateralDetail duplicated" + mode,
+                        result.getElementsByTagName("CollateralDetail").getLength() == 2);
+                check("prefixed v1:CollateralDetail not duplicated" + mode,
+                        result.getElementsByTagName("v1:CollateralDetail").getLength() == 1);
+            }
+        } finally {
+            for (File file : directory.listFiles()) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(directory.toPath());
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " test(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All tests passed");
+    }
+
+    private static void check(String name, boolean passed) {
+        if (passed) {
+            System.out.println("PASS " + name);
+        } else {
+            failures++;
+            System.out.println("FAIL " + name);
+        }
+    }
+
+    private static File write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}